@@ -3,45 +3,38 @@ package android.database.sqlite;
 import android.database.CharArrayBuffer;
 import android.database.ContentObserver;
 import android.database.Cursor;
+import android.database.CursorIndexOutOfBoundsException;
 import android.database.DataSetObserver;
 import android.net.Uri;
 import android.os.Bundle;
 
-import java.util.Iterator;
-import java.util.List;
-
 import android.content.ContentResolver;
-import android.content.ContentValues;
 
 /**
- * Models a cursor over records in a table
+ * Models a cursor over the result of a query. The cursor holds a copy of the
+ * selected values, so later changes of the table are not visible through it.
  * 
  * @author Heila van der Merwe
  * 
  */
 public class AndroidCursor implements Cursor {
 
-  /** List of values in the table */
-  List<ContentValues> values;
+  /** the selected values, row by row */
+  Object[] values;
+
+  int count;
 
-  /** Iterator over the */
-  Iterator<ContentValues> iterator;
-  ContentValues current = null;
+  /** the current row, -1 before the first and count after the last row */
+  int position = -1;
 
   String[] columns = null;
 
   boolean closed;
 
-  //  public AndroidCursor(String[] columns) {
-  //
-  //    closed = false;
-  //  }
-
-  public AndroidCursor(List<ContentValues> values, String[] columns) {
-    this.values = values;
-    if (values != null)
-      iterator = (Iterator<ContentValues>) values.iterator();
+  public AndroidCursor(String[] columns, Object[] values, int count) {
     this.columns = columns;
+    this.values = values;
+    this.count = count;
 
     closed = false;
 
@@ -55,21 +48,18 @@ public class AndroidCursor implements Cursor {
     return closed;
   }
 
-  public boolean moveToNext() {
-    if (iterator.hasNext())
-      current = iterator.next();
-    else
-      current = null;
-    return current != null;
-  }
-
   public int getColumnCount() {
     return (columns != null) ? columns.length : 0;
   }
 
   public int getColumnIndex(String columnName) {
+    // the column name may be qualified by the table name
+    int dot = columnName.lastIndexOf('.');
+    if (dot >= 0) {
+      columnName = columnName.substring(dot + 1);
+    }
     for (int i = 0; i < columns.length; i++) {
-      if (columns[i].equals(columnName))
+      if (columns[i].equalsIgnoreCase(columnName))
         return i;
     }
     return -1;
@@ -80,7 +70,7 @@ public class AndroidCursor implements Cursor {
     if (result > -1) {
       return result;
     }
-    throw new IllegalArgumentException("Trying to find non-exisiting column " + columnName);
+    throw new IllegalArgumentException("column '" + columnName + "' does not exist");
   }
 
   public String getColumnName(int columnIndex) {
@@ -92,98 +82,162 @@ public class AndroidCursor implements Cursor {
   }
 
   public int getCount() {
-    return (values!=null)? values.size():0;
+    return count;
+  }
+
+  private Object get(int columnIndex) {
+    if (position < 0 || position >= count) {
+      throw new CursorIndexOutOfBoundsException(position, count);
+    }
+    if (columnIndex < 0 || columnIndex >= columns.length) {
+      throw new CursorIndexOutOfBoundsException("Requested column: " + columnIndex + ", # of columns: "
+          + columns.length);
+    }
+    return values[position * columns.length + columnIndex];
+  }
+
+  private long getNumber(int columnIndex) {
+    Object value = get(columnIndex);
+    if (value == null) {
+      return 0;
+    } else if (value instanceof Number) {
+      return ((Number) value).longValue();
+    }
+    try {
+      return (long) Double.parseDouble(value.toString().trim());
+    } catch (NumberFormatException e) {
+      return 0; // like sqlite3_column_int64() for non numeric text
+    }
   }
 
   public int getInt(int columnIndex) {
-    return (Integer) current.get(getColumnName(columnIndex));
+    return (int) getNumber(columnIndex);
   }
 
   public long getLong(int columnIndex) {
-    return new Long((Integer) current.get(getColumnName(columnIndex)));
+    return getNumber(columnIndex);
   }
 
   public short getShort(int columnIndex) {
-    return (Short) current.get(getColumnName(columnIndex));
+    return (short) getNumber(columnIndex);
   }
 
   public float getFloat(int columnIndex) {
-    return (Float) current.get(getColumnName(columnIndex));
+    return (float) getDouble(columnIndex);
   }
 
   public double getDouble(int columnIndex) {
-    return (Double) current.get(getColumnName(columnIndex));
+    Object value = get(columnIndex);
+    if (value == null) {
+      return 0;
+    } else if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    try {
+      return Double.parseDouble(value.toString().trim());
+    } catch (NumberFormatException e) {
+      return 0;
+    }
   }
 
   public String getString(int columnIndex) {
-    return (String) current.get(getColumnName(columnIndex));
+    Object value = get(columnIndex);
+    if (value instanceof byte[]) {
+      return new String((byte[]) value);
+    }
+    return (value != null) ? value.toString() : null;
+  }
+
+  @Override
+  public byte[] getBlob(int columnIndex) {
+    Object value = get(columnIndex);
+    if (value == null || value instanceof byte[]) {
+      return (byte[]) value;
+    }
+    return value.toString().getBytes();
+  }
+
+  @Override
+  public int getType(int columnIndex) {
+    Object value = get(columnIndex);
+    if (value == null) {
+      return FIELD_TYPE_NULL;
+    } else if (value instanceof Long) {
+      return FIELD_TYPE_INTEGER;
+    } else if (value instanceof Double) {
+      return FIELD_TYPE_FLOAT;
+    } else if (value instanceof String) {
+      return FIELD_TYPE_STRING;
+    }
+    return FIELD_TYPE_BLOB;
+  }
 
+  @Override
+  public boolean isNull(int columnIndex) {
+    return get(columnIndex) == null;
   }
 
   @Override
   public int getPosition() {
-    // TODO Auto-generated method stub
-    return 0;
+    return position;
   }
 
   @Override
   public boolean move(int offset) {
-    // TODO Auto-generated method stub
-    return false;
+    return moveToPosition(position + offset);
   }
 
   @Override
   public boolean moveToPosition(int position) {
-    // TODO Auto-generated method stub
-    return false;
+    if (position >= count) {
+      this.position = count;
+      return false;
+    }
+    if (position < 0) {
+      this.position = -1;
+      return false;
+    }
+    this.position = position;
+    return true;
+  }
+
+  public boolean moveToNext() {
+    return moveToPosition(position + 1);
   }
 
   @Override
   public boolean moveToFirst() {
-    // TODO Auto-generated method stub
-    return false;
+    return moveToPosition(0);
   }
 
   @Override
   public boolean moveToLast() {
-    // TODO Auto-generated method stub
-    return false;
+    return moveToPosition(count - 1);
   }
 
   @Override
   public boolean moveToPrevious() {
-    // TODO Auto-generated method stub
-    return false;
+    return moveToPosition(position - 1);
   }
 
   @Override
   public boolean isFirst() {
-    // TODO Auto-generated method stub
-    return false;
+    return position == 0 && count != 0;
   }
 
   @Override
   public boolean isLast() {
-    // TODO Auto-generated method stub
-    return false;
+    return position == count - 1 && count != 0;
   }
 
   @Override
   public boolean isBeforeFirst() {
-    // TODO Auto-generated method stub
-    return false;
+    return count == 0 || position == -1;
   }
 
   @Override
   public boolean isAfterLast() {
-    // TODO Auto-generated method stub
-    return false;
-  }
-
-  @Override
-  public byte[] getBlob(int columnIndex) {
-    // TODO Auto-generated method stub
-    return null;
+    return count == 0 || position == count;
   }
 
   @Override
@@ -192,18 +246,6 @@ public class AndroidCursor implements Cursor {
     
   }
 
-  @Override
-  public int getType(int columnIndex) {
-    // TODO Auto-generated method stub
-    return 0;
-  }
-
-  @Override
-  public boolean isNull(int columnIndex) {
-    // TODO Auto-generated method stub
-    return false;
-  }
-
   @Override
   public void deactivate() {
     // TODO Auto-generated method stub
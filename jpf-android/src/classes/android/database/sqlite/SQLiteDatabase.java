@@ -1,100 +1,320 @@
 package android.database.sqlite;
 
-import java.util.Arrays;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.SQLException;
 import android.util.Log;
 
+/**
+ * Models an in-memory SQLite database. The tables are {@link SQLiteTable}s in
+ * the JPF heap, so that they are backtracked with the rest of the program
+ * state.
+ *
+ * SQL statements are parsed by the native peer, which caches the parsed
+ * statements by their SQL text and returns a handle for them. The peer also
+ * evaluates the WHERE clauses against the tables, the model performs the
+ * changes.
+ *
+ * @author Heila van der Merwe
+ *
+ */
 public class SQLiteDatabase {
   private final String TAG = SQLiteDatabase.this.getClass().getSimpleName();
-  private static final int SELECT = 0;
-  private static final int INSERT = 1;
-  private static final int UPDATE = 2;
+
+  // statement types, see gov.nasa.jpf.android.SQLStatement
+  private static final int OTHER = 0;
+  private static final int CREATE_TABLE = 1;
+  private static final int DROP_TABLE = 2;
+  private static final int INSERT = 3;
+  private static final int SELECT = 4;
+  private static final int UPDATE = 5;
+  private static final int DELETE = 6;
 
   public class CursorFactory {
 
   }
 
   /**
-   * Stores all the ContentValues in each table
+   * The tables of the database by name
    */
-  Map<String, LinkedList<ContentValues>> table = new HashMap<String, LinkedList<ContentValues>>();
+  Map<String, SQLiteTable> tables = new HashMap<String, SQLiteTable>();
 
   public long insertOrThrow(String tableName, String nullColumnHack, ContentValues values)
       throws SQLException {
-    String title = (String) values.get("title");
-    Log.i(TAG, "Inserting value " + ((title == null)? null:(title.length()>10)?title.substring(0,11):title) + " into " + tableName);
-    LinkedList<ContentValues> val = table.get(tableName);
-    if (val == null) {
-      val = new LinkedList<ContentValues>();
+    Log.i(TAG, "Inserting into " + tableName);
+    SQLiteTable table = getTable(tableName);
+
+    Object[] row = new Object[table.columns.length];
+    if (values != null) {
+      for (Entry<String, Object> e : values.valueSet()) {
+        row[table.getColumnIndexOrThrow(e.getKey())] = e.getValue();
+      }
     }
-    values.put("_id", val.size());
-    val.add(values);
-    table.put(tableName, val);
-    return val.size();
+    return table.insert(row);
   }
 
   public long insert(String tableName, String nullColumnHack, ContentValues values) {
-    String title = (String) values.get("title");
-
-    Log.i(TAG, "Inserting value " + ((title == null)? null:(title.length()>10)?title.substring(0,11):title) + " into " + tableName);
-
-    LinkedList<ContentValues> val = table.get(tableName);
-    if (val == null) {
-      val = new LinkedList<ContentValues>();
+    try {
+      return insertOrThrow(tableName, nullColumnHack, values);
+    } catch (SQLException e) {
+      Log.e(TAG, "Error inserting into " + tableName + ": " + e.getMessage());
+      return -1;
     }
-    values.put("_id", val.size());
-    val.add(values);
-    table.put(tableName, val);
-    return val.size();
   }
 
   public Cursor query(String tableName, String[] columns, String selection, String[] selectionArgs,
                       String groupBy, String having, String orderBy) {
-    Log.i(TAG, "Querying " + columns + " from " + tableName);
+    return query(tableName, columns, selection, selectionArgs, groupBy, having, orderBy, null);
+  }
+
+  public Cursor query(String tableName, String[] columns, String selection, String[] selectionArgs,
+                      String groupBy, String having, String orderBy, String limit) {
+    Log.i(TAG, "Querying " + tableName + " where " + selection);
+    if (groupBy != null || having != null) {
+      throw new SQLiteException("GROUP BY is not supported");
+    }
 
-    //get the values in the table
-    LinkedList<ContentValues> val = table.get(tableName);
+    StringBuilder sql = new StringBuilder("SELECT * FROM ");
+    sql.append(tableName);
+    if (selection != null && selection.length() > 0) {
+      sql.append(" WHERE ").append(selection);
+    }
+    if (orderBy != null && orderBy.length() > 0) {
+      sql.append(" ORDER BY ").append(orderBy);
+    }
+    if (limit != null && limit.length() > 0) {
+      sql.append(" LIMIT ").append(limit);
+    }
+
+    SQLiteTable table = getTable(tableName);
+    int stmt = compileSQL(sql.toString());
+    return createCursor(table, (columns != null) ? columns : table.columns, selectRows(stmt, table, selectionArgs));
+  }
 
-    //filter the values in the table
-    
-    //i the columns parameter is empty, get all columns
-    if (columns == null) {
-      columns = getColumns(tableName);
-      Log.i(TAG, "Gotten all Columns: " + Arrays.toString(columns));
+  public Cursor rawQuery(String sql, String[] selectionArgs) {
+    Log.i(TAG, "Querying " + sql);
+    int stmt = compileSQL(sql);
+    if (getStatementType(stmt) != SELECT) {
+      execSQL(stmt, selectionArgs);
+      return createCursor(null, new String[0], new int[0]);
     }
-    
-    // if the table does not exists
-    return new AndroidCursor(val, columns);
 
+    SQLiteTable table = getTable(getTableName(stmt));
+    String[] columns = getColumnNames(stmt);
+    return createCursor(table, (columns != null) ? columns : table.columns, selectRows(stmt, table, selectionArgs));
+  }
+
+  private Cursor createCursor(SQLiteTable table, String[] columns, int[] rows) {
+    // copy the values, the cursor does not see later changes of the table
+    Object[] values = new Object[rows.length * columns.length];
+    if (table != null) {
+      int[] cols = new int[columns.length];
+      for (int c = 0; c < columns.length; c++) {
+        cols[c] = table.getColumnIndex(columns[c]);
+        if (cols[c] < 0 && !columns[c].equalsIgnoreCase("rowid")) {
+          throw new SQLiteException("no such column: " + columns[c]);
+        }
+      }
+      for (int r = 0; r < rows.length; r++) {
+        for (int c = 0; c < cols.length; c++) {
+          values[r * cols.length + c] = (cols[c] >= 0) ? table.get(rows[r], cols[c]) : Long
+              .valueOf(table.rowIds[rows[r]]);
+        }
+      }
+    }
+    return new AndroidCursor(columns, values, rows.length);
   }
 
-  public void execSQL(String string) {
-    Log.i(TAG, "Executing SQL " + string);
-    int type = parseSQL(string);
-    switch (type) {
-    case INSERT:
-      //get table
-      //get columns
-      //get value
-    case SELECT:
+  public int update(String tableName, ContentValues values, String whereClause, String[] whereArgs) {
+    Log.i(TAG, "Updating " + tableName + " where " + whereClause);
+    SQLiteTable table = getTable(tableName);
+    int[] rows = selectRows(tableName, whereClause, whereArgs);
+
+    int n = values.size();
+    int[] cols = new int[n];
+    Object[] vals = new Object[n];
+    int i = 0;
+    for (Entry<String, Object> e : values.valueSet()) {
+      cols[i] = table.getColumnIndexOrThrow(e.getKey());
+      vals[i++] = e.getValue();
+    }
+    table.update(rows, cols, vals);
+    return rows.length;
+  }
+
+  public int delete(String tableName, String whereClause, String[] whereArgs) {
+    Log.i(TAG, "Deleting from " + tableName + " where " + whereClause);
+    SQLiteTable table = getTable(tableName);
+    int[] rows = selectRows(tableName, whereClause, whereArgs);
+    table.delete(rows);
+    return rows.length;
+  }
+
+  private int[] selectRows(String tableName, String whereClause, Object[] whereArgs) {
+    SQLiteTable table = getTable(tableName);
+    if (whereClause == null || whereClause.length() == 0) {
+      int[] rows = new int[table.size];
+      for (int i = 0; i < rows.length; i++) {
+        rows[i] = i;
+      }
+      return rows;
+    }
+    int stmt = compileSQL("SELECT * FROM " + tableName + " WHERE " + whereClause);
+    return selectRows(stmt, table, whereArgs);
+  }
+
+  public void execSQL(String sql) throws SQLException {
+    execSQL(sql, null);
+  }
+
+  public void execSQL(String sql, Object[] bindArgs) throws SQLException {
+    Log.i(TAG, "Executing SQL " + sql);
+    execSQL(compileSQL(sql), bindArgs);
+  }
+
+  private void execSQL(int stmt, Object[] bindArgs) {
+    String tableName = getTableName(stmt);
+
+    switch (getStatementType(stmt)) {
+    case CREATE_TABLE:
+      if (tables.containsKey(tableName)) {
+        if (!isIfExists(stmt)) {
+          throw new SQLiteException("table " + tableName + " already exists");
+        }
+      } else {
+        tables.put(tableName, new SQLiteTable(tableName, getColumnNames(stmt), getColumnTypes(stmt),
+            getPrimaryKey(stmt)));
+      }
+      break;
+
+    case DROP_TABLE:
+      if (tables.remove(tableName) == null && !isIfExists(stmt)) {
+        throw new SQLiteException("no such table: " + tableName);
+      }
+      break;
+
+    case INSERT: {
+      SQLiteTable table = getTable(tableName);
+      String[] columns = getColumnNames(stmt);
+      Object[] values = getValues(stmt, bindArgs);
+      Object[] row;
+      if (columns == null) {
+        if (values.length != table.columns.length) {
+          throw new SQLiteException("table " + tableName + " has " + table.columns.length + " columns but "
+              + values.length + " values were supplied");
+        }
+        row = values;
+      } else {
+        row = new Object[table.columns.length];
+        for (int i = 0; i < columns.length; i++) {
+          row[table.getColumnIndexOrThrow(columns[i])] = values[i];
+        }
+      }
+      table.insert(row);
+      break;
+    }
+
+    case UPDATE: {
+      SQLiteTable table = getTable(tableName);
+      String[] columns = getColumnNames(stmt);
+      Object[] values = getValues(stmt, bindArgs);
+      int[] rows = selectRows(stmt, table, bindArgs);
+      int[] cols = new int[columns.length];
+      for (int i = 0; i < columns.length; i++) {
+        cols[i] = table.getColumnIndexOrThrow(columns[i]);
+      }
+      table.update(rows, cols, values);
+      break;
+    }
+
+    case DELETE: {
+      SQLiteTable table = getTable(tableName);
+      table.delete(selectRows(stmt, table, bindArgs));
+      break;
+    }
 
     default:
+      // SELECT without a cursor and unsupported statements have no effect
+      Log.w(TAG, "Ignoring SQL statement");
+    }
+  }
 
+  private SQLiteTable getTable(String tableName) {
+    SQLiteTable table = tables.get(tableName);
+    if (table == null) {
+      throw new SQLiteException("no such table: " + tableName);
     }
+    return table;
   }
 
-  private native String[] getColumns(String tablename);
+  /** the values of an INSERT or UPDATE, literals are strings */
+  private Object[] getValues(int stmt, Object[] bindArgs) {
+    String[] literals = getValues(stmt);
+    int[] params = getValueParams(stmt);
+    Object[] values = new Object[literals.length];
+    for (int i = 0; i < values.length; i++) {
+      if (params[i] >= 0) {
+        if (bindArgs == null || params[i] >= bindArgs.length) {
+          throw new SQLiteException("missing bind argument " + (params[i] + 1));
+        }
+        values[i] = bindArgs[params[i]];
+      } else {
+        values[i] = literals[i];
+      }
+    }
+    return values;
+  }
+
+  public boolean isOpen() {
+    return true;
+  }
 
-  private native int parseSQL(String sql);
+  public void close() {
+  }
+
+  public void beginTransaction() {
+  }
 
-  public void delete(String tableRssitem, Object object, Object object2) {
+  public void setTransactionSuccessful() {
+  }
 
+  public void endTransaction() {
   }
 
+  // --- the parsed statements
+
+  /**
+   * Parses a SQL statement, or gets it from the cache of the peer.
+   *
+   * @return the handle of the parsed statement
+   */
+  private native int compileSQL(String sql);
+
+  private native int getStatementType(int stmt);
+
+  private native String getTableName(int stmt);
+
+  private native boolean isIfExists(int stmt);
+
+  private native String[] getColumnNames(int stmt);
+
+  private native int[] getColumnTypes(int stmt);
+
+  private native int getPrimaryKey(int stmt);
+
+  private native String[] getValues(int stmt);
+
+  private native int[] getValueParams(int stmt);
+
+  /**
+   * @return the indices of the rows of the table that satisfy the WHERE clause
+   *         of the statement, in ascending order unless the statement has an
+   *         ORDER BY
+   */
+  private native int[] selectRows(int stmt, SQLiteTable table, Object[] args);
+
 }
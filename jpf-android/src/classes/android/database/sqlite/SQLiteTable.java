@@ -0,0 +1,376 @@
+package android.database.sqlite;
+
+/**
+ * A table of the in-model database. The rows are stored column by column in
+ * primitive arrays according to the affinity of the column. Since the tables
+ * live in the JPF heap they are stored and restored with the program state.
+ *
+ * The WHERE clauses of statements are evaluated by the native peer of the
+ * {@link SQLiteDatabase}, which reads these arrays.
+ *
+ * @author Heila van der Merwe
+ *
+ */
+class SQLiteTable {
+
+  // column affinities, the same values as the Cursor.FIELD_TYPE_ constants
+  static final int INTEGER = 1;
+  static final int REAL = 2;
+  static final int TEXT = 3;
+  static final int BLOB = 4;
+
+  final String name;
+  final String[] columns;
+  final int[] types;
+
+  /** the INTEGER PRIMARY KEY column that aliases the rowid, or -1 */
+  final int primaryKey;
+
+  int size;
+  long nextRowId = 1;
+  long[] rowIds;
+
+  // the column arrays, only the one of the affinity of the column is used
+  long[][] longs;
+  double[][] doubles;
+  String[][] strings;
+  byte[][][] blobs;
+  boolean[][] nulls;
+
+  SQLiteTable(String name, String[] columns, int[] types, int primaryKey) {
+    this.name = name;
+    this.columns = columns;
+    this.types = types;
+    this.primaryKey = primaryKey;
+
+    int n = columns.length;
+    int capacity = 8;
+    rowIds = new long[capacity];
+    longs = new long[n][];
+    doubles = new double[n][];
+    strings = new String[n][];
+    blobs = new byte[n][][];
+    nulls = new boolean[n][capacity];
+    for (int c = 0; c < n; c++) {
+      switch (types[c]) {
+      case INTEGER:
+        longs[c] = new long[capacity];
+        break;
+      case REAL:
+        doubles[c] = new double[capacity];
+        break;
+      case TEXT:
+        strings[c] = new String[capacity];
+        break;
+      default:
+        blobs[c] = new byte[capacity][];
+      }
+    }
+  }
+
+  int getColumnIndex(String column) {
+    for (int c = 0; c < columns.length; c++) {
+      if (columns[c].equalsIgnoreCase(column)) {
+        return c;
+      }
+    }
+    return -1;
+  }
+
+  int getColumnIndexOrThrow(String column) {
+    int c = getColumnIndex(column);
+    if (c < 0) {
+      throw new SQLiteException("table " + name + " has no column named " + column);
+    }
+    return c;
+  }
+
+  /**
+   * Appends a row. All values are converted before the table is changed, so a
+   * failing insert leaves the table as it was.
+   *
+   * @param values
+   *          the values of all columns, null for NULL
+   * @return the rowid of the new row
+   */
+  long insert(Object[] values) {
+    Object[] row = new Object[columns.length];
+    for (int c = 0; c < columns.length; c++) {
+      row[c] = convert(c, values[c]);
+    }
+
+    long rowId;
+    if (primaryKey >= 0 && row[primaryKey] != null) {
+      rowId = ((Long) row[primaryKey]).longValue();
+      if (findRow(rowId) >= 0) {
+        throw new SQLiteConstraintException("PRIMARY KEY must be unique");
+      }
+    } else {
+      rowId = nextRowId;
+      if (primaryKey >= 0) {
+        row[primaryKey] = Long.valueOf(rowId);
+      }
+    }
+    if (rowId >= nextRowId) {
+      nextRowId = rowId + 1;
+    }
+
+    if (size == rowIds.length) {
+      grow();
+    }
+    int r = size++;
+    rowIds[r] = rowId;
+    for (int c = 0; c < columns.length; c++) {
+      store(r, c, row[c]);
+    }
+    return rowId;
+  }
+
+  /**
+   * Sets the given columns of a number of rows. Like insert, this converts all
+   * values first and leaves the table unchanged if that fails.
+   *
+   * @param rows
+   *          the indices of the rows
+   * @param cols
+   *          the indices of the columns
+   * @param values
+   *          the new values of the columns, null for NULL
+   */
+  void update(int[] rows, int[] cols, Object[] values) {
+    Object[] converted = new Object[cols.length];
+    for (int i = 0; i < cols.length; i++) {
+      converted[i] = convert(cols[i], values[i]);
+
+      if (cols[i] == primaryKey && rows.length > 0) {
+        if (converted[i] == null) {
+          throw new SQLiteConstraintException("PRIMARY KEY may not be NULL");
+        }
+        int other = findRow(((Long) converted[i]).longValue());
+        if (rows.length > 1 || (other >= 0 && other != rows[0])) {
+          throw new SQLiteConstraintException("PRIMARY KEY must be unique");
+        }
+      }
+    }
+
+    for (int row : rows) {
+      for (int i = 0; i < cols.length; i++) {
+        store(row, cols[i], converted[i]);
+      }
+    }
+  }
+
+  int findRow(long rowId) {
+    for (int row = 0; row < size; row++) {
+      if (rowIds[row] == rowId) {
+        return row;
+      }
+    }
+    return -1;
+  }
+
+  private void grow() {
+    int capacity = rowIds.length * 2;
+    rowIds = copyOf(rowIds, capacity);
+    for (int c = 0; c < columns.length; c++) {
+      nulls[c] = copyOf(nulls[c], capacity);
+      switch (types[c]) {
+      case INTEGER:
+        longs[c] = copyOf(longs[c], capacity);
+        break;
+      case REAL:
+        double[] d = new double[capacity];
+        System.arraycopy(doubles[c], 0, d, 0, size);
+        doubles[c] = d;
+        break;
+      case TEXT:
+        String[] s = new String[capacity];
+        System.arraycopy(strings[c], 0, s, 0, size);
+        strings[c] = s;
+        break;
+      default:
+        byte[][] b = new byte[capacity][];
+        System.arraycopy(blobs[c], 0, b, 0, size);
+        blobs[c] = b;
+      }
+    }
+  }
+
+  private long[] copyOf(long[] a, int capacity) {
+    long[] b = new long[capacity];
+    System.arraycopy(a, 0, b, 0, size);
+    return b;
+  }
+
+  private boolean[] copyOf(boolean[] a, int capacity) {
+    boolean[] b = new boolean[capacity];
+    System.arraycopy(a, 0, b, 0, size);
+    return b;
+  }
+
+  /**
+   * Converts a value to the affinity of a column. Other than SQLite, which
+   * stores text that does not look like a number as TEXT in INTEGER and REAL
+   * columns, this rejects such values, since a column only stores values of
+   * its own affinity. For the same reason, REAL values in INTEGER columns are
+   * truncated instead of being stored as REAL.
+   *
+   * @return the value as a Long, Double, String, byte[] or null
+   */
+  Object convert(int c, Object value) {
+    if (value == null) {
+      return null;
+    }
+
+    switch (types[c]) {
+    case INTEGER:
+      return Long.valueOf(toLong(value, c));
+    case REAL:
+      return Double.valueOf(toDouble(value, c));
+    case TEXT:
+      return (value instanceof byte[]) ? new String((byte[]) value) : value.toString();
+    default:
+      return (value instanceof byte[]) ? (byte[]) value : value.toString().getBytes();
+    }
+  }
+
+  /** stores a value that was converted by convert(), this can't fail */
+  private void store(int row, int c, Object value) {
+    nulls[c][row] = (value == null);
+    if (value == null) {
+      clear(row, c);
+      return;
+    }
+
+    switch (types[c]) {
+    case INTEGER:
+      longs[c][row] = ((Long) value).longValue();
+      if (c == primaryKey) {
+        rowIds[row] = longs[c][row];
+      }
+      break;
+    case REAL:
+      doubles[c][row] = ((Double) value).doubleValue();
+      break;
+    case TEXT:
+      strings[c][row] = (String) value;
+      break;
+    default:
+      blobs[c][row] = (byte[]) value;
+    }
+  }
+
+  private double toDouble(Object value, int c) {
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    } else if (value instanceof Boolean) {
+      return ((Boolean) value) ? 1 : 0;
+    }
+    try {
+      return Double.parseDouble(value.toString().trim());
+    } catch (NumberFormatException x) {
+      throw new SQLiteException("datatype mismatch: " + value + " for column " + columns[c]);
+    }
+  }
+
+  private long toLong(Object value, int c) {
+    if (value instanceof Number) {
+      return ((Number) value).longValue();
+    } else if (value instanceof Boolean) {
+      return ((Boolean) value) ? 1 : 0;
+    }
+    String s = value.toString().trim();
+    try {
+      return Long.parseLong(s);
+    } catch (NumberFormatException x) {
+      try {
+        return (long) Double.parseDouble(s);
+      } catch (NumberFormatException y) {
+        throw new SQLiteException("datatype mismatch: " + value + " for column " + columns[c]);
+      }
+    }
+  }
+
+  /** @return the value as a Long, Double, String, byte[] or null */
+  Object get(int row, int c) {
+    if (nulls[c][row]) {
+      return null;
+    }
+    switch (types[c]) {
+    case INTEGER:
+      return Long.valueOf(longs[c][row]);
+    case REAL:
+      return Double.valueOf(doubles[c][row]);
+    case TEXT:
+      return strings[c][row];
+    default:
+      return blobs[c][row];
+    }
+  }
+
+  /**
+   * removes rows
+   *
+   * @param rows
+   *          the indices of the rows, in ascending order
+   */
+  void delete(int[] rows) {
+    if (rows.length == 0) {
+      return;
+    }
+    int next = 0;
+    int dst = 0;
+    for (int src = 0; src < size; src++) {
+      if (next < rows.length && rows[next] == src) {
+        next++;
+        continue;
+      }
+      if (src != dst) {
+        rowIds[dst] = rowIds[src];
+        for (int c = 0; c < columns.length; c++) {
+          nulls[c][dst] = nulls[c][src];
+          switch (types[c]) {
+          case INTEGER:
+            longs[c][dst] = longs[c][src];
+            break;
+          case REAL:
+            doubles[c][dst] = doubles[c][src];
+            break;
+          case TEXT:
+            strings[c][dst] = strings[c][src];
+            break;
+          default:
+            blobs[c][dst] = blobs[c][src];
+          }
+        }
+      }
+      dst++;
+    }
+
+    // don't keep removed values, they would only make states differ
+    for (int row = dst; row < size; row++) {
+      rowIds[row] = 0;
+      for (int c = 0; c < columns.length; c++) {
+        nulls[c][row] = false;
+        clear(row, c);
+      }
+    }
+    size = dst;
+  }
+
+  private void clear(int row, int c) {
+    switch (types[c]) {
+    case INTEGER:
+      longs[c][row] = 0;
+      break;
+    case REAL:
+      doubles[c][row] = 0;
+      break;
+    case TEXT:
+      strings[c][row] = null;
+      break;
+    default:
+      blobs[c][row] = null;
+    }
+  }
+}
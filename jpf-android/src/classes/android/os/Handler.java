@@ -6,8 +6,9 @@ import android.util.Log;
 import android.util.Printer;
 
 /**
- * Model of the Android Handler class. The remove message functionality is
- * removed. The Messager functionality is currently disabled. This will be added
+ * Model of the Android Handler class. Delayed messages are delivered by the
+ * MessageQueue in the order of their time on the virtual {@link SystemClock}.
+ * The Messager functionality is currently disabled. This will be added
  * when the Binder communication is modeled.
  * 
  * @author "Heila van der Merwe"
@@ -206,14 +207,99 @@ public class Handler {
     return sendMessage(m);
   }
 
+  /**
+   * Causes the Runnable r to be added to the message queue, to be run after the
+   * specified amount of (virtual) time elapses.
+   */
+  public final boolean postDelayed(Runnable r, long delayMillis) {
+    return sendMessageDelayed(getPostMessage(r), delayMillis);
+  }
+
+  /**
+   * Causes the Runnable r to be added to the message queue, to be run at a
+   * specific time given by <var>uptimeMillis</var>.
+   */
+  public final boolean postAtTime(Runnable r, long uptimeMillis) {
+    return sendMessageAtTime(getPostMessage(r), uptimeMillis);
+  }
+
+  /**
+   * Same as {@link #postAtTime(Runnable, long)}, but the token can be used to
+   * remove the callback with {@link #removeCallbacks(Runnable, Object)}.
+   */
+  public final boolean postAtTime(Runnable r, Object token, long uptimeMillis) {
+    return sendMessageAtTime(getPostMessage(r, token), uptimeMillis);
+  }
+
+  /**
+   * Remove any pending posts of Runnable r that are in the message queue.
+   */
+  public final void removeCallbacks(Runnable r) {
+    mQueue.removeMessages(this, r, null);
+  }
+
+  /**
+   * Remove any pending posts of Runnable <var>r</var> with Object
+   * <var>token</var> that are in the message queue. If <var>token</var> is null,
+   * all callbacks will be removed.
+   */
+  public final void removeCallbacks(Runnable r, Object token) {
+    mQueue.removeMessages(this, r, token);
+  }
+
   public final boolean sendMessage(Message msg) {
+    return sendMessageDelayed(msg, 0);
+  }
+
+  /**
+   * Sends a Message containing only the what value.
+   */
+  public final boolean sendEmptyMessage(int what) {
+    return sendEmptyMessageDelayed(what, 0);
+  }
+
+  /**
+   * Sends a Message containing only the what value, to be delivered after the
+   * specified amount of time elapses.
+   */
+  public final boolean sendEmptyMessageDelayed(int what, long delayMillis) {
+    Message msg = Message.obtain(this, what);
+    return sendMessageDelayed(msg, delayMillis);
+  }
+
+  /**
+   * Sends a Message containing only the what value, to be delivered at a
+   * specific time.
+   */
+  public final boolean sendEmptyMessageAtTime(int what, long uptimeMillis) {
+    Message msg = Message.obtain(this, what);
+    return sendMessageAtTime(msg, uptimeMillis);
+  }
+
+  /**
+   * Enqueue a message into the message queue after all pending messages before
+   * (current time + delayMillis).
+   */
+  public final boolean sendMessageDelayed(Message msg, long delayMillis) {
+    if (delayMillis < 0) {
+      delayMillis = 0;
+    }
+    return sendMessageAtTime(msg, SystemClock.uptimeMillis() + delayMillis);
+  }
+
+  /**
+   * Enqueue a message into the message queue after all pending messages before
+   * the absolute time (in milliseconds of the virtual clock)
+   * <var>uptimeMillis</var>.
+   */
+  public boolean sendMessageAtTime(Message msg, long uptimeMillis) {
 
     // enqueue message
     boolean sent = false;
     MessageQueue queue = mQueue;
     if (queue != null) {
       msg.target = this;
-      sent = queue.enqueueMessage(msg);
+      sent = queue.enqueueMessage(msg, uptimeMillis);
     } else {
       RuntimeException e = new RuntimeException(this + " sendMessageAtTime() called with no mQueue");
       Log.w("Looper", e.getMessage(), e);
@@ -254,6 +340,56 @@ public class Handler {
     return sent;
   }
 
+  /**
+   * Remove any pending posts of messages with code 'what' that are in the
+   * message queue.
+   */
+  public final void removeMessages(int what) {
+    mQueue.removeMessages(this, what, null);
+  }
+
+  /**
+   * Remove any pending posts of messages with code 'what' and whose obj is
+   * 'object' that are in the message queue. If <var>object</var> is null, all
+   * messages will be removed.
+   */
+  public final void removeMessages(int what, Object object) {
+    mQueue.removeMessages(this, what, object);
+  }
+
+  /**
+   * Remove any pending posts of callbacks and sent messages whose
+   * <var>obj</var> is <var>token</var>. If <var>token</var> is null, all
+   * callbacks and messages will be removed.
+   */
+  public final void removeCallbacksAndMessages(Object token) {
+    mQueue.removeCallbacksAndMessages(this, token);
+  }
+
+  /**
+   * Check if there are any pending posts of messages with code 'what' in the
+   * message queue.
+   */
+  public final boolean hasMessages(int what) {
+    return mQueue.hasMessages(this, what, null);
+  }
+
+  /**
+   * Check if there are any pending posts of messages with code 'what' and
+   * whose obj is 'object' in the message queue.
+   */
+  public final boolean hasMessages(int what, Object object) {
+    return mQueue.hasMessages(this, what, object);
+  }
+
+  /**
+   * Check if there are any pending posts of messages with callback r in the
+   * message queue.
+   */
+  public final boolean hasCallbacks(Runnable r) {
+    return mQueue.hasMessages(this, r, null);
+  }
+
   public final Looper getLooper() {
     return mLooper;
   }
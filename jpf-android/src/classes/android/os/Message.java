@@ -32,9 +32,17 @@ public final class Message {
 
   public Object obj;
   long when;
+
+  // time till the message is due (0 if it is), kept up to date by the
+  // MessageQueue. Other than 'when' this does not grow with the virtual clock,
+  // so states are matched by this instead
+  long delay;
   Handler target;
   Runnable callback;
 
+  // the next message in the MessageQueue
+  Message next;
+
   // public Messenger replyTo;
   // Bundle data;
 
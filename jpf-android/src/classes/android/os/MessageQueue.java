@@ -1,27 +1,50 @@
 package android.os;
 
-import java.util.LinkedList;
+import gov.nasa.jpf.vm.Verify;
 
 import android.app.ActivityManagerNative;
 import android.util.Log;
 
 /**
- * Model of Android's MessageQueue. A {@link LinkedList} of messages are kept
- * instead of a pool of messages. Idlehandlers have been removed. Further
- * instead of polling for user in the next() method when there are no current
- * messages to process, the thread does not block and calls native method
- * processScriptAction to generate new events. The original MessageQueue Queued
- * the messages in a priorityQueue by time. The time is not currently used in
- * this message queue.
- * 
- * TODO Add time support - but is this helpful as our Android implementation
- * does not use this currently
+ * Model of Android's MessageQueue. Like the original, messages are kept in a
+ * singly linked list (through {@link Message#next}) that is ordered by
+ * {@link Message#when}, with messages of the same time kept in FIFO order.
+ * Idlehandlers have been removed.
+ *
+ * Time is virtual (see {@link SystemClock}). When the looper runs out of due
+ * messages, it does not poll but decides what to do next:
+ * <ol>
+ * <li>if there are delayed messages, JPF chooses between advancing the clock
+ * to the time of the first one, so that it is delivered next, and running the
+ * next script action. We don't know how long the user takes for an action,
+ * so both orders are explored</li>
+ * <li>otherwise, if there is a script action, it is processed by the native
+ * method getNextScriptAction</li>
+ * <li>if the script is exhausted but other threads are still running, the
+ * looper blocks until a message is enqueued or all other threads are
+ * blocked/terminated</li>
+ * <li>otherwise the stop message is enqueued</li>
+ * </ol>
  */
 public class MessageQueue {
   private final static String TAG = MessageQueue.class.getSimpleName();
 
-  /** Actual MessageQueue */
-  private LinkedList<Message> mMessages = new LinkedList<Message>();
+  /**
+   * The object the looper waits on while idle. Its class is used by the native
+   * peer to recognise an idle looper.
+   */
+  private static class IdleLock {
+    // set if the looper was woken up while it was not waiting
+    boolean mWakeup;
+  }
+
+  /** head of the ordered message list */
+  Message mMessages;
+
+  private final IdleLock mIdleLock = new IdleLock();
+
+  /** the looper thread, which creates the queue */
+  private final Thread mThread = Thread.currentThread();
 
   private boolean mQuiting;
   boolean mQuitAllowed = true;
@@ -39,10 +62,13 @@ public class MessageQueue {
   private native void init0();
 
   /**
-   * Return the next message in the message queue. If the queue is empty new
-   * events are generated by calling the native method processScriptAction to
-   * generate new events.
-   * 
+   * Return the next message in the message queue. If there is no due message
+   * new events are generated by calling the native method getNextScriptAction.
+   * If there are delayed messages, we first choose between delivering the
+   * first of them and running the next script action, so that messages which
+   * keep re-posting themselves (e.g. periodic timers) can't starve the script,
+   * and script actions can't starve delayed messages either.
+   *
    * @return The next {@link Message} object to handle.
    */
   final protected Message next() {
@@ -51,13 +77,28 @@ public class MessageQueue {
     for (;;) {
 
       if ((m = nextNonBlocked()) != null) {
-        // if there is a message in the queue return it
+        // if there is a due message in the queue return it
         return m;
+      }
 
-      } else {
-        // if there is a script action, process it.
-        String action = getNextScriptAction(messageCount);
+      long when = nextMessageTime();
+      if (when >= 0 && Verify.getBoolean()) {
+        // let time pass till the first delayed message is due
+        SystemClock.advanceTo(when);
+        continue;
+      }
+
+      // if there is a script action, process it.
+      String action = getNextScriptAction(messageCount);
+      if (action != null) {
         processAction(action);
+
+      } else if (when >= 0) {
+        // only delayed messages left
+        SystemClock.advanceTo(when);
+
+      } else {
+        processAction(null);
       }
     }
   }
@@ -78,15 +119,11 @@ public class MessageQueue {
       } else {
 
         // there are still other running threads, wait for them to finish. When they
-        // put msg in queue they will notify the main thread, otherwise when they 
-        // terminate the main thread will be waked.
+        // put a msg in the queue they will wake the main thread, otherwise when
+        // they all terminate or block the main thread will be woken by the peer.
+        waitForMessage();
 
-        try {
-          Thread.sleep(100);
-        } catch (InterruptedException e) {
-        }
-
-      }// end, we will notify the main thread.
+      }
 
     } else {
       // get ready a msg will be processed now
@@ -110,17 +147,31 @@ public class MessageQueue {
   private native boolean hasOtherRunningThreads();
 
   /**
-   * Without blocking returns the next message in the queue or null if the queue
-   * is empty.
-   * 
+   * Blocks the looper thread (without holding a lock) until wakeLooper() is
+   * called or no other thread is runnable anymore.
+   */
+  private native void waitForMessage();
+
+  /**
+   * Wakes up the looper thread if it waits in waitForMessage(). This is only
+   * called by threads other than the looper.
+   */
+  private native void wakeLooper();
+
+  /**
+   * Without blocking returns the next due message in the queue or null if there
+   * is no message that is due at the current time.
+   *
    * @return
    */
   final synchronized Message nextNonBlocked() {
-    if (mMessages.isEmpty()) {
+    Message m = mMessages;
+    if (m == null || m.when > SystemClock.uptimeMillis()) {
       return null;
     } else {
 
-      Message m = mMessages.removeFirst();
+      mMessages = m.next;
+      m.next = null;
       currentEvent = m.getEventID();
       currentPath = m.getPathID();
 
@@ -132,52 +183,174 @@ public class MessageQueue {
     }
   }
 
-  final synchronized boolean enqueueMessage(Message msg) {
-    int event = getCurrentEvent(Thread.currentThread());
-    String path = getCurrentPath(Thread.currentThread());
-
-    msg.setEventID(event);
-    msg.setPathID(path);
+  /**
+   * @return the time of the first message in the queue, or -1 if the queue is
+   *         empty
+   */
+  final synchronized long nextMessageTime() {
+    return (mMessages != null) ? mMessages.when : -1;
+  }
 
-    boolean enq = mMessages.add(msg);
-    return enq;
+  final boolean enqueueMessage(Message msg) {
+    return enqueueMessage(msg, SystemClock.uptimeMillis());
   }
 
   private native String getCurrentPath(Thread thread);
 
   private native int getCurrentEvent(Thread thread);
 
-  final synchronized boolean enqueueMessage(Message msg, long when) {
+  /**
+   * Inserts the message in time order. A time of 0 puts the message at the
+   * front of the queue.
+   */
+  final boolean enqueueMessage(Message msg, long when) {
     String path = getCurrentPath(Thread.currentThread());
     int event = getCurrentEvent(Thread.currentThread());
-    
+
     msg.setEventID(event);
     msg.setPathID(path);
 
-    boolean enq = mMessages.add(msg);
-    return enq;
+    synchronized (this) {
+      msg.when = when;
+      msg.delay = getDelay(when, SystemClock.uptimeMillis());
+
+      Message p = mMessages;
+      if (p == null || when == 0 || when < p.when) {
+        msg.next = p;
+        mMessages = msg;
+      } else {
+        Message prev = null;
+        while (p != null && p.when <= when) {
+          prev = p;
+          p = p.next;
+        }
+        msg.next = prev.next;
+        prev.next = msg;
+      }
+    }
+
+    // the looper does not wait while it enqueues a message itself
+    if (Thread.currentThread() != mThread) {
+      wakeLooper();
+    }
+    return true;
+  }
+
+  static long getDelay(long when, long now) {
+    return (when > now) ? when - now : 0;
   }
 
-  final void removeMessages(Handler h, Runnable r, Object object) {
-    // not necessary to implement
-    throw new UnsupportedOperationException();
+  /**
+   * Sets the delays of all queued messages after the virtual clock advanced,
+   * see {@link Message#delay}.
+   */
+  final synchronized void updateDelays() {
+    long now = SystemClock.uptimeMillis();
+    for (Message p = mMessages; p != null; p = p.next) {
+      p.delay = getDelay(p.when, now);
+    }
   }
 
-  final void removeCallbacksAndMessages(Handler h, Object object) {
-    // not necessary to implement
-    throw new UnsupportedOperationException();
+  final synchronized boolean hasMessages(Handler h, int what, Object object) {
+    if (h == null) {
+      return false;
+    }
 
+    for (Message p = mMessages; p != null; p = p.next) {
+      if (p.target == h && p.what == what && (object == null || p.obj == object)) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  public int getSize() {
-    return mMessages.size();
+  final synchronized boolean hasMessages(Handler h, Runnable r, Object object) {
+    if (h == null) {
+      return false;
+    }
+
+    for (Message p = mMessages; p != null; p = p.next) {
+      if (p.target == h && p.callback == r && (object == null || p.obj == object)) {
+        return true;
+      }
+    }
+    return false;
   }
 
-  public Message getMessage(int i) {
-    return mMessages.get(i);
+  final synchronized void removeMessages(Handler h, int what, Object object) {
+    if (h == null) {
+      return;
+    }
+
+    Message prev = null;
+    for (Message p = mMessages; p != null; p = p.next) {
+      if (p.target == h && p.what == what && (object == null || p.obj == object)) {
+        unlink(prev, p);
+      } else {
+        prev = p;
+      }
+    }
+  }
+
+  final synchronized void removeMessages(Handler h, Runnable r, Object object) {
+    if (h == null || r == null) {
+      return;
+    }
+
+    Message prev = null;
+    for (Message p = mMessages; p != null; p = p.next) {
+      if (p.target == h && p.callback == r && (object == null || p.obj == object)) {
+        unlink(prev, p);
+      } else {
+        prev = p;
+      }
+    }
+  }
+
+  final synchronized void removeCallbacksAndMessages(Handler h, Object object) {
+    if (h == null) {
+      return;
+    }
+
+    Message prev = null;
+    for (Message p = mMessages; p != null; p = p.next) {
+      if (p.target == h && (object == null || p.obj == object)) {
+        unlink(prev, p);
+      } else {
+        prev = p;
+      }
+    }
+  }
+
+  // p.next is left intact so that the loops above can continue from p
+  private void unlink(Message prev, Message p) {
+    if (prev == null) {
+      mMessages = p.next;
+    } else {
+      prev.next = p.next;
+    }
+  }
+
+  public synchronized int getSize() {
+    int size = 0;
+    for (Message p = mMessages; p != null; p = p.next) {
+      size++;
+    }
+    return size;
+  }
+
+  public synchronized Message getMessage(int i) {
+    Message p = mMessages;
+    for (int j = 0; p != null && j < i; j++) {
+      p = p.next;
+    }
+    if (p == null) {
+      throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + getSize());
+    }
+    return p;
   }
 
   public void enqueueStop() {
     enqueueMessage(new Message());
   }
-}
\ No newline at end of file
+}
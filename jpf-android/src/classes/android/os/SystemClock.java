@@ -0,0 +1,74 @@
+package android.os;
+
+/**
+ * Model of Android's SystemClock. Time is virtual and deterministic: it starts
+ * at BOOT_TIME and only advances when the main {@link MessageQueue} delivers a
+ * delayed message that is not due yet, or when a thread calls {@link #sleep(long)}.
+ * The clock is a static field of this class, so it is part of the program state
+ * and gets restored on backtracking. The native methods are implemented by
+ * JPF_android_os_SystemClock, which reads this field.
+ */
+public final class SystemClock {
+
+  /**
+   * the clock does not start at 0, since a Message time of 0 means "front of
+   * the queue" to the MessageQueue
+   */
+  static final long BOOT_TIME = 1;
+
+  /** the virtual uptime in milliseconds */
+  private static long sUptimeMillis = BOOT_TIME;
+
+  private SystemClock() {
+  }
+
+  /**
+   * Waits a given number of milliseconds (of virtual time) before returning.
+   * Like the original, this ignores InterruptedExceptions but preserves the
+   * interrupted status of the thread.
+   */
+  public static void sleep(long ms) {
+    long end = sUptimeMillis + ms;
+    boolean interrupted = false;
+
+    try {
+      Thread.sleep(ms);
+    } catch (InterruptedException e) {
+      interrupted = true;
+    }
+    advanceTo(end);
+
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Advances the virtual clock to the given time. The clock never goes back.
+   * The main MessageQueue gets the new delays of its messages.
+   */
+  static void advanceTo(long uptimeMillis) {
+    if (uptimeMillis > sUptimeMillis) {
+      sUptimeMillis = uptimeMillis;
+
+      Looper looper = Looper.getMainLooper();
+      if (looper != null) {
+        looper.mQueue.updateDelays();
+      }
+    }
+  }
+
+  public static native boolean setCurrentTimeMillis(long millis);
+
+  public static native long uptimeMillis();
+
+  public static native long elapsedRealtime();
+
+  public static native long currentThreadTimeMillis();
+
+  /** @hide */
+  public static native long currentThreadTimeMicro();
+
+  /** @hide */
+  public static native long currentTimeMicro();
+}
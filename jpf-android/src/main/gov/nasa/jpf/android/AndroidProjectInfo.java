@@ -1,22 +1,8 @@
 package gov.nasa.jpf.android;
 
-import gov.nasa.jpf.android.RParser.RParseException;
-
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
-
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
 
 /**
  * Helper class that retrieves and parses the project package.
@@ -43,6 +29,10 @@ public class AndroidProjectInfo {
   }
 
   public static String projectDir;
+
+  /** directory where the resource index is cached, null if it is not cached */
+  public static String resourceCacheDir;
+
   /**
    * The build tool that was used to build the project. This is important since it determines where the
    * compiled files are stored after a build.
@@ -55,15 +45,12 @@ public class AndroidProjectInfo {
   /** Parsed to get package information */
   private AndroidManifest androidManifest;
 
-  /** Used to map resources hex values to filename */
-  private RFile RFile;
+  /** Used to map resource ids to names and values */
+  private ResourceIndex resources;
 
   /** used to look for layout files */
   private String layoutDir;
 
-  /** Used to map id's to Strings */
-  private Map<String, String> stringNameToValueMap;
-
   private static AndroidProjectInfo instance;
   
  
@@ -128,31 +115,23 @@ public class AndroidProjectInfo {
       }
     }
 
-    // Search for R.java file (either gen/package or /build/source/r/release/com/example/calculator/R.java)
+    // Search for the compiled R classes (bin/classes/package or build/classes/release/package), or
+    // else the R.java file (gen/package or build/source/r/release/package)
+    String RClassPath = null;
     String RPath = null;
     if (buildType.equals(BuildType.ANT)) {
+      RClassPath = antBuildDirectoryPath + File.separator + "classes" + File.separator
+          + androidManifest.getPackageNameAsDirectoryPath();
       RPath = projectDir + File.separator + "gen" + File.separator
           + androidManifest.getPackageNameAsDirectoryPath() + File.separator + "R.java";
     } else {
+      RClassPath = gradleBuildDirectoryPath + File.separator + "classes" + File.separator + "release"
+          + File.separator + androidManifest.getPackageNameAsDirectoryPath();
       RPath = projectDir + File.separator + "build" + File.separator + "source" + File.separator + "r"
           + File.separator + "release" + File.separator + androidManifest.getPackageNameAsDirectoryPath()
           + File.separator + "R.java";
     }
 
-    File rfile = new File(RPath);
-    if (!rfile.exists()) {
-      throw new ProjectParseException("Could not find R.java file at: " + RPath
-          + ". Did build complete without errors?");
-    } else {
-      try {
-        RFile = RParser.getInstance().parse(new FileInputStream(rfile));
-      } catch (RParseException e) {
-        throw new ProjectParseException(e.getMessage());
-      } catch (FileNotFoundException e) {
-        throw new ProjectParseException(e.getMessage());
-      }
-    }
-
     // get path to layout files (/build/res/all/release/layout)
     if (buildType.equals(BuildType.ANT)) {
       layoutDir = projectDir + File.separator + "res" + File.separator + layoutType;
@@ -170,33 +149,15 @@ public class AndroidProjectInfo {
           + File.separator + "release" + File.separator + "values";
     }
     try {
-      stringNameToValueMap = new HashMap<String, String>();
-      parseValueFiles(stringDir);
-    } catch (Exception e) {
+      resources = ResourceIndex.load(new File(RClassPath), new File(RPath), new File(stringDir),
+          (resourceCacheDir != null) ? new File(resourceCacheDir) : null);
+    } catch (IOException e) {
       e.printStackTrace();
       throw new ProjectParseException(e.getMessage());
     }
 
   }
 
-  private void parseValueFiles(String stringDir) throws SAXException, IOException,
-      ParserConfigurationException {
-    DocumentBuilder db = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-
-    for (File file : new File(stringDir).listFiles()) {
-      Document doc = db.parse(file);
-      NodeList nodeList = doc.getElementsByTagName("string");
-      Node node = null;
-      for (int i = 0; i < nodeList.getLength(); i++) {
-        node = nodeList.item(i);
-        String nameAttributeString = node.getAttributes().getNamedItem("name").toString();
-        String[] nameAttrSplit = nameAttributeString.split("=");
-        stringNameToValueMap.put((String) nameAttrSplit[1].subSequence(1, nameAttrSplit[1].length() - 1),
-            node.getTextContent());
-      }
-    }
-  }
-
   /**
    * Returns the absolute path to the project on the file system.
    * 
@@ -218,14 +179,12 @@ public class AndroidProjectInfo {
   }
 
   /**
-   * Returns the R file object
+   * Returns the index of the resources of the project
    * 
-   * @param packageName
-   *          the package name of the project
-   * @return the path to the R.java file.
+   * @return the resource index built from the R classes and value files
    */
-  public RFile getRFile() {
-    return RFile;
+  public ResourceIndex getResources() {
+    return resources;
   }
 
   /**
@@ -236,11 +195,9 @@ public class AndroidProjectInfo {
    */
   public String getLayoutFilename(Integer layoutID) throws ProjectParseException {
 
-    String filename;
-    try {
-      filename = RFile.getLayoutNameForId(layoutID);
-    } catch (Exception e) {
-      throw new ProjectParseException(e.getMessage());
+    String filename = resources.getName(layoutType, layoutID);
+    if (filename == null) {
+      throw new ProjectParseException("No layout with id " + layoutID);
     }
 
     filename = layoutDir + File.separator + filename + ".xml";
@@ -259,20 +216,17 @@ public class AndroidProjectInfo {
    * 
    */
   public String getStringValue(int id) throws ProjectParseException {
-    String stringName;
-    try {
-      stringName = RFile.getStringNameForId(id);
-    } catch (Exception e) {
-      throw new ProjectParseException(e.getMessage());
+    if (!"string".equals(resources.getType(id))) {
+      throw new ProjectParseException("No string with id " + id);
     }
-    return stringNameToValueMap.get(stringName);
+    return resources.getValue(id);
   }
 
   /**
    * Returns the String value
    */
   public String getStringValue(String name) {
-    return stringNameToValueMap.get(name);
+    return resources.getValue(resources.getId("string", name));
   }
 
 }
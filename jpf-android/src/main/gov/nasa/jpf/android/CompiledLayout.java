@@ -0,0 +1,132 @@
+package gov.nasa.jpf.android;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * The view tree of a layout file as a table of flat arrays, produced by the
+ * {@link LayoutCompiler}. Node 0 is the root, the other nodes follow in
+ * document order. The children of node <code>i</code> are
+ * <code>children[childStart[i]]</code> ..
+ * <code>children[childStart[i] + childCount[i] - 1]</code>.
+ *
+ * Strings are stored in a string table, the node arrays hold indices into it.
+ * The <code>android:id</code> and <code>android:text</code> attributes are
+ * kept as they appear in the layout file, since their values depend on the R
+ * file and the string resources of the project.
+ *
+ * @author Heila van der Merwe
+ */
+public class CompiledLayout {
+
+  static final int MAGIC = 0x4a50464c; // "JPFL"
+  static final int VERSION = 1;
+
+  /** marks a missing attribute in the id and text arrays */
+  public static final int NONE = -1;
+
+  String[] strings;
+
+  int[] type;
+  int[] id;
+  int[] text;
+
+  int[] childStart;
+  int[] childCount;
+  int[] children;
+
+  public int getNumberOfNodes() {
+    return type.length;
+  }
+
+  /** the tag name of the node, i.e. the class name of the view */
+  public String getType(int node) {
+    return strings[type[node]];
+  }
+
+  /** the value of the android:id attribute, or null if the node has none */
+  public String getId(int node) {
+    return (id[node] == NONE) ? null : strings[id[node]];
+  }
+
+  /** the value of the android:text attribute, or null if the node has none */
+  public String getText(int node) {
+    return (text[node] == NONE) ? null : strings[text[node]];
+  }
+
+  public int getChildCount(int node) {
+    return childCount[node];
+  }
+
+  public int getChild(int node, int i) {
+    return children[childStart[node] + i];
+  }
+
+  public void write(OutputStream os) throws IOException {
+    DataOutputStream out = new DataOutputStream(os);
+
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+
+    out.writeInt(strings.length);
+    for (String s : strings) {
+      out.writeUTF(s);
+    }
+
+    int n = type.length;
+    out.writeInt(n);
+    for (int i = 0; i < n; i++) {
+      out.writeInt(type[i]);
+      out.writeInt(id[i]);
+      out.writeInt(text[i]);
+      out.writeInt(childStart[i]);
+      out.writeInt(childCount[i]);
+    }
+
+    out.writeInt(children.length);
+    for (int c : children) {
+      out.writeInt(c);
+    }
+
+    out.flush();
+  }
+
+  public static CompiledLayout read(InputStream is) throws IOException {
+    DataInputStream in = new DataInputStream(is);
+
+    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+      throw new IOException("not a compiled layout of version " + VERSION);
+    }
+
+    CompiledLayout layout = new CompiledLayout();
+
+    layout.strings = new String[in.readInt()];
+    for (int i = 0; i < layout.strings.length; i++) {
+      layout.strings[i] = in.readUTF();
+    }
+
+    int n = in.readInt();
+    layout.type = new int[n];
+    layout.id = new int[n];
+    layout.text = new int[n];
+    layout.childStart = new int[n];
+    layout.childCount = new int[n];
+    for (int i = 0; i < n; i++) {
+      layout.type[i] = in.readInt();
+      layout.id[i] = in.readInt();
+      layout.text[i] = in.readInt();
+      layout.childStart[i] = in.readInt();
+      layout.childCount[i] = in.readInt();
+    }
+
+    layout.children = new int[in.readInt()];
+    for (int i = 0; i < layout.children.length; i++) {
+      layout.children[i] = in.readInt();
+    }
+
+    return layout;
+  }
+}
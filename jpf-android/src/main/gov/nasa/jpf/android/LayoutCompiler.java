@@ -0,0 +1,236 @@
+package gov.nasa.jpf.android;
+
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.util.IntVector;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Compiles layout files into {@link CompiledLayout} tables. The layout files
+ * are streamed with StAX, no DOM is built.
+ *
+ * If a cache directory is given, the compiled layouts are stored in it under
+ * the SHA-1 hash of the layout file, so that a layout is only compiled again
+ * if the file changes. The cache can be shared by several JPF processes (e.g.
+ * the workers of a parallel search), cache files are written to a temporary
+ * file first and then renamed.
+ *
+ * @author Heila van der Merwe
+ */
+public class LayoutCompiler {
+  static Logger log = JPF.getLogger("gov.nasa.jpf.android");
+
+  static final String ANDROID_NS = "http://schemas.android.com/apk/res/android";
+  static final String CACHE_EXT = ".layout";
+
+  private final File cacheDir;
+
+  public LayoutCompiler(File cacheDir) {
+    if (cacheDir != null && !cacheDir.isDirectory() && !cacheDir.mkdirs()) {
+      log.warning("could not create layout cache " + cacheDir + ", not caching layouts");
+      cacheDir = null;
+    }
+    this.cacheDir = cacheDir;
+  }
+
+  /**
+   * Returns the compiled layout of the given file, from the cache if it has
+   * been compiled before.
+   */
+  public CompiledLayout getLayout(File layoutFile) throws IOException {
+    byte[] data = readFile(layoutFile);
+
+    if (cacheDir == null) {
+      return compile(new ByteArrayInputStream(data));
+    }
+
+    File cacheFile = new File(cacheDir, hash(data) + CACHE_EXT);
+    if (cacheFile.isFile()) {
+      InputStream is = new FileInputStream(cacheFile);
+      try {
+        return CompiledLayout.read(is);
+      } catch (IOException x) {
+        log.warning("invalid cached layout " + cacheFile + ", compiling " + layoutFile);
+      } finally {
+        is.close();
+      }
+    }
+
+    CompiledLayout layout = compile(new ByteArrayInputStream(data));
+    store(layout, cacheFile);
+    return layout;
+  }
+
+  private void store(CompiledLayout layout, File cacheFile) {
+    try {
+      File tmp = File.createTempFile("layout", ".tmp", cacheDir);
+      OutputStream os = new FileOutputStream(tmp);
+      try {
+        layout.write(os);
+      } finally {
+        os.close();
+      }
+      if (!tmp.renameTo(cacheFile)) {
+        tmp.delete(); // somebody else was faster
+      }
+    } catch (IOException x) {
+      log.warning("could not store compiled layout " + cacheFile + ": " + x.getMessage());
+    }
+  }
+
+  /**
+   * Compiles a layout file into a CompiledLayout. Only element nodes are
+   * views, text and comments are skipped.
+   */
+  public static CompiledLayout compile(InputStream is) throws IOException {
+    List<String> strings = new ArrayList<String>();
+    HashMap<String, Integer> stringIndex = new HashMap<String, Integer>();
+
+    IntVector type = new IntVector();
+    IntVector id = new IntVector();
+    IntVector text = new IntVector();
+    IntVector childStart = new IntVector();
+    IntVector childCount = new IntVector();
+    IntVector children = new IntVector();
+
+    // the open elements and their children, the innermost last
+    IntVector openNodes = new IntVector();
+    ArrayList<IntVector> open = new ArrayList<IntVector>();
+
+    try {
+      XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(is);
+      try {
+        while (reader.hasNext()) {
+          int event = reader.next();
+
+          if (event == XMLStreamConstants.START_ELEMENT) {
+            int node = type.size();
+            if (!open.isEmpty()) {
+              open.get(open.size() - 1).add(node);
+            } else if (node > 0) {
+              throw new IOException("layout has more than one root element");
+            }
+
+            type.add(intern(getName(reader), strings, stringIndex));
+            id.add(CompiledLayout.NONE);
+            text.add(CompiledLayout.NONE);
+            childStart.add(0);
+            childCount.add(0);
+
+            for (int i = 0; i < reader.getAttributeCount(); i++) {
+              if (isAndroidAttribute(reader, i)) {
+                String name = reader.getAttributeLocalName(i);
+                if (name.equals("id")) {
+                  id.set(node, intern(reader.getAttributeValue(i), strings, stringIndex));
+                } else if (name.equals("text")) {
+                  text.set(node, intern(reader.getAttributeValue(i), strings, stringIndex));
+                }
+              }
+            }
+            openNodes.add(node);
+            open.add(new IntVector(4));
+
+          } else if (event == XMLStreamConstants.END_ELEMENT) {
+            int node = openNodes.get(openNodes.size() - 1);
+            openNodes.setSize(openNodes.size() - 1);
+            IntVector c = open.remove(open.size() - 1);
+            childStart.set(node, children.size());
+            childCount.set(node, c.size());
+            children.append(c);
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException x) {
+      throw new IOException("could not parse layout: " + x.getMessage(), x);
+    }
+
+    if (type.size() == 0) {
+      throw new IOException("layout has no root element");
+    }
+
+    CompiledLayout layout = new CompiledLayout();
+    layout.strings = strings.toArray(new String[strings.size()]);
+    layout.type = type.toArray();
+    layout.id = id.toArray();
+    layout.text = text.toArray();
+    layout.childStart = childStart.toArray();
+    layout.childCount = childCount.toArray();
+    layout.children = children.toArray();
+    return layout;
+  }
+
+  static String getName(XMLStreamReader reader) {
+    String prefix = reader.getPrefix();
+    String name = reader.getLocalName();
+    return (prefix != null && prefix.length() > 0) ? prefix + ':' + name : name;
+  }
+
+  static boolean isAndroidAttribute(XMLStreamReader reader, int i) {
+    return ANDROID_NS.equals(reader.getAttributeNamespace(i)) || "android".equals(reader.getAttributePrefix(i));
+  }
+
+  static int intern(String s, List<String> strings, HashMap<String, Integer> stringIndex) {
+    Integer idx = stringIndex.get(s);
+    if (idx == null) {
+      idx = strings.size();
+      strings.add(s);
+      stringIndex.put(s, idx);
+    }
+    return idx;
+  }
+
+  static byte[] readFile(File file) throws IOException {
+    long len = file.length();
+    byte[] data = new byte[(int) len];
+    InputStream is = new FileInputStream(file);
+    try {
+      int n = 0;
+      while (n < data.length) {
+        int r = is.read(data, n, data.length - n);
+        if (r < 0) {
+          throw new IOException("unexpected end of file: " + file);
+        }
+        n += r;
+      }
+    } finally {
+      is.close();
+    }
+    return data;
+  }
+
+  static String hash(byte[] data) {
+    try {
+      return toHex(MessageDigest.getInstance("SHA-1").digest(data));
+    } catch (NoSuchAlgorithmException x) {
+      throw new IllegalStateException("no SHA-1 support", x);
+    }
+  }
+
+  static String toHex(byte[] digest) {
+    StringBuilder sb = new StringBuilder(digest.length * 2);
+    for (byte b : digest) {
+      sb.append(Character.forDigit((b >> 4) & 0xf, 16));
+      sb.append(Character.forDigit(b & 0xf, 16));
+    }
+    return sb.toString();
+  }
+}
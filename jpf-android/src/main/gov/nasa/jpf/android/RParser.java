@@ -3,6 +3,10 @@ package gov.nasa.jpf.android;
 import java.io.InputStream;
 import java.util.Scanner;
 
+/**
+ * Reads the resource ids from the R.java source file. This is only used if the
+ * compiled R classes can not be found, see {@link ResourceIndex}.
+ */
 public class RParser {
 
   public static class RParseException extends Exception {
@@ -13,18 +17,8 @@ public class RParser {
 
   private static RParser instance;
 
-  private static final String LAYOUT_HEADER = "public static final class layout {";
-  private static final String STRING_HEADER = "public static final class string {";
-  private static final String ID_HEADER = "public static final class id {";
-
-  // TODO
-  private static final String MENU_HEADER = "public static final class menu {";
-  private static final String STYLE_HEADER = "public static final class style {";
-  private static final String BOOL_HEADER = "public static final class bool {";
-  private static final String COLOR_HEADER = "public static final class color {";
-  private static final String ARRAY_HEADER = "public static final class array {";
-  private static final String ANIM_HEADER = "public static final class anim {";
-  private static final String INTEGER_HEADER = "public static final class int {";
+  private static final String CLASS_HEADER = "public static final class ";
+  private static final String INT_FIELD = "public static final int ";
 
   private static final String FOOTER = "}";
 
@@ -40,20 +34,20 @@ public class RParser {
     return instance;
   }
 
-  public RFile parse(InputStream is) throws RParseException {
-    RFile rfile = new RFile();
+  /**
+   * Adds the int constants of all inner classes of the R class to the index,
+   * the type of the resources is the name of the inner class.
+   */
+  public void parse(InputStream is, ResourceIndex index) throws RParseException {
     String nextLine;
     Scanner scanner = new Scanner(is);
     try {
 
       while (scanner != null && scanner.hasNextLine()) {
         nextLine = scanner.nextLine().trim();
-        if (nextLine.equals(STRING_HEADER)) {
-          parseStrings(scanner, rfile);
-        } else if (nextLine.equals(LAYOUT_HEADER)) {
-          parseLayouts(scanner, rfile);
-        } else if (nextLine.equals(ID_HEADER)) {
-          parseViews(scanner, rfile);
+        if (nextLine.startsWith(CLASS_HEADER) && nextLine.endsWith("{")) {
+          String type = nextLine.substring(CLASS_HEADER.length(), nextLine.length() - 1).trim();
+          parseResources(scanner, type, index);
         }
       }
     } catch (Exception e) {
@@ -61,10 +55,9 @@ public class RParser {
     } finally {
       scanner.close();
     }
-    return rfile;
   }
 
-  private void parseStrings(Scanner scanner, RFile rfile) {
+  private void parseResources(Scanner scanner, String type, ResourceIndex index) {
     String next = "";
     String[] list = null;
 
@@ -72,74 +65,28 @@ public class RParser {
       next = scanner.nextLine().trim();
       if (next.equals(FOOTER))
         break;
+      if (!next.startsWith(INT_FIELD)) {
+        continue; // int[] styleables and comments
+      }
       list = getFields(next);
-      rfile.stringIdToNameMap.put(Integer.parseInt(list[1].substring(2), 16), list[0]);
-     if (DEBUG) System.out.println("RParser parsed String: " + Integer.parseInt(list[1].substring(2), 16) + " "
-          + list[0]);
-    }
-  }
-
-  /**
-   * Parse the name and ID's of the View objects in the R.java file.
-   * 
-   * @param scanner
-   */
-  private void parseViews(Scanner scanner, RFile rfile) {
-    String next = "";
-    String[] list;
-    while (scanner.hasNextLine()) {
-      next = scanner.nextLine().trim();
-      if (next.equals(FOOTER))
-        break;
-      list = getFields(next);
-      rfile.viewIdToNameMap.put(Integer.parseInt(list[1].substring(2), 16), list[0]);
-      rfile.viewNameToIdMap.put(list[0], Integer.parseInt(list[1].substring(2), 16));
+      int id = Integer.decode(list[1].trim());
+      index.add(type, list[0].trim(), id);
       if (DEBUG)
-        System.out.println("RParser parsed View: " + Integer.parseInt(list[1].substring(2), 16) + " "
-            + list[0]);
-
-    }
-    // TODO Add window to the componentMap to catch window events
-    rfile.viewIdToNameMap.put(0, "window");
-    if (DEBUG)
-      System.out.println("RParser parsed View: " + 0 + " " + "window");
-
-  }
-
-  /**
-   * Parse the name and ID's of the layout file in the R.java file.
-   * 
-   * @param scanner
-   */
-  private void parseLayouts(Scanner scanner, RFile rfile) {
-    String next = "";
-    String[] list;
-    while (scanner.hasNextLine()) {
-      next = scanner.nextLine().trim();
-      if (next.equals(FOOTER))
-        break;
-      list = getFields(next);
-      rfile.layoutIdToNameMap.put(Integer.parseInt(list[1].substring(2), 16), list[0]);
-      if (DEBUG ) System.out.println("RParser parsed layout: " + Integer.parseInt(list[1].substring(2), 16) + " "
-          + list[0]);
-
+        System.out.println("RParser parsed " + type + ": " + id + " " + list[0]);
     }
-
   }
 
   /**
    * Returns the NAME and ID of an object given its declaration.
-   * 
+   *
    * @param line
    * @return
    */
   private String[] getFields(String line) {
     String[] list;
-    line = line.substring(0, line.length() - 1); // throw ';' away
-    list = line.split(" ");
-    line = list[list.length - 1]; // last item in list
+    line = line.substring(INT_FIELD.length(), line.length() - 1); // throw ';' away
     list = line.split("=");
     return list;
 
   }
-}
\ No newline at end of file
+}
@@ -0,0 +1,414 @@
+package gov.nasa.jpf.android;
+
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.jvm.ClassFile;
+import gov.nasa.jpf.jvm.ClassFileReaderAdapter;
+import gov.nasa.jpf.util.SparseIntVector;
+import gov.nasa.jpf.vm.ClassParseException;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Table of the resources of the project, indexed by resource id. The ids,
+ * types and names are read from the constants of the compiled R classes
+ * (<code>R$layout.class</code>, <code>R$id.class</code> ...), the values of
+ * the string resources from the <code>res/values/*.xml</code> files.
+ *
+ * Resource ids map to rows of flat arrays through a {@link SparseIntVector},
+ * names map to rows through a HashMap keyed by "type/name".
+ *
+ * The index can be stored in a cache directory under the SHA-1 hash of the
+ * files it was built from, so that it only has to be built again if the
+ * project was rebuilt.
+ *
+ * @author Heila van der Merwe
+ */
+public class ResourceIndex {
+  static Logger log = JPF.getLogger("gov.nasa.jpf.android");
+
+  static final int MAGIC = 0x4a504652; // "JPFR"
+  static final int VERSION = 1;
+  static final String CACHE_EXT = ".resources";
+
+  /** resource id that is returned if there is no resource with a name */
+  public static final int NO_ID = 0;
+
+  List<String> typeNames = new ArrayList<String>();
+  HashMap<String, Integer> typeIndex = new HashMap<String, Integer>();
+
+  // the rows of the table
+  int size;
+  int[] ids = new int[64];
+  int[] types = new int[64];
+  String[] names = new String[64];
+  String[] values = new String[64];
+
+  SparseIntVector idRows = new SparseIntVector(10, -1);
+  HashMap<String, Integer> nameRows = new HashMap<String, Integer>();
+
+  /**
+   * Builds the index of a project, or reads it from the cache.
+   *
+   * @param rClassDir
+   *          directory of the compiled R classes
+   * @param rJava
+   *          the R.java file, which is parsed if there are no compiled R
+   *          classes
+   * @param valuesDir
+   *          directory of the value files
+   * @param cacheDir
+   *          cache directory, can be null
+   */
+  public static ResourceIndex load(File rClassDir, File rJava, File valuesDir, File cacheDir) throws IOException {
+    List<File> rFiles = getRClassFiles(rClassDir);
+    List<File> valueFiles = getValueFiles(valuesDir);
+    boolean useClasses = !rFiles.isEmpty();
+    if (!useClasses) {
+      if (!rJava.isFile()) {
+        throw new IOException("Could not find compiled R classes in " + rClassDir + " or R.java file at " + rJava
+            + ". Did build complete without errors?");
+      }
+      log.warning("no compiled R classes in " + rClassDir + ", parsing " + rJava);
+      rFiles.add(rJava);
+    }
+
+    File cacheFile = null;
+    if (cacheDir != null && (cacheDir.isDirectory() || cacheDir.mkdirs())) {
+      List<File> inputs = new ArrayList<File>(rFiles);
+      inputs.addAll(valueFiles);
+      cacheFile = new File(cacheDir, hash(inputs) + CACHE_EXT);
+
+      if (cacheFile.isFile()) {
+        InputStream is = new FileInputStream(cacheFile);
+        try {
+          return read(is);
+        } catch (IOException x) {
+          log.warning("invalid cached resource index " + cacheFile);
+        } finally {
+          is.close();
+        }
+      }
+    }
+
+    ResourceIndex index = new ResourceIndex();
+    if (useClasses) {
+      for (File f : rFiles) {
+        index.readRClass(f);
+      }
+    } else {
+      InputStream is = new FileInputStream(rJava);
+      try {
+        RParser.getInstance().parse(is, index);
+      } catch (RParser.RParseException x) {
+        throw new IOException(x.getMessage(), x);
+      } finally {
+        is.close();
+      }
+    }
+    for (File f : valueFiles) {
+      index.readValues(f);
+    }
+
+    if (cacheFile != null) {
+      index.store(cacheFile);
+    }
+    return index;
+  }
+
+  static List<File> getRClassFiles(File dir) {
+    List<File> list = new ArrayList<File>();
+    File[] files = (dir != null) ? dir.listFiles() : null;
+    if (files != null) {
+      Arrays.sort(files);
+      for (File f : files) {
+        if (f.getName().startsWith("R$") && f.getName().endsWith(".class")) {
+          list.add(f);
+        }
+      }
+    }
+    return list;
+  }
+
+  static List<File> getValueFiles(File dir) {
+    List<File> list = new ArrayList<File>();
+    File[] files = (dir != null) ? dir.listFiles() : null;
+    if (files != null) {
+      Arrays.sort(files);
+      for (File f : files) {
+        if (f.getName().endsWith(".xml")) {
+          list.add(f);
+        }
+      }
+    }
+    return list;
+  }
+
+  static String hash(List<File> files) throws IOException {
+    try {
+      MessageDigest md = MessageDigest.getInstance("SHA-1");
+      for (File f : files) {
+        md.update(f.getName().getBytes("UTF-8"));
+        md.update(LayoutCompiler.readFile(f));
+      }
+      return LayoutCompiler.toHex(md.digest());
+    } catch (NoSuchAlgorithmException x) {
+      throw new IllegalStateException("no SHA-1 support", x);
+    }
+  }
+
+  // --- building
+
+  /**
+   * adds a resource, resources with an id that is already in the index are
+   * ignored
+   */
+  void add(String type, String name, int id) {
+    if (type.equals("styleable") || idRows.get(id) >= 0) {
+      // styleable constants are attribute indices, not resource ids
+      return;
+    }
+
+    if (size == ids.length) {
+      int newLength = size * 2;
+      ids = Arrays.copyOf(ids, newLength);
+      types = Arrays.copyOf(types, newLength);
+      names = Arrays.copyOf(names, newLength);
+      values = Arrays.copyOf(values, newLength);
+    }
+
+    Integer t = typeIndex.get(type);
+    if (t == null) {
+      t = typeNames.size();
+      typeNames.add(type);
+      typeIndex.put(type, t);
+    }
+
+    ids[size] = id;
+    types[size] = t;
+    names[size] = name;
+    idRows.set(id, size);
+    nameRows.put(type + '/' + name, size);
+    size++;
+  }
+
+  /** sets the value of a resource, unknown resources are ignored */
+  void setValue(String type, String name, String value) {
+    Integer row = nameRows.get(type + '/' + name);
+    if (row != null) {
+      values[row] = value;
+    }
+  }
+
+  /**
+   * reads the int constants of a compiled R class, the type of the resources
+   * is the name of the inner class
+   */
+  void readRClass(File file) throws IOException {
+    String clsName = file.getName();
+    final String type = clsName.substring(clsName.lastIndexOf('$') + 1, clsName.length() - 6);
+
+    try {
+      ClassFile cf = new ClassFile(LayoutCompiler.readFile(file));
+      cf.parse(new ClassFileReaderAdapter() {
+        String fieldName;
+        boolean isInt;
+
+        @Override
+        public void setField(ClassFile cf, int fieldIndex, int accessFlags, String name, String descriptor) {
+          fieldName = name;
+          isInt = descriptor.equals("I");
+        }
+
+        @Override
+        public void setFieldAttribute(ClassFile cf, int fieldIndex, int attrIndex, String name, int attrLength) {
+          if (isInt && name == ClassFile.CONST_VALUE_ATTR) {
+            cf.parseConstValueAttr(this, null);
+          }
+        }
+
+        @Override
+        public void setConstantValue(ClassFile cf, Object tag, Object value) {
+          add(type, fieldName, (Integer) value);
+        }
+      });
+    } catch (ClassParseException x) {
+      throw new IOException("Could not read R class " + file + ": " + x.getMessage(), x);
+    }
+  }
+
+  /**
+   * reads the <code>&lt;string&gt;</code> resources of a value file, the value
+   * is the text content of the element
+   */
+  void readValues(File file) throws IOException {
+    try {
+      XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(
+          new ByteArrayInputStream(LayoutCompiler.readFile(file)));
+      try {
+        while (reader.hasNext()) {
+          if (reader.next() == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals("string")) {
+            String name = reader.getAttributeValue(null, "name");
+            String value = getTextContent(reader);
+            if (name != null) {
+              setValue("string", name, value);
+            }
+          }
+        }
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException x) {
+      throw new IOException("Could not parse value file " + file + ": " + x.getMessage(), x);
+    }
+  }
+
+  /** the text of the current element and all its children */
+  static String getTextContent(XMLStreamReader reader) throws XMLStreamException {
+    StringBuilder sb = new StringBuilder();
+    int depth = 1;
+    while (depth > 0) {
+      switch (reader.next()) {
+      case XMLStreamConstants.START_ELEMENT:
+        depth++;
+        break;
+      case XMLStreamConstants.END_ELEMENT:
+        depth--;
+        break;
+      case XMLStreamConstants.CHARACTERS:
+      case XMLStreamConstants.CDATA:
+      case XMLStreamConstants.SPACE:
+        sb.append(reader.getText());
+        break;
+      }
+    }
+    return sb.toString();
+  }
+
+  // --- lookup
+
+  public int size() {
+    return size;
+  }
+
+  /** @return the id of the resource, or NO_ID if there is none */
+  public int getId(String type, String name) {
+    Integer row = nameRows.get(type + '/' + name);
+    return (row != null) ? ids[row] : NO_ID;
+  }
+
+  /** @return the name of the resource, or null if there is none */
+  public String getName(int id) {
+    int row = idRows.get(id);
+    return (row >= 0) ? names[row] : null;
+  }
+
+  /** @return the type of the resource, e.g. "layout", or null */
+  public String getType(int id) {
+    int row = idRows.get(id);
+    return (row >= 0) ? typeNames.get(types[row]) : null;
+  }
+
+  /** @return the value of a string resource, or null */
+  public String getValue(int id) {
+    int row = idRows.get(id);
+    return (row >= 0) ? values[row] : null;
+  }
+
+  /** @return the name of the resource if it has the given type, or null */
+  public String getName(String type, int id) {
+    int row = idRows.get(id);
+    return (row >= 0 && typeNames.get(types[row]).equals(type)) ? names[row] : null;
+  }
+
+  // --- storing
+
+  void store(File cacheFile) {
+    try {
+      File tmp = File.createTempFile("resources", ".tmp", cacheFile.getParentFile());
+      OutputStream os = new FileOutputStream(tmp);
+      try {
+        write(os);
+      } finally {
+        os.close();
+      }
+      if (!tmp.renameTo(cacheFile)) {
+        tmp.delete(); // somebody else was faster
+      }
+    } catch (IOException x) {
+      log.warning("could not store resource index " + cacheFile + ": " + x.getMessage());
+    }
+  }
+
+  public void write(OutputStream os) throws IOException {
+    DataOutputStream out = new DataOutputStream(os);
+
+    out.writeInt(MAGIC);
+    out.writeInt(VERSION);
+
+    out.writeInt(typeNames.size());
+    for (String t : typeNames) {
+      out.writeUTF(t);
+    }
+
+    out.writeInt(size);
+    for (int i = 0; i < size; i++) {
+      out.writeInt(ids[i]);
+      out.writeInt(types[i]);
+      out.writeUTF(names[i]);
+      out.writeBoolean(values[i] != null);
+      if (values[i] != null) {
+        out.writeUTF(values[i]);
+      }
+    }
+
+    out.flush();
+  }
+
+  public static ResourceIndex read(InputStream is) throws IOException {
+    DataInputStream in = new DataInputStream(is);
+
+    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+      throw new IOException("not a resource index of version " + VERSION);
+    }
+
+    ResourceIndex index = new ResourceIndex();
+    int nTypes = in.readInt();
+    String[] types = new String[nTypes];
+    for (int i = 0; i < nTypes; i++) {
+      types[i] = in.readUTF();
+    }
+
+    int n = in.readInt();
+    for (int i = 0; i < n; i++) {
+      int id = in.readInt();
+      String type = types[in.readInt()];
+      String name = in.readUTF();
+      index.add(type, name, id);
+      if (in.readBoolean()) {
+        index.setValue(type, name, in.readUTF());
+      }
+    }
+
+    return index;
+  }
+}
@@ -0,0 +1,876 @@
+package gov.nasa.jpf.android;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.sf.jsqlparser.JSQLParserException;
+import net.sf.jsqlparser.expression.BinaryExpression;
+import net.sf.jsqlparser.expression.DoubleValue;
+import net.sf.jsqlparser.expression.Expression;
+import net.sf.jsqlparser.expression.JdbcParameter;
+import net.sf.jsqlparser.expression.LongValue;
+import net.sf.jsqlparser.expression.NullValue;
+import net.sf.jsqlparser.expression.Parenthesis;
+import net.sf.jsqlparser.expression.StringValue;
+import net.sf.jsqlparser.expression.operators.conditional.AndExpression;
+import net.sf.jsqlparser.expression.operators.conditional.OrExpression;
+import net.sf.jsqlparser.expression.operators.relational.EqualsTo;
+import net.sf.jsqlparser.expression.operators.relational.ExpressionList;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThan;
+import net.sf.jsqlparser.expression.operators.relational.GreaterThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.InExpression;
+import net.sf.jsqlparser.expression.operators.relational.IsNullExpression;
+import net.sf.jsqlparser.expression.operators.relational.LikeExpression;
+import net.sf.jsqlparser.expression.operators.relational.MinorThan;
+import net.sf.jsqlparser.expression.operators.relational.MinorThanEquals;
+import net.sf.jsqlparser.expression.operators.relational.NotEqualsTo;
+import net.sf.jsqlparser.parser.CCJSqlParserManager;
+import net.sf.jsqlparser.schema.Column;
+import net.sf.jsqlparser.statement.Statement;
+import net.sf.jsqlparser.statement.create.table.ColumnDefinition;
+import net.sf.jsqlparser.statement.create.table.CreateTable;
+import net.sf.jsqlparser.statement.delete.Delete;
+import net.sf.jsqlparser.statement.drop.Drop;
+import net.sf.jsqlparser.statement.insert.Insert;
+import net.sf.jsqlparser.statement.select.AllColumns;
+import net.sf.jsqlparser.statement.select.Limit;
+import net.sf.jsqlparser.statement.select.OrderByElement;
+import net.sf.jsqlparser.statement.select.PlainSelect;
+import net.sf.jsqlparser.statement.select.Select;
+import net.sf.jsqlparser.statement.select.SelectExpressionItem;
+import net.sf.jsqlparser.statement.select.SelectItem;
+import net.sf.jsqlparser.statement.update.Update;
+
+/**
+ * A parsed SQL statement of the in-model SQLite database. The statement is
+ * parsed once with JSqlParser, the parts the model needs (table, columns,
+ * values) are extracted and the WHERE clause is compiled into a tree of
+ * {@link Condition}s that can be evaluated against the rows of a table.
+ *
+ * Supported are CREATE TABLE, DROP TABLE, INSERT, UPDATE and DELETE, and
+ * SELECT of columns from a single table. Values are literals or '?'
+ * parameters. WHERE clauses can use comparisons, LIKE, IN, IS NULL, AND, OR
+ * and NOT. SELECT supports ORDER BY and LIMIT/OFFSET.
+ *
+ * @author Heila van der Merwe
+ */
+public class SQLStatement {
+
+  public static class SQLStatementException extends Exception {
+    public SQLStatementException(String message) {
+      super(message);
+    }
+  }
+
+  /** the rows of a table, as seen by the evaluation of a statement */
+  public interface Rows {
+    int size();
+
+    String[] getColumns();
+
+    long getRowId(int row);
+
+    /** @return a Long, Double, String, byte[] or null */
+    Object get(int row, int column);
+  }
+
+  // statement types
+  public static final int OTHER = 0;
+  public static final int CREATE_TABLE = 1;
+  public static final int DROP_TABLE = 2;
+  public static final int INSERT = 3;
+  public static final int SELECT = 4;
+  public static final int UPDATE = 5;
+  public static final int DELETE = 6;
+
+  // column affinities, the same values as the Cursor.FIELD_TYPE_ constants
+  public static final int INTEGER = 1;
+  public static final int REAL = 2;
+  public static final int TEXT = 3;
+  public static final int BLOB = 4;
+
+  static final int ROWID = -1;
+
+  private static final Pattern IF_NOT_EXISTS = Pattern.compile("(?i)^\\s*(CREATE\\s+TABLE)\\s+IF\\s+NOT\\s+EXISTS\\b");
+  private static final Pattern IF_EXISTS = Pattern.compile("(?i)^\\s*(DROP\\s+TABLE)\\s+IF\\s+EXISTS\\b");
+
+  private static CCJSqlParserManager pm = new CCJSqlParserManager();
+
+  int type = OTHER;
+  String table;
+  boolean ifExists;
+
+  /**
+   * CREATE: the columns of the table, INSERT: the columns the values are for
+   * (null for all), SELECT: the selected columns (null for all), UPDATE: the
+   * columns that are set
+   */
+  String[] columns;
+
+  // CREATE: the affinity of each column and the INTEGER PRIMARY KEY column
+  int[] affinities;
+  int primaryKey = -1;
+
+  // INSERT, UPDATE: the values as literals, or the index of their parameter
+  String[] values;
+  int[] valueParams;
+
+  Condition where;
+
+  String[] orderBy;
+  boolean[] orderAsc;
+  long limit = -1;
+  long offset = 0;
+
+  int nParams;
+
+  public static SQLStatement parse(String sql) throws SQLStatementException {
+    SQLStatement st = new SQLStatement();
+
+    Matcher m = IF_NOT_EXISTS.matcher(sql);
+    if (!m.find()) {
+      m = IF_EXISTS.matcher(sql);
+      if (!m.find()) {
+        m = null;
+      }
+    }
+    if (m != null) { // not supported by the parser
+      st.ifExists = true;
+      sql = m.group(1) + sql.substring(m.end());
+    }
+
+    Statement statement;
+    try {
+      statement = pm.parse(new StringReader(sql));
+    } catch (JSQLParserException e) {
+      throw new SQLStatementException("could not parse " + sql + ": "
+          + ((e.getCause() != null) ? e.getCause().getMessage() : e.getMessage()));
+    }
+
+    if (statement instanceof CreateTable) {
+      st.compileCreate((CreateTable) statement);
+    } else if (statement instanceof Drop) {
+      Drop drop = (Drop) statement;
+      if (drop.getType().equalsIgnoreCase("TABLE")) {
+        st.type = DROP_TABLE;
+        st.table = unquote(drop.getName());
+      }
+    } else if (statement instanceof Insert) {
+      st.compileInsert((Insert) statement);
+    } else if (statement instanceof Select) {
+      st.compileSelect((Select) statement);
+    } else if (statement instanceof Update) {
+      Update update = (Update) statement;
+      st.type = UPDATE;
+      st.table = unquote(update.getTable().getName());
+      st.columns = getColumnNames(update.getColumns());
+      st.compileValues(update.getExpressions());
+      st.where = st.compileCondition(update.getWhere());
+    } else if (statement instanceof Delete) {
+      Delete delete = (Delete) statement;
+      st.type = DELETE;
+      st.table = unquote(delete.getTable().getName());
+      st.where = st.compileCondition(delete.getWhere());
+    }
+
+    return st;
+  }
+
+  // --- compilation
+
+  void compileCreate(CreateTable create) {
+    type = CREATE_TABLE;
+    table = unquote(create.getTable().getName());
+
+    List<ColumnDefinition> defs = create.getColumnDefinitions();
+    columns = new String[defs.size()];
+    affinities = new int[defs.size()];
+    for (int i = 0; i < columns.length; i++) {
+      ColumnDefinition def = defs.get(i);
+      columns[i] = unquote(def.getColumnName());
+      affinities[i] = getAffinity(def.getColDataType().getDataType());
+
+      List<String> specs = def.getColumnSpecStrings();
+      if (specs != null && affinities[i] == INTEGER && def.getColDataType().getDataType().equalsIgnoreCase("INTEGER")) {
+        for (int j = 0; j < specs.size() - 1; j++) {
+          if (specs.get(j).equalsIgnoreCase("PRIMARY") && specs.get(j + 1).equalsIgnoreCase("KEY")) {
+            primaryKey = i; // alias of the rowid
+          }
+        }
+      }
+    }
+  }
+
+  /** the affinity of a declared column type, following the SQLite rules */
+  public static int getAffinity(String declType) {
+    String t = (declType != null) ? declType.toUpperCase() : "";
+    if (t.contains("INT")) {
+      return INTEGER;
+    } else if (t.contains("CHAR") || t.contains("CLOB") || t.contains("TEXT")) {
+      return TEXT;
+    } else if (t.contains("BLOB") || t.length() == 0) {
+      return BLOB;
+    } else if (t.contains("REAL") || t.contains("FLOA") || t.contains("DOUB")) {
+      return REAL;
+    } else {
+      return TEXT; // NUMERIC, values that are numbers are compared as numbers anyway
+    }
+  }
+
+  void compileInsert(Insert insert) throws SQLStatementException {
+    type = INSERT;
+    table = unquote(insert.getTable().getName());
+    if (insert.getColumns() != null && !insert.getColumns().isEmpty()) {
+      columns = getColumnNames(insert.getColumns());
+    }
+    if (!(insert.getItemsList() instanceof ExpressionList)) {
+      throw new SQLStatementException("only INSERT .. VALUES is supported: " + insert);
+    }
+    compileValues(((ExpressionList) insert.getItemsList()).getExpressions());
+    if (columns != null && columns.length != values.length) {
+      throw new SQLStatementException(columns.length + " columns but " + values.length + " values: " + insert);
+    }
+  }
+
+  void compileValues(List<Expression> exprs) throws SQLStatementException {
+    values = new String[exprs.size()];
+    valueParams = new int[exprs.size()];
+    for (int i = 0; i < values.length; i++) {
+      Operand op = compileOperand(exprs.get(i));
+      if (op instanceof Param) {
+        valueParams[i] = ((Param) op).index;
+      } else if (op instanceof Literal) {
+        Object v = ((Literal) op).value;
+        values[i] = (v != null) ? v.toString() : null;
+        valueParams[i] = -1;
+      } else {
+        throw new SQLStatementException("values have to be literals or parameters: " + exprs.get(i));
+      }
+    }
+  }
+
+  void compileSelect(Select select) throws SQLStatementException {
+    if (!(select.getSelectBody() instanceof PlainSelect)) {
+      throw new SQLStatementException("unsupported SELECT: " + select);
+    }
+    PlainSelect ps = (PlainSelect) select.getSelectBody();
+    if (!(ps.getFromItem() instanceof net.sf.jsqlparser.schema.Table)
+        || (ps.getJoins() != null && !ps.getJoins().isEmpty()) || ps.getGroupByColumnReferences() != null) {
+      throw new SQLStatementException("only SELECT from a single table is supported: " + select);
+    }
+
+    type = SELECT;
+    table = unquote(((net.sf.jsqlparser.schema.Table) ps.getFromItem()).getName());
+
+    List<SelectItem> items = ps.getSelectItems();
+    if (!(items.size() == 1 && items.get(0) instanceof AllColumns)) {
+      columns = new String[items.size()];
+      for (int i = 0; i < columns.length; i++) {
+        SelectItem item = items.get(i);
+        if (item instanceof SelectExpressionItem && ((SelectExpressionItem) item).getExpression() instanceof Column) {
+          columns[i] = unquote(((Column) ((SelectExpressionItem) item).getExpression()).getColumnName());
+        } else {
+          throw new SQLStatementException("only columns can be selected: " + item);
+        }
+      }
+    }
+
+    where = compileCondition(ps.getWhere());
+
+    List<OrderByElement> order = ps.getOrderByElements();
+    if (order != null && !order.isEmpty()) {
+      orderBy = new String[order.size()];
+      orderAsc = new boolean[order.size()];
+      for (int i = 0; i < orderBy.length; i++) {
+        if (!(order.get(i).getExpression() instanceof Column)) {
+          throw new SQLStatementException("can only order by columns: " + order.get(i));
+        }
+        orderBy[i] = unquote(((Column) order.get(i).getExpression()).getColumnName());
+        orderAsc[i] = order.get(i).isAsc();
+      }
+    }
+
+    Limit l = ps.getLimit();
+    if (l != null) {
+      if (l.isRowCountJdbcParameter() || l.isOffsetJdbcParameter()) {
+        throw new SQLStatementException("LIMIT parameters are not supported: " + select);
+      }
+      if (!l.isLimitAll()) {
+        limit = l.getRowCount();
+      }
+      offset = l.getOffset();
+    }
+  }
+
+  Condition compileCondition(Expression e) throws SQLStatementException {
+    if (e == null) {
+      return null;
+    }
+
+    Condition c;
+    boolean not = false;
+
+    if (e instanceof Parenthesis) {
+      c = compileCondition(((Parenthesis) e).getExpression());
+      not = ((Parenthesis) e).isNot();
+
+    } else if (e instanceof AndExpression || e instanceof OrExpression) {
+      BinaryExpression b = (BinaryExpression) e;
+      Condition left = compileCondition(b.getLeftExpression());
+      Condition right = compileCondition(b.getRightExpression());
+      c = new Junction(e instanceof AndExpression, left, right);
+      not = b.isNot();
+
+    } else if (e instanceof LikeExpression) {
+      LikeExpression like = (LikeExpression) e;
+      c = new Like(compileOperand(like.getLeftExpression()), compileOperand(like.getRightExpression()));
+      not = like.isNot();
+
+    } else if (e instanceof BinaryExpression) {
+      BinaryExpression b = (BinaryExpression) e;
+      int op;
+      if (e instanceof EqualsTo) {
+        op = Comparison.EQ;
+      } else if (e instanceof NotEqualsTo) {
+        op = Comparison.NE;
+      } else if (e instanceof MinorThan) {
+        op = Comparison.LT;
+      } else if (e instanceof MinorThanEquals) {
+        op = Comparison.LE;
+      } else if (e instanceof GreaterThan) {
+        op = Comparison.GT;
+      } else if (e instanceof GreaterThanEquals) {
+        op = Comparison.GE;
+      } else {
+        throw new SQLStatementException("unsupported operator in " + e);
+      }
+      c = new Comparison(op, compileOperand(b.getLeftExpression()), compileOperand(b.getRightExpression()));
+      not = b.isNot();
+
+    } else if (e instanceof IsNullExpression) {
+      IsNullExpression isNull = (IsNullExpression) e;
+      c = new IsNull(compileOperand(isNull.getLeftExpression()));
+      not = isNull.isNot();
+
+    } else if (e instanceof InExpression) {
+      InExpression in = (InExpression) e;
+      if (!(in.getRightItemsList() instanceof ExpressionList)) {
+        throw new SQLStatementException("only IN with a list of values is supported: " + e);
+      }
+      List<Expression> exprs = ((ExpressionList) in.getRightItemsList()).getExpressions();
+      Operand[] list = new Operand[exprs.size()];
+      Operand left = compileOperand(in.getLeftExpression());
+      for (int i = 0; i < list.length; i++) {
+        list[i] = compileOperand(exprs.get(i));
+      }
+      c = new In(left, list);
+      not = in.isNot();
+
+    } else {
+      throw new SQLStatementException("unsupported condition " + e);
+    }
+
+    return not ? new Not(c) : c;
+  }
+
+  Operand compileOperand(Expression e) throws SQLStatementException {
+    if (e instanceof Column) {
+      return new ColumnRef(unquote(((Column) e).getColumnName()));
+    } else if (e instanceof JdbcParameter) {
+      return new Param(nParams++);
+    } else if (e instanceof StringValue) {
+      return new Literal(((StringValue) e).getNotExcapedValue());
+    } else if (e instanceof LongValue) {
+      return new Literal(((LongValue) e).getValue());
+    } else if (e instanceof DoubleValue) {
+      return new Literal(((DoubleValue) e).getValue());
+    } else if (e instanceof NullValue) {
+      return new Literal(null);
+    } else if (e instanceof Parenthesis && !((Parenthesis) e).isNot()) {
+      return compileOperand(((Parenthesis) e).getExpression());
+    } else {
+      throw new SQLStatementException("unsupported value " + e);
+    }
+  }
+
+  static String[] getColumnNames(List<Column> list) {
+    String[] names = new String[list.size()];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = unquote(list.get(i).getColumnName());
+    }
+    return names;
+  }
+
+  static String unquote(String name) {
+    if (name != null && name.length() > 1) {
+      char c = name.charAt(0);
+      if ((c == '"' || c == '`' || c == '[') && (name.charAt(name.length() - 1) == ((c == '[') ? ']' : c))) {
+        return name.substring(1, name.length() - 1);
+      }
+    }
+    return name;
+  }
+
+  // --- accessors
+
+  public int getType() {
+    return type;
+  }
+
+  public String getTable() {
+    return table;
+  }
+
+  public boolean isIfExists() {
+    return ifExists;
+  }
+
+  public String[] getColumns() {
+    return columns;
+  }
+
+  public int[] getAffinities() {
+    return affinities;
+  }
+
+  public int getPrimaryKey() {
+    return primaryKey;
+  }
+
+  public String[] getValues() {
+    return values;
+  }
+
+  public int[] getValueParams() {
+    return valueParams;
+  }
+
+  public int getNumberOfParams() {
+    return nParams;
+  }
+
+  // --- evaluation
+
+  /**
+   * Returns the indices of the rows that satisfy the WHERE clause, ordered and
+   * limited as the statement requires.
+   *
+   * @param args
+   *          the values of the parameters
+   */
+  public int[] selectRows(final Rows rows, Object[] args) throws SQLStatementException {
+    String[] tableColumns = rows.getColumns();
+    if (where != null) {
+      where.resolve(tableColumns);
+    }
+
+    int n = rows.size();
+    int[] selected = new int[n];
+    int count = 0;
+    for (int i = 0; i < n; i++) {
+      if (where == null || where.eval(rows, i, args) == Boolean.TRUE) {
+        selected[count++] = i;
+      }
+    }
+
+    if (orderBy != null && count > 1) {
+      final int[] cols = new int[orderBy.length];
+      for (int i = 0; i < cols.length; i++) {
+        cols[i] = getColumnIndex(tableColumns, orderBy[i]);
+      }
+
+      Integer[] sorted = new Integer[count];
+      for (int i = 0; i < count; i++) {
+        sorted[i] = selected[i];
+      }
+      Arrays.sort(sorted, new Comparator<Integer>() {
+        @Override
+        public int compare(Integer r1, Integer r2) {
+          for (int i = 0; i < cols.length; i++) {
+            int c = compareValues(getValue(rows, r1, cols[i]), getValue(rows, r2, cols[i]));
+            if (c != 0) {
+              return orderAsc[i] ? c : -c;
+            }
+          }
+          return r1 - r2;
+        }
+      });
+      for (int i = 0; i < count; i++) {
+        selected[i] = sorted[i];
+      }
+    }
+
+    int from = (int) Math.min(offset, count);
+    int to = (limit >= 0) ? (int) Math.min(count, from + limit) : count;
+    return Arrays.copyOfRange(selected, from, to);
+  }
+
+  /** the names of the table columns the statement reads when selecting rows */
+  public List<String> getReferencedColumns() {
+    List<String> list = new ArrayList<String>();
+    if (where != null) {
+      where.addColumns(list);
+    }
+    if (orderBy != null) {
+      list.addAll(Arrays.asList(orderBy));
+    }
+    return list;
+  }
+
+  static int getColumnIndex(String[] tableColumns, String name) throws SQLStatementException {
+    for (int i = 0; i < tableColumns.length; i++) {
+      if (tableColumns[i].equalsIgnoreCase(name)) {
+        return i;
+      }
+    }
+    if (name.equalsIgnoreCase("rowid") || name.equalsIgnoreCase("_rowid_") || name.equalsIgnoreCase("oid")) {
+      return ROWID;
+    }
+    throw new SQLStatementException("no such column: " + name);
+  }
+
+  static Object getValue(Rows rows, int row, int column) {
+    return (column == ROWID) ? Long.valueOf(rows.getRowId(row)) : rows.get(row, column);
+  }
+
+  static Double toNumber(Object v) {
+    if (v instanceof Number) {
+      return ((Number) v).doubleValue();
+    } else if (v instanceof String) {
+      try {
+        return Double.valueOf(((String) v).trim());
+      } catch (NumberFormatException x) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * compares two values, numerically if both are numbers, else as strings.
+   * NULL is smaller than all other values
+   */
+  static int compareValues(Object a, Object b) {
+    if (a == null || b == null) {
+      return (a == null) ? ((b == null) ? 0 : -1) : 1;
+    }
+    if (a instanceof Number || b instanceof Number) {
+      Double da = toNumber(a);
+      Double db = toNumber(b);
+      if (da != null && db != null) {
+        return Double.compare(da, db);
+      }
+    }
+    String sa = (a instanceof byte[]) ? new String((byte[]) a) : a.toString();
+    String sb = (b instanceof byte[]) ? new String((byte[]) b) : b.toString();
+    return sa.compareTo(sb);
+  }
+
+  /** SQL LIKE, case insensitive for ASCII as in SQLite */
+  static boolean like(String s, String pattern) {
+    return like(s.toLowerCase(), 0, pattern.toLowerCase(), 0);
+  }
+
+  private static boolean like(String s, int si, String p, int pi) {
+    while (pi < p.length()) {
+      char c = p.charAt(pi);
+      if (c == '%') {
+        for (int i = si; i <= s.length(); i++) {
+          if (like(s, i, p, pi + 1)) {
+            return true;
+          }
+        }
+        return false;
+      }
+      if (si >= s.length() || (c != '_' && c != s.charAt(si))) {
+        return false;
+      }
+      si++;
+      pi++;
+    }
+    return si == s.length();
+  }
+
+  // --- the compiled WHERE clause, conditions evaluate to TRUE, FALSE or null
+  // (unknown) following the three valued logic of SQL
+
+  abstract static class Operand {
+    void resolve(String[] tableColumns) throws SQLStatementException {
+    }
+
+    void addColumns(List<String> list) {
+    }
+
+    abstract Object get(Rows rows, int row, Object[] args);
+  }
+
+  static class ColumnRef extends Operand {
+    final String name;
+    int column;
+
+    ColumnRef(String name) {
+      this.name = name;
+    }
+
+    @Override
+    void resolve(String[] tableColumns) throws SQLStatementException {
+      column = getColumnIndex(tableColumns, name);
+    }
+
+    @Override
+    void addColumns(List<String> list) {
+      list.add(name);
+    }
+
+    @Override
+    Object get(Rows rows, int row, Object[] args) {
+      return getValue(rows, row, column);
+    }
+  }
+
+  static class Literal extends Operand {
+    final Object value;
+
+    Literal(Object value) {
+      this.value = value;
+    }
+
+    @Override
+    Object get(Rows rows, int row, Object[] args) {
+      return value;
+    }
+  }
+
+  static class Param extends Operand {
+    final int index;
+
+    Param(int index) {
+      this.index = index;
+    }
+
+    @Override
+    Object get(Rows rows, int row, Object[] args) {
+      return (args != null && index < args.length) ? args[index] : null;
+    }
+  }
+
+  abstract static class Condition {
+    abstract void resolve(String[] tableColumns) throws SQLStatementException;
+
+    abstract void addColumns(List<String> list);
+
+    abstract Boolean eval(Rows rows, int row, Object[] args);
+  }
+
+  static class Junction extends Condition {
+    final boolean and;
+    final Condition left, right;
+
+    Junction(boolean and, Condition left, Condition right) {
+      this.and = and;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    void resolve(String[] tableColumns) throws SQLStatementException {
+      left.resolve(tableColumns);
+      right.resolve(tableColumns);
+    }
+
+    @Override
+    void addColumns(List<String> list) {
+      left.addColumns(list);
+      right.addColumns(list);
+    }
+
+    @Override
+    Boolean eval(Rows rows, int row, Object[] args) {
+      Boolean l = left.eval(rows, row, args);
+      if (l != null && l.booleanValue() != and) {
+        return l; // FALSE for AND, TRUE for OR
+      }
+      Boolean r = right.eval(rows, row, args);
+      if (r != null && r.booleanValue() != and) {
+        return r;
+      }
+      return (l == null || r == null) ? null : Boolean.valueOf(and);
+    }
+  }
+
+  static class Not extends Condition {
+    final Condition c;
+
+    Not(Condition c) {
+      this.c = c;
+    }
+
+    @Override
+    void resolve(String[] tableColumns) throws SQLStatementException {
+      c.resolve(tableColumns);
+    }
+
+    @Override
+    void addColumns(List<String> list) {
+      c.addColumns(list);
+    }
+
+    @Override
+    Boolean eval(Rows rows, int row, Object[] args) {
+      Boolean b = c.eval(rows, row, args);
+      return (b != null) ? Boolean.valueOf(!b) : null;
+    }
+  }
+
+  static class Comparison extends Condition {
+    static final int EQ = 0, NE = 1, LT = 2, LE = 3, GT = 4, GE = 5;
+
+    final int op;
+    final Operand left, right;
+
+    Comparison(int op, Operand left, Operand right) {
+      this.op = op;
+      this.left = left;
+      this.right = right;
+    }
+
+    @Override
+    void resolve(String[] tableColumns) throws SQLStatementException {
+      left.resolve(tableColumns);
+      right.resolve(tableColumns);
+    }
+
+    @Override
+    void addColumns(List<String> list) {
+      left.addColumns(list);
+      right.addColumns(list);
+    }
+
+    @Override
+    Boolean eval(Rows rows, int row, Object[] args) {
+      Object a = left.get(rows, row, args);
+      Object b = right.get(rows, row, args);
+      if (a == null || b == null) {
+        return null;
+      }
+      int c = compareValues(a, b);
+      switch (op) {
+      case EQ:
+        return c == 0;
+      case NE:
+        return c != 0;
+      case LT:
+        return c < 0;
+      case LE:
+        return c <= 0;
+      case GT:
+        return c > 0;
+      default:
+        return c >= 0;
+      }
+    }
+  }
+
+  static class Like extends Condition {
+    final Operand value, pattern;
+
+    Like(Operand value, Operand pattern) {
+      this.value = value;
+      this.pattern = pattern;
+    }
+
+    @Override
+    void resolve(String[] tableColumns) throws SQLStatementException {
+      value.resolve(tableColumns);
+      pattern.resolve(tableColumns);
+    }
+
+    @Override
+    void addColumns(List<String> list) {
+      value.addColumns(list);
+      pattern.addColumns(list);
+    }
+
+    @Override
+    Boolean eval(Rows rows, int row, Object[] args) {
+      Object v = value.get(rows, row, args);
+      Object p = pattern.get(rows, row, args);
+      if (v == null || p == null) {
+        return null;
+      }
+      return like(v.toString(), p.toString());
+    }
+  }
+
+  static class IsNull extends Condition {
+    final Operand value;
+
+    IsNull(Operand value) {
+      this.value = value;
+    }
+
+    @Override
+    void resolve(String[] tableColumns) throws SQLStatementException {
+      value.resolve(tableColumns);
+    }
+
+    @Override
+    void addColumns(List<String> list) {
+      value.addColumns(list);
+    }
+
+    @Override
+    Boolean eval(Rows rows, int row, Object[] args) {
+      return value.get(rows, row, args) == null;
+    }
+  }
+
+  static class In extends Condition {
+    final Operand value;
+    final Operand[] list;
+
+    In(Operand value, Operand[] list) {
+      this.value = value;
+      this.list = list;
+    }
+
+    @Override
+    void resolve(String[] tableColumns) throws SQLStatementException {
+      value.resolve(tableColumns);
+      for (Operand op : list) {
+        op.resolve(tableColumns);
+      }
+    }
+
+    @Override
+    void addColumns(List<String> columns) {
+      value.addColumns(columns);
+      for (Operand op : list) {
+        op.addColumns(columns);
+      }
+    }
+
+    @Override
+    Boolean eval(Rows rows, int row, Object[] args) {
+      Object v = value.get(rows, row, args);
+      if (v == null) {
+        return null;
+      }
+      boolean unknown = false;
+      for (Operand op : list) {
+        Object o = op.get(rows, row, args);
+        if (o == null) {
+          unknown = true;
+        } else if (compareValues(v, o) == 0) {
+          return true;
+        }
+      }
+      return unknown ? null : Boolean.FALSE;
+    }
+  }
+}
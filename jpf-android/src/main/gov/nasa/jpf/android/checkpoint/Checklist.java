@@ -1,6 +1,6 @@
 package gov.nasa.jpf.android.checkpoint;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -26,7 +26,7 @@ public class Checklist {
 
   public Checklist(String name) {
     this.name = name;
-    this.list = new LinkedList<Checkpoint>();
+    this.list = new ArrayList<Checkpoint>();
   }
 
   public Checklist(String name, List<Checkpoint> list, int conditionIndex) {
@@ -0,0 +1,119 @@
+package gov.nasa.jpf.android.checkpoint;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Maps the checkpoints to the active {@link Checklist}s they concern, so that
+ * the {@link ChecklistManager} does not have to ask every {@link Checklist}
+ * when a checkpoint is reached. The index is built once when the checklists
+ * are activated. The checklists are numbered in order of activation and have
+ * to be distinct.
+ *
+ * @author Heila van der Merwe
+ *
+ */
+class ChecklistIndex {
+
+  private static final int[] NONE = new int[0];
+
+  private final Checklist[] checklists;
+
+  private final Map<Checklist, Integer> ids = new IdentityHashMap<Checklist, Integer>();
+
+  /** Checklists that start with a checkpoint, see {@link Checklist#startsWith(Checkpoint)} */
+  private final Map<Checkpoint, int[]> starting = new HashMap<Checkpoint, int[]>();
+
+  /** Checklists that contain a checkpoint of this name and can advance on it */
+  private final Map<String, int[]> advancing = new HashMap<String, int[]>();
+
+  public ChecklistIndex(List<Checklist> list) {
+    checklists = list.toArray(new Checklist[list.size()]);
+
+    Map<Checkpoint, List<Integer>> start = new HashMap<Checkpoint, List<Integer>>();
+    Map<String, List<Integer>> names = new HashMap<String, List<Integer>>();
+
+    for (int id = 0; id < checklists.length; id++) {
+      Checklist c = checklists[id];
+      ids.put(c, id);
+      addStart(start, c, id);
+
+      for (int i = 0; i < c.size(); i++) {
+        String name = c.getCheckpoint(i).getName();
+        List<Integer> l = names.get(name);
+        if (l == null) {
+          l = new ArrayList<Integer>();
+          names.put(name, l);
+        }
+        if (!l.contains(id)) {
+          l.add(id);
+        }
+      }
+    }
+
+    for (Map.Entry<Checkpoint, List<Integer>> e : start.entrySet()) {
+      starting.put(e.getKey(), toArray(e.getValue()));
+    }
+    for (Map.Entry<String, List<Integer>> e : names.entrySet()) {
+      advancing.put(e.getKey(), toArray(e.getValue()));
+    }
+  }
+
+  /**
+   * A checklist starts with its negative checkpoints up to and including its
+   * first positive checkpoint.
+   */
+  private static void addStart(Map<Checkpoint, List<Integer>> start, Checklist c, int id) {
+    for (int i = 0; i < c.size(); i++) {
+      Checkpoint cp = c.getCheckpoint(i);
+      List<Integer> l = start.get(cp);
+      if (l == null) {
+        l = new ArrayList<Integer>();
+        start.put(cp, l);
+      }
+      if (!l.contains(id)) {
+        l.add(id);
+      }
+      if (!cp.isNegative()) {
+        break;
+      }
+    }
+  }
+
+  private static int[] toArray(List<Integer> list) {
+    int[] a = new int[list.size()];
+    for (int i = 0; i < a.length; i++) {
+      a[i] = list.get(i);
+    }
+    return a;
+  }
+
+  public int size() {
+    return checklists.length;
+  }
+
+  public Checklist get(int id) {
+    return checklists[id];
+  }
+
+  /** @return the id of the checklist, or -1 if it is not active */
+  public int getId(Checklist checklist) {
+    Integer id = ids.get(checklist);
+    return (id != null) ? id : -1;
+  }
+
+  /** @return the ids of the checklists a new instance has to be started for */
+  public int[] getStarting(Checkpoint point) {
+    int[] a = starting.get(point);
+    return (a != null) ? a : NONE;
+  }
+
+  /** @return the ids of the checklists whose instances can match this checkpoint */
+  public int[] getAdvancing(String name) {
+    int[] a = advancing.get(name);
+    return (a != null) ? a : NONE;
+  }
+}
@@ -6,6 +6,7 @@ import gov.nasa.jpf.report.ConsolePublisher;
 import gov.nasa.jpf.util.StateExtensionListener;
 import gov.nasa.jpf.util.script.AndroidScriptEnvironment;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
@@ -23,6 +24,10 @@ import java.util.logging.Logger;
  * removed from the registered {@link Checklist} and put in a list of violating
  * {@link Checklist} in the CheckpointListener.
  * 
+ * Only the {@link Checklist}s that refer to a checkpoint are notified, see
+ * {@link ChecklistIndex}. The running {@link ChecklistInstance}s of an event
+ * are kept per {@link Checklist}.
+ * 
  * @author Heila van der Merwe
  * @date 2 June 2013
  * 
@@ -37,8 +42,11 @@ public class ChecklistManager implements ChecklistReporter, CheckpointProcessor,
   /** Active Checklists */
   private List<Checklist> checklists;
 
-  /** Running ChecklistInstances */
-  private Map<Integer, List<ChecklistInstance>> checklistInstances;
+  /** Active Checklists by checkpoint */
+  private ChecklistIndex index;
+
+  /** Running ChecklistInstances by eventID */
+  private Map<Integer, EventInstances> checklistInstances;
 
   /** Mappings */
   private Map<String, Checkpoint> mappings;
@@ -57,7 +65,8 @@ public class ChecklistManager implements ChecklistReporter, CheckpointProcessor,
       checklists = new LinkedList<Checklist>();
 
       // create new list of running checklists
-      checklistInstances = new HashMap<Integer, List<ChecklistInstance>>();
+      checklistInstances = new HashMap<Integer, EventInstances>();
+      index = new ChecklistIndex(checklists);
 
       mappings = def.getMappings();
     }
@@ -79,6 +88,7 @@ public class ChecklistManager implements ChecklistReporter, CheckpointProcessor,
       logger.warning(TAG + ": no active Checklists defined in config.");
       ;
     }
+    index = new ChecklistIndex(checklists);
   }
 
   /**
@@ -89,75 +99,79 @@ public class ChecklistManager implements ChecklistReporter, CheckpointProcessor,
     logger.fine(TAG + ": Registering  checklist " + checklist.toString());
 
     // add new checklist to checklists list
-    if (checklist != null)
+    if (checklist != null && !this.checklists.contains(checklist))
       this.checklists.add(checklist);
   }
 
   @Override
   public void match(CheckpointInstance point) {
 
-    ChecklistInstance newList = null;
-    List<ChecklistInstance> instances = null;
-
-    //match with Checklists
-    for (Checklist c : checklists) {
-      if (c.startsWith(point.toCheckpoint())) {
-
-        //create new ChecklistInstance
-        newList = new ChecklistInstance(c, point.getEventID(), point.getPathID());
+    int[] advancing = index.getAdvancing(point.getName());
+    if (advancing.length == 0) {
+      // no active checklist refers to this checkpoint
+      return;
+    }
 
-        //add to ChecklistInstances for this path
-        instances = checklistInstances.get(point.getEventID());
+    EventInstances instances = checklistInstances.get(point.getEventID());
 
-        if (instances == null) {
-          instances = new LinkedList<ChecklistInstance>();
-          checklistInstances.put(point.getEventID(), instances);
-        }
+    //match with Checklists
+    for (int id : index.getStarting(point.toCheckpoint())) {
 
-        instances.add(newList);
+      //create new ChecklistInstance
+      ChecklistInstance newList = new ChecklistInstance(index.get(id), point.getEventID(), point.getPathID());
 
+      //add to ChecklistInstances for this path
+      if (instances == null) {
+        instances = new EventInstances(index.size());
+        checklistInstances.put(point.getEventID(), instances);
       }
+      instances.add(id, newList);
     }
 
-    //get all checklists for this event
-    instances = checklistInstances.get(point.getEventID());
-
     if (instances != null) { // if none has been fired yet
+      for (int id : advancing) {
+        List<ChecklistInstance> lists = instances.get(id);
+        if (lists != null) {
+          match(lists, point);
+        }
+      }
+    }
+  }
 
-      // stores finished and violated checklist instances
-      List<ChecklistInstance> removeList = new LinkedList<ChecklistInstance>();
-
-      for (ChecklistInstance list : instances) {
-
-        if (point.getPathID().startsWith(list.getPath().getPathID())) {
-          // if this checkpoint was on a child path of the checklist's path
-
-          boolean match = list.match(point);
-          if (!match) {
-            // this point violated the checklist
-
-            if (list.conditionMatched()) {
-              // this list is a violation
-              checkListPublisher.addViolatingChecklist(list, 1);
-              
-              removeList.add(list);
-
-            } else if (!list.conditionMatched()) {
-              //this is ignored as condition was not met
-
-              removeList.add(list);
-            }
-          } else if (match && list.isCompleted()) {
-            removeList.add(list);
-
+  /**
+   * Matches the point with the instances of one checklist and removes the
+   * finished and violated instances.
+   */
+  private void match(List<ChecklistInstance> instances, CheckpointInstance point) {
+    int n = 0;
+    for (int i = 0; i < instances.size(); i++) {
+      ChecklistInstance list = instances.get(i);
+      boolean remove = false;
+
+      if (list.getPath().isPrefixOf(point.getPath())) {
+        // if this checkpoint was on a child path of the checklist's path
+
+        boolean match = list.match(point);
+        if (!match) {
+          // this point violated the checklist
+
+          if (list.conditionMatched()) {
+            // this list is a violation
+            checkListPublisher.addViolatingChecklist(list, 1);
           }
+          // otherwise this is ignored as condition was not met
+          remove = true;
+
+        } else if (list.isCompleted()) {
+          remove = true;
         }
       }
 
-      for (ChecklistInstance list : removeList) {
-        instances.remove(list);
+      if (!remove) {
+        instances.set(n++, list);
       }
     }
+    instances.subList(n, instances.size()).clear();
   }
 
   @Override
@@ -165,8 +179,8 @@ public class ChecklistManager implements ChecklistReporter, CheckpointProcessor,
     // stores checklists that fail
     List<ChecklistInstance> failedChecklists = new LinkedList<ChecklistInstance>();
 
-    for (Entry<Integer, List<ChecklistInstance>> entryset : checklistInstances.entrySet()) {
-      for (ChecklistInstance list : entryset.getValue()) {
+    for (EventInstances instances : checklistInstances.values()) {
+      for (ChecklistInstance list : instances.getAll()) {
         if (list.conditionMatched() && !list.isCompleted()) {
 
           boolean failed = false;
@@ -195,10 +209,8 @@ public class ChecklistManager implements ChecklistReporter, CheckpointProcessor,
     // stores checklists that fail
     List<ChecklistInstance> completedChecklists = new LinkedList<ChecklistInstance>();
 
-    for (Entry<Integer, List<ChecklistInstance>> entryset : checklistInstances.entrySet()) {
-      for (ChecklistInstance list : entryset.getValue()) {
-        completedChecklists.add(list);
-      }
+    for (EventInstances instances : checklistInstances.values()) {
+      completedChecklists.addAll(instances.getAll());
     }
     return completedChecklists;
   }
@@ -213,9 +225,9 @@ public class ChecklistManager implements ChecklistReporter, CheckpointProcessor,
     ChecklistInstance instance = null;
     List<ChecklistInstance> instancelist = null;
 
-    for (List<ChecklistInstance> values : checklistInstances.values()) {
+    for (EventInstances values : checklistInstances.values()) {
 
-      for (ChecklistInstance c : values) {
+      for (ChecklistInstance c : values.getAll()) {
 
         instance = (ChecklistInstance) c.clone();
         instancelist = newChecklistInstances.get(instance.getPath().getEventID());
@@ -244,11 +256,11 @@ public class ChecklistManager implements ChecklistReporter, CheckpointProcessor,
   public void restore(ChecklistsState stateExtension) {
 
     //clone instances map
-    Map<Integer, List<ChecklistInstance>> newChecklistInstances = new HashMap<Integer, List<ChecklistInstance>>();
+    Map<Integer, EventInstances> newChecklistInstances = new HashMap<Integer, EventInstances>();
     Map<Integer, Path> threadMap = new HashMap<Integer, Path>();
 
     ChecklistInstance instance = null;
-    List<ChecklistInstance> instancelist = null;
+    EventInstances instancelist = null;
 
     if (stateExtension != null) {
 
@@ -260,10 +272,10 @@ public class ChecklistManager implements ChecklistReporter, CheckpointProcessor,
           instancelist = newChecklistInstances.get(instance.getPath().getEventID());
 
           if (instancelist == null) {
-            instancelist = new LinkedList<ChecklistInstance>();
+            instancelist = new EventInstances(index.size());
             newChecklistInstances.put(instance.getPath().getEventID(), instancelist);
           }
-          instancelist.add(instance);
+          instancelist.add(index.getId(instance.getChecklist()), instance);
         }
       }
 
@@ -298,6 +310,40 @@ public class ChecklistManager implements ChecklistReporter, CheckpointProcessor,
 
   }
 
+  /**
+   * The running ChecklistInstances of an event by the id of their Checklist in
+   * the {@link ChecklistIndex}, in order of creation.
+   */
+  static class EventInstances {
+    private final List<ChecklistInstance>[] lists;
+
+    @SuppressWarnings("unchecked")
+    EventInstances(int numberOfChecklists) {
+      lists = new List[numberOfChecklists];
+    }
+
+    void add(int id, ChecklistInstance instance) {
+      if (lists[id] == null) {
+        lists[id] = new ArrayList<ChecklistInstance>();
+      }
+      lists[id].add(instance);
+    }
+
+    List<ChecklistInstance> get(int id) {
+      return lists[id];
+    }
+
+    List<ChecklistInstance> getAll() {
+      List<ChecklistInstance> all = new ArrayList<ChecklistInstance>();
+      for (List<ChecklistInstance> l : lists) {
+        if (l != null) {
+          all.addAll(l);
+        }
+      }
+      return all;
+    }
+  }
+
   public static class ChecklistsState {
 
     Map<Integer, List<ChecklistInstance>> checklistInstances;
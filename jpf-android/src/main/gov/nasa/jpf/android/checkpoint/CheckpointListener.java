@@ -9,6 +9,7 @@ import gov.nasa.jpf.vm.MethodInfo;
 import gov.nasa.jpf.vm.ThreadInfo;
 import gov.nasa.jpf.vm.VM;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.logging.Logger;
 
@@ -17,6 +18,10 @@ import java.util.logging.Logger;
  * it is, we notify the CheckpointManager that checks if this is a valid method
  * call according to the registered CheckLists.
  * 
+ * The Checkpoint of a method, given by its annotation or by the method
+ * mappings, is resolved once when its class is loaded and stored by global
+ * method id.
+ * 
  * Depends on ThreadManagerListener to get the eventID and pathID of this thread
  * 
  * Depends on MessageQueue to get the eventID and pathID of the main tread.
@@ -30,13 +35,29 @@ public class CheckpointListener extends ListenerAdapter {
 
   private final Map<String, Checkpoint> mappings;
 
+  /** The Checkpoint of each method by global id, null if it is not one */
+  private Checkpoint[] checkpoints = new Checkpoint[1024];
+
   public CheckpointListener(CheckpointProcessor checkpointProcessor) {
     this.checkpointProcessor = checkpointProcessor;
     this.mappings = this.checkpointProcessor.getMethodMappings();
+
+    // the listener is registered after the startup classes were loaded
+    MethodInfo mi;
+    for (int id = 0; (mi = MethodInfo.getMethodInfo(id)) != null; id++) {
+      resolve(mi);
+    }
   }
 
   @Override
-  public void methodEntered(VM vm, ThreadInfo currentThread, MethodInfo methodInfo) {
+  public void classLoaded(VM vm, ClassInfo loadedClass) {
+    for (MethodInfo mi : loadedClass.getDeclaredMethodInfos()) {
+      resolve(mi);
+    }
+  }
+
+  private void resolve(MethodInfo methodInfo) {
+    Checkpoint cp = null;
 
     // check to see if this method has an annotation "Checkpoint"
     AnnotationInfo info = methodInfo.getAnnotation("gov.nasa.jpf.annotation.Checkpoint");
@@ -44,10 +65,6 @@ public class CheckpointListener extends ListenerAdapter {
     if (info != null) {
       // this method has a checkpoint annotation
 
-      /////////////////////////////////
-      //  Get info of the Checkpoint //
-      /////////////////////////////////
-
       //1. the name of the checkpoint
       String name = (String) info.value();
 
@@ -56,25 +73,33 @@ public class CheckpointListener extends ListenerAdapter {
       if (threadAlias == null)
         threadAlias = "main";
 
-      CheckpointInstance c = getCheckpointInstance(vm, name, threadAlias);
+      cp = new Checkpoint(name, threadAlias);
 
-      // notify ChecklistManager
-      checkpointProcessor.match(c);
-    } else {
-
-      if (mappings != null) {
-        String methodSignature = methodInfo.getFullName();
-        Checkpoint cp = mappings.get(methodSignature);
-
-        if (cp != null) {
-          CheckpointInstance ins = getCheckpointInstance(vm, cp.getName(), cp.getThreadName());
+    } else if (mappings != null) {
+      cp = mappings.get(methodInfo.getFullName());
+    }
 
-          // notify ChecklistManager
-          checkpointProcessor.match(ins);
-        }
+    int id = methodInfo.getGlobalId();
+    if (cp != null && id >= 0) {
+      if (id >= checkpoints.length) {
+        checkpoints = Arrays.copyOf(checkpoints, Math.max(id + 1, checkpoints.length * 2));
       }
+      checkpoints[id] = cp;
     }
+  }
 
+  @Override
+  public void methodEntered(VM vm, ThreadInfo currentThread, MethodInfo methodInfo) {
+    int id = methodInfo.getGlobalId();
+
+    if (id >= 0 && id < checkpoints.length && checkpoints[id] != null) {
+      // this method is a checkpoint
+      Checkpoint cp = checkpoints[id];
+      CheckpointInstance c = getCheckpointInstance(vm, cp.getName(), cp.getThreadName());
+
+      // notify ChecklistManager
+      checkpointProcessor.match(c);
+    }
   }
 
   private CheckpointInstance getCheckpointInstance(VM vm, String name, String threadAlias) {
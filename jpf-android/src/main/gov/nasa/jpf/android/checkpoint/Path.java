@@ -1,9 +1,20 @@
 package gov.nasa.jpf.android.checkpoint;
 
+/**
+ * The path of a thread within an event. A path id is a string of '0' and '1'
+ * that grows by one digit each time a thread is started on the path, the
+ * thread continues on the '0' path and the new thread on the '1' path.
+ *
+ * Path ids are also kept as a leading 1 bit followed by their digits, so that
+ * ancestry can be checked with a shift instead of comparing the strings.
+ */
 public class Path {
   protected String pathID;
   protected int eventID;
 
+  /** the encoded path id, 0 if not computed yet, -1 if it can not be encoded */
+  private long code;
+
   public Path(int eventID,String pathID) {
     this.pathID = pathID;
     this.eventID = eventID;
@@ -59,6 +70,43 @@ public class Path {
 
   public void setPathID(String pathID) {
     this.pathID = pathID;
+    this.code = 0;
+  }
+
+  private long getCode() {
+    if (code == 0) {
+      code = encode(pathID);
+    }
+    return code;
+  }
+
+  static long encode(String pathID) {
+    if (pathID == null || pathID.length() > 62) {
+      return -1;
+    }
+    long c = 1;
+    for (int i = 0; i < pathID.length(); i++) {
+      char d = pathID.charAt(i);
+      if (d != '0' && d != '1') {
+        return -1;
+      }
+      c = (c << 1) | (d - '0');
+    }
+    return c;
+  }
+
+  /**
+   * Returns true if the other path is this path or starts on this path. The
+   * event ids are not compared.
+   */
+  public boolean isPrefixOf(Path other) {
+    long a = getCode();
+    long b = other.getCode();
+    if (a > 0 && b > 0) {
+      int shift = Long.numberOfLeadingZeros(a) - Long.numberOfLeadingZeros(b);
+      return shift >= 0 && (b >>> shift) == a;
+    }
+    return other.pathID.startsWith(pathID);
   }
 
 
@@ -0,0 +1,242 @@
+package gov.nasa.jpf.android.parallel;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.JPFConfigException;
+import gov.nasa.jpf.JPFShell;
+import gov.nasa.jpf.util.JPFLogger;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Splits the exploration of the script alternatives of an Android application
+ * over a number of worker JVMs on the local machine, and merges their results
+ * into one report. Use it by setting
+ *
+ * <pre>
+ * shell = gov.nasa.jpf.android.parallel.ParallelShell
+ * android.parallel.workers = 4
+ * </pre>
+ *
+ * Each worker runs the same configuration with android.parallel.worker set to
+ * its number. The workers explore the same path until the product of the
+ * number of choices of the script alternatives (ANY blocks) on it reaches the
+ * number of workers. At that alternative the subtrees are dealt out to the
+ * workers (see AndroidSequenceIntpr), so that each subtree is explored by
+ * exactly one worker. Violations that are found above the split are reported
+ * by all workers, and are merged.
+ *
+ * If the alternatives on a path never reach the number of workers, that path
+ * is explored by every worker. The merged report warns about this, since it
+ * means the script does not have enough alternatives for the number of
+ * workers.
+ *
+ * The console output of each worker goes to worker-&lt;n&gt;.log in the
+ * android.parallel.dir directory (a temporary directory by default).
+ *
+ * @author Heila van der Merwe
+ */
+public class ParallelShell implements JPFShell {
+  private static final JPFLogger logger = JPF.getLogger("ParallelShell");
+
+  static final String SEPARATOR = "====================================================== ";
+
+  Config conf;
+
+  public ParallelShell(Config conf) {
+    this.conf = conf;
+  }
+
+  @Override
+  public void start(String[] args) {
+    if (conf.getInt("android.parallel.worker", -1) >= 0) {
+      // we are a worker, just run JPF
+      JPF jpf = new JPF(conf);
+      jpf.run();
+      return;
+    }
+
+    int nWorkers = conf.getInt("android.parallel.workers", Runtime.getRuntime().availableProcessors());
+    if (nWorkers < 1) {
+      throw new JPFConfigException("android.parallel.workers has to be > 0: " + nWorkers);
+    }
+
+    File dir = getOutputDir();
+    Process[] workers = new Process[nWorkers];
+    File[] reports = new File[nWorkers];
+
+    for (int i = 0; i < nWorkers; i++) {
+      reports[i] = new File(dir, "worker-" + i + ".report");
+      reports[i].delete();
+
+      ProcessBuilder pb = new ProcessBuilder(getWorkerCommand(args, i, nWorkers, reports[i]));
+      pb.redirectErrorStream(true);
+      pb.redirectOutput(new File(dir, "worker-" + i + ".log"));
+
+      try {
+        workers[i] = pb.start();
+      } catch (IOException x) {
+        throw new JPFConfigException("could not start worker " + i + ": " + x.getMessage());
+      }
+    }
+    logger.info("started " + nWorkers + " workers, output in " + dir);
+
+    int[] exitCodes = new int[nWorkers];
+    for (int i = 0; i < nWorkers; i++) {
+      try {
+        exitCodes[i] = workers[i].waitFor();
+      } catch (InterruptedException x) {
+        for (Process p : workers) {
+          p.destroy();
+        }
+        Thread.currentThread().interrupt();
+        return;
+      }
+    }
+
+    publish(System.out, dir, reports, exitCodes);
+  }
+
+  File getOutputDir() {
+    String dirName = conf.getString("android.parallel.dir");
+    File dir;
+
+    try {
+      if (dirName != null) {
+        dir = new File(dirName);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+          throw new IOException("cannot create directory");
+        }
+      } else {
+        dir = File.createTempFile("jpf-android-", "");
+        if (!dir.delete() || !dir.mkdir()) {
+          throw new IOException("cannot create directory");
+        }
+      }
+    } catch (IOException x) {
+      throw new JPFConfigException("invalid android.parallel.dir " + dirName + ": " + x.getMessage());
+    }
+
+    return dir;
+  }
+
+  List<String> getWorkerCommand(String[] args, int worker, int nWorkers, File report) {
+    List<String> cmd = new ArrayList<String>();
+
+    cmd.add(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+    for (String a : conf.getStringArray("android.parallel.jvm_args", new String[0])) {
+      cmd.add(a);
+    }
+    cmd.add("-cp");
+    cmd.add(System.getProperty("java.class.path"));
+    cmd.add("gov.nasa.jpf.tool.RunJPF");
+
+    // the shell only gets the args that follow the config args, so we use the
+    // original command line, which also has the application properties file
+    String[] cmdLine = conf.getArgs();
+    if (cmdLine == null) {
+      cmdLine = args;
+    }
+    for (String a : cmdLine) {
+      if (a != null) {
+        cmd.add(a);
+      }
+    }
+
+    cmd.add("+android.parallel.workers=" + nWorkers);
+    cmd.add("+android.parallel.worker=" + worker);
+    cmd.add("+android.parallel.report=" + report.getAbsolutePath());
+
+    return cmd;
+  }
+
+  void publish(PrintStream out, File dir, File[] reports, int[] exitCodes) {
+    Map<String, WorkerReport.Violation> violations = new LinkedHashMap<String, WorkerReport.Violation>();
+    Map<String, String> foundBy = new LinkedHashMap<String, String>();
+    long newStates = 0, visitedStates = 0, endStates = 0, unsplitEndStates = 0;
+    int maxDepth = 0;
+
+    out.println();
+    out.println(SEPARATOR + "parallel search (" + reports.length + " workers)");
+
+    for (int i = 0; i < reports.length; i++) {
+      WorkerReport report = null;
+      if (reports[i].isFile()) {
+        try {
+          report = WorkerReport.read(reports[i]);
+        } catch (IOException x) {
+          logger.warning(x.getMessage());
+        }
+      }
+
+      if (report == null) {
+        out.println("worker " + i + ": no report (exit code " + exitCodes[i] + "), see "
+            + new File(dir, "worker-" + i + ".log"));
+        continue;
+      }
+
+      out.println("worker " + i + ": " + report.newStates + " new states, " + report.violations.size()
+          + " violations");
+
+      newStates += report.newStates;
+      visitedStates += report.visitedStates;
+      endStates += report.endStates;
+      unsplitEndStates += report.unsplitEndStates;
+      maxDepth = Math.max(maxDepth, report.maxDepth);
+
+      for (WorkerReport.Violation v : report.violations) {
+        String key = v.description + '\n' + v.details;
+        if (!violations.containsKey(key)) {
+          violations.put(key, v);
+          foundBy.put(key, Integer.toString(i));
+        } else {
+          foundBy.put(key, foundBy.get(key) + ',' + i);
+        }
+      }
+    }
+
+    int n = 1;
+    for (Map.Entry<String, WorkerReport.Violation> e : violations.entrySet()) {
+      WorkerReport.Violation v = e.getValue();
+      out.println();
+      out.println(SEPARATOR + "error " + n++ + " (worker " + foundBy.get(e.getKey()) + ")");
+      out.println(v.description);
+      out.println(v.details);
+      if (v.actions != null && v.actions.length() > 0) {
+        out.println(SEPARATOR + "error input sequence" + v.actions);
+      }
+    }
+
+    out.println();
+    out.println(SEPARATOR + "results");
+    out.println(violations.isEmpty() ? "no errors detected" : (violations.size() + " errors detected"));
+
+    out.println();
+    out.println(SEPARATOR + "statistics (sum over workers)");
+    out.println("new states:         " + newStates);
+    out.println("visited states:     " + visitedStates);
+    out.println("end states:         " + endStates);
+    out.println("max search depth:   " + maxDepth);
+
+    if (unsplitEndStates > 0) {
+      String msg;
+      if (unsplitEndStates == endStates) {
+        msg = "the script alternatives never split the search over " + reports.length
+            + " workers, every worker explored the whole state space";
+      } else {
+        msg = unsplitEndStates + " end states were reached before the search was split, their paths were"
+            + " explored by every worker";
+      }
+      logger.warning(msg);
+      out.println();
+      out.println("warning: " + msg);
+    }
+    out.println(SEPARATOR + "search finished");
+  }
+}
@@ -0,0 +1,71 @@
+package gov.nasa.jpf.android.parallel;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The results of a single worker of a parallel search, which are written to a
+ * file by the worker and merged by the {@link ParallelShell}.
+ *
+ * @author Heila van der Merwe
+ */
+public class WorkerReport implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  /** a property (or checklist) violation and the script actions that lead to it */
+  public static class Violation implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public final String description;
+    public final String details;
+    public final String actions;
+
+    public Violation(String description, String details, String actions) {
+      this.description = description;
+      this.details = details;
+      this.actions = actions;
+    }
+  }
+
+  public final int worker;
+
+  public long newStates;
+  public long visitedStates;
+  public long endStates;
+  public int maxDepth;
+  // end states on paths that were not split, i.e. that every worker explored
+  public long unsplitEndStates;
+
+  public List<Violation> violations = new ArrayList<Violation>();
+
+  public WorkerReport(int worker) {
+    this.worker = worker;
+  }
+
+  public void write(File file) throws IOException {
+    ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file));
+    try {
+      out.writeObject(this);
+    } finally {
+      out.close();
+    }
+  }
+
+  public static WorkerReport read(File file) throws IOException {
+    ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));
+    try {
+      return (WorkerReport) in.readObject();
+    } catch (ClassNotFoundException e) {
+      throw new IOException("invalid worker report: " + file, e);
+    } finally {
+      in.close();
+    }
+  }
+}
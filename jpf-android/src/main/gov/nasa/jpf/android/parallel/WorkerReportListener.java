@@ -0,0 +1,75 @@
+package gov.nasa.jpf.android.parallel;
+
+import gov.nasa.jpf.Error;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.report.Statistics;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.util.JPFLogger;
+import gov.nasa.jpf.util.script.AndroidScriptEnvironment;
+import gov.nasa.jpf.util.script.ScriptState;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Collects the violations of a worker of a parallel search, together with the
+ * script actions that lead to them, and writes them as a {@link WorkerReport}
+ * when the search has finished. It also counts the end states that were
+ * reached before the search was split, since all workers explore those.
+ *
+ * @author Heila van der Merwe
+ */
+public class WorkerReportListener extends ListenerAdapter {
+  private static final JPFLogger logger = JPF.getLogger("WorkerReportListener");
+
+  AndroidScriptEnvironment scriptEnv;
+  File file;
+  WorkerReport report;
+  int workers;
+
+  public WorkerReportListener(AndroidScriptEnvironment scriptEnv, String fileName, int worker, int workers) {
+    this.scriptEnv = scriptEnv;
+    this.file = new File(fileName);
+    this.report = new WorkerReport(worker);
+    this.workers = workers;
+  }
+
+  @Override
+  public void stateAdvanced(Search search) {
+    if (search.isEndState()) {
+      ScriptState state = scriptEnv.getCur();
+      if (state != null && !state.isSplit(workers)) {
+        report.unsplitEndStates++;
+      }
+    }
+  }
+
+  @Override
+  public void propertyViolated(Search search) {
+    List<Error> errors = search.getErrors();
+    if (!errors.isEmpty()) {
+      Error e = errors.get(errors.size() - 1);
+      report.violations.add(new WorkerReport.Violation(e.getDescription(), e.getDetails(),
+          scriptEnv.getActions()));
+    }
+  }
+
+  @Override
+  public void searchFinished(Search search) {
+    Statistics stat = search.getVM().getJPF().getReporter().getStatistics();
+    if (stat != null) {
+      report.newStates = stat.newStates;
+      report.visitedStates = stat.visitedStates;
+      report.endStates = stat.endStates;
+      report.maxDepth = stat.maxDepth;
+    }
+
+    try {
+      report.write(file);
+    } catch (IOException x) {
+      logger.severe("could not write worker report " + file + ": " + x.getMessage());
+    }
+  }
+}
@@ -0,0 +1,41 @@
+package gov.nasa.jpf.android.serialize;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.vm.serialize.AmmendableFilterConfiguration;
+import gov.nasa.jpf.vm.serialize.DefaultFilterConfiguration;
+import gov.nasa.jpf.vm.serialize.FieldAmmendmentByName;
+
+/**
+ * The filter configuration for Android applications, used by the
+ * FilteringSerializer and its subclasses if
+ *
+ * <pre>
+ * filter.class = gov.nasa.jpf.android.serialize.AndroidFilterConfiguration
+ * </pre>
+ *
+ * In addition to the default filters it ignores the bookkeeping fields of the
+ * Android models ({@link IgnoreAndroidBookkeeping}, the event ids only if
+ * 'android.checklist_enabled' is not set) and the fields listed in
+ * 'android.filter.ignore_fields' (full field names, e.g.
+ * android.os.Handler.mCallback). These come first, so that ammendments
+ * configured with 'filter.instance_ammendments' or 'filter.static_ammendments'
+ * can still include them.
+ *
+ * Use the {@link StateMismatchReporter} to find fields worth adding.
+ *
+ * @author Heila van der Merwe
+ */
+public class AndroidFilterConfiguration extends DefaultFilterConfiguration {
+
+  @Override
+  public void init(Config config) {
+    appendFieldAmmendment(new IgnoreAndroidBookkeeping(config.getBoolean("android.checklist_enabled", false)));
+
+    String[] ignored = config.getCompactTrimmedStringArray("android.filter.ignore_fields");
+    if (ignored.length > 0) {
+      appendFieldAmmendment(new FieldAmmendmentByName(ignored, AmmendableFilterConfiguration.Ammendment.POLICY_IGNORE));
+    }
+
+    super.init(config);
+  }
+}
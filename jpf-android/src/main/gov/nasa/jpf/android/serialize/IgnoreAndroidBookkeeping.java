@@ -0,0 +1,64 @@
+package gov.nasa.jpf.android.serialize;
+
+import gov.nasa.jpf.vm.serialize.FieldAmmendmentByName;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fields of the Android model classes that only do bookkeeping for jpf-android
+ * itself (counters, the event and path ids of the checkpoint listeners), that
+ * only give objects an identity, or that hold absolute times. They change with
+ * every event and would otherwise keep states from matching that are the same
+ * for the application.
+ *
+ * @author Heila van der Merwe
+ */
+public class IgnoreAndroidBookkeeping extends FieldAmmendmentByName {
+
+  static final String[] bookkeepingFields = {
+    // number of script actions processed so far, only logged
+    "android.os.MessageQueue.messageCount",
+
+    // startup counter, only logged
+    "android.os.ServiceManager.count",
+
+    // activity identities. Activity.equals() compares these, but as every
+    // activity gets its own, this is the same as comparing the objects
+    "android.app.Activity.uniqueID",
+    "android.app.Activity.mIdent",
+    "android.app.ActivityThread$ActivityClientRecord.ident",
+
+    // the virtual clock only grows. The MessageQueue keeps the delays of its
+    // messages relative to it in Message.delay, which is matched instead of the
+    // absolute times. Application fields that store uptimes are still matched
+    "android.os.SystemClock.sUptimeMillis",
+    "android.os.Message.when"
+  };
+
+  /**
+   * event and path of the main thread and of the messages. Only the checklist
+   * listeners read them, but they keep the checklist state in a state extension,
+   * which is not part of the matched state. Hence we can only ignore them if
+   * checklists are disabled
+   */
+  static final String[] eventFields = {
+    "android.os.MessageQueue.currentEvent",
+    "android.os.MessageQueue.currentPath",
+    "android.os.Message.eventID",
+    "android.os.Message.pathID"
+  };
+
+  public IgnoreAndroidBookkeeping(boolean checklistsEnabled) {
+    super(getFields(checklistsEnabled), POLICY_IGNORE);
+  }
+
+  static List<String> getFields(boolean checklistsEnabled) {
+    List<String> fields = new ArrayList<String>(Arrays.asList(bookkeepingFields));
+    if (!checklistsEnabled) {
+      fields.addAll(Arrays.asList(eventFields));
+    }
+    return fields;
+  }
+}
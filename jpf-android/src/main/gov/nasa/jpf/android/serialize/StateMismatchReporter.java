@@ -0,0 +1,322 @@
+package gov.nasa.jpf.android.serialize;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.report.ConsolePublisher;
+import gov.nasa.jpf.report.Publisher;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.util.IntVector;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.ClassLoaderInfo;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.FieldInfo;
+import gov.nasa.jpf.vm.Fields;
+import gov.nasa.jpf.vm.Heap;
+import gov.nasa.jpf.vm.MJIEnv;
+import gov.nasa.jpf.vm.StaticElementInfo;
+import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.vm.serialize.DefaultFilterConfiguration;
+import gov.nasa.jpf.vm.serialize.FilterConfiguration;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * listener that reports which fields most often keep new states from matching
+ * already visited ones, to find candidates for 'android.filter.ignore_fields'
+ * (see {@link AndroidFilterConfiguration}).
+ *
+ * For each new state we compute a value per field that is matched by the
+ * configured 'filter.class', from the distinct values it has in all live
+ * objects and classes that have the field. How many objects share a value does
+ * not change it, the number of live instances of each class is tracked
+ * separately instead. That way a new object only shows up as a new instance
+ * count, unless it also brings new field values. A field (or instance count)
+ * is novel in a state if it never had this value in a previous new state. If
+ * it is the only novel one, the state would most likely have matched without
+ * it. They are reported by the number of states they were the only novel one
+ * in, then by the number of states they were novel in.
+ *
+ * This walks the whole heap for each new state, so it is only meant for tuning
+ * runs. Differences in arrays, stack frames and thread states are not
+ * attributed, they show as new states without novel fields.
+ */
+public class StateMismatchReporter extends ListenerAdapter {
+
+  int maxFieldsShown;
+
+  FilterConfiguration filter;
+  Map<ClassInfo, FieldInfo[]> instanceFields = new HashMap<ClassInfo, FieldInfo[]>();
+  Map<ClassInfo, FieldInfo[]> staticFields = new HashMap<ClassInfo, FieldInfo[]>();
+
+  //--- the fields and instance counts we have seen, by index
+  Map<FieldInfo, Integer> fieldIndex = new IdentityHashMap<FieldInfo, Integer>();
+  Map<ClassInfo, Integer> countIndex = new IdentityHashMap<ClassInfo, Integer>();
+  List<String> names = new ArrayList<String>();
+  List<HashSet<Long>> values = new ArrayList<HashSet<Long>>();
+  int[] nNovel = new int[256];
+  int[] nSole = new int[256];
+
+  //--- the values of the current state
+  long[] stateValue = new long[256];
+  boolean[] inState = new boolean[256];
+  List<HashSet<Long>> stateValues = new ArrayList<HashSet<Long>>();
+  IntVector stateIndices = new IntVector(256);
+
+  int nNewStates;
+  int nVisitedStates;
+  int nUnattributed;
+
+  public StateMismatchReporter(Config config, JPF jpf) {
+    maxFieldsShown = config.getInt("android.mismatch.max_fields", 20);
+
+    filter = config.getInstance("filter.class", FilterConfiguration.class);
+    if (filter == null) {
+      filter = new DefaultFilterConfiguration();
+    }
+    filter.init(config);
+
+    jpf.addPublisherExtension(ConsolePublisher.class, this);
+  }
+
+  //--- field management
+
+  FieldInfo[] getInstanceFields(ClassInfo ci) {
+    FieldInfo[] a = instanceFields.get(ci);
+    if (a == null) {
+      a = toArray(filter.getMatchedInstanceFields(ci));
+      instanceFields.put(ci, a);
+    }
+    return a;
+  }
+
+  FieldInfo[] getStaticFields(ClassInfo ci) {
+    FieldInfo[] a = staticFields.get(ci);
+    if (a == null) {
+      a = toArray(filter.getMatchedStaticFields(ci));
+      staticFields.put(ci, a);
+    }
+    return a;
+  }
+
+  static FieldInfo[] toArray(Iterable<FieldInfo> it) {
+    List<FieldInfo> list = new ArrayList<FieldInfo>();
+    for (FieldInfo fi : it) {
+      list.add(fi);
+    }
+    return list.toArray(new FieldInfo[list.size()]);
+  }
+
+  int getFieldIndex(FieldInfo fi) {
+    Integer idx = fieldIndex.get(fi);
+    if (idx == null) {
+      idx = newIndex(fi.getFullName());
+      fieldIndex.put(fi, idx);
+    }
+    return idx;
+  }
+
+  int getCountIndex(ClassInfo ci) {
+    Integer idx = countIndex.get(ci);
+    if (idx == null) {
+      idx = newIndex(ci.getName() + " (instances)");
+      countIndex.put(ci, idx);
+    }
+    return idx;
+  }
+
+  int newIndex(String name) {
+    int idx = names.size();
+    names.add(name);
+    values.add(new HashSet<Long>());
+    stateValues.add(new HashSet<Long>());
+
+    if (idx >= nNovel.length) {
+      int newLen = nNovel.length * 2;
+      nNovel = Arrays.copyOf(nNovel, newLen);
+      nSole = Arrays.copyOf(nSole, newLen);
+      stateValue = Arrays.copyOf(stateValue, newLen);
+      inState = Arrays.copyOf(inState, newLen);
+    }
+    return idx;
+  }
+
+  //--- value computation
+
+  static long mix(long v) {
+    v ^= (v >>> 33);
+    v *= 0xff51afd7ed558ccdL;
+    v ^= (v >>> 33);
+    v *= 0xc4ceb93fe1a85ec5L;
+    v ^= (v >>> 33);
+    return v;
+  }
+
+  /**
+   * references are represented by the type of the referenced object, or by
+   * their contents for strings. The referenced objects have their own fields
+   */
+  static long getReferenceValue(Heap heap, int ref) {
+    if (ref == MJIEnv.NULL) {
+      return 0;
+    }
+    ElementInfo ei = heap.get(ref);
+    if (ei == null) {
+      return -1;
+    }
+    if (ei.isStringObject()) {
+      return ((long) ei.asString().hashCode() << 1) | 1;
+    }
+    return ei.getClassInfo().getUniqueId() << 1;
+  }
+
+  void enterState(int idx) {
+    if (!inState[idx]) {
+      inState[idx] = true;
+      stateValue[idx] = 0;
+      stateValues.get(idx).clear();
+      stateIndices.add(idx);
+    }
+  }
+
+  /**
+   * the distinct values of a field are added up, so that its value neither
+   * depends on the order in which we visit the objects nor on how many objects
+   * have the same value
+   */
+  void addFieldValues(Heap heap, FieldInfo[] fis, Fields f) {
+    for (FieldInfo fi : fis) {
+      int off = fi.getStorageOffset();
+      long v;
+      if (fi.isReference()) {
+        v = getReferenceValue(heap, f.getIntValue(off));
+      } else if (fi.getStorageSize() == 2) {
+        v = ((long) f.getIntValue(off) << 32) | (f.getIntValue(off + 1) & 0xffffffffL);
+      } else {
+        v = f.getIntValue(off);
+      }
+
+      int idx = getFieldIndex(fi);
+      enterState(idx);
+      if (stateValues.get(idx).add(v)) {
+        stateValue[idx] += mix(v);
+      }
+    }
+  }
+
+  void addInstance(ClassInfo ci) {
+    int idx = getCountIndex(ci);
+    enterState(idx);
+    stateValue[idx]++;
+  }
+
+  /**
+   * @param count
+   *          false for the initial state, whose values are only recorded
+   */
+  void analyzeState(VM vm, boolean count) {
+    Heap heap = vm.getHeap();
+
+    for (ClassLoaderInfo cl : vm.getKernelState().classLoaders) {
+      if (cl.isAlive()) {
+        for (StaticElementInfo sei : cl.getStatics().liveStatics()) {
+          addFieldValues(heap, getStaticFields(sei.getClassInfo()), sei.getFields());
+        }
+      }
+    }
+
+    for (ElementInfo ei : heap.liveObjects()) {
+      if (!ei.isArray()) {
+        ClassInfo ci = ei.getClassInfo();
+        addInstance(ci);
+        addFieldValues(heap, getInstanceFields(ci), ei.getFields());
+      }
+    }
+
+    int nNovelValues = 0;
+    int lastNovel = -1;
+    for (int i = 0; i < stateIndices.size(); i++) {
+      int idx = stateIndices.get(i);
+      inState[idx] = false;
+      if (values.get(idx).add(stateValue[idx]) && count) {
+        nNovel[idx]++;
+        nNovelValues++;
+        lastNovel = idx;
+      }
+    }
+    stateIndices.clear();
+
+    if (!count) {
+      return;
+    } else if (nNovelValues == 1) {
+      nSole[lastNovel]++;
+    } else if (nNovelValues == 0) {
+      nUnattributed++;
+    }
+  }
+
+  //--- SearchListener interface
+
+  @Override
+  public void searchStarted(Search search) {
+    // the initial state is the first reference point
+    analyzeState(search.getVM(), false);
+  }
+
+  @Override
+  public void stateAdvanced(Search search) {
+    if (search.isNewState()) {
+      nNewStates++;
+      analyzeState(search.getVM(), true);
+    } else {
+      nVisitedStates++;
+    }
+  }
+
+  //--- reporting
+
+  @Override
+  public void publishFinished(Publisher publisher) {
+    PrintWriter pw = publisher.getOut();
+    publisher.publishTopicStart("state mismatches");
+
+    pw.println("new states:                  " + nNewStates);
+    pw.println("visited states:              " + nVisitedStates);
+    pw.println("new states w/o novel fields: " + nUnattributed);
+    pw.println();
+
+    Integer[] sorted = new Integer[names.size()];
+    for (int i = 0; i < sorted.length; i++) {
+      sorted[i] = i;
+    }
+    Arrays.sort(sorted, new Comparator<Integer>() {
+      public int compare(Integer f1, Integer f2) {
+        if (nSole[f1] != nSole[f2]) {
+          return nSole[f2] - nSole[f1];
+        }
+        return nNovel[f2] - nNovel[f1];
+      }
+    });
+
+    pw.println("       only      novel   values  field / class");
+    for (int i = 0; i < sorted.length && i < maxFieldsShown; i++) {
+      int idx = sorted[i];
+      if (nNovel[idx] == 0) {
+        break;
+      }
+      pw.print(String.format("%1$11d %2$10d %3$8d  ", nSole[idx], nNovel[idx], values.get(idx).size()));
+      pw.println(names.get(idx));
+    }
+    if (sorted.length > maxFieldsShown) {
+      pw.println("  ...");
+    }
+  }
+}
@@ -25,12 +25,23 @@ import gov.nasa.jpf.vm.IntChoiceGenerator;
 /**
  * AlternativeChoiceGenerator enumerates an interval of int choices.
  * 
+ * Choices can be skipped. If event POR is enabled, the choices that consist of
+ * a single event are skipped if they are asleep (see {@link SleepSet}). The
+ * footprints of the explored choices are kept so that their events can be put
+ * to sleep for the choices that are explored later. When the search is split
+ * over several workers, the choices of other workers are skipped.
  */
 public class AlternativeChoiceGenerator extends ChoiceGeneratorBase<Integer> implements IntChoiceGenerator {
 
   protected int max;
   protected int next;
 
+  // the event key of each choice (null if the choice is not a single event),
+  // choices are 1-based, so the key of choice i is at i-1
+  protected String[] eventKeys;
+  protected boolean[] skipped;
+  protected EventFootprint[] footprints;
+
   public void reset() {
     next = 0;
   }
@@ -41,6 +52,39 @@ public class AlternativeChoiceGenerator extends ChoiceGeneratorBase<Integer> imp
     reset();
   }
 
+  public AlternativeChoiceGenerator(String id, int max, String[] eventKeys, SleepSet sleepSet) {
+    this(id, max);
+    this.eventKeys = eventKeys;
+    this.footprints = new EventFootprint[max];
+
+    for (int i = 0; i < max; i++) {
+      if (eventKeys[i] != null && sleepSet.isAsleep(eventKeys[i], eventKeys)) {
+        skip(i + 1);
+      }
+    }
+  }
+
+  /**
+   * excludes the given choice from the enumeration, has to be called before
+   * the first advance()
+   */
+  public void skip(int choice) {
+    if (skipped == null) {
+      skipped = new boolean[max];
+    }
+    skipped[choice - 1] = true;
+  }
+
+  // the first choice >= i that is not skipped, or max+1
+  protected int nextEnabled(int i) {
+    if (skipped != null) {
+      while (i <= max && skipped[i - 1]) {
+        i++;
+      }
+    }
+    return i;
+  }
+
   public Integer getNextChoice() {
     return new Integer(next);
   }
@@ -49,7 +93,7 @@ public class AlternativeChoiceGenerator extends ChoiceGeneratorBase<Integer> imp
     if (isDone) {
       return false;
     } else {
-      if (next >= max) {
+      if (nextEnabled(next + 1) > max) {
         return false;
       } else {
         return true;
@@ -58,7 +102,35 @@ public class AlternativeChoiceGenerator extends ChoiceGeneratorBase<Integer> imp
   }
 
   public void advance() {
-    next += 1;
+    next = nextEnabled(next + 1);
+  }
+
+  public String getEventKey(int choice) {
+    return (eventKeys != null) ? eventKeys[choice - 1] : null;
+  }
+
+  void setFootprint(int choice, EventFootprint fp) {
+    if (footprints != null) {
+      footprints[choice - 1] = fp;
+    }
+  }
+
+  /**
+   * @return the SleepSet of the single event choices that were explored before
+   *         the given choice, which has to be a single event as well
+   */
+  SleepSet getExploredChoices(int choice) {
+    SleepSet sleepSet = SleepSet.EMPTY;
+    String chosenKey = getEventKey(choice);
+
+    if (footprints != null && chosenKey != null) {
+      for (int i = 1; i < choice; i++) {
+        if (eventKeys[i - 1] != null && footprints[i - 1] != null) {
+          sleepSet = sleepSet.add(eventKeys[i - 1], footprints[i - 1], chosenKey);
+        }
+      }
+    }
+    return sleepSet;
   }
 
   public int getTotalNumberOfChoices() {
@@ -1,6 +1,8 @@
 package gov.nasa.jpf.util.script;
 
+import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.android.parallel.WorkerReportListener;
 import gov.nasa.jpf.jvm.ResultPublishListener;
 import gov.nasa.jpf.report.ConsolePublisher;
 import gov.nasa.jpf.util.StateExtensionClient;
@@ -32,6 +34,13 @@ public class AndroidScriptEnvironment implements StateExtensionClient<ScriptStat
   static HashMap<String, Section> sections = new HashMap<String, Section>();
   static Section defaultSection;
 
+  /** records event footprints if event POR ("android.event_por") is enabled, null otherwise */
+  static EventIndependenceListener eventPor;
+
+  /** number of workers of a parallel search and our number (see ParallelShell) */
+  static int workers = 1;
+  static int worker = 0;
+
   public AndroidScriptEnvironment(String fname) throws FileNotFoundException {
     this(fname, new FileReader(fname));
     logger.info("ScriptEnvironment: Ready!");
@@ -113,34 +122,63 @@ public class AndroidScriptEnvironment implements StateExtensionClient<ScriptStat
 
     ScriptState state = getCur();
     if (state != null) {
+      SleepSet sleepSet = (eventPor != null) ? completeEvent(state, activeState) : state.sleepSet;
       setCur(state.advance(activeState, getSection(activeState)));
+      getCur().sleepSet = sleepSet;
       UIAction event = null; // space
-      for (SectionState as : getCur().sectionsState) { // for all sections
-
-        if (activeState.equals(as.sectionName)) {
-          ScriptElement se = ((AndroidSequenceIntpr) as.intrp).getNext(vm);
-          if (se != null) {
-            if (se instanceof Event) {
-              event = new UIAction((Event) se);
-              break;
-            } else {
-              // get next event
-            }
-          } else {
-            break; // process next active sequence
-          }
+      SectionState as = getCur().get(activeState);
+      if (as != null) {
+        ScriptElement se = ((AndroidSequenceIntpr) as.intrp).getNext(vm, getCur());
+        if (se instanceof Event) {
+          event = new UIAction((Event) se);
         }
-
       }
       if (event != null) {
         event.setID(eventid);
-        getCur().getActions().push(event);
+        getCur().pushAction(event);
+
+        if (eventPor != null) {
+          getCur().inEvent = true;
+          eventPor.beginEvent(event, activeState);
+        }
       }
       return event;
     }
     return null;
   }
 
+  /**
+   * Called before the next event is requested: takes the footprint of the event
+   * that was handled last and computes the SleepSet of the new state. If that
+   * event was chosen by an alternative, the single event choices that were
+   * explored before it are put to sleep, without the ones that depend on the
+   * handled event. The entries of earlier alternatives are dropped, they are
+   * only valid for the alternative that directly follows them.
+   */
+  SleepSet completeEvent(ScriptState state, String window) {
+    if (!state.inEvent) {
+      return state.sleepSet; // nothing handled since the last request
+    }
+
+    if (!eventPor.isRecording()) {
+      // we backtracked into the middle of an event and don't know its footprint
+      return SleepSet.EMPTY;
+    }
+
+    AlternativeChoiceGenerator cg = eventPor.getEventCG();
+    int choice = eventPor.getEventChoice();
+    EventFootprint fp = eventPor.endEvent(window);
+
+    SleepSet sleepSet = SleepSet.EMPTY;
+    if (cg != null) {
+      cg.setFootprint(choice, fp);
+      sleepSet = cg.getExploredChoices(choice);
+      eventPor.setChoice(null, 0);
+    }
+
+    return sleepSet.filter(fp);
+  }
+
   // --- StateExtension interface
   public ScriptState getStateExtension() {
     return getCur();
@@ -156,6 +194,29 @@ public class AndroidScriptEnvironment implements StateExtensionClient<ScriptStat
 
     ResultPublishListener result = new ResultPublishListener(this);
     jpf.addPublisherExtension(ConsolePublisher.class, result);
+
+    Config conf = jpf.getConfig();
+    workers = conf.getInt("android.parallel.workers", 1);
+    worker = conf.getInt("android.parallel.worker", -1);
+    if (worker < 0) {
+      workers = 1; // not a worker, explore everything
+      worker = 0;
+    } else {
+      logger.info(TAG + ": parallel worker " + worker + " of " + workers);
+    }
+
+    String report = conf.getString("android.parallel.report");
+    if (report != null) {
+      jpf.addListener(new WorkerReportListener(this, report, worker, workers));
+    }
+
+    if (conf.getBoolean("android.event_por", false)) {
+      eventPor = new EventIndependenceListener(conf);
+      jpf.addListener(eventPor);
+      logger.info(TAG + ": event POR enabled");
+    } else {
+      eventPor = null;
+    }
   }
 
   public ScriptState getCur() {
@@ -40,10 +40,18 @@ public class AndroidSequenceIntpr extends SequenceInterpreter {
 
   private MJIEnv env = null;
 
+  // the script state we are called from (sleep set and search partition)
+  private ScriptState state = null;
+
   public AndroidSequenceIntpr(ScriptElementContainer seq) {
     super(seq);
   }
 
+  public ScriptElement getNext(MJIEnv env, ScriptState state) {
+    this.state = state;
+    return getNext(env);
+  }
+
   public ScriptElement getNext(MJIEnv env) {
     if (DEBUG)
       logger.info("TOP = " + top);
@@ -127,6 +135,14 @@ public class AndroidSequenceIntpr extends SequenceInterpreter {
     } else {
       // bottom-half (re -execution)
         int myChoice = cg.getNextChoice();
+        EventIndependenceListener por = AndroidScriptEnvironment.eventPor;
+        if (por != null) {
+          por.setChoice(cg, myChoice);
+        }
+        if (state != null) {
+          // if we are still above the split, remember where we are
+          state.addChoice(myChoice, cg.getTotalNumberOfChoices(), AndroidScriptEnvironment.workers);
+        }
         push(e.iterator(myChoice)); // push the iterator of the next GROUP in the ANY
         env.repeatInvocation();
         return null;
@@ -135,7 +151,50 @@ public class AndroidSequenceIntpr extends SequenceInterpreter {
 
   private AlternativeChoiceGenerator createCG(AlternativeE e) {
     // push new ChoiceGenerator
-    return new AlternativeChoiceGenerator((String.valueOf(e.hashCode())), e.getNumberOfChildren());
+    AlternativeChoiceGenerator cg;
+    int n = e.getNumberOfChildren();
+
+    if (AndroidScriptEnvironment.eventPor != null && state != null) {
+      cg = new AlternativeChoiceGenerator((String.valueOf(e.hashCode())), n, getEventKeys(e),
+          state.sleepSet);
+    } else {
+      cg = new AlternativeChoiceGenerator((String.valueOf(e.hashCode())), n);
+    }
+
+    if (state != null) {
+      // if this alternative splits the search, each worker only explores the
+      // subtrees with its number (see ParallelShell)
+      for (int c = 1; c <= n; c++) {
+        if (state.isOtherWorkersChoice(c, n, AndroidScriptEnvironment.workers, AndroidScriptEnvironment.worker)) {
+          cg.skip(c);
+        }
+      }
+    }
+
+    return cg;
+  }
+
+  /**
+   * Returns the key of each GROUP of the Alternative that consists of a single
+   * view action, or null for the other groups. Only these choices can be put
+   * to sleep.
+   */
+  static String[] getEventKeys(AlternativeE e) {
+    String[] keys = new String[e.getNumberOfChildren()];
+    int i = 0;
+
+    for (ScriptElement g = e.getFirstChild(); g != null; g = g.getNextSibling(), i++) {
+      if (g instanceof ScriptElementContainer && ((ScriptElementContainer) g).getNumberOfChildren() == 1) {
+        ScriptElement se = ((ScriptElementContainer) g).getFirstChild();
+        if (se instanceof Event && ((Event) se).expand().size() == 1) {
+          UIAction action = new UIAction((Event) se);
+          if (EventIndependenceListener.isViewAction(action)) {
+            keys[i] = se.toString();
+          }
+        }
+      }
+    }
+    return keys;
   }
 
 }
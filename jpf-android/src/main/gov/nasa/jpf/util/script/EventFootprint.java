@@ -0,0 +1,78 @@
+package gov.nasa.jpf.util.script;
+
+import java.util.HashSet;
+
+/**
+ * The heap and static locations that were read and written while a single
+ * UIAction was handled. Two events whose footprints do not conflict commute,
+ * i.e. executing them in either order leads to the same state.
+ *
+ * Locations are encoded as longs: instance fields and array elements as
+ * (objRef << 32 | fieldIndex/elementIndex), static fields as the negated
+ * (classRef << 32 | fieldIndex) - 1.
+ */
+public class EventFootprint {
+
+  /** pseudo location for the window that is showing, which selects the script section */
+  static final long WINDOW = Long.MIN_VALUE;
+
+  /** footprint of events that change state outside of the heap (e.g. in native peers) */
+  public static final EventFootprint ALL = new EventFootprint();
+
+  HashSet<Long> reads = new HashSet<Long>();
+  HashSet<Long> writes = new HashSet<Long>();
+
+  static long instanceKey(int objRef, int index) {
+    return ((long) objRef << 32) | (index & 0xffffffffL);
+  }
+
+  static long staticKey(int classRef, int fieldIndex) {
+    return -(((long) classRef << 32) | (fieldIndex & 0xffffffffL)) - 1;
+  }
+
+  void addRead(long key) {
+    reads.add(key);
+  }
+
+  void addWrite(long key) {
+    writes.add(key);
+  }
+
+  public int size() {
+    return reads.size() + writes.size();
+  }
+
+  /**
+   * @return true if neither event writes a location the other one reads or
+   *         writes
+   */
+  public boolean isIndependentOf(EventFootprint other) {
+    if (this == ALL || other == ALL) {
+      return false;
+    }
+
+    return !intersects(writes, other.writes) && !intersects(writes, other.reads)
+        && !intersects(reads, other.writes);
+  }
+
+  private static boolean intersects(HashSet<Long> a, HashSet<Long> b) {
+    if (a.size() > b.size()) {
+      HashSet<Long> t = a;
+      a = b;
+      b = t;
+    }
+    for (Long key : a) {
+      if (b.contains(key)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public String toString() {
+    if (this == ALL) {
+      return "EventFootprint[ALL]";
+    }
+    return "EventFootprint[reads=" + reads.size() + ",writes=" + writes.size() + "]";
+  }
+}
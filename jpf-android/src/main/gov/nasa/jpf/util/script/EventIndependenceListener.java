@@ -0,0 +1,194 @@
+//
+// Copyright (C) 2006 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA). All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3. The NOSA has been approved by the Open Source
+// Initiative. See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.util.script;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.jvm.bytecode.JVMArrayElementInstruction;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.util.JPFLogger;
+import gov.nasa.jpf.util.StringSetMatcher;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.FieldInfo;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.vm.bytecode.FieldInstruction;
+
+import java.util.HashSet;
+
+/**
+ * Records the {@link EventFootprint} of the UIAction that is currently handled,
+ * i.e. all field and array element accesses (of all threads) from the time the
+ * action is returned by the script until the main looper asks for the next
+ * one. Objects that are allocated while handling the event are not part of the
+ * footprint, neither are the fields of the excluded (bookkeeping) classes that
+ * every event touches.
+ *
+ * The footprints are used by the AndroidScriptEnvironment to maintain the
+ * {@link SleepSet} of the current script state, so that orderings of
+ * independent events are only explored once.
+ *
+ * @author Heila van der Merwe
+ */
+public class EventIndependenceListener extends ListenerAdapter {
+  private static final JPFLogger logger = JPF.getLogger("EventIndependenceListener");
+
+  StringSetMatcher excludes;
+
+  // the footprint of the event that is currently handled, null if none
+  EventFootprint footprint;
+  String window;
+  HashSet<Integer> newObjects = new HashSet<Integer>();
+
+  // the alternative (and its choice) that produced the current event, if any
+  AlternativeChoiceGenerator cg;
+  int choice;
+
+  public EventIndependenceListener(Config conf) {
+    excludes = StringSetMatcher.getNonEmpty(conf.getStringArray("android.event_por.exclude"));
+  }
+
+  /**
+   * Remembers the alternative that was chosen, the next event returned by the
+   * script is the one selected by it.
+   */
+  void setChoice(AlternativeChoiceGenerator cg, int choice) {
+    this.cg = cg;
+    this.choice = choice;
+  }
+
+  void beginEvent(UIAction action, String window) {
+    this.window = window;
+    newObjects.clear();
+
+    if (isViewAction(action)) {
+      footprint = new EventFootprint();
+      footprint.addRead(EventFootprint.WINDOW);
+    } else {
+      // the effects of component and device actions are (partly) kept in native
+      // peers, so we have to assume they conflict with everything
+      footprint = EventFootprint.ALL;
+    }
+  }
+
+  static boolean isViewAction(UIAction action) {
+    return action.target != null && action.target.startsWith("$");
+  }
+
+  public boolean isRecording() {
+    return footprint != null;
+  }
+
+  EventFootprint endEvent(String window) {
+    EventFootprint fp = footprint;
+
+    if (fp != EventFootprint.ALL && !window.equals(this.window)) {
+      fp.addWrite(EventFootprint.WINDOW);
+    }
+
+    if (logger.isLoggable(java.util.logging.Level.FINE)) {
+      logger.fine("event footprint: " + fp);
+    }
+
+    footprint = null;
+    newObjects.clear();
+    return fp;
+  }
+
+  AlternativeChoiceGenerator getEventCG() {
+    return cg;
+  }
+
+  int getEventChoice() {
+    return choice;
+  }
+
+  void reset() {
+    footprint = null;
+    newObjects.clear();
+    cg = null;
+  }
+
+  boolean isExcluded(ElementInfo ei) {
+    return excludes != null && excludes.matchesAny(ei.getClassInfo().getName());
+  }
+
+  //--- ListenerAdapter
+
+  @Override
+  public void objectCreated(VM vm, ThreadInfo ti, ElementInfo ei) {
+    if (footprint != null) {
+      newObjects.add(ei.getObjectRef());
+    }
+  }
+
+  @Override
+  public void instructionExecuted(VM vm, ThreadInfo ti, Instruction nextInsn, Instruction executedInsn) {
+    EventFootprint fp = footprint;
+    if (fp == null || fp == EventFootprint.ALL) {
+      return;
+    }
+
+    if (executedInsn instanceof FieldInstruction) {
+      FieldInstruction finsn = (FieldInstruction) executedInsn;
+      ElementInfo ei = finsn.getLastElementInfo();
+      if (ei == null || isExcluded(ei)) {
+        return;
+      }
+
+      FieldInfo fi = finsn.getFieldInfo();
+      long key;
+      if (fi.isStatic()) {
+        key = EventFootprint.staticKey(ei.getObjectRef(), fi.getFieldIndex());
+      } else if (!newObjects.contains(ei.getObjectRef())) {
+        key = EventFootprint.instanceKey(ei.getObjectRef(), fi.getFieldIndex());
+      } else {
+        return;
+      }
+
+      if (finsn.isRead()) {
+        fp.addRead(key);
+      } else {
+        fp.addWrite(key);
+      }
+
+    } else if (executedInsn instanceof JVMArrayElementInstruction) {
+      JVMArrayElementInstruction ainsn = (JVMArrayElementInstruction) executedInsn;
+      int aref = ainsn.getArrayRef(ti);
+      if (aref <= 0 || newObjects.contains(aref)) {
+        return;
+      }
+
+      long key = EventFootprint.instanceKey(aref, ainsn.getIndex(ti));
+      if (ainsn.isRead()) {
+        fp.addRead(key);
+      } else {
+        fp.addWrite(key);
+      }
+    }
+  }
+
+  @Override
+  public void stateBacktracked(Search search) {
+    // whatever we recorded belongs to the path we just left
+    reset();
+  }
+}
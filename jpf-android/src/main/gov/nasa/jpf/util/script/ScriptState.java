@@ -1,95 +1,208 @@
 package gov.nasa.jpf.util.script;
 
 import java.util.ArrayList;
-import java.util.Stack;
-
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The state of the script, which is stored and restored as a state extension.
+ *
+ * ScriptStates are persistent: the list of section states and the list of
+ * executed actions are immutable and shared between successive ScriptStates,
+ * so that storing a state is a pointer copy. The only thing that changes in a
+ * step is the section state of the active section, which is copied by
+ * {@link #advance(String, Section)} before its interpreter is advanced.
+ */
 public class ScriptState implements Cloneable {
-  protected ArrayList<SectionState> sectionsState; // current state of all sections
-  private Stack<UIAction> actions;
+
+  /**
+   * immutable list of the section states, the most recently advanced section
+   * first
+   */
+  static class SectionList {
+    final SectionState state;
+    final SectionList next;
+
+    SectionList(SectionState state, SectionList next) {
+      this.state = state;
+      this.next = next;
+    }
+
+    static SectionList remove(SectionList list, SectionState state) {
+      if (list == null) {
+        return null;
+      } else if (list.state == state) {
+        return list.next;
+      } else {
+        return new SectionList(list.state, remove(list.next, state));
+      }
+    }
+  }
+
+  /** immutable list of the executed actions, the last one first */
+  static class ActionList {
+    final UIAction action;
+    final ActionList next;
+
+    ActionList(UIAction action, ActionList next) {
+      this.action = action;
+      this.next = next;
+    }
+  }
+
+  protected SectionList sections; // current state of all sections
+  private ActionList actions;
+
+  // events that do not have to be explored from this state (event POR)
+  SleepSet sleepSet = SleepSet.EMPTY;
+  // set while the last returned event is handled
+  boolean inEvent;
+
+  // the path through the alternatives above the split of a parallel search,
+  // as a mixed radix number and the product of the radices
+  long partIndex = 0;
+  long partSize = 1;
 
   ScriptState() {
-    sectionsState = new ArrayList<SectionState>();
-    setActions(new Stack<UIAction>());
+    this(null, null);
   }
 
-  ScriptState(ArrayList<SectionState> as, Stack<UIAction> actions) {
-    sectionsState = as;
-    this.setActions(actions);
+  ScriptState(SectionList sections, ActionList actions) {
+    this.sections = sections;
+    this.actions = actions;
   }
 
   public SectionState get(String sectionName) {
-    for (SectionState as : sectionsState) {
-      if (as.sectionName.equals(sectionName)) {
-        return as;
+    for (SectionList l = sections; l != null; l = l.next) {
+      if (l.state.sectionName.equals(sectionName)) {
+        return l.state;
       }
     }
     return null;
   }
 
-  public ArrayList<SectionState> getSectionsState() {
-    return sectionsState;
+  boolean contains(Section sec) {
+    for (SectionList l = sections; l != null; l = l.next) {
+      if (l.state.section == sec) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  public List<SectionState> getSectionsState() {
+    List<SectionState> list = new ArrayList<SectionState>();
+    for (SectionList l = sections; l != null; l = l.next) {
+      list.add(l.state);
+    }
+    return list;
   }
 
   /**
-   * @param activeStates
+   * Returns the successor of this state in which the section of the active
+   * state can be advanced. Only the SectionState of the active state is
+   * copied, all other SectionStates and the actions are shared.
+   *
+   * @param activeState
    *          name of section to advance
-   * @param isReEntered
+   * @param sec
+   *          the script section of the active state
    * @return
    */
   ScriptState advance(String activeState, Section sec) {
-    ArrayList<SectionState> newActives = new ArrayList<SectionState>(); // new
-
-    // --- carry over the persisting entries
-    for (SectionState as : sectionsState) {
-      // we could use isReEntered to determine if we want to
-      // restart sequences
-      // <2do> how do we factor this out as policy?
-      newActives.add((SectionState) as.clone());
-    }
+    SectionList newSections = sections;
 
-    // get the script section
-    if (sec != null) {
+    SectionState as = get(activeState);
+    if (as != null) {
+      // move a private copy to the front, where we find it first next time
+      newSections = new SectionList((SectionState) as.clone(), SectionList.remove(sections, as));
 
+    } else if (sec != null) {
       // check if that section is already processed by another
       // active state, in which case we skip
-      for (SectionState as : newActives) { // *********************
-        if (as != null && as.section == sec) {
-          ScriptState s = new ScriptState(newActives, (Stack<UIAction>) getActions().clone());
-          return s;
-        }
+      if (!contains(sec)) {
+        // it's a new section that has not been used before in this branch
+        as = new SectionState(activeState, sec, new AndroidSequenceIntpr(sec));
+        newSections = new SectionList(as, sections);
       }
 
-      // it's a new section that has not been used before in this branch
-      SectionState as = new SectionState(activeState, sec, new AndroidSequenceIntpr(sec));
-      newActives.add(as);
-
     } else { // sec == null : we didn't find any sequence for
       // this state
     }
 
-    ScriptState s = new ScriptState(newActives, getActions());
+    ScriptState s = new ScriptState(newSections, actions);
+    s.copyExplorationState(this);
     return s;
   }
 
+  /**
+   * since all the data is shared, a shallow copy is all we need
+   */
   public Object clone() {
     try {
-      ScriptState ss = (ScriptState) super.clone();
-      for (SectionState as : this.sectionsState) {
-        ss.sectionsState.add((SectionState) as.clone());
-      }
-      ss.setActions((Stack<UIAction>) getActions().clone());
-      return ss;
+      return super.clone();
     } catch (CloneNotSupportedException nonsense) {
       return null; // we are a Cloneable, so we don't get here
     }
   }
 
-  public Stack<UIAction> getActions() {
-    return actions;
+  private void copyExplorationState(ScriptState s) {
+    sleepSet = s.sleepSet;
+    partIndex = s.partIndex;
+    partSize = s.partSize;
   }
 
-  public void setActions(Stack<UIAction> actions) {
-    this.actions = actions;
+  public SleepSet getSleepSet() {
+    return sleepSet;
+  }
+
+  /**
+   * @return true if the given choice (1-based) of an alternative with n
+   *         choices is explored by another worker. This is only the case at
+   *         the alternative where the product of the number of choices on the
+   *         path reaches the number of workers
+   */
+  boolean isOtherWorkersChoice(int choice, int n, int workers, int worker) {
+    return partSize < workers && partSize * n >= workers && (partIndex * n + (choice - 1)) % workers != worker;
+  }
+
+  /**
+   * records the choice (1-based) of an alternative with n choices, as long as
+   * the search is not split yet
+   */
+  void addChoice(int choice, int n, int workers) {
+    if (partSize < workers) {
+      partIndex = partIndex * n + (choice - 1);
+      partSize = partSize * n;
+    }
+  }
+
+  /**
+   * @return true if the search is split over the given number of workers on
+   *         the path to this state, i.e. if no other worker explores it
+   */
+  public boolean isSplit(int workers) {
+    return partSize >= workers;
+  }
+
+  /**
+   * adds an executed action, this is only done on the ScriptState that was
+   * just created by advance()
+   */
+  void pushAction(UIAction action) {
+    actions = new ActionList(action, actions);
+  }
+
+  /**
+   * @return the executed actions, in the order of execution
+   */
+  public List<UIAction> getActions() {
+    List<UIAction> list = new ArrayList<UIAction>();
+    for (ActionList l = actions; l != null; l = l.next) {
+      list.add(l.action);
+    }
+    Collections.reverse(list);
+    return list;
   }
 
 }
@@ -0,0 +1,103 @@
+package gov.nasa.jpf.util.script;
+
+/**
+ * Immutable list of the events that do not have to be explored from the
+ * current script state, since an ordering that starts with them was already
+ * explored from an earlier state and all events executed since then were
+ * independent of them.
+ *
+ * An entry is created by an alternative (ANY), for a single event choice that
+ * was explored before the chosen one. It is only valid for the alternative
+ * that directly follows, and only if that alternative offers the chosen event
+ * as well: choosing the sleeping event 'a' there after 'b' was chosen is
+ * equivalent to 'a' followed by 'b', which was explored. The entries are
+ * dropped once the next event is handled (see
+ * AndroidScriptEnvironment.completeEvent).
+ *
+ * SleepSets are shared between ScriptStates and are never modified, so they do
+ * not have to be cloned when the ScriptState is stored or restored.
+ */
+public class SleepSet {
+
+  public static final SleepSet EMPTY = new SleepSet(null, null, null, null);
+
+  final String eventKey;
+  final EventFootprint footprint;
+  // the event that was chosen instead when this entry was created
+  final String chosenKey;
+  final SleepSet next;
+
+  private SleepSet(String eventKey, EventFootprint footprint, String chosenKey, SleepSet next) {
+    this.eventKey = eventKey;
+    this.footprint = footprint;
+    this.chosenKey = chosenKey;
+    this.next = next;
+  }
+
+  public boolean isEmpty() {
+    return this == EMPTY;
+  }
+
+  public boolean contains(String eventKey) {
+    for (SleepSet s = this; s != EMPTY; s = s.next) {
+      if (s.eventKey.equals(eventKey)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return true if the given event is asleep for an alternative with the
+   *         given choice keys, i.e. if there is an entry for it whose chosen
+   *         event is also offered by the alternative
+   */
+  public boolean isAsleep(String eventKey, String[] choiceKeys) {
+    for (SleepSet s = this; s != EMPTY; s = s.next) {
+      if (s.eventKey.equals(eventKey)) {
+        for (String k : choiceKeys) {
+          if (s.chosenKey.equals(k)) {
+            return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
+  public SleepSet add(String eventKey, EventFootprint footprint, String chosenKey) {
+    if (contains(eventKey)) {
+      return this;
+    }
+    return new SleepSet(eventKey, footprint, chosenKey, this);
+  }
+
+  /**
+   * @return the SleepSet after an event with the given footprint was executed,
+   *         i.e. without the events that depend on it
+   */
+  public SleepSet filter(EventFootprint executed) {
+    if (this == EMPTY) {
+      return this;
+    }
+
+    SleepSet rest = next.filter(executed);
+    if (footprint.isIndependentOf(executed)) {
+      return (rest == next) ? this : new SleepSet(eventKey, footprint, chosenKey, rest);
+    } else {
+      return rest;
+    }
+  }
+
+  public String toString() {
+    StringBuilder sb = new StringBuilder("SleepSet{");
+    for (SleepSet s = this; s != EMPTY; s = s.next) {
+      if (s != this) {
+        sb.append(',');
+      }
+      sb.append(s.eventKey);
+    }
+    sb.append('}');
+    return sb.toString();
+  }
+}
@@ -1,72 +1,247 @@
 package gov.nasa.jpf.android;
 
+import gov.nasa.jpf.android.SQLStatement.SQLStatementException;
 import gov.nasa.jpf.annotation.MJI;
+import gov.nasa.jpf.vm.ClassInfo;
 import gov.nasa.jpf.vm.MJIEnv;
 import gov.nasa.jpf.vm.NativePeer;
 
-import java.io.StringReader;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import net.sf.jsqlparser.JSQLParserException;
-import net.sf.jsqlparser.parser.CCJSqlParserManager;
-import net.sf.jsqlparser.statement.create.table.ColumnDefinition;
-import net.sf.jsqlparser.statement.create.table.CreateTable;
-import net.sf.jsqlparser.statement.select.Select;
+/**
+ * Parses the SQL statements of the SQLiteDatabase model and evaluates their
+ * WHERE clauses.
+ *
+ * Parsed statements only depend on their SQL text, so they are cached over the
+ * whole search and the model refers to them by handle. The tables themselves
+ * are SQLiteTable objects in the JPF heap and are read here, they are never
+ * stored in the peer.
+ */
+public class JPF_android_database_sqlite_SQLiteDatabase extends NativePeer {
 
-public class JPF_android_database_sqlite_SQLiteDatabase  extends NativePeer {
+  private static final List<SQLStatement> statements = new ArrayList<SQLStatement>();
+  private static final Map<String, Integer> handles = new HashMap<String, Integer>();
 
-  private static Map<String, List<ColumnDefinition>> tables = new HashMap<String, List<ColumnDefinition>>();
+  @MJI
+  public int compileSQL(MJIEnv env, int objRef, int sqlRef) {
+    String sql = env.getStringObject(sqlRef);
+    Integer handle = handles.get(sql);
+    if (handle == null) {
+      try {
+        statements.add(SQLStatement.parse(sql));
+      } catch (SQLStatementException e) {
+        env.throwException("android.database.sqlite.SQLiteException", e.getMessage());
+        return -1;
+      }
+      handle = statements.size() - 1;
+      handles.put(sql, handle);
+    }
+    return handle;
+  }
+
+  @MJI
+  public int getStatementType(MJIEnv env, int objRef, int handle) {
+    return statements.get(handle).getType();
+  }
 
-  private static CCJSqlParserManager pm = new CCJSqlParserManager();
-  private static net.sf.jsqlparser.statement.Statement statement = null;
+  @MJI
+  public int getTableName(MJIEnv env, int objRef, int handle) {
+    return env.newString(statements.get(handle).getTable());
+  }
+
+  @MJI
+  public boolean isIfExists(MJIEnv env, int objRef, int handle) {
+    return statements.get(handle).isIfExists();
+  }
 
   @MJI
-  public int parseSQL(MJIEnv env,int objectRef, int SQL) {
+  public int getColumnNames(MJIEnv env, int objRef, int handle) {
+    String[] columns = statements.get(handle).getColumns();
+    return (columns != null) ? env.newStringArray(columns) : MJIEnv.NULL;
+  }
+
+  @MJI
+  public int getColumnTypes(MJIEnv env, int objRef, int handle) {
+    return newIntArray(env, statements.get(handle).getAffinities());
+  }
+
+  @MJI
+  public int getPrimaryKey(MJIEnv env, int objRef, int handle) {
+    return statements.get(handle).getPrimaryKey();
+  }
+
+  @MJI
+  public int getValues__I___3Ljava_lang_String_2(MJIEnv env, int objRef, int handle) {
+    String[] values = statements.get(handle).getValues();
+    return (values != null) ? env.newStringArray(values) : MJIEnv.NULL;
+  }
+
+  @MJI
+  public int getValueParams(MJIEnv env, int objRef, int handle) {
+    return newIntArray(env, statements.get(handle).getValueParams());
+  }
+
+  @MJI
+  public int selectRows__ILandroid_database_sqlite_SQLiteTable_2_3Ljava_lang_Object_2___3I(MJIEnv env, int objRef,
+                                                                                          int handle, int tableRef,
+                                                                                          int argsRef) {
+    SQLStatement st = statements.get(handle);
+    Object[] args = getArgs(env, argsRef);
+    if (args == null) {
+      return MJIEnv.NULL;
+    }
+    if (args.length < st.getNumberOfParams()) {
+      env.throwException("android.database.sqlite.SQLiteException", "expected " + st.getNumberOfParams()
+          + " bind arguments but " + args.length + " were given");
+      return MJIEnv.NULL;
+    }
 
     try {
-      statement = pm.parse(new StringReader(env.getStringObject(SQL)));
-    } catch (JSQLParserException e) {
-      System.out.println(e.getMessage());
-      return  MJIEnv.NULL;
+      return newIntArray(env, st.selectRows(new TableRows(env, tableRef), args));
+    } catch (SQLStatementException e) {
+      env.throwException("android.database.sqlite.SQLiteException", e.getMessage());
+      return MJIEnv.NULL;
     }
-    /*
-     * now you should use a class that implements StatementVisitor to decide
-     * what to do
-     * based on the kind of the statement, that is SELECT or INSERT etc. but
-     * here we are only
-     * interested in SELECTS
-     */
-    if (statement instanceof Select) {
-      Select selectStatement = (Select) statement;
-      //      TablesNamesFinder tablesNamesFinder = new TablesNamesFinder();
-      //      List tableList = tablesNamesFinder.getTableList(selectStatement);
-      //      for (Iterator iter = tableList.iterator(); iter.hasNext();) {
-      //        System.out.println(iter.next());
-      //      }
-
-      //      List columnList = tablesNamesFinder.getColumns(selectStatement);
-      //      if (columnList != null)
-      //        for (Iterator iter = columnList.iterator(); iter.hasNext();) {
-      //          System.out.println(iter.next());
-      //        }
-    } else if (statement instanceof CreateTable) {
-      CreateTable create = (CreateTable) statement;
-      tables.put(create.getTable().getWholeTableName(), create.getColumnDefinitions());
+  }
+
+  private static int newIntArray(MJIEnv env, int[] values) {
+    return (values != null) ? env.newIntArray(values) : MJIEnv.NULL;
+  }
+
+  /**
+   * converts the bind arguments to Long, Double, String or byte[] values
+   *
+   * @return null if an argument has an unsupported type, the exception is
+   *         pending then
+   */
+  private static Object[] getArgs(MJIEnv env, int argsRef) {
+    if (argsRef == MJIEnv.NULL) {
+      return new Object[0];
     }
-    return (statement instanceof Select) ? 1 : 2;
+    int n = env.getArrayLength(argsRef);
+    Object[] args = new Object[n];
+    for (int i = 0; i < n; i++) {
+      int ref = env.getReferenceArrayElement(argsRef, i);
+      if (ref == MJIEnv.NULL) {
+        continue;
+      }
+      ClassInfo ci = env.getClassInfo(ref);
+      String cls = ci.getName();
+      if (cls.equals("java.lang.String")) {
+        args[i] = env.getStringObject(ref);
+      } else if (cls.equals("java.lang.Long")) {
+        args[i] = env.getLongField(ref, "value");
+      } else if (cls.equals("java.lang.Integer")) {
+        args[i] = (long) env.getIntField(ref, "value");
+      } else if (cls.equals("java.lang.Short")) {
+        args[i] = (long) env.getShortField(ref, "value");
+      } else if (cls.equals("java.lang.Byte")) {
+        args[i] = (long) env.getByteField(ref, "value");
+      } else if (cls.equals("java.lang.Boolean")) {
+        args[i] = env.getBooleanField(ref, "value") ? 1L : 0L;
+      } else if (cls.equals("java.lang.Double")) {
+        args[i] = env.getDoubleField(ref, "value");
+      } else if (cls.equals("java.lang.Float")) {
+        args[i] = (double) env.getFloatField(ref, "value");
+      } else if (cls.equals("[B")) {
+        args[i] = env.getByteArrayObject(ref).clone();
+      } else {
+        env.throwException("android.database.sqlite.SQLiteException", "unsupported bind argument type " + cls);
+        return null;
+      }
+    }
+    return args;
   }
 
-  @MJI
-  public int getColumns(MJIEnv env, int objectRef, int tablename) {
-    String tableName = env.getStringObject(tablename);
-    List<ColumnDefinition> columns = tables.get(tableName);
-    String[] arrColumns = new String[columns.size()];
-    for (int i = 0; i < columns.size(); i++) {
-      arrColumns[i] = columns.get(i).getColumnName();
+  /**
+   * Reads the column arrays of a SQLiteTable. The arrays of a column are only
+   * looked up when the statement reads the column.
+   */
+  static class TableRows implements SQLStatement.Rows {
+    final MJIEnv env;
+    final int tableRef;
+    final int size;
+    final String[] columns;
+    final int[] types;
+
+    long[] rowIds;
+    Object[] data;
+    boolean[][] nulls;
+
+    TableRows(MJIEnv env, int tableRef) {
+      this.env = env;
+      this.tableRef = tableRef;
+      size = env.getIntField(tableRef, "size");
+      int columnsRef = env.getReferenceField(tableRef, "columns");
+      columns = env.getStringArrayObject(columnsRef);
+      types = env.getIntArrayObject(env.getReferenceField(tableRef, "types"));
+      data = new Object[columns.length];
+      nulls = new boolean[columns.length][];
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+
+    @Override
+    public String[] getColumns() {
+      return columns;
     }
 
-    return env.newStringArray(arrColumns);
+    @Override
+    public long getRowId(int row) {
+      if (rowIds == null) {
+        rowIds = env.getLongArrayObject(env.getReferenceField(tableRef, "rowIds"));
+      }
+      return rowIds[row];
+    }
+
+    @Override
+    public Object get(int row, int c) {
+      if (nulls[c] == null) {
+        load(c);
+      }
+      if (nulls[c][row]) {
+        return null;
+      }
+      switch (types[c]) {
+      case SQLStatement.INTEGER:
+        return ((long[]) data[c])[row];
+      case SQLStatement.REAL:
+        return ((double[]) data[c])[row];
+      case SQLStatement.TEXT: {
+        int ref = ((int[]) data[c])[row];
+        return env.getStringObject(ref);
+      }
+      default: {
+        int ref = ((int[]) data[c])[row];
+        return env.getByteArrayObject(ref);
+      }
+      }
+    }
+
+    private void load(int c) {
+      nulls[c] = env.getBooleanArrayObject(env.getReferenceArrayElement(env.getReferenceField(tableRef, "nulls"), c));
+      switch (types[c]) {
+      case SQLStatement.INTEGER:
+        data[c] = env.getLongArrayObject(env.getReferenceArrayElement(env.getReferenceField(tableRef, "longs"), c));
+        break;
+      case SQLStatement.REAL:
+        data[c] = env.getDoubleArrayObject(env.getReferenceArrayElement(env.getReferenceField(tableRef, "doubles"),
+            c));
+        break;
+      case SQLStatement.TEXT:
+        data[c] = env.getReferenceArrayObject(env.getReferenceArrayElement(env.getReferenceField(tableRef, "strings"),
+            c));
+        break;
+      default:
+        data[c] = env.getReferenceArrayObject(env.getReferenceArrayElement(env.getReferenceField(tableRef, "blobs"),
+            c));
+      }
+    }
   }
 }
@@ -20,6 +20,7 @@ package gov.nasa.jpf.android;
 
 import gov.nasa.jpf.Config;
 import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
 import gov.nasa.jpf.android.checkpoint.ChecklistException;
 import gov.nasa.jpf.android.checkpoint.ChecklistManager;
 import gov.nasa.jpf.android.checkpoint.ParseException;
@@ -29,12 +30,16 @@ import gov.nasa.jpf.annotation.MJI;
 import gov.nasa.jpf.util.script.AndroidScriptEnvironment;
 import gov.nasa.jpf.util.script.ScriptException;
 import gov.nasa.jpf.util.script.UIAction;
+import gov.nasa.jpf.vm.ChoiceGenerator;
 import gov.nasa.jpf.vm.ClassInfo;
 import gov.nasa.jpf.vm.ClassLoaderInfo;
 import gov.nasa.jpf.vm.DirectCallStackFrame;
+import gov.nasa.jpf.vm.ElementInfo;
 import gov.nasa.jpf.vm.MJIEnv;
 import gov.nasa.jpf.vm.NativePeer;
+import gov.nasa.jpf.vm.SystemState;
 import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
 
 import java.io.FileNotFoundException;
 import java.util.logging.Logger;
@@ -53,9 +58,15 @@ public class JPF_android_os_MessageQueue extends NativePeer {
   private static int actionCount = 0;
 
   private static AndroidScriptEnvironment scriptEnv;
+
+  /** the JPF instance the script environment was set up for */
+  private static JPF scriptJPF;
   
   private static ChecklistManager checklistManager;
 
+  /** the class of the object an idle looper waits on */
+  static final String IDLE_LOCK = "android.os.MessageQueue$IdleLock";
+
   /**
    * The MesaageQueue Constructor, i.e. before each application run.
    * It opens and parses the input script and parses and setups the Checklists
@@ -68,12 +79,15 @@ public class JPF_android_os_MessageQueue extends NativePeer {
     // if (env.getThreadInfo().getName().equals("main"))
     JPF jpf = env.getJPF();
 
-    // in case of rescheduling of msq creation
-    if (scriptEnv == null) {
+    // in case of rescheduling of msq creation. A new JPF instance in the same
+    // host VM (e.g. the next test) needs its own script environment
+    if (scriptEnv == null || scriptJPF != jpf) {
       try {
+        scriptJPF = jpf;
+        actionCount = 0;
         setupScriptEnv(jpf);
         setupChecklistEnv(jpf);
-//        jpf.addListener(new ThreadTerminationListener());
+        jpf.addListener(new IdleLooperListener());
 
       } catch (ScriptException e) {
         log.severe(AndroidScriptEnvironment.TAG + ": " + e.getMessage());
@@ -331,17 +345,129 @@ public class JPF_android_os_MessageQueue extends NativePeer {
 
   }
 
-//  protected static class ThreadTerminationListener extends ListenerAdapter {
-//
-//    @Override
-//    public void threadTerminated(VM vm, ThreadInfo terminatedThread) {
-//      ThreadList infos = vm.getThreadList();
-//      ThreadInfo mainInfo = infos.getThreadInfoForId(0);
-//      if (vm.getAliveThreadCount() == 1 && mainInfo.isWaiting()) {
-//        mainInfo.setRunning();
-//      }
-//    }
-//  }
+  /**
+   * Blocks the looper thread until a message is enqueued. This is a lockless
+   * wait on the IdleLock of the queue, like Unsafe.park(). If the looper was
+   * woken before it got here (the wakeup flag of the IdleLock is set) we
+   * return right away, so that no wakeup is lost.
+   */
+  @MJI
+  public void waitForMessage____V(MJIEnv env, int objref) {
+    ThreadInfo ti = env.getThreadInfo();
+    int lockRef = env.getReferenceField(objref, "mIdleLock");
+    ElementInfo ei = env.getModifiableElementInfo(lockRef);
+
+    if (ti.isFirstStepInsn()) { // re-executed
+
+      // notified | timedout | interrupted -> running
+      switch (ti.getState()) {
+        case NOTIFIED:
+        case TIMEDOUT:
+        case INTERRUPTED:
+          ti.resetLockRef();
+          ti.setRunning();
+          break;
+        default:
+          // nothing
+      }
+
+    } else { // first time
+
+      if (ei.getBooleanField("mWakeup")) {
+        ei.setBooleanField("mWakeup", false);
+        return;
+      }
+
+      // running -> waiting
+      ei.wait(ti, 0, false);
+
+      ChoiceGenerator<?> cg = env.getSchedulerFactory().createParkCG(ei, ti, false, 0);
+      env.setMandatoryNextChoiceGenerator(cg, "no CG on idle looper wait");
+      env.repeatInvocation();
+    }
+  }
+
+  /**
+   * Wakes the looper thread of this queue if it is idle, otherwise sets the
+   * wakeup flag so that its next waitForMessage() returns immediately.
+   */
+  @MJI
+  public void wakeLooper____V(MJIEnv env, int objref) {
+    ThreadInfo ti = env.getThreadInfo();
+
+    if (!ti.isFirstStepInsn()) {
+      int lockRef = env.getReferenceField(objref, "mIdleLock");
+      ElementInfo ei = env.getModifiableElementInfo(lockRef);
+      ThreadInfo tiLooper = getWaitingThread(env.getVM(), ei);
+
+      if (tiLooper != null) {
+        SystemState ss = env.getSystemState();
+        ei.notifies(ss, ti, false);
+
+        ChoiceGenerator<?> cg = env.getSchedulerFactory().createUnparkCG(tiLooper);
+        if (cg != null) {
+          ss.setNextChoiceGenerator(cg);
+          env.repeatInvocation();
+        }
+
+      } else {
+        ei.setBooleanField("mWakeup", true);
+      }
+    }
+  }
+
+  static ThreadInfo getWaitingThread(VM vm, ElementInfo ei) {
+    for (ThreadInfo t : vm.getLiveThreads()) {
+      if (t.isWaiting() && t.getLockObject() == ei) {
+        return t;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Wakes an idle looper once no other thread is runnable anymore, since
+   * nobody is left to send it a message. The looper then continues with the
+   * script or stops the application.
+   */
+  protected static class IdleLooperListener extends ListenerAdapter {
+
+    @Override
+    public void threadTerminated(VM vm, ThreadInfo terminatedThread) {
+      wakeIdleLooper(vm);
+    }
+
+    @Override
+    public void threadBlocked(VM vm, ThreadInfo blockedThread, ElementInfo lock) {
+      wakeIdleLooper(vm);
+    }
+
+    @Override
+    public void threadWaiting(VM vm, ThreadInfo waitingThread) {
+      wakeIdleLooper(vm);
+    }
+
+    void wakeIdleLooper(VM vm) {
+      ThreadInfo tiLooper = null;
+
+      for (ThreadInfo t : vm.getLiveThreads()) {
+        if (t.isRunnable()) {
+          return; // somebody can still send a message
+        }
+        if (tiLooper == null && t.isWaiting()) {
+          ElementInfo lock = t.getLockObject();
+          if (lock != null && lock.getClassInfo().getName().equals(IDLE_LOCK)) {
+            tiLooper = t;
+          }
+        }
+      }
+
+      if (tiLooper != null) {
+        ElementInfo ei = tiLooper.getLockObject().getModifiableInstance();
+        ei.notifies(vm.getSystemState(), vm.getCurrentThread(), false);
+      }
+    }
+  }
 
   //  public static void notifyMSQ(VM vm) {
   //    ThreadInfo ti = vm.getCurrentThread();
@@ -20,6 +20,7 @@ public class JPF_android_os_ServiceManager extends NativePeer {
 
     // make sure the projectInfo is initialized as soon as possible
     AndroidProjectInfo.projectDir = projectPath;
+    AndroidProjectInfo.resourceCacheDir = config.getString("android.resource_cache");
 
     AndroidProjectInfo p = AndroidProjectInfo.get();
   }
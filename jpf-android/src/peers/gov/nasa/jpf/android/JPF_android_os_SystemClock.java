@@ -23,47 +23,51 @@ import gov.nasa.jpf.vm.MJIEnv;
 import gov.nasa.jpf.vm.NativePeer;
 
 /**
- * This has to be modeled better. But does it make sense as time can be taken
- * into account due to non-determinism? TODO
- * 
+ * Native counterpart of the SystemClock model. All clocks return the virtual
+ * uptime that is kept in the static sUptimeMillis field of the model class, so
+ * that time is deterministic and backtracked with the rest of the program
+ * state. The clock is only advanced by the model (MessageQueue and
+ * SystemClock.sleep()).
+ *
  * @author "Heila van der Merwe"
- * 
+ *
  */
 public class JPF_android_os_SystemClock  extends NativePeer {
 
+  static long getUptime(MJIEnv env, int clsObjRef) {
+    return env.getStaticLongField(clsObjRef, "sUptimeMillis");
+  }
+
   @MJI
   public long uptimeMillis(MJIEnv env, int clsObjRef) {
-    long v = (long) 0;
-    return v;
+    return getUptime(env, clsObjRef);
   }
 
   @MJI
   public boolean setCurrentTimeMillis(MJIEnv env, int clsObjRef, long v0) {
+    // the wall clock is not modeled
     boolean v = true;
     return v;
   }
 
   @MJI
   public long elapsedRealtime(MJIEnv env, int clsObjRef) {
-    long v = (long) 0;
-    return v;
+    // there is no deep sleep on the virtual clock
+    return getUptime(env, clsObjRef);
   }
 
   @MJI
   public long currentThreadTimeMillis(MJIEnv env, int clsObjRef) {
-    long v = (long) 0;
-    return v;
+    return getUptime(env, clsObjRef);
   }
 
   @MJI
   public long currentThreadTimeMicro(MJIEnv env, int clsObjRef) {
-    long v = (long) 0;
-    return v;
+    return getUptime(env, clsObjRef) * 1000;
   }
 
   @MJI
   public long currentTimeMicro(MJIEnv env, int clsObjRef) {
-    long v = (long) 0;
-    return v;
+    return getUptime(env, clsObjRef) * 1000;
   }
-}
\ No newline at end of file
+}
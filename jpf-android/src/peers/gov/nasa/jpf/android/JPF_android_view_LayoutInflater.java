@@ -5,28 +5,21 @@ import gov.nasa.jpf.annotation.MJI;
 import gov.nasa.jpf.vm.MJIEnv;
 import gov.nasa.jpf.vm.NativePeer;
 
-import java.io.FileInputStream;
+import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Logger;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.xml.sax.SAXException;
-
 /**
- * Native peer of the LayoutInflater. Makes use of {@link DocumentBuilder} to parse the layout files.
- * 
+ * Native peer of the LayoutInflater. The layout files are compiled into flat
+ * tables by the {@link LayoutCompiler}, which caches them on disk in the
+ * directory given by <code>android.layout_cache</code>.
+ *
+ * The model refers to the nodes of a layout by a handle (its "hashcode"), which
+ * is the index of the node in the layout plus an offset that is unique for the
+ * layout.
+ *
  * @author "Heila van der Merwe"
  * 
  */
@@ -35,101 +28,111 @@ public class JPF_android_view_LayoutInflater extends NativePeer {
   static Logger log = JPF.getLogger("gov.nasa.jpf.android");
 
   private static class LayoutInfo {
-    Map<Integer, Node> viewMap;
-    Node root;
+    CompiledLayout layout;
     String filename;
+    /** handle of the root node, the handle of node i is base + i */
+    int base;
 
-    public LayoutInfo() {
-      viewMap = new HashMap<Integer, Node>();
-    }
+    // the resolved node info
+    String[] names;
+    String[] ids;
+    String[] texts;
   }
 
-  /** Stores a Map of View items for each layout file id */
+  /** Stores the compiled layout for each layout file id */
   private static Map<Integer, LayoutInfo> layoutMap = new HashMap<Integer, LayoutInfo>();
 
+  private static LayoutCompiler compiler;
+
+  /** the handle of the root of the next layout that is loaded */
+  private static int nextBase = 1;
+
   @MJI
   public int loadLayout(MJIEnv env, int objref, int resourceID) {
-    // retrieve the file name of the layout resource
-    String filename;
-    try {
-      AndroidProjectInfo projectInfo = AndroidProjectInfo.get();
-      filename = projectInfo.getLayoutFilename(resourceID);
-    } catch (Exception e1) {
-      e1.printStackTrace();
-      log.severe("LayoutInflator could not find filename for layout id: " + resourceID);
-      throw new RuntimeException("LayoutInflator could not find filename for id: " + resourceID);
-    }
-
-    // check if the layout file has been parsed before
+    // check if the layout file has been loaded before
     LayoutInfo layoutInfo = layoutMap.get(resourceID);
 
     if (layoutInfo == null) {
+      // retrieve the file name of the layout resource
+      String filename;
+      try {
+        AndroidProjectInfo projectInfo = AndroidProjectInfo.get();
+        filename = projectInfo.getLayoutFilename(resourceID);
+      } catch (Exception e1) {
+        e1.printStackTrace();
+        log.severe("LayoutInflator could not find filename for layout id: " + resourceID);
+        throw new RuntimeException("LayoutInflator could not find filename for id: " + resourceID);
+      }
+
       // if file was not jet loaded, try to load it now.
       try {
-        layoutInfo = load(resourceID, filename);
+        layoutInfo = load(env, resourceID, filename);
         log.info("Loaded layout file " + filename);
       } catch (Exception e) {
-        log.severe("LayoutInflator could not parse file: " + filename);
+        log.severe("LayoutInflator could not parse file: " + filename + ": " + e.getMessage());
         throw new RuntimeException("LayoutInflator could not parse file: " + filename);
       }
     }
     assert layoutInfo != null;
 
     // now the layout file is loaded and we have its LayoutInfo
-    return env.newString(filename);
+    return env.newString(layoutInfo.filename);
   }
 
   @MJI
   public int getRootHash(MJIEnv env, int objref, int resourceID) {
-    // retrieve the file name of the layout resource
-    return layoutMap.get(resourceID).root.hashCode();
+    return layoutMap.get(resourceID).base;
   }
 
-  private static LayoutInfo load(int resourceID, String filename) throws ParserConfigurationException,
-      SAXException, IOException {
-    // parse the document
-    DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-    InputStream is = new FileInputStream(filename);
-    DocumentBuilder builder = factory.newDocumentBuilder();
-    Document dom = builder.parse(is, null);
-    Element docRoot = dom.getDocumentElement();
+  private static LayoutInfo load(MJIEnv env, int resourceID, String filename) throws IOException {
+    if (compiler == null) {
+      String cacheDir = env.getConfig().getString("android.layout_cache");
+      compiler = new LayoutCompiler((cacheDir != null) ? new File(cacheDir) : null);
+    }
+
+    CompiledLayout layout = compiler.getLayout(new File(filename));
 
     // create new LayoutInfo entry
     LayoutInfo info = new LayoutInfo();
-    info.root = docRoot;
+    info.layout = layout;
     info.filename = filename;
-    insertViewInMap(info, info.root);
+    info.base = nextBase;
+    nextBase += layout.getNumberOfNodes();
+    resolveNodes(info);
     layoutMap.put(resourceID, info);
     return info;
   }
 
   /**
-   * Recursively inserts all child nodes into a hash map of all the views in the layout.
-   * 
-   * @param info
-   *          the info on the Layout
-   * @param n
-   *          the node to insert
+   * Resolves the names, view ids and texts of all nodes of the layout from the
+   * R file and the string resources of the project.
    */
-  private static void insertViewInMap(LayoutInfo info, Node n) {
-    if (n == null) {
-      return;
+  private static void resolveNodes(LayoutInfo info) {
+    CompiledLayout layout = info.layout;
+    int n = layout.getNumberOfNodes();
+    info.names = new String[n];
+    info.ids = new String[n];
+    info.texts = new String[n];
+
+    for (int i = 0; i < n; i++) {
+      int hashcode = info.base + i;
+      info.names[i] = getName(layout, i, hashcode);
+      info.ids[i] = Integer.toString(getViewID(info.names[i], hashcode));
+      info.texts[i] = getText(layout, i);
     }
-    // put node in hashmap
-    info.viewMap.put(n.hashCode(), n);
-
-    // get the children
-    NodeList list = n.getChildNodes();
-
-    // if has children, call insert for each child
-    if (list != null && list.getLength() > 0) {
-      for (int i = 0; i < list.getLength(); i++) {
-        Node child = list.item(i);
-        if (child.getNodeType() == Node.ELEMENT_NODE) {
-          insertViewInMap(info, child);
-        }
-      }
+  }
+
+  /**
+   * Returns the index of the node with the given handle in the layout, or -1
+   * if there is no such node.
+   */
+  private static int getNode(LayoutInfo info, int hashcode) {
+    int node = hashcode - info.base;
+    if (node < 0 || node >= info.layout.getNumberOfNodes()) {
+      log.warning(TAG + ": Could not find XML node with hashcode " + hashcode);
+      return -1;
     }
+    return node;
   }
 
   @MJI
@@ -140,15 +143,14 @@ public class JPF_android_view_LayoutInflater extends NativePeer {
     }
 
     LayoutInfo info = layoutMap.get(resourceID);
-    Node n = info.viewMap.get(hashcode);
-    if (n == null) {
-      log.warning(TAG + ": Could not find XML node with hashcode " + hashcode);
+    int n = getNode(info, hashcode);
+    if (n < 0) {
       return MJIEnv.NULL;
     }
 
     // we have found the node
-    String[] returnVals = { getType(n), Integer.toString(getViewIDFromNode(n)), getName(n), Integer.toString(hashcode),
-        getText(n) };
+    String[] returnVals = { info.layout.getType(n), info.ids[n], info.names[n], Integer.toString(hashcode),
+        info.texts[n] };
     return env.newStringArray(returnVals);
 
   }
@@ -162,30 +164,17 @@ public class JPF_android_view_LayoutInflater extends NativePeer {
     }
 
     LayoutInfo info = layoutMap.get(resourceID);
-    Node n = info.viewMap.get(hashcode);
-
-    if (n == null) {
-      log.warning(TAG + ": Could not find XML node with hashcode " + hashcode);
+    int n = getNode(info, hashcode);
+    if (n < 0) {
       return MJIEnv.NULL;
     }
 
-    // get the children
-    NodeList list = n.getChildNodes();
-
-    ArrayList<Integer> returnList = null;
     // if has children, return children
-    if (list != null && list.getLength() > 0) {
-      returnList = new ArrayList<Integer>();
-      for (int i = 0; i < list.getLength(); i++) {
-        Node child = list.item(i);
-        if (child.getNodeType() == Node.ELEMENT_NODE) {
-          returnList.add(child.hashCode());
-        }
-      }
-
-      int[] returns = new int[returnList.size()];
-      for (int i = 0; i < returnList.size(); i++) {
-        returns[i] = returnList.get(i);
+    int count = info.layout.getChildCount(n);
+    if (count > 0) {
+      int[] returns = new int[count];
+      for (int i = 0; i < count; i++) {
+        returns[i] = info.base + info.layout.getChild(n, i);
       }
       return env.newIntArray(returns);
     }
@@ -193,49 +182,37 @@ public class JPF_android_view_LayoutInflater extends NativePeer {
 
   }
 
-  public static String getType(Node node) {
-    return node.getNodeName();
-
-  }
-
-  public static String getName(Node node) {
+  public static String getName(CompiledLayout layout, int node, int hashcode) {
     String name = "";
-    NamedNodeMap list = node.getAttributes();
-    Node n = list.getNamedItem("android:id");
-    if (n != null) {
-      name = n.getNodeValue().substring(5);
+    String id = layout.getId(node);
+    if (id != null) {
+      name = id.substring(id.indexOf('/') + 1);
 
     } else {
-      name = node.getNodeName().toLowerCase() + "_" + Integer.toString(node.hashCode());
+      name = layout.getType(node).toLowerCase() + "_" + Integer.toString(hashcode);
     }
 
     return name;
   }
 
-  public static String getText(Node node) {
-    String name = "";
-    NamedNodeMap list = node.getAttributes();
-    Node n = list.getNamedItem("android:text");
-    if (n != null) {
-      name = n.getNodeValue();
-      if (name.startsWith("@string/")) {
-        name = AndroidProjectInfo.get().getStringValue(name.substring(8));
-      }
+  public static String getText(CompiledLayout layout, int node) {
+    String name = layout.getText(node);
+    if (name == null) {
+      return "";
+    }
+    if (name.startsWith("@string/")) {
+      name = AndroidProjectInfo.get().getStringValue(name.substring(8));
     }
-
     return name;
   }
 
-  public static int getViewIDFromNode(Node node) {
-    int id = -1;
-    String name = getName(node);
+  public static int getViewID(String name, int hashcode) {
     log.fine("Getting ViewId for: " + name);
-    try {
-      id = AndroidProjectInfo.get().getRFile().getViewIdForName(name);
-    } catch (Exception e) {
+    int id = AndroidProjectInfo.get().getResources().getId("id", name);
+    if (id == ResourceIndex.NO_ID) {
       log.warning("LayoutInflator could not find ViewID for: " + name);
       //generating ID
-      return node.hashCode();
+      return hashcode;
     }
     return id;
 
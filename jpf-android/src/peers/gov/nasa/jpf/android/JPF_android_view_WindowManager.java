@@ -95,6 +95,9 @@ public class JPF_android_view_WindowManager extends NativePeer {
    *         screen
    */
   public static String getCurrentWindow(MJIEnv env) {
+    if (classRef < 0) // the WindowManager has not been created yet
+      return "default";
+
     int windowRef = env.getStaticReferenceField(classRef, "currentWindow");
     if (windowRef <= 0) // no window has been set yet
       return "default";
@@ -0,0 +1,91 @@
+package gov.nasa.jpf.android;
+
+import gov.nasa.jpf.util.test.TestJPF;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+
+import org.junit.Test;
+
+public class LayoutCompilerTest extends TestJPF {
+
+  static final String LAYOUT = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+      + "<LinearLayout xmlns:android=\"http://schemas.android.com/apk/res/android\"\n"
+      + "    android:id=\"@+id/root\" android:orientation=\"vertical\">\n"
+      + "  <!-- a comment -->\n"
+      + "  <TextView android:id=\"@+id/title\" android:text=\"@string/title\" />\n"
+      + "  <LinearLayout>\n"
+      + "    <Button android:id=\"@+id/ok\" android:text=\"OK\" />\n"
+      + "    <Button android:id=\"@+id/cancel\" android:text=\"Cancel\" />\n"
+      + "  </LinearLayout>\n"
+      + "  <Button android:text=\"OK\" />\n"
+      + "</LinearLayout>\n";
+
+  static CompiledLayout compile(String s) throws Exception {
+    return LayoutCompiler.compile(new ByteArrayInputStream(s.getBytes("UTF-8")));
+  }
+
+  static void checkLayout(CompiledLayout layout) {
+    assertEquals(6, layout.getNumberOfNodes());
+
+    assertEquals("LinearLayout", layout.getType(0));
+    assertEquals("@+id/root", layout.getId(0));
+    assertNull(layout.getText(0));
+    assertEquals(3, layout.getChildCount(0));
+
+    int title = layout.getChild(0, 0);
+    assertEquals("TextView", layout.getType(title));
+    assertEquals("@string/title", layout.getText(title));
+    assertEquals(0, layout.getChildCount(title));
+
+    int inner = layout.getChild(0, 1);
+    assertEquals("LinearLayout", layout.getType(inner));
+    assertNull(layout.getId(inner));
+    assertEquals(2, layout.getChildCount(inner));
+    assertEquals("@+id/ok", layout.getId(layout.getChild(inner, 0)));
+    assertEquals("Cancel", layout.getText(layout.getChild(inner, 1)));
+
+    int last = layout.getChild(0, 2);
+    assertEquals("Button", layout.getType(last));
+    assertNull(layout.getId(last));
+    assertEquals("OK", layout.getText(last));
+  }
+
+  @Test
+  public void testCompile() throws Exception {
+    checkLayout(compile(LAYOUT));
+  }
+
+  @Test
+  public void testReadWrite() throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    compile(LAYOUT).write(out);
+    checkLayout(CompiledLayout.read(new ByteArrayInputStream(out.toByteArray())));
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    File dir = File.createTempFile("jpf-android-test", "");
+    dir.delete();
+
+    File layoutFile = File.createTempFile("layout", ".xml");
+    FileOutputStream os = new FileOutputStream(layoutFile);
+    os.write(LAYOUT.getBytes("UTF-8"));
+    os.close();
+
+    LayoutCompiler compiler = new LayoutCompiler(dir);
+    checkLayout(compiler.getLayout(layoutFile));
+    File[] cached = dir.listFiles();
+    assertEquals(1, cached.length);
+
+    // served from the cache
+    checkLayout(new LayoutCompiler(dir).getLayout(layoutFile));
+    assertEquals(1, dir.listFiles().length);
+
+    cached[0].delete();
+    dir.delete();
+    layoutFile.delete();
+  }
+}
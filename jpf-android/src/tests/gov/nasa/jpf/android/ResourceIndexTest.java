@@ -0,0 +1,163 @@
+package gov.nasa.jpf.android;
+
+import gov.nasa.jpf.util.test.TestJPF;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.net.URISyntaxException;
+
+import org.junit.Test;
+
+public class ResourceIndexTest extends TestJPF {
+
+  // compiled like the inner classes of an R class
+  static final class R {
+    public static final class layout {
+      public static final int main = 0x7f030000;
+    }
+
+    public static final class id {
+      public static final int button1 = 0x7f050000;
+      public static final int text = 0x7f050001;
+    }
+  }
+
+  static final String R_JAVA = "package za.vdm.android.testapp;\n\n"
+      + "public final class R {\n"
+      + "    public static final class attr {\n"
+      + "    }\n"
+      + "    public static final class id {\n"
+      + "        public static final int button1=0x7f050000;\n"
+      + "    }\n"
+      + "    public static final class layout {\n"
+      + "        public static final int main=0x7f030000;\n"
+      + "    }\n"
+      + "    public static final class string {\n"
+      + "        public static final int app_name=0x7f040000;\n"
+      + "        public static final int hello=0x7f040001;\n"
+      + "    }\n"
+      + "    public static final class styleable {\n"
+      + "        public static final int[] View = {\n"
+      + "            0x01010000\n"
+      + "        };\n"
+      + "        public static final int View_text=0;\n"
+      + "    }\n"
+      + "}\n";
+
+  static final String STRINGS = "<?xml version=\"1.0\" encoding=\"utf-8\"?>\n"
+      + "<resources>\n"
+      + "  <string name=\"app_name\">TestApp</string>\n"
+      + "  <string name=\"hello\">Hello <b>World</b></string>\n"
+      + "</resources>\n";
+
+  static File write(File dir, String name, String content) throws Exception {
+    File f = new File(dir, name);
+    FileOutputStream os = new FileOutputStream(f);
+    os.write(content.getBytes("UTF-8"));
+    os.close();
+    return f;
+  }
+
+  static File createTempDir() throws Exception {
+    File dir = File.createTempFile("jpf-android-test", "");
+    dir.delete();
+    dir.mkdir();
+    return dir;
+  }
+
+  static void delete(File f) {
+    File[] files = f.listFiles();
+    if (files != null) {
+      for (File c : files) {
+        delete(c);
+      }
+    }
+    f.delete();
+  }
+
+  static File getClassFile(Class<?> cls) throws URISyntaxException {
+    String name = cls.getName();
+    return new File(cls.getResource(name.substring(name.lastIndexOf('.') + 1) + ".class").toURI());
+  }
+
+  static void checkIndex(ResourceIndex index) {
+    assertEquals(4, index.size());
+    assertEquals("main", index.getName("layout", 0x7f030000));
+    assertNull(index.getName("string", 0x7f030000));
+    assertEquals(0x7f050000, index.getId("id", "button1"));
+    assertEquals(ResourceIndex.NO_ID, index.getId("id", "button2"));
+    assertEquals("string", index.getType(0x7f040001));
+    assertEquals("TestApp", index.getValue(0x7f040000));
+    assertEquals("Hello World", index.getValue(index.getId("string", "hello")));
+    assertNull(index.getName(0)); // no styleable indices
+  }
+
+  @Test
+  public void testRClasses() throws Exception {
+    ResourceIndex index = new ResourceIndex();
+    index.readRClass(getClassFile(R.layout.class));
+    index.readRClass(getClassFile(R.id.class));
+
+    assertEquals(3, index.size());
+    assertEquals("layout", index.getType(0x7f030000));
+    assertEquals("main", index.getName(0x7f030000));
+    assertEquals(0x7f050001, index.getId("id", "text"));
+  }
+
+  @Test
+  public void testRJava() throws Exception {
+    File dir = createTempDir();
+    File values = new File(dir, "values");
+    values.mkdir();
+    write(values, "strings.xml", STRINGS);
+    File rJava = write(dir, "R.java", R_JAVA);
+
+    checkIndex(ResourceIndex.load(new File(dir, "classes"), rJava, values, null));
+
+    delete(dir);
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    File dir = createTempDir();
+    File values = new File(dir, "values");
+    values.mkdir();
+    write(values, "strings.xml", STRINGS);
+    File rJava = write(dir, "R.java", R_JAVA);
+    File cache = new File(dir, "cache");
+
+    checkIndex(ResourceIndex.load(null, rJava, values, cache));
+    assertEquals(1, cache.listFiles().length);
+
+    // served from the cache
+    File cached = cache.listFiles()[0];
+    checkIndex(ResourceIndex.load(null, rJava, values, cache));
+    assertEquals(1, cache.listFiles().length);
+    assertEquals(cached, cache.listFiles()[0]);
+
+    // the project was rebuilt
+    write(values, "strings.xml", STRINGS.replace("TestApp", "NewApp"));
+    ResourceIndex index = ResourceIndex.load(null, rJava, values, cache);
+    assertEquals("NewApp", index.getValue(0x7f040000));
+    assertEquals(2, cache.listFiles().length);
+
+    delete(dir);
+  }
+
+  @Test
+  public void testReadWrite() throws Exception {
+    File dir = createTempDir();
+    File values = new File(dir, "values");
+    values.mkdir();
+    write(values, "strings.xml", STRINGS);
+    File rJava = write(dir, "R.java", R_JAVA);
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ResourceIndex.load(null, rJava, values, null).write(out);
+    checkIndex(ResourceIndex.read(new ByteArrayInputStream(out.toByteArray())));
+
+    delete(dir);
+  }
+}
@@ -0,0 +1,149 @@
+package gov.nasa.jpf.android;
+
+import gov.nasa.jpf.android.SQLStatement.SQLStatementException;
+import gov.nasa.jpf.util.test.TestJPF;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class SQLStatementTest extends TestJPF {
+
+  static final String[] COLUMNS = { "_id", "name", "age", "score" };
+
+  /** a table with rows 1..5 */
+  static final Object[][] DATA = {
+      { 1L, "Alice", 31L, 2.5 },
+      { 2L, "bob", 25L, null },
+      { 3L, "Carol", null, 7.0 },
+      { 4L, "O'Hara", 40L, 1.0 },
+      { 5L, "alan", 25L, 3.0 } };
+
+  static final SQLStatement.Rows ROWS = new SQLStatement.Rows() {
+    @Override
+    public int size() {
+      return DATA.length;
+    }
+
+    @Override
+    public String[] getColumns() {
+      return COLUMNS;
+    }
+
+    @Override
+    public long getRowId(int row) {
+      return (Long) DATA[row][0];
+    }
+
+    @Override
+    public Object get(int row, int column) {
+      return DATA[row][column];
+    }
+  };
+
+  static int[] select(String sql, Object... args) throws SQLStatementException {
+    SQLStatement st = SQLStatement.parse(sql);
+    assertEquals(SQLStatement.SELECT, st.getType());
+    return st.selectRows(ROWS, args);
+  }
+
+  static void assertRows(int[] rows, int... expected) {
+    assertTrue(Arrays.toString(rows), Arrays.equals(expected, rows));
+  }
+
+  @Test
+  public void testCreate() throws SQLStatementException {
+    SQLStatement st = SQLStatement
+        .parse("CREATE TABLE IF NOT EXISTS notes (_id INTEGER PRIMARY KEY AUTOINCREMENT, title TEXT NOT NULL, "
+            + "created LONG, rating REAL, data BLOB, flag BOOLEAN)");
+    assertEquals(SQLStatement.CREATE_TABLE, st.getType());
+    assertEquals("notes", st.getTable());
+    assertTrue(st.isIfExists());
+    assertTrue(Arrays.equals(new String[] { "_id", "title", "created", "rating", "data", "flag" }, st.getColumns()));
+    assertTrue(Arrays.equals(new int[] { SQLStatement.INTEGER, SQLStatement.TEXT, SQLStatement.TEXT,
+        SQLStatement.REAL, SQLStatement.BLOB, SQLStatement.TEXT }, st.getAffinities()));
+    assertEquals(0, st.getPrimaryKey());
+
+    st = SQLStatement.parse("DROP TABLE notes");
+    assertEquals(SQLStatement.DROP_TABLE, st.getType());
+    assertFalse(st.isIfExists());
+  }
+
+  @Test
+  public void testInsert() throws SQLStatementException {
+    SQLStatement st = SQLStatement.parse("INSERT INTO notes (title, created, rating) VALUES ('it''s', ?, NULL)");
+    assertEquals(SQLStatement.INSERT, st.getType());
+    assertTrue(Arrays.equals(new String[] { "title", "created", "rating" }, st.getColumns()));
+    assertTrue(Arrays.equals(new String[] { "it's", null, null }, st.getValues()));
+    assertTrue(Arrays.equals(new int[] { -1, 0, -1 }, st.getValueParams()));
+    assertEquals(1, st.getNumberOfParams());
+
+    st = SQLStatement.parse("INSERT INTO notes VALUES (1, 'a')");
+    assertNull(st.getColumns());
+    assertTrue(Arrays.equals(new String[] { "1", "a" }, st.getValues()));
+  }
+
+  @Test
+  public void testUpdate() throws SQLStatementException {
+    SQLStatement st = SQLStatement.parse("UPDATE people SET name = ?, score = 1.5 WHERE age = ?");
+    assertEquals(SQLStatement.UPDATE, st.getType());
+    assertTrue(Arrays.equals(new String[] { "name", "score" }, st.getColumns()));
+    assertTrue(Arrays.equals(new int[] { 0, -1 }, st.getValueParams()));
+    // the parameters of the WHERE clause follow the ones of the values
+    assertRows(st.selectRows(ROWS, new Object[] { "x", 25L }), 1, 4);
+  }
+
+  @Test
+  public void testWhere() throws SQLStatementException {
+    assertRows(select("SELECT * FROM people"), 0, 1, 2, 3, 4);
+    assertRows(select("SELECT * FROM people WHERE age = 25"), 1, 4);
+    assertRows(select("SELECT * FROM people WHERE age = '25'"), 1, 4);
+    assertRows(select("SELECT * FROM people WHERE age >= 31 AND name <> 'Alice'"), 3);
+    assertRows(select("SELECT * FROM people WHERE age < 30 OR score > 5"), 1, 2, 4);
+    assertRows(select("SELECT * FROM people WHERE NOT (age = 25)"), 0, 3); // NULL is neither
+    assertRows(select("SELECT * FROM people WHERE age IS NULL OR score IS NULL"), 1, 2);
+    assertRows(select("SELECT * FROM people WHERE age IS NOT NULL AND score IS NOT NULL"), 0, 3, 4);
+    assertRows(select("SELECT * FROM people WHERE name LIKE 'a%'"), 0, 4);
+    assertRows(select("SELECT * FROM people WHERE name NOT LIKE '_a%'"), 0, 1, 3, 4);
+    assertRows(select("SELECT * FROM people WHERE name = 'O''Hara'"), 3);
+    assertRows(select("SELECT * FROM people WHERE _id IN (1, 3, 7)"), 0, 2);
+    assertRows(select("SELECT * FROM people WHERE rowid > 3"), 3, 4);
+    assertRows(select("SELECT * FROM people WHERE \"name\" = 'bob'"), 1);
+  }
+
+  @Test
+  public void testParams() throws SQLStatementException {
+    assertRows(select("SELECT * FROM people WHERE name = ? OR _id = ?", "Carol", 5L), 2, 4);
+    assertRows(select("SELECT * FROM people WHERE age > ?", "30"), 0, 3);
+    assertRows(select("SELECT * FROM people WHERE score = ?", (Object) null));
+  }
+
+  @Test
+  public void testOrderAndLimit() throws SQLStatementException {
+    assertRows(select("SELECT * FROM people ORDER BY age"), 2, 1, 4, 0, 3); // NULL first, stable
+    assertRows(select("SELECT * FROM people ORDER BY age DESC, _id DESC"), 3, 0, 4, 1, 2);
+    assertRows(select("SELECT * FROM people WHERE age = 25 ORDER BY name"), 4, 1);
+    assertRows(select("SELECT * FROM people ORDER BY _id LIMIT 2"), 0, 1);
+    assertRows(select("SELECT * FROM people ORDER BY _id LIMIT 2 OFFSET 4"), 4);
+  }
+
+  @Test
+  public void testSelectedColumns() throws SQLStatementException {
+    SQLStatement st = SQLStatement.parse("SELECT name, age FROM people WHERE score > 2 ORDER BY _id");
+    assertTrue(Arrays.equals(new String[] { "name", "age" }, st.getColumns()));
+    assertEquals(Arrays.asList("score", "_id"), st.getReferencedColumns());
+  }
+
+  @Test
+  public void testErrors() {
+    String[] invalid = { "SELECT * FROM", "SELECT * FROM a, b", "SELECT * FROM people WHERE nosuchcolumn = 1" };
+    for (String sql : invalid) {
+      try {
+        select(sql);
+        fail("no exception for " + sql);
+      } catch (SQLStatementException e) {
+        // expected
+      }
+    }
+  }
+}
@@ -0,0 +1,127 @@
+package gov.nasa.jpf.android.parallel;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.util.test.TestJPF;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.PrintStream;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * unit tests for the worker command lines and for merging the reports of
+ * parallel workers. How the choices are dealt out to the workers is tested
+ * in ScriptStateTest
+ */
+public class ParallelShellTest extends TestJPF {
+
+  static File createTempDir() throws Exception {
+    File dir = File.createTempFile("jpf-android-test", "");
+    dir.delete();
+    dir.mkdir();
+    return dir;
+  }
+
+  static void delete(File dir) {
+    for (File f : dir.listFiles()) {
+      f.delete();
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void testWorkerCommand() throws Exception {
+    File dir = createTempDir();
+    File app = new File(dir, "app.jpf");
+    FileWriter w = new FileWriter(app);
+    w.write("target = Foo\n");
+    w.close();
+
+    String[] args = { "+shell=gov.nasa.jpf.android.parallel.ParallelShell", "+android.event_por=true",
+        app.getPath() };
+    Config conf = new Config(args);
+    ParallelShell shell = new ParallelShell(conf);
+
+    // RunJPF only passes the args after the config args, and the app file is
+    // not part of them if JPF consumed it
+    File report = new File(dir, "worker-1.report");
+    List<String> cmd = shell.getWorkerCommand(new String[0], 1, 4, report);
+
+    assertTrue(cmd.contains(app.getPath()));
+    assertTrue(cmd.contains("+android.event_por=true"));
+    assertTrue(cmd.contains("+android.parallel.workers=4"));
+    assertTrue(cmd.contains("+android.parallel.worker=1"));
+    assertTrue(cmd.contains("+android.parallel.report=" + report.getAbsolutePath()));
+
+    delete(dir);
+  }
+
+  static String publish(WorkerReport... reports) throws Exception {
+    File dir = createTempDir();
+    File[] files = new File[reports.length];
+    for (int i = 0; i < reports.length; i++) {
+      files[i] = new File(dir, "worker-" + i + ".report");
+      reports[i].write(files[i]);
+    }
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    ParallelShell shell = new ParallelShell(new Config(new String[0]));
+    shell.publish(new PrintStream(bout), dir, files, new int[reports.length]);
+
+    delete(dir);
+    return bout.toString();
+  }
+
+  @Test
+  public void testUnsplitSearch() throws Exception {
+    WorkerReport r0 = new WorkerReport(0);
+    WorkerReport r1 = new WorkerReport(1);
+    r0.endStates = r1.endStates = 3;
+    r0.unsplitEndStates = r1.unsplitEndStates = 3;
+    assertTrue(publish(r0, r1).contains("never split the search over 2 workers"));
+
+    r0.unsplitEndStates = r1.unsplitEndStates = 1;
+    assertTrue(publish(r0, r1).contains("2 end states were reached before the search was split"));
+
+    r0.unsplitEndStates = r1.unsplitEndStates = 0;
+    assertFalse(publish(r0, r1).contains("warning"));
+  }
+
+  @Test
+  public void testMergeReports() throws Exception {
+    File dir = createTempDir();
+
+    WorkerReport r0 = new WorkerReport(0);
+    r0.newStates = 10;
+    r0.maxDepth = 3;
+    r0.violations.add(new WorkerReport.Violation("NPE", "at Foo.bar", "\n$a.click()"));
+
+    WorkerReport r1 = new WorkerReport(1);
+    r1.newStates = 5;
+    r1.maxDepth = 7;
+    r1.violations.add(new WorkerReport.Violation("NPE", "at Foo.bar", "\n$a.click()"));
+    r1.violations.add(new WorkerReport.Violation("checklist", "onClick => run", "\n$b.click()"));
+
+    File[] reports = { new File(dir, "worker-0.report"), new File(dir, "worker-1.report"),
+        new File(dir, "worker-2.report") };
+    r0.write(reports[0]);
+    r1.write(reports[1]);
+
+    ByteArrayOutputStream bout = new ByteArrayOutputStream();
+    ParallelShell shell = new ParallelShell(new Config(new String[0]));
+    shell.publish(new PrintStream(bout), dir, reports, new int[] { 0, 0, 1 });
+    String out = bout.toString();
+
+    assertTrue(out.contains("error 1 (worker 0,1)"));
+    assertTrue(out.contains("error 2 (worker 1)"));
+    assertFalse(out.contains("error 3"));
+    assertTrue(out.contains("worker 2: no report (exit code 1)"));
+    assertTrue(out.contains("new states:         15"));
+    assertTrue(out.contains("max search depth:   7"));
+
+    delete(dir);
+  }
+}
@@ -0,0 +1,111 @@
+package gov.nasa.jpf.android.serialize;
+
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.FieldInfo;
+import gov.nasa.jpf.vm.Verify;
+import gov.nasa.jpf.vm.serialize.AmmendableFilterConfiguration.FieldAmmendment;
+
+import org.junit.Test;
+
+import android.os.Message;
+
+/**
+ * checks that the fields ignored by the AndroidFilterConfiguration let states
+ * match, by counting how often the code after a state boundary is executed
+ */
+public class AndroidFilterConfigurationTest extends TestJPF {
+
+  static final String FILTER = "+filter.class=gov.nasa.jpf.android.serialize.AndroidFilterConfiguration";
+  static final String CLICKS = Screen.class.getName() + ".clicks";
+  // by name, IncludeClicks can't be loaded by JPF
+  static final String INCLUDE_CLICKS = AndroidFilterConfigurationTest.class.getName() + "$IncludeClicks";
+
+  static class Screen {
+    static int clicks;
+  }
+
+  /** includes Screen.clicks again */
+  public static class IncludeClicks implements FieldAmmendment {
+    @Override
+    public boolean ammendFieldInclusion(FieldInfo fi, boolean sofar) {
+      return fi.getFullName().equals(CLICKS) ? POLICY_INCLUDE : sofar;
+    }
+  }
+
+  static void click() {
+    Screen.clicks = Verify.getBoolean() ? 1 : 2;
+    Verify.breakTransition("clicked");
+    Verify.incrementCounter(0);
+  }
+
+  /** the event ids are only read by the checklists */
+  static void setEvent() {
+    Message msg = new Message();
+    String reason = "event";
+    msg.setEventID(Verify.getBoolean() ? 1 : 2);
+    Verify.breakTransition(reason);
+    Verify.incrementCounter(0);
+  }
+
+  void checkExecutions(int expected) {
+    if (!isJPFRun()) {
+      assertEquals(expected, Verify.getCounter(0));
+    }
+  }
+
+  @Test
+  public void testIgnoredField() {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation(FILTER, "+android.filter.ignore_fields=" + CLICKS)) {
+      click();
+    }
+    checkExecutions(1);
+  }
+
+  @Test
+  public void testMatchedField() {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation(FILTER)) {
+      click();
+    }
+    checkExecutions(2);
+  }
+
+  @Test
+  public void testConfiguredAmmendment() {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation(FILTER, "+android.filter.ignore_fields=" + CLICKS,
+        "+filter.static_ammendments=" + INCLUDE_CLICKS)) {
+      click();
+    }
+    checkExecutions(2);
+  }
+
+  @Test
+  public void testIgnoredEventIds() {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation(FILTER)) {
+      setEvent();
+    }
+    checkExecutions(1);
+  }
+
+  @Test
+  public void testChecklistEventIds() {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation(FILTER, "+android.checklist_enabled=true")) {
+      setEvent();
+    }
+    checkExecutions(2);
+  }
+}
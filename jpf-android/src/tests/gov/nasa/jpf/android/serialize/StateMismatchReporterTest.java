@@ -0,0 +1,76 @@
+package gov.nasa.jpf.android.serialize;
+
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
+
+import org.junit.Test;
+
+/**
+ * checks which fields and instance counts the StateMismatchReporter makes
+ * responsible for new states
+ */
+public class StateMismatchReporterTest extends TestJPF {
+
+  static final String LISTENER = "+listener=gov.nasa.jpf.android.serialize.StateMismatchReporter";
+
+  static class Screen {
+    static int clicks;
+  }
+
+  static class Item {
+    int value = 1;
+  }
+
+  static Item[] items;
+
+  static int getIndex(StateMismatchReporter reporter, String name) {
+    int idx = reporter.names.indexOf(name);
+    assertTrue(name + " not tracked", idx >= 0);
+    return idx;
+  }
+
+  @Test
+  public void testSoleNovelField() {
+    if (isJPFRun()) {
+      // initialize Screen and intern the reason before the choice, so that
+      // only the clicks differ afterwards
+      Screen.clicks = 0;
+      String reason = "clicked";
+      Screen.clicks = Verify.getBoolean() ? 1 : 2;
+      Verify.breakTransition(reason);
+
+    } else {
+      JPF jpf = noPropertyViolation(LISTENER);
+      StateMismatchReporter reporter = jpf.getListenerOfType(StateMismatchReporter.class);
+
+      int clicks = getIndex(reporter, Screen.class.getName() + ".clicks");
+      // 0 is also novel, but together with everything else in the startup state
+      assertEquals(2, reporter.nSole[clicks]);
+      assertEquals(3, reporter.nNovel[clicks]);
+    }
+  }
+
+  @Test
+  public void testInstanceCount() {
+    if (isJPFRun()) {
+      if (Verify.getBoolean()) {
+        items = new Item[] { new Item() };
+      } else {
+        items = new Item[] { new Item(), new Item() };
+      }
+      Verify.breakTransition("allocated");
+
+    } else {
+      JPF jpf = noPropertyViolation(LISTENER);
+      StateMismatchReporter reporter = jpf.getListenerOfType(StateMismatchReporter.class);
+
+      // both branches have the same values, only the number of items differs
+      int value = getIndex(reporter, Item.class.getName() + ".value");
+      int count = getIndex(reporter, Item.class.getName() + " (instances)");
+      assertEquals(1, reporter.nNovel[value]);
+      assertEquals(2, reporter.nNovel[count]);
+      assertEquals(1, reporter.nSole[count]);
+    }
+  }
+}
@@ -0,0 +1,93 @@
+package gov.nasa.jpf.test.android.database.sqlite;
+
+import gov.nasa.jpf.util.test.TestJPF;
+
+import org.junit.Test;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteException;
+
+/**
+ * Tests that failing statements leave the tables of the SQLiteDatabase model
+ * unchanged.
+ */
+public class SQLiteDatabaseTest extends TestJPF {
+
+  static SQLiteDatabase createDatabase() {
+    SQLiteDatabase db = new SQLiteDatabase();
+    db.execSQL("CREATE TABLE notes (_id INTEGER PRIMARY KEY, count INTEGER, rating REAL)");
+    db.execSQL("INSERT INTO notes (count, rating) VALUES (1, 1.5)");
+    db.execSQL("INSERT INTO notes (count, rating) VALUES (2, 2.5)");
+    return db;
+  }
+
+  /** checks the rowids and counts of all rows */
+  static void assertNotes(SQLiteDatabase db, long... idsAndCounts) {
+    Cursor c = db.rawQuery("SELECT * FROM notes", null);
+    assertEquals(idsAndCounts.length / 2, c.getCount());
+    for (int i = 0; i < idsAndCounts.length; i += 2) {
+      assertTrue(c.moveToNext());
+      assertEquals(idsAndCounts[i], c.getLong(0));
+      assertEquals(idsAndCounts[i + 1], c.getLong(1));
+    }
+  }
+
+  @Test
+  public void testFailedInsert() {
+    if (verifyNoPropertyViolation()) {
+      SQLiteDatabase db = createDatabase();
+      try {
+        db.execSQL("INSERT INTO notes (count, rating) VALUES (?, ?)", new Object[] { 3, "high" });
+        fail("text in a REAL column should be rejected");
+      } catch (SQLiteException x) {
+        // expected
+      }
+      try {
+        db.execSQL("INSERT INTO notes (_id, count) VALUES (?, ?)", new Object[] { 1, 3 });
+        fail("duplicate primary key should be rejected");
+      } catch (SQLiteConstraintException x) {
+        // expected
+      }
+      assertNotes(db, 1, 1, 2, 2);
+
+      // the rowids did not advance either
+      db.execSQL("INSERT INTO notes (count) VALUES (3)");
+      assertNotes(db, 1, 1, 2, 2, 3, 3);
+    }
+  }
+
+  @Test
+  public void testFailedUpdate() {
+    if (verifyNoPropertyViolation()) {
+      SQLiteDatabase db = createDatabase();
+      try {
+        db.execSQL("UPDATE notes SET count = ?, rating = ?", new Object[] { 5, "high" });
+        fail("text in a REAL column should be rejected");
+      } catch (SQLiteException x) {
+        // expected
+      }
+      assertNotes(db, 1, 1, 2, 2);
+
+      ContentValues values = new ContentValues();
+      values.put("count", 5);
+      values.put("_id", 3);
+      try {
+        db.update("notes", values, null, null);
+        fail("the same primary key for two rows should be rejected");
+      } catch (SQLiteConstraintException x) {
+        // expected
+      }
+      assertNotes(db, 1, 1, 2, 2);
+
+      assertEquals(1, db.update("notes", values, "_id = 2", null));
+      values = new ContentValues();
+      values.put("_id", 2);
+      values.put("count", 6);
+      assertEquals(1, db.update("notes", values, "_id = 1", null));
+      assertNotes(db, 2, 6, 3, 5);
+    }
+  }
+}
@@ -0,0 +1,4 @@
+SECTION default {
+  NONE
+  NONE
+}
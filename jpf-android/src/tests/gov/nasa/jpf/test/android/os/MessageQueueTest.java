@@ -0,0 +1,240 @@
+package gov.nasa.jpf.test.android.os;
+
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.search.Search;
+import gov.nasa.jpf.util.IntVector;
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.MJIEnv;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.vm.Verify;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.SystemClock;
+
+/**
+ * Tests the time ordering of the MessageQueue model on the virtual SystemClock,
+ * and that delayed messages and script actions are explored in both orders.
+ */
+public class MessageQueueTest extends TestJPF {
+
+  // two NONE actions, which don't change the application state
+  static final String SCRIPT = "+android.script=${jpf-android}/src/tests/gov/nasa/jpf/test/android/os/MessageQueueTest.es";
+
+  static final String FILTER = "+filter.class=gov.nasa.jpf.android.serialize.AndroidFilterConfiguration";
+
+  static final String LISTENER = "+listener=gov.nasa.jpf.test.android.os.MessageQueueTest$EventOrder";
+
+  /**
+   * records the order of script actions ('S') and timer ticks ('T') of each
+   * path that reaches an end state. Paths that end in a visited state don't
+   * show up, e.g. "STSTT" matches "SSTTT" after three events
+   */
+  public static class EventOrder extends ListenerAdapter {
+    StringBuilder order = new StringBuilder();
+    IntVector orderLength = new IntVector();
+    Set<String> orders = new HashSet<String>();
+
+    @Override
+    public void stateAdvanced(Search search) {
+      if (search.isEndState()) {
+        orders.add(order.toString());
+      }
+      orderLength.set(search.getDepth(), order.length());
+    }
+
+    @Override
+    public void stateBacktracked(Search search) {
+      order.setLength(orderLength.get(search.getDepth()));
+    }
+
+    @Override
+    public void methodEntered(VM vm, ThreadInfo ti, MethodInfo mi) {
+      String cls = mi.getClassName();
+
+      if (cls.equals("android.os.MessageQueue") && mi.getUniqueName().equals("processAction(Ljava/lang/String;)V")) {
+        if (ti.getTopFrame().getLocalVariable(1) != MJIEnv.NULL) {
+          order.append('S');
+        }
+      } else if (cls.equals(Tick.class.getName()) && mi.getUniqueName().equals("run()V")) {
+        order.append('T');
+      }
+    }
+  }
+
+  /**
+   * periodic timer that re-posts itself every 10ms until it ran 'max' times,
+   * and then quits the looper
+   */
+  static class Tick implements Runnable {
+    final Handler handler;
+    final int max;
+    long[] times;
+    int n;
+
+    Tick(Handler handler, int max) {
+      this.handler = handler;
+      this.max = max;
+      times = new long[max];
+    }
+
+    @Override
+    public void run() {
+      times[n++] = SystemClock.uptimeMillis();
+
+      if (n < max) {
+        handler.postDelayed(this, 10);
+      } else {
+        handler.getLooper().quit();
+      }
+    }
+  }
+
+  @Test
+  public void testDelayedOrder() {
+    if (verifyNoPropertyViolation(SCRIPT, LISTENER)) {
+      Looper.prepareMainLooper();
+      final StringBuilder sb = new StringBuilder();
+
+      Handler h = new Handler() {
+        @Override
+        public void handleMessage(Message msg) {
+          sb.append(msg.what);
+          if (msg.what == 3) {
+            getLooper().quit();
+          }
+        }
+      };
+
+      long t0 = SystemClock.uptimeMillis();
+      h.sendEmptyMessageDelayed(3, 30);
+      h.sendEmptyMessageDelayed(1, 10);
+      h.sendEmptyMessageDelayed(2, 10); // same time, FIFO
+      h.sendEmptyMessage(0);
+
+      Looper.loop();
+
+      assertEquals("0123", sb.toString());
+      assertEquals(t0 + 30, SystemClock.uptimeMillis());
+    }
+  }
+
+  static void runTicks() {
+    Looper.prepareMainLooper();
+    Handler h = new Handler();
+    h.postDelayed(new Tick(h, 3), 10);
+
+    Looper.loop();
+  }
+
+  @Test
+  public void testScriptBeforeDelayed() {
+    if (isJPFRun()) {
+      runTicks();
+
+    } else {
+      JPF jpf = noPropertyViolation(SCRIPT, LISTENER);
+      EventOrder listener = jpf.getListenerOfType(EventOrder.class);
+
+      // the script actions don't have to wait for the timer
+      assertTrue(listener.orders.contains("SSTTT"));
+    }
+  }
+
+  @Test
+  public void testDelayedBeforeScript() {
+    if (isJPFRun()) {
+      runTicks();
+
+    } else {
+      JPF jpf = noPropertyViolation(SCRIPT, LISTENER);
+      EventOrder listener = jpf.getListenerOfType(EventOrder.class);
+
+      // the timer doesn't have to wait for the script, and quits the looper
+      // before the script is exhausted
+      assertTrue(listener.orders.contains("TTSST"));
+      assertTrue(listener.orders.contains("TTT"));
+    }
+  }
+
+  @Test
+  public void testPeriodicTimer() {
+    if (verifyNoPropertyViolation(SCRIPT, LISTENER)) {
+      Looper.prepareMainLooper();
+      Handler h = new Handler();
+      Tick tick = new Tick(h, 5);
+
+      long t0 = SystemClock.uptimeMillis();
+      h.postDelayed(tick, 10);
+
+      Looper.loop();
+
+      assertEquals(5, tick.n);
+      for (int i = 0; i < tick.n; i++) {
+        assertEquals(t0 + 10 * (i + 1), tick.times[i]);
+      }
+    }
+  }
+
+  /**
+   * posts a message with a delay of 20ms, and lets 10ms pass before or after
+   * that on one path. Counts the executions after the state boundary
+   */
+  static void postAndSleep(boolean sleepBefore) {
+    Looper.prepareMainLooper();
+    Handler h = new Handler();
+    String reason = "posted";
+
+    if (Verify.getBoolean()) {
+      if (sleepBefore) {
+        SystemClock.sleep(10);
+      }
+      h.sendEmptyMessageDelayed(1, 20);
+      if (!sleepBefore) {
+        SystemClock.sleep(10);
+      }
+    } else {
+      h.sendEmptyMessageDelayed(1, 20);
+    }
+
+    Verify.breakTransition(reason);
+    Verify.incrementCounter(0);
+  }
+
+  @Test
+  public void testMatchedDelays() {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation(SCRIPT, FILTER)) {
+      // the clock and the time of the message differ, the delay doesn't
+      postAndSleep(true);
+    }
+    if (!isJPFRun()) {
+      assertEquals(1, Verify.getCounter(0));
+    }
+  }
+
+  @Test
+  public void testDifferentDelays() {
+    if (!isJPFRun()) {
+      Verify.resetCounter(0);
+    }
+    if (verifyNoPropertyViolation(SCRIPT, FILTER)) {
+      // the message is due 10ms earlier after sleeping
+      postAndSleep(false);
+    }
+    if (!isJPFRun()) {
+      assertEquals(2, Verify.getCounter(0));
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package gov.nasa.jpf.util.script;
+
+import gov.nasa.jpf.util.test.TestJPF;
+
+import java.io.StringReader;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * unit tests for the persistent ScriptState, stored states must not change
+ * when the script advances
+ */
+public class ScriptStateTest extends TestJPF {
+
+  static AndroidScriptEnvironment createEnv(String script) throws Exception {
+    AndroidScriptEnvironment env = new AndroidScriptEnvironment("test.es", new StringReader(script));
+    env.parseScript();
+    return env;
+  }
+
+  @Test
+  public void testRestore() throws Exception {
+    AndroidScriptEnvironment env = createEnv("$a.click() $b.click() $c.click()");
+
+    assertEquals("$a.click()", env.getNext(1, AndroidScriptEnvironment.DEFAULT, null).toString());
+    ScriptState s1 = env.getStateExtension();
+
+    assertEquals("$b.click()", env.getNext(2, AndroidScriptEnvironment.DEFAULT, null).toString());
+    assertEquals("$c.click()", env.getNext(3, AndroidScriptEnvironment.DEFAULT, null).toString());
+    assertNull(env.getNext(4, AndroidScriptEnvironment.DEFAULT, null));
+    assertEquals(3, env.getStateExtension().getActions().size());
+
+    // backtrack, the stored state has not been advanced
+    env.restore(s1);
+    assertEquals(1, s1.getActions().size());
+    assertEquals("$b.click()", env.getNext(2, AndroidScriptEnvironment.DEFAULT, null).toString());
+
+    List<UIAction> actions = env.getStateExtension().getActions();
+    assertEquals(2, actions.size());
+    assertEquals("$a.click()", actions.get(0).toString());
+    assertEquals("$b.click()", actions.get(1).toString());
+    assertEquals(1, s1.getActions().size());
+  }
+
+  @Test
+  public void testSharedSections() throws Exception {
+    AndroidScriptEnvironment env = createEnv("SECTION w1 { $a.click() $b.click() } SECTION w2 { $c.click() }");
+
+    assertEquals("$a.click()", env.getNext(1, "w1", null).toString());
+    assertEquals("$c.click()", env.getNext(2, "w2", null).toString());
+    ScriptState s2 = env.getStateExtension();
+    SectionState w1 = s2.get("w1");
+
+    assertEquals("$b.click()", env.getNext(3, "w1", null).toString());
+    ScriptState s3 = env.getStateExtension();
+
+    assertSame(s2.get("w2"), s3.get("w2")); // not advanced, shared
+    assertTrue(w1 != s3.get("w1"));
+    assertSame(w1, s2.get("w1"));
+
+    env.restore(s2);
+    assertEquals("$b.click()", env.getNext(3, "w1", null).toString());
+  }
+
+  /**
+   * ANY{2 choices}, ANY{3 choices}, ANY{2 choices} with 4 workers: the search is
+   * split at the second alternative, and every path is explored by exactly
+   * one worker
+   */
+  @Test
+  public void testWorkSplit() {
+    int workers = 4;
+    int[] nChoices = { 2, 3, 2 };
+    int[] explored = new int[2 * 3 * 2];
+
+    for (int w = 0; w < workers; w++) {
+      explore(new ScriptState(), nChoices, 0, 0, workers, w, explored);
+    }
+
+    for (int i = 0; i < explored.length; i++) {
+      assertEquals(1, explored[i]);
+    }
+  }
+
+  static void explore(ScriptState state, int[] nChoices, int level, int path, int workers, int worker,
+      int[] explored) {
+    if (level == nChoices.length) {
+      assertTrue(state.isSplit(workers));
+      explored[path]++;
+      return;
+    }
+
+    int n = nChoices[level];
+    if (level == 0) {
+      assertFalse(state.isSplit(workers));
+    }
+
+    for (int c = 1; c <= n; c++) {
+      if (!state.isOtherWorkersChoice(c, n, workers, worker)) {
+        ScriptState s = (ScriptState) state.clone();
+        s.addChoice(c, n, workers);
+        explore(s, nChoices, level + 1, path * n + (c - 1), workers, worker, explored);
+      }
+    }
+  }
+}
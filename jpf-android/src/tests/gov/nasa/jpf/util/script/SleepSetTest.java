@@ -0,0 +1,130 @@
+package gov.nasa.jpf.util.script;
+
+import gov.nasa.jpf.util.test.TestJPF;
+
+import org.junit.Test;
+
+/**
+ * unit tests for the event POR data structures (EventFootprint, SleepSet and
+ * the sleeping choices of AlternativeChoiceGenerator)
+ */
+public class SleepSetTest extends TestJPF {
+
+  static EventFootprint footprint(long[] reads, long[] writes) {
+    EventFootprint fp = new EventFootprint();
+    for (long r : reads) {
+      fp.addRead(r);
+    }
+    for (long w : writes) {
+      fp.addWrite(w);
+    }
+    return fp;
+  }
+
+  @Test
+  public void testIndependence() {
+    long a = EventFootprint.instanceKey(42, 0);
+    long b = EventFootprint.instanceKey(42, 1);
+    long s = EventFootprint.staticKey(42, 0);
+
+    EventFootprint readA = footprint(new long[] { a, s }, new long[0]);
+    EventFootprint writeA = footprint(new long[0], new long[] { a });
+    EventFootprint writeB = footprint(new long[] { a }, new long[] { b });
+    EventFootprint writeS = footprint(new long[0], new long[] { s });
+
+    assertTrue(readA.isIndependentOf(readA));
+    assertFalse(readA.isIndependentOf(writeA));
+    assertFalse(writeA.isIndependentOf(readA));
+    assertTrue(writeA.isIndependentOf(footprint(new long[0], new long[] { b })));
+    assertFalse(writeB.isIndependentOf(writeA));
+    assertFalse(readA.isIndependentOf(writeS));
+    assertTrue(writeA.isIndependentOf(writeS)); // static and instance keys don't collide
+
+    assertFalse(EventFootprint.ALL.isIndependentOf(new EventFootprint()));
+  }
+
+  @Test
+  public void testFilter() {
+    long a = EventFootprint.instanceKey(1, 0);
+    long b = EventFootprint.instanceKey(2, 0);
+
+    SleepSet sleep = SleepSet.EMPTY.add("$a.click()", footprint(new long[0], new long[] { a }), "$c.click()")
+        .add("$b.click()", footprint(new long[0], new long[] { b }), "$c.click()");
+    assertTrue(sleep.contains("$a.click()"));
+    assertTrue(sleep.contains("$b.click()"));
+
+    SleepSet s1 = sleep.filter(footprint(new long[0], new long[] { EventFootprint.instanceKey(3, 0) }));
+    assertSame(sleep, s1);
+
+    SleepSet s2 = sleep.filter(footprint(new long[] { a }, new long[0]));
+    assertFalse(s2.contains("$a.click()"));
+    assertTrue(s2.contains("$b.click()"));
+    assertTrue(sleep.contains("$a.click()")); // immutable
+
+    assertTrue(sleep.filter(EventFootprint.ALL).isEmpty());
+  }
+
+  static String enumerate(AlternativeChoiceGenerator cg) {
+    StringBuilder sb = new StringBuilder();
+    while (cg.hasMoreChoices()) {
+      cg.advance();
+      sb.append(cg.getNextChoice());
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testSleepingChoices() {
+    EventFootprint fp = footprint(new long[0], new long[] { EventFootprint.instanceKey(1, 0) });
+    SleepSet sleep = SleepSet.EMPTY.add("$b.click()", fp, "$c.click()");
+    String[] keys = { "$a.click()", "$b.click()", null, "$c.click()" };
+
+    AlternativeChoiceGenerator cg = new AlternativeChoiceGenerator("test", 4, keys, sleep);
+    assertEquals("134", enumerate(cg));
+
+    // choices explored before choice 4 go to sleep, unless they were asleep already
+    cg.setFootprint(1, fp);
+    cg.setFootprint(3, fp);
+    SleepSet s = cg.getExploredChoices(4);
+    assertTrue(s.contains("$a.click()"));
+    assertFalse(s.contains("$b.click()"));
+
+    // the chosen event is not offered, so the sleeping one has to be explored
+    cg = new AlternativeChoiceGenerator("not offered", 1, new String[] { "$b.click()" }, sleep);
+    assertEquals("1", enumerate(cg));
+
+    cg = new AlternativeChoiceGenerator("all asleep", 2, new String[] { "$b.click()", "$c.click()" }, sleep);
+    assertEquals("2", enumerate(cg));
+  }
+
+  /**
+   * ANY{a,b}; ANY{a,c} - after 'b' was chosen, 'a' can't be skipped in the
+   * second alternative, since the first one never explored 'a' followed by 'b'
+   */
+  @Test
+  public void testConsecutiveAlternatives() {
+    String a = "$a.click()";
+    String b = "$b.click()";
+    String c = "$c.click()";
+    EventFootprint fpA = footprint(new long[0], new long[] { EventFootprint.instanceKey(1, 0) });
+    EventFootprint fpB = footprint(new long[0], new long[] { EventFootprint.instanceKey(2, 0) });
+
+    AlternativeChoiceGenerator any1 = new AlternativeChoiceGenerator("any1", 2, new String[] { a, b },
+        SleepSet.EMPTY);
+    any1.setFootprint(1, fpA);
+    any1.setFootprint(2, fpB);
+    SleepSet afterB = any1.getExploredChoices(2).filter(fpB);
+    assertTrue(afterB.contains(a));
+
+    AlternativeChoiceGenerator any2 = new AlternativeChoiceGenerator("any2", 2, new String[] { a, c }, afterB);
+    assertEquals("12", enumerate(any2));
+
+    // ANY{a,b}; ANY{a,b} - 'b' then 'a' is the same as 'a' then 'b'
+    any2 = new AlternativeChoiceGenerator("any2", 2, new String[] { a, b }, afterB);
+    assertEquals("2", enumerate(any2));
+
+    // the entries of the first alternative are not carried beyond the second
+    any2.setFootprint(2, fpB);
+    assertTrue(any2.getExploredChoices(2).isEmpty());
+  }
+}
@@ -1121,6 +1121,21 @@ public class ClassFile extends BinaryClassSource {
     parseCodeAttrAttributes(reader, tag, attrCount);
   }
 
+  /**
+   * parse a Code attribute outside of the normal parse() notification
+   * sequence, e.g. to create method code on demand. 'codeAttrPos' is the
+   * position of max_stack as returned by getPos() from within setMethodAttribute()
+   */
+  public void parseCodeAttrAt (ClassFileReader reader, Object tag, int codeAttrPos){
+    int p = pos;
+    pos = codeAttrPos;
+    try {
+      parseCodeAttr(reader, tag);
+    } finally {
+      pos = p;
+    }
+  }
+
 
   protected void parseCodeAttrAttributes(ClassFileReader reader, Object tag, int attrCount){
 
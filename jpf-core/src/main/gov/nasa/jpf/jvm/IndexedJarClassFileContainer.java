@@ -0,0 +1,248 @@
+//
+// Copyright (C) 2014 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.jvm;
+
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.util.JPFLogger;
+import gov.nasa.jpf.vm.ClassFileMatch;
+import gov.nasa.jpf.vm.ClassParseException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashMap;
+import java.util.Set;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * a JarClassFileContainer that reads the zip central directory once, and then
+ * gets classfile contents directly from a memory mapped jar file. Stored
+ * entries are just copied out of the mapped buffer, deflated ones are inflated
+ * from it. Everything we can't handle (zip64, other compression methods,
+ * corrupted entries) falls back to the JarFile based lookup
+ */
+public class IndexedJarClassFileContainer extends JarClassFileContainer {
+
+  static JPFLogger logger = JPF.getLogger("gov.nasa.jpf.jvm.classfile");
+
+  static final int LOCAL_HEADER_SIG = 0x04034b50;
+  static final int CENTRAL_HEADER_SIG = 0x02014b50;
+  static final int END_SIG = 0x06054b50;
+
+  static final int STORED = 0;
+  static final int DEFLATED = 8;
+
+  static class Entry {
+    int method;
+    int localHeaderOffset;
+    int compressedSize;
+    int size;
+
+    Entry (int method, int localHeaderOffset, int compressedSize, int size){
+      this.method = method;
+      this.localHeaderOffset = localHeaderOffset;
+      this.compressedSize = compressedSize;
+      this.size = size;
+    }
+  }
+
+  protected MappedByteBuffer buf;
+
+  // class name -> entry, or null if we couldn't read the central directory
+  protected HashMap<String,Entry> index;
+
+  public IndexedJarClassFileContainer (File file) throws IOException {
+    this(file, null);
+  }
+
+  public IndexedJarClassFileContainer (File file, String pathPrefix) throws IOException {
+    super(file, pathPrefix);
+
+    try {
+      buf = mapFile(file);
+      index = readCentralDirectory(buf, this.pathPrefix);
+    } catch (IOException iox){
+      logger.warning("cannot index jar ", file, " : ", iox.getMessage());
+      buf = null;
+      index = null;
+    }
+  }
+
+  static MappedByteBuffer mapFile (File file) throws IOException {
+    RandomAccessFile raf = new RandomAccessFile(file, "r");
+    try {
+      FileChannel fc = raf.getChannel();
+      MappedByteBuffer mb = fc.map(FileChannel.MapMode.READ_ONLY, 0, fc.size());
+      mb.order(ByteOrder.LITTLE_ENDIAN);
+      return mb; // the mapping stays valid after closing the channel
+    } finally {
+      raf.close();
+    }
+  }
+
+  static int u16 (MappedByteBuffer mb, int pos){
+    return mb.getShort(pos) & 0xffff;
+  }
+
+  static HashMap<String,Entry> readCentralDirectory (MappedByteBuffer mb, String pathPrefix) throws IOException {
+    int len = mb.limit();
+
+    // the end record is at the end, followed by an optional comment of up to 64k
+    int endPos = -1;
+    for (int i = len - 22; i >= 0 && i >= len - 22 - 0xffff; i--){
+      if (mb.getInt(i) == END_SIG){
+        endPos = i;
+        break;
+      }
+    }
+    if (endPos < 0){
+      throw new IOException("no zip end record");
+    }
+
+    int nEntries = u16(mb, endPos + 10);
+    int cdOffset = mb.getInt(endPos + 16);
+    if (nEntries == 0xffff || cdOffset == -1){
+      throw new IOException("zip64 not supported");
+    }
+
+    HashMap<String,Entry> map = new HashMap<String,Entry>(nEntries * 2);
+    int prefixLen = (pathPrefix != null) ? pathPrefix.length() : 0;
+    byte[] nameBuf = new byte[256];
+    int pos = cdOffset;
+
+    for (int i=0; i<nEntries; i++){
+      if (pos + 46 > len || mb.getInt(pos) != CENTRAL_HEADER_SIG){
+        throw new IOException("corrupted central directory");
+      }
+
+      int method = u16(mb, pos + 10);
+      int compressedSize = mb.getInt(pos + 20);
+      int size = mb.getInt(pos + 24);
+      int nameLen = u16(mb, pos + 28);
+      int extraLen = u16(mb, pos + 30);
+      int commentLen = u16(mb, pos + 32);
+      int localHeaderOffset = mb.getInt(pos + 42);
+
+      if (nameLen > nameBuf.length){
+        nameBuf = new byte[nameLen];
+      }
+      for (int j=0; j<nameLen; j++){
+        nameBuf[j] = mb.get(pos + 46 + j);
+      }
+      String name = new String(nameBuf, 0, nameLen, "UTF-8");
+
+      if (name.endsWith(".class") && (prefixLen == 0 || name.startsWith(pathPrefix))){
+        String clsName = name.substring(prefixLen, name.length() - 6).replace('/', '.');
+        if (!map.containsKey(clsName)){
+          map.put(clsName, new Entry(method, localHeaderOffset, compressedSize, size));
+        }
+      }
+
+      pos += 46 + nameLen + extraLen + commentLen;
+    }
+
+    return map;
+  }
+
+  @Override
+  public boolean isIndexed(){
+    return (index != null);
+  }
+
+  @Override
+  public boolean containsClass (String clsName){
+    return (index == null) || index.containsKey(clsName);
+  }
+
+  @Override
+  public Set<String> getIndexedClassNames(){
+    return (index != null) ? index.keySet() : null;
+  }
+
+  @Override
+  public ClassFileMatch getMatch(String clsName) throws ClassParseException {
+    if (index == null){
+      return super.getMatch(clsName);
+    }
+
+    Entry e = index.get(clsName);
+    if (e == null){
+      return null;
+    }
+
+    byte[] data = readEntry(e);
+    if (data == null){
+      return super.getMatch(clsName);
+    }
+
+    return new JVMClassFileMatch(clsName, getClassURL(clsName), data);
+  }
+
+  protected void getBytes (int pos, byte[] dst, int len){
+    ByteBuffer bb = buf.duplicate(); // don't change the position of the shared buffer
+    bb.position(pos);
+    bb.get(dst, 0, len);
+  }
+
+  protected byte[] readEntry (Entry e){
+    int lho = e.localHeaderOffset;
+    if (lho < 0 || lho + 30 > buf.limit() || buf.getInt(lho) != LOCAL_HEADER_SIG){
+      return null;
+    }
+
+    int dataPos = lho + 30 + u16(buf, lho + 26) + u16(buf, lho + 28);
+    if (e.compressedSize < 0 || e.size < 0 || dataPos + e.compressedSize > buf.limit()){
+      return null;
+    }
+
+    byte[] data = new byte[e.size];
+
+    if (e.method == STORED){
+      if (e.compressedSize != e.size){
+        return null;
+      }
+      getBytes(dataPos, data, data.length);
+      return data;
+
+    } else if (e.method == DEFLATED){
+      // the 'nowrap' Inflater needs an extra dummy byte
+      byte[] in = new byte[e.compressedSize + 1];
+      getBytes(dataPos, in, e.compressedSize);
+
+      Inflater inflater = new Inflater(true);
+      try {
+        inflater.setInput(in);
+        int n = inflater.inflate(data);
+        return (n == data.length) ? data : null;
+      } catch (DataFormatException dfx){
+        return null;
+      } finally {
+        inflater.end();
+      }
+
+    } else {
+      return null;
+    }
+  }
+}
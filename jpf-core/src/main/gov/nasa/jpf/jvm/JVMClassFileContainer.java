@@ -26,6 +26,8 @@ import gov.nasa.jpf.vm.ClassInfo;
 import gov.nasa.jpf.vm.ClassLoaderInfo;
 import gov.nasa.jpf.vm.ClassParseException;
 
+import java.util.zip.CRC32;
+
 /**
  * ClassFileContainer that holds Java classfiles
  */
@@ -49,6 +51,13 @@ public abstract class JVMClassFileContainer extends ClassFileContainer {
     public byte[] getData(){
       return data;
     }
+
+    @Override
+    public long getContentHash(){
+      CRC32 crc = new CRC32();
+      crc.update(data, 0, data.length);
+      return ((long)data.length << 32) ^ crc.getValue();
+    }
     
     @Override
     public JVMClassInfo createClassInfo (ClassLoaderInfo loader) throws ClassParseException {
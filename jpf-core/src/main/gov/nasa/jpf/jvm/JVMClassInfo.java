@@ -24,6 +24,7 @@ import gov.nasa.jpf.vm.AnnotationInfo;
 import gov.nasa.jpf.vm.ClassInfo;
 import gov.nasa.jpf.vm.ClassLoaderInfo;
 import gov.nasa.jpf.vm.ClassParseException;
+import gov.nasa.jpf.vm.CodeLoader;
 import gov.nasa.jpf.vm.DirectCallStackFrame;
 import gov.nasa.jpf.vm.ExceptionHandler;
 import gov.nasa.jpf.vm.FieldInfo;
@@ -43,17 +44,145 @@ import java.util.LinkedHashMap;
 public class JVMClassInfo extends ClassInfo {
 
   /**
-   * this is the inner class that does the actual ClassInfo initialization from ClassFile. It is an inner class so that
-   * (a) it can set ClassInfo fields, (b) it can extend ClassFileReaderAdapter, and (c) we don't clutter JVMClassInfo with
-   * fields that are only temporarily used during parsing
+   * the part of the ClassFile initialization that creates the code of the current method, i.e. its
+   * instructions, exception handlers, line numbers and local vars. This is separated so that we can
+   * keep it around (together with the ClassFile) to create code on demand, without holding on to
+   * the rest of the Initializer state
    */
-  class Initializer extends ClassFileReaderAdapter {
+  class CodeInitializer extends ClassFileReaderAdapter {
     protected ClassFile cf;
     protected JVMCodeBuilder cb;
 
-    public Initializer (ClassFile cf, JVMCodeBuilder cb) throws ClassParseException {
+    protected MethodInfo curMi;
+
+    CodeInitializer (ClassFile cf, JVMCodeBuilder cb) {
       this.cf = cf;
       this.cb = cb;
+    }
+
+    void parseCode (MethodInfo mi, int codeAttrPos){
+      curMi = mi;
+      cf.parseCodeAttrAt(this, mi, codeAttrPos);
+    }
+
+    //--- current method exception handlers
+    protected ExceptionHandler[] handlers;
+
+    @Override
+    public void setExceptionHandlerTableCount (ClassFile cf, Object tag, int exceptionTableCount) {
+      handlers = new ExceptionHandler[exceptionTableCount];
+    }
+
+    @Override
+    public void setExceptionHandler (ClassFile cf, Object tag, int handlerIndex,
+            int startPc, int endPc, int handlerPc, String catchType) {
+      ExceptionHandler xh = new ExceptionHandler(catchType, startPc, endPc, handlerPc);
+      handlers[handlerIndex] = xh;
+    }
+
+    @Override
+    public void setExceptionHandlerTableDone (ClassFile cf, Object tag) {
+      curMi.setExceptionHandlers(handlers);
+    }
+
+    //--- current method code  
+    @Override
+    public void setCode (ClassFile cf, Object tag, int maxStack, int maxLocals, int codeLength) {
+      curMi.setMaxLocals(maxLocals);
+      curMi.setMaxStack(maxStack);
+
+      cb.reset(cf, curMi);
+
+      cf.parseBytecode(cb, tag, codeLength);
+      cb.installCode();
+    }
+
+    @Override
+    public void setCodeAttribute (ClassFile cf, Object tag, int attrIndex, String name, int attrLength) {
+      if (name == ClassFile.LINE_NUMBER_TABLE_ATTR) {
+        cf.parseLineNumberTableAttr(this, tag);
+
+      } else if (name == ClassFile.LOCAL_VAR_TABLE_ATTR) {
+        cf.parseLocalVarTableAttr(this, tag);
+      }
+    }
+
+    //--- current method line numbers
+    protected int[] lines, startPcs;
+
+    @Override
+    public void setLineNumberTableCount (ClassFile cf, Object tag, int lineNumberCount) {
+      lines = new int[lineNumberCount];
+      startPcs = new int[lineNumberCount];
+    }
+
+    @Override
+    public void setLineNumber (ClassFile cf, Object tag, int lineIndex, int lineNumber, int startPc) {
+      lines[lineIndex] = lineNumber;
+      startPcs[lineIndex] = startPc;
+    }
+
+    @Override
+    public void setLineNumberTableDone (ClassFile cf, Object tag) {
+      curMi.setLineNumbers(lines, startPcs);
+    }
+    
+    //--- current method local variables
+    protected LocalVarInfo[] localVars;
+
+    @Override
+    public void setLocalVarTableCount (ClassFile cf, Object tag, int localVarCount) {
+      localVars = new LocalVarInfo[localVarCount];
+    }
+
+    @Override
+    public void setLocalVar (ClassFile cf, Object tag, int localVarIndex,
+            String varName, String descriptor, int scopeStartPc, int scopeEndPc, int slotIndex) {
+      LocalVarInfo lvi = new LocalVarInfo(varName, descriptor, "", scopeStartPc, scopeEndPc, slotIndex);
+      localVars[localVarIndex] = lvi;
+    }
+
+    @Override
+    public void setLocalVarTableDone (ClassFile cf, Object tag) {
+      curMi.setLocalVarTable(localVars);
+    }
+  }
+
+  /**
+   * the CodeLoader we install in MethodInfos that defer code creation. All we keep
+   * per method is the position of its Code attribute
+   */
+  class LazyCode implements CodeLoader {
+    protected CodeInitializer codeInitializer;
+    protected int codeAttrPos;
+
+    LazyCode (CodeInitializer codeInitializer, int codeAttrPos){
+      this.codeInitializer = codeInitializer;
+      this.codeAttrPos = codeAttrPos;
+    }
+
+    @Override
+    public void loadCode (MethodInfo mi) {
+      codeInitializer.parseCode(mi, codeAttrPos);
+    }
+  }
+
+  /**
+   * this is the inner class that does the actual ClassInfo initialization from ClassFile. It is an inner class so that
+   * (a) it can set ClassInfo fields, (b) it can extend ClassFileReaderAdapter, and (c) we don't clutter JVMClassInfo with
+   * fields that are only temporarily used during parsing
+   */
+  class Initializer extends CodeInitializer {
+
+    // non-null if we defer code creation until the code is accessed
+    protected CodeInitializer lazyCodeInitializer;
+
+    public Initializer (ClassFile cf, JVMCodeBuilder cb) throws ClassParseException {
+      super(cf, cb);
+
+      if (cb.isLazyCode()){
+        lazyCodeInitializer = new CodeInitializer(cf, cb);
+      }
       
       cf.parse(this);
     }
@@ -199,7 +328,6 @@ public class JVMClassInfo extends ClassInfo {
     }
  
   //--- declaredMethods
-    protected MethodInfo curMi;
 
     @Override
     public void setMethodCount (ClassFile cf, int methodCount) {
@@ -218,7 +346,15 @@ public class JVMClassInfo extends ClassInfo {
     @Override
     public void setMethodAttribute (ClassFile cf, int methodIndex, int attrIndex, String name, int attrLength) {
       if (name == ClassFile.CODE_ATTR) {
-        cf.parseCodeAttr(this, curMi);
+        if (lazyCodeInitializer != null){
+          // we only need max_stack and max_locals to create frames
+          int pos = cf.getPos();
+          curMi.setMaxStack(cf.u2(pos));
+          curMi.setMaxLocals(cf.u2(pos+2));
+          curMi.setCodeLoader( new LazyCode(lazyCodeInitializer, pos));
+        } else {
+          cf.parseCodeAttr(this, curMi);
+        }
 
       } else if (name == ClassFile.SIGNATURE_ATTR) {
         cf.parseSignatureAttr(this, curMi);
@@ -257,87 +393,6 @@ public class JVMClassInfo extends ClassInfo {
       curMi.setThrownExceptions(exceptions);
     }
 
-    //--- current method exception handlers
-    protected ExceptionHandler[] handlers;
-
-    @Override
-    public void setExceptionHandlerTableCount (ClassFile cf, Object tag, int exceptionTableCount) {
-      handlers = new ExceptionHandler[exceptionTableCount];
-    }
-
-    @Override
-    public void setExceptionHandler (ClassFile cf, Object tag, int handlerIndex,
-            int startPc, int endPc, int handlerPc, String catchType) {
-      ExceptionHandler xh = new ExceptionHandler(catchType, startPc, endPc, handlerPc);
-      handlers[handlerIndex] = xh;
-    }
-
-    @Override
-    public void setExceptionHandlerTableDone (ClassFile cf, Object tag) {
-      curMi.setExceptionHandlers(handlers);
-    }
-
-    //--- current method code  
-    @Override
-    public void setCode (ClassFile cf, Object tag, int maxStack, int maxLocals, int codeLength) {
-      curMi.setMaxLocals(maxLocals);
-      curMi.setMaxStack(maxStack);
-
-      cb.reset(cf, curMi);
-
-      cf.parseBytecode(cb, tag, codeLength);
-      cb.installCode();
-    }
-
-    @Override
-    public void setCodeAttribute (ClassFile cf, Object tag, int attrIndex, String name, int attrLength) {
-      if (name == ClassFile.LINE_NUMBER_TABLE_ATTR) {
-        cf.parseLineNumberTableAttr(this, tag);
-
-      } else if (name == ClassFile.LOCAL_VAR_TABLE_ATTR) {
-        cf.parseLocalVarTableAttr(this, tag);
-      }
-    }
-
-    //--- current method line numbers
-    protected int[] lines, startPcs;
-
-    @Override
-    public void setLineNumberTableCount (ClassFile cf, Object tag, int lineNumberCount) {
-      lines = new int[lineNumberCount];
-      startPcs = new int[lineNumberCount];
-    }
-
-    @Override
-    public void setLineNumber (ClassFile cf, Object tag, int lineIndex, int lineNumber, int startPc) {
-      lines[lineIndex] = lineNumber;
-      startPcs[lineIndex] = startPc;
-    }
-
-    @Override
-    public void setLineNumberTableDone (ClassFile cf, Object tag) {
-      curMi.setLineNumbers(lines, startPcs);
-    }
-    
-    //--- current method local variables
-    protected LocalVarInfo[] localVars;
-
-    @Override
-    public void setLocalVarTableCount (ClassFile cf, Object tag, int localVarCount) {
-      localVars = new LocalVarInfo[localVarCount];
-    }
-
-    @Override
-    public void setLocalVar (ClassFile cf, Object tag, int localVarIndex,
-            String varName, String descriptor, int scopeStartPc, int scopeEndPc, int slotIndex) {
-      LocalVarInfo lvi = new LocalVarInfo(varName, descriptor, "", scopeStartPc, scopeEndPc, slotIndex);
-      localVars[localVarIndex] = lvi;
-    }
-
-    @Override
-    public void setLocalVarTableDone (ClassFile cf, Object tag) {
-      curMi.setLocalVarTable(localVars);
-    }
     
     //--- annotations
     protected AnnotationInfo[] annotations;
@@ -55,6 +55,15 @@ public class JVMCodeBuilder implements JVMByteCodeReader {
 
   // flag to remember wide immediate operand modification
   boolean isWide;
+
+  // do we want the insnFactory to create superinstructions
+  protected boolean fuseInstructions;
+
+  // do we want the insnFactory to mark insns that can't be scheduling relevant
+  protected boolean markLocalInstructions;
+
+  // do we defer code creation of parsed methods until their code is accessed
+  protected boolean lazyCode;
   
   //--- for testing purposes
   protected JVMCodeBuilder (JVMInstructionFactory ifact){
@@ -86,9 +95,32 @@ public class JVMCodeBuilder implements JVMByteCodeReader {
     code.add(insn);
   }
 
+  public void setFuseInstructions (boolean cond){
+    fuseInstructions = cond;
+  }
+
+  public void setMarkLocalInstructions (boolean cond){
+    markLocalInstructions = cond;
+  }
+
+  public void setLazyCode (boolean cond){
+    lazyCode = cond;
+  }
+
+  public boolean isLazyCode(){
+    return lazyCode;
+  }
+
   public void installCode(){
     Instruction[] a = code.toArray( new Instruction[code.size()]);
     mi.setCode(a);
+
+    if (fuseInstructions){
+      mi.setFusedCode( insnFactory.createFusedCode(a));
+    }
+    if (markLocalInstructions){
+      mi.setLocalCode( insnFactory.createLocalCodeMap(a));
+    }
   }
   
   //--- the factory methods
@@ -20,6 +20,7 @@ package gov.nasa.jpf.jvm;
 
 import gov.nasa.jpf.util.Invocation;
 import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.FusedInstruction;
 import gov.nasa.jpf.vm.Instruction;
 import gov.nasa.jpf.vm.MethodInfo;
 import gov.nasa.jpf.vm.NativeMethodInfo;
@@ -479,4 +480,25 @@ public abstract class JVMInstructionFactory implements Cloneable {
 
   // this is never part of MethodInfo stored code
   abstract public Instruction runstart (MethodInfo miRun);
+
+  /**
+   * optional superinstruction pass that is called once the code of a method
+   * is complete. Return null if there is nothing to fuse, otherwise an array
+   * of the same length as 'code' that has FusedInstructions at the indices
+   * of the first instructions of fused sequences
+   */
+  public FusedInstruction[] createFusedCode (Instruction[] code){
+    return null;
+  }
+
+  /**
+   * optional analysis pass that is called once the code of a method is
+   * complete. Return null if there are no such instructions, otherwise an
+   * array of the same length as 'code' that is true for all instructions
+   * that only operate on the top StackFrame and can't be scheduling relevant
+   * (no heap access, no monitors, no invokes, no exceptions)
+   */
+  public boolean[] createLocalCodeMap (Instruction[] code){
+    return null;
+  }
 }
@@ -40,6 +40,11 @@ public class JVMNativeStackFrame extends NativeStackFrame {
     int      nArgs = nmi.getNumberOfArguments();
     byte[]   argTypes = nmi.getArgumentTypes();
 
+    if (nmi.hasSlotInvoker()){
+      setSlotArguments(ti, callerFrame, nmi, nArgs);
+      return;
+    }
+
     Object[] a = new Object[nArgs+2];
 
     int      stackOffset;
@@ -125,4 +130,27 @@ public class JVMNativeStackFrame extends NativeStackFrame {
 
     setArgs(a);
   }
+
+  /**
+   * all arguments are single slot values, which we just copy since the
+   * native method can be called without boxing them
+   */
+  protected void setSlotArguments (ThreadInfo ti, StackFrame callerFrame, NativeMethodInfo nmi, int nArgs){
+    int[] a = new int[nArgs+1];
+
+    for (int i = 0, j = nArgs; i < nArgs; i++, j--) {
+      a[j] = callerFrame.peek(i);
+    }
+
+    if (nmi.isStatic()) {
+      a[0] = nmi.getClassInfo().getClassObjectRef();
+    } else {
+      int thisRef = callerFrame.getCalleeThis(nmi);
+      a[0] = thisRef;
+
+      setThis(thisRef);
+    }
+
+    setSlotArgs(ti.getMJIEnv(), a);
+  }
 }
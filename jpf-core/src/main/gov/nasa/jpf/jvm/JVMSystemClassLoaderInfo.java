@@ -55,7 +55,11 @@ public class JVMSystemClassLoaderInfo extends SystemClassLoaderInfo {
   protected JVMCodeBuilder createDefaultCodeBuilder (Config config, int appId) {
     String key = config.getIndexableKey("jvm.insn_factory.class", appId);
     JVMInstructionFactory insnFactory = config.getEssentialInstance(key, JVMInstructionFactory.class);
-    return new JVMCodeBuilder(insnFactory);
+    JVMCodeBuilder cb = new JVMCodeBuilder(insnFactory);
+    cb.setFuseInstructions(config.getBoolean("jvm.superinstructions", false));
+    cb.setMarkLocalInstructions(config.getBoolean("jvm.local_fastpath", false));
+    cb.setLazyCode(config.getBoolean("jvm.lazy_code", true));
+    return cb;
   }
 
   @Override
@@ -82,7 +86,11 @@ public class JVMSystemClassLoaderInfo extends SystemClassLoaderInfo {
       jarFile = new File(jarPath);
       if (jarFile.isFile()) {
         try {
-          return new JarClassFileContainer(jarFile, pathPrefix);
+          if (config.getBoolean("jvm.jar_index", true)) {
+            return new IndexedJarClassFileContainer(jarFile, pathPrefix);
+          } else {
+            return new JarClassFileContainer(jarFile, pathPrefix);
+          }
         } catch (IOException ix) {
           return null;
         }
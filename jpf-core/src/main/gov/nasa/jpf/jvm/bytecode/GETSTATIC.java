@@ -60,7 +60,7 @@ public class GETSTATIC extends JVMStaticFieldInstruction  implements ReadInstruc
       // this can be actually different (can be a base)
       ciField = fieldInfo.getClassInfo();
 
-      if (!mi.isClinit(ciField) && ciField.pushRequiredClinits(ti)) {
+      if (pushRequiredClinits(ti)) {
         // note - this returns the next insn in the topmost clinit that just got pushed
         return ti.getPC();
       }
@@ -0,0 +1,68 @@
+//
+// Copyright (C) 2014 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.jvm.bytecode;
+
+import gov.nasa.jpf.vm.FusedInstruction;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+
+/**
+ * superinstruction for comparing two int locals, which is the typical
+ * loop condition
+ *
+ * we still set the conditionValue of the IfInstruction part since
+ * listeners might look at it later on
+ */
+public class ILOAD_ILOAD_IF_ICMP extends FusedInstruction {
+
+  protected int index1;
+  protected int index2;
+
+  public ILOAD_ILOAD_IF_ICMP (ILOAD load1, ILOAD load2, IfInstruction ifInsn){
+    super(load1, load2, ifInsn);
+
+    index1 = load1.getLocalVariableIndex();
+    index2 = load2.getLocalVariableIndex();
+  }
+
+  public static boolean isFusableBranch (Instruction insn){
+    Class<?> cls = insn.getClass();
+    return (cls == IF_ICMPEQ.class) || (cls == IF_ICMPNE.class) || (cls == IF_ICMPLT.class)
+        || (cls == IF_ICMPGE.class) || (cls == IF_ICMPGT.class) || (cls == IF_ICMPLE.class);
+  }
+
+  @Override
+  public Instruction execute (ThreadInfo ti) {
+    StackFrame frame = ti.getModifiableTopFrame();
+    IfInstruction ifInsn = (IfInstruction)parts[2];
+
+    frame.pushLocal(index1);
+    frame.pushLocal(index2);
+
+    boolean cond = ifInsn.popConditionValue(frame);
+    ifInsn.conditionValue = cond;
+
+    if (cond) {
+      return ifInsn.getTarget();
+    } else {
+      return ifInsn.getNext();
+    }
+  }
+}
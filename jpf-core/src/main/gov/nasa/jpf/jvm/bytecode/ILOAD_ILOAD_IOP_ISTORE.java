@@ -0,0 +1,86 @@
+//
+// Copyright (C) 2014 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.jvm.bytecode;
+
+import gov.nasa.jpf.vm.FusedInstruction;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.ThreadInfo;
+
+/**
+ * superinstruction for 'x = a op b' on int locals, where op is a binary
+ * int operation that can't throw (i.e. not IDIV or IREM)
+ *
+ * we go through the same StackFrame operations as the single instructions,
+ * to keep operand attributes and reference flags identical
+ */
+public class ILOAD_ILOAD_IOP_ISTORE extends FusedInstruction {
+
+  protected int index1;
+  protected int index2;
+  protected int opCode;
+  protected int storeIndex;
+
+  public ILOAD_ILOAD_IOP_ISTORE (ILOAD load1, ILOAD load2, Instruction op, ISTORE store){
+    super(load1, load2, op, store);
+
+    index1 = load1.getLocalVariableIndex();
+    index2 = load2.getLocalVariableIndex();
+    opCode = op.getByteCode();
+    storeIndex = store.getLocalVariableIndex();
+  }
+
+  public static boolean isFusableOperation (Instruction insn){
+    Class<?> cls = insn.getClass();
+    return (cls == IADD.class) || (cls == ISUB.class) || (cls == IMUL.class)
+        || (cls == IAND.class) || (cls == IOR.class) || (cls == IXOR.class)
+        || (cls == ISHL.class) || (cls == ISHR.class) || (cls == IUSHR.class);
+  }
+
+  @Override
+  public Instruction execute (ThreadInfo ti) {
+    StackFrame frame = ti.getModifiableTopFrame();
+
+    frame.pushLocal(index1);
+    frame.pushLocal(index2);
+
+    int v1 = frame.pop();
+    int v2 = frame.pop();
+    int r;
+
+    switch (opCode){
+    case 0x60: r = v2 + v1; break;   // IADD
+    case 0x64: r = v2 - v1; break;   // ISUB
+    case 0x68: r = v2 * v1; break;   // IMUL
+    case 0x78: r = v2 << v1; break;  // ISHL
+    case 0x7a: r = v2 >> v1; break;  // ISHR
+    case 0x7c: r = v2 >>> v1; break; // IUSHR
+    case 0x7e: r = v2 & v1; break;   // IAND
+    case 0x80: r = v2 | v1; break;   // IOR
+    case 0x82: r = v2 ^ v1; break;   // IXOR
+    default:
+      throw new IllegalStateException("not a fusable operation: " + parts[2]);
+    }
+
+    frame.push(r);
+    frame.storeOperand(storeIndex);
+
+    return parts[3].getNext();
+  }
+}
@@ -23,10 +23,12 @@ import gov.nasa.jpf.JPFException;
 import gov.nasa.jpf.jvm.JVMInstructionFactory;
 import gov.nasa.jpf.util.Invocation;
 import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.FusedInstruction;
 import gov.nasa.jpf.vm.Instruction;
 import gov.nasa.jpf.vm.MethodInfo;
 import gov.nasa.jpf.vm.NativeMethodInfo;
 
+import java.util.HashSet;
 import java.util.List;
 
 /**
@@ -34,6 +36,36 @@ import java.util.List;
  */
 public class InstructionFactory extends JVMInstructionFactory {
 
+  /**
+   * the concrete insn types that only operate on the operand stack and locals
+   * of the top frame, and neither throw nor create ChoiceGenerators. Note
+   * that IDIV, IREM, LDIV, LREM, FREM and DREM can throw ArithmeticExceptions
+   */
+  protected static final HashSet<Class<? extends Instruction>> localInsnTypes = new HashSet<Class<? extends Instruction>>();
+  static {
+    Class<?>[] types = {
+      NOP.class, ACONST_NULL.class, ICONST.class, LCONST.class, FCONST.class, DCONST.class, BIPUSH.class, SIPUSH.class,
+      ILOAD.class, LLOAD.class, FLOAD.class, DLOAD.class, ALOAD.class,
+      ISTORE.class, LSTORE.class, FSTORE.class, DSTORE.class, ASTORE.class, IINC.class,
+      POP.class, POP2.class, DUP.class, DUP_X1.class, DUP_X2.class, DUP2.class, DUP2_X1.class, DUP2_X2.class, SWAP.class,
+      IADD.class, LADD.class, FADD.class, DADD.class, ISUB.class, LSUB.class, FSUB.class, DSUB.class,
+      IMUL.class, LMUL.class, FMUL.class, DMUL.class, FDIV.class, DDIV.class,
+      INEG.class, LNEG.class, FNEG.class, DNEG.class,
+      ISHL.class, LSHL.class, ISHR.class, LSHR.class, IUSHR.class, LUSHR.class,
+      IAND.class, LAND.class, IOR.class, LOR.class, IXOR.class, LXOR.class,
+      I2L.class, I2F.class, I2D.class, L2I.class, L2F.class, L2D.class, F2I.class, F2L.class, F2D.class,
+      D2I.class, D2L.class, D2F.class, I2B.class, I2C.class, I2S.class,
+      LCMP.class, FCMPL.class, FCMPG.class, DCMPL.class, DCMPG.class,
+      IFEQ.class, IFNE.class, IFLT.class, IFGE.class, IFGT.class, IFLE.class,
+      IF_ICMPEQ.class, IF_ICMPNE.class, IF_ICMPLT.class, IF_ICMPGE.class, IF_ICMPGT.class, IF_ICMPLE.class,
+      IF_ACMPEQ.class, IF_ACMPNE.class, IFNULL.class, IFNONNULL.class,
+      GOTO.class, GOTO_W.class, TABLESWITCH.class, LOOKUPSWITCH.class
+    };
+    for (Class<?> t : types){
+      localInsnTypes.add(t.asSubclass(Instruction.class));
+    }
+  }
+
   public InstructionFactory(){
     // nothing here
   }
@@ -1109,4 +1141,67 @@ public class InstructionFactory extends JVMInstructionFactory {
     return new RUNSTART();
   }
 
+
+  //--- superinstructions
+
+  /**
+   * we only fuse sequences of our own concrete instruction classes that
+   * operate on locals of the top frame, which can't throw exceptions or
+   * register ChoiceGenerators. Subclasses of the single insn types (e.g.
+   * symbolic ones) are never fused, and neither are field or array accesses
+   * since those can be scheduling relevant
+   */
+  @Override
+  public FusedInstruction[] createFusedCode (Instruction[] code){
+    FusedInstruction[] fused = null;
+    int len = code.length;
+
+    for (int i=0; i<len; i++){
+      FusedInstruction fi = null;
+      Instruction insn = code[i];
+      Class<?> cls = insn.getClass();
+
+      if (cls == ILOAD.class && (i+2 < len) && code[i+1].getClass() == ILOAD.class){
+        Instruction next = code[i+2];
+
+        if (ILOAD_ILOAD_IOP_ISTORE.isFusableOperation(next) && (i+3 < len) && code[i+3].getClass() == ISTORE.class){
+          fi = new ILOAD_ILOAD_IOP_ISTORE((ILOAD)insn, (ILOAD)code[i+1], next, (ISTORE)code[i+3]);
+        } else if (ILOAD_ILOAD_IF_ICMP.isFusableBranch(next)){
+          fi = new ILOAD_ILOAD_IF_ICMP((ILOAD)insn, (ILOAD)code[i+1], (IfInstruction)next);
+        }
+
+      } else if (cls == IINC.class && (i+1 < len) && code[i+1].getClass() == GOTO.class){
+        fi = new IINC_GOTO((IINC)insn, (GOTO)code[i+1]);
+      }
+
+      if (fi != null){
+        if (fused == null){
+          fused = new FusedInstruction[len];
+        }
+        fused[i] = fi;
+      }
+    }
+
+    return fused;
+  }
+
+  /**
+   * we only check for exact types since derived insns (e.g. symbolic ones)
+   * might create ChoiceGenerators
+   */
+  @Override
+  public boolean[] createLocalCodeMap (Instruction[] code){
+    boolean[] map = null;
+
+    for (int i=0; i<code.length; i++){
+      if (localInsnTypes.contains(code[i].getClass())){
+        if (map == null){
+          map = new boolean[code.length];
+        }
+        map[i] = true;
+      }
+    }
+
+    return map;
+  }
 }
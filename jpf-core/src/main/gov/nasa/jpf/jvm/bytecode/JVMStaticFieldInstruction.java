@@ -46,6 +46,7 @@ public abstract class JVMStaticFieldInstruction extends StaticFieldInstruction i
       // reset the method that this insn belongs to
       clone.mi = mi;
       clone.fi = null; // ClassInfo is going to be different
+      clone.initVersion = -1;
       
     } catch (CloneNotSupportedException e) {
       e.printStackTrace();
@@ -25,6 +25,7 @@ import gov.nasa.jpf.vm.Heap;
 import gov.nasa.jpf.vm.Instruction;
 import gov.nasa.jpf.vm.LoadOnJPFRequired;
 import gov.nasa.jpf.vm.MJIEnv;
+import gov.nasa.jpf.vm.MethodInfo;
 import gov.nasa.jpf.vm.StackFrame;
 import gov.nasa.jpf.vm.ThreadInfo;
 import gov.nasa.jpf.vm.Types;
@@ -38,6 +39,11 @@ public class NEW extends NewInstruction implements JVMInstruction  {
   protected String cname;
   protected int newObjRef = MJIEnv.NULL;
 
+  // link time cache of the resolved class, and the ClassInfo.initStatusVersion
+  // at which it was known to be initialized
+  protected ClassInfo ci;
+  protected int initVersion = -1;
+
   public NEW (String clsDescriptor){
     cname = Types.getClassNameFromTypeName(clsDescriptor);
   }
@@ -49,23 +55,33 @@ public class NEW extends NewInstruction implements JVMInstruction  {
   @Override
   public Instruction execute (ThreadInfo ti) {
     Heap heap = ti.getHeap();
-    ClassInfo ci;
+    ClassInfo ci = this.ci;
+
+    // the steady state - resolved, and initialized since the last state restore
+    if (ci == null || initVersion != ClassInfo.getInitStatusVersion()) {
+      // resolve the referenced class
+      if (ci == null) {
+        try {
+          ci = ti.resolveReferencedClass(cname);
+        } catch(LoadOnJPFRequired lre) {
+          return ti.getPC();
+        }
+        this.ci = ci;
+      }
 
-    // resolve the referenced class
-    try {
-      ci = ti.resolveReferencedClass(cname);
-    } catch(LoadOnJPFRequired lre) {
-      return ti.getPC();
-    }
+      if (!ci.isRegistered()){
+        ci.registerClass(ti);
+      }
 
-    if (!ci.isRegistered()){
-      ci.registerClass(ti);
-    }
+      // since this is a NEW, we also have to pushClinit
+      if (!ci.isInitialized()) {
+        if (ci.initializeClass(ti)) {
+          return ti.getPC();  // reexecute this instruction once we return from the clinits
+        }
+      }
 
-    // since this is a NEW, we also have to pushClinit
-    if (!ci.isInitialized()) {
-      if (ci.initializeClass(ti)) {
-        return ti.getPC();  // reexecute this instruction once we return from the clinits
+      if (ci.isInitialized()) {
+        initVersion = ClassInfo.getInitStatusVersion();
       }
     }
 
@@ -97,6 +113,17 @@ public class NEW extends NewInstruction implements JVMInstruction  {
 	  insVisitor.visit(this);
   }
 
+  @Override
+  public Instruction typeSafeClone(MethodInfo mi) {
+    NEW clone = (NEW) super.typeSafeClone(mi);
+
+    // the clone belongs to a different ClassInfo, which might resolve differently
+    clone.ci = null;
+    clone.initVersion = -1;
+
+    return clone;
+  }
+
   public int getNewObjectRef() {
     return newObjRef;
   }
@@ -70,7 +70,7 @@ public class PUTSTATIC extends JVMStaticFieldInstruction implements WriteInstruc
       
       // handle static class initialization
       ClassInfo ciField = fi.getClassInfo();
-      if (!mi.isClinit(ciField) && ciField.pushRequiredClinits(ti)) {
+      if (pushRequiredClinits(ti)) {
         // note - this returns the next insn in the topmost clinit that just got pushed
         return ti.getPC();
       }
@@ -38,6 +38,14 @@ public abstract class VirtualInvocation extends InstanceInvocation {
   
   ClassInfo lastCalleeCi; // cached for performance
 
+  // our polymorphic inline cache for call sites with changing receiver types.
+  // Entries are replaced round robin, and flushed if methods got replaced
+  static final int PIC_SIZE = 4;
+  ClassInfo[] picClasses;
+  MethodInfo[] picMethods;
+  int picNext;
+  int picVersion;
+
   protected VirtualInvocation () {}
 
   protected VirtualInvocation (String clsDescriptor, String methodName, String signature){
@@ -129,9 +137,9 @@ public abstract class VirtualInvocation extends InstanceInvocation {
 
       ClassInfo cci = ti.getClassInfo(objRef);
 
-      if (lastCalleeCi != cci) { // callee ClassInfo has changed
+      if (lastCalleeCi != cci || picVersion != ClassInfo.getMethodTableVersion()) { // callee ClassInfo has changed
         lastCalleeCi = cci;
-        invokedMethod = cci.getMethod(mname, true);
+        invokedMethod = lookupMethod(cci);
 
         // here we could catch the NoSuchMethodError
         if (invokedMethod == null) {
@@ -149,6 +157,35 @@ public abstract class VirtualInvocation extends InstanceInvocation {
     return invokedMethod;
   }
 
+  protected MethodInfo lookupMethod (ClassInfo cci) {
+    ClassInfo[] classes = picClasses;
+    int version = ClassInfo.getMethodTableVersion();
+
+    if (classes == null || picVersion != version) {
+      classes = picClasses = new ClassInfo[PIC_SIZE];
+      picMethods = new MethodInfo[PIC_SIZE];
+      picNext = 0;
+      picVersion = version;
+
+    } else {
+      for (int i = 0; i < PIC_SIZE; i++) {
+        if (classes[i] == cci) {
+          return picMethods[i];
+        }
+      }
+    }
+
+    MethodInfo mi = cci.getVirtualMethod(mname);
+    if (mi != null) {
+      int i = picNext;
+      classes[i] = cci;
+      picMethods[i] = mi;
+      picNext = (i + 1) % PIC_SIZE;
+    }
+
+    return mi;
+  }
+
   public Object getFieldValue (String id, ThreadInfo ti){
     int objRef = getCalleeThis(ti);
     ElementInfo ei = ti.getElementInfo(objRef);
@@ -178,6 +215,8 @@ public abstract class VirtualInvocation extends InstanceInvocation {
 
       clone.lastCalleeCi = null;
       clone.invokedMethod = null;
+      clone.picClasses = null;
+      clone.picMethods = null;
     } catch (CloneNotSupportedException e) {
       e.printStackTrace();
     }
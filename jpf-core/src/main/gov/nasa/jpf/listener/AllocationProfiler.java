@@ -0,0 +1,430 @@
+//
+// Copyright (C) 2014 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.listener;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.report.ConsolePublisher;
+import gov.nasa.jpf.report.Publisher;
+import gov.nasa.jpf.util.IntVector;
+import gov.nasa.jpf.util.StringSetMatcher;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.ElementInfo;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.StackFrame;
+import gov.nasa.jpf.vm.SurvivalAction;
+import gov.nasa.jpf.vm.ThreadInfo;
+import gov.nasa.jpf.vm.VM;
+
+import java.io.FileNotFoundException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * listener that aggregates SUT allocations by allocation site, i.e. by the
+ * (MethodInfo global id, instruction index) pairs of the top 'alloc.stack_depth'
+ * frames of the allocating thread.
+ *
+ * Only allocations that happen while SUT code is executing are counted, i.e.
+ * the stack of the allocating thread has to contain a method of a class that
+ * matches 'alloc.include' and doesn't match 'alloc.exclude' (by default all
+ * classes except of the standard library and the JPF model and test classes).
+ * Allocations of library code called by the SUT are counted, startup and
+ * system class initialization are not.
+ *
+ * In contrast to HeapTracker and ObjectTracker, we don't create any objects per
+ * allocation - sites are kept in a primitive open hash table, and all counters
+ * are stored in arrays indexed by site. Each allocated object gets the shared
+ * Site attribute of its allocation site, which counts the live objects and bytes
+ * of this site while the heap sweeps. The attribute is restored together with
+ * its object upon backtracking, and we don't have to walk the heap ourselves.
+ *
+ * The result is published as a table of the top 'alloc.max_sites' sites, and
+ * can be written as a flame graph compatible folded stack file to 'alloc.folded_file',
+ * with the metric being one of 'count', 'bytes' or 'live' ('alloc.folded_metric')
+ */
+public class AllocationProfiler extends ListenerAdapter {
+
+  static final int NO_SITE = 0; // siteTable values are site index + 1
+
+  /**
+   * the object attribute of all objects allocated at the same site
+   */
+  class Site implements SurvivalAction {
+    int siteIdx;
+
+    Site (int siteIdx) {
+      this.siteIdx = siteIdx;
+    }
+
+    @Override
+    public void survived (ElementInfo ei) {
+      nLive[siteIdx]++;
+      liveBytes[siteIdx] += ei.getHeapSize();
+    }
+  }
+
+  int stackDepth;
+  int maxSitesShown;
+  String foldedFile;
+  String foldedMetric;
+
+  StringSetMatcher includes, excludes;
+
+  // per MethodInfo global id: 0 not yet checked, 1 SUT code, 2 other code
+  byte[] sutMethods = new byte[4096];
+
+  //--- the site table
+  int[] siteTable = new int[1024]; // open hash table of site index + 1
+  int nSites;
+  int[] siteHash = new int[256];
+  int[] frameOffset = new int[256];
+  int[] frameLength = new int[256];
+  Site[] sites = new Site[256];
+  IntVector frames = new IntVector(1024); // (method global id, insn index) pairs
+
+  //--- the per site counters
+  long[] nAlloc = new long[256];
+  long[] nBytes = new long[256];
+  int[] nLive = new int[256];
+  long[] liveBytes = new long[256];
+  int[] maxLive = new int[256];
+  long[] maxLiveBytes = new long[256];
+
+  public AllocationProfiler (Config config, JPF jpf) {
+    stackDepth = config.getInt("alloc.stack_depth", 4);
+    maxSitesShown = config.getInt("alloc.max_sites", 20);
+    foldedFile = config.getString("alloc.folded_file");
+    foldedMetric = config.getString("alloc.folded_metric", "count");
+
+    includes = StringSetMatcher.getNonEmpty(config.getStringArray("alloc.include"));
+    excludes = StringSetMatcher.getNonEmpty(config.getStringArray("alloc.exclude",
+            new String[] { "java.*", "javax.*", "sun.*", "com.sun.*", "gov.nasa.jpf.vm.*", "gov.nasa.jpf.util.test.*" }));
+
+    jpf.addPublisherExtension(ConsolePublisher.class, this);
+  }
+
+  //--- SUT filtering
+
+  boolean isSutMethod (MethodInfo mi) {
+    int id = mi.getGlobalId();
+    if (id < 0) {
+      return false;
+    }
+    if (id >= sutMethods.length) {
+      sutMethods = Arrays.copyOf(sutMethods, Math.max(id + 1, sutMethods.length * 2));
+    }
+
+    byte b = sutMethods[id];
+    if (b == 0) {
+      ClassInfo ci = mi.getClassInfo();
+      b = (ci != null && StringSetMatcher.isMatch(ci.getName(), includes, excludes)) ? (byte) 1 : (byte) 2;
+      sutMethods[id] = b;
+    }
+    return (b == 1);
+  }
+
+  /**
+   * is SUT code on the stack of the allocating thread. This is usually decided
+   * by the top frame
+   */
+  boolean isSutAllocation (ThreadInfo ti) {
+    if (ti != null) {
+      for (StackFrame frame = ti.getTopFrame(); frame != null; frame = frame.getPrevious()) {
+        MethodInfo mi = frame.getMethodInfo();
+        if (mi != null && isSutMethod(mi)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  //--- site management
+
+  static int hashFrame (int h, int mthId, int insnIdx) {
+    h = 31*h + mthId;
+    return 31*h + insnIdx;
+  }
+
+  static int getMethodId (StackFrame frame) {
+    MethodInfo mi = frame.getMethodInfo();
+    return (mi != null) ? mi.getGlobalId() : -1;
+  }
+
+  static int getInsnIndex (StackFrame frame) {
+    Instruction pc = frame.getPC();
+    return (pc != null) ? pc.getInstructionIndex() : -1;
+  }
+
+  boolean isSameSite (int siteIdx, StackFrame top) {
+    IntVector f = frames;
+    int len = frameLength[siteIdx];
+    int j = frameOffset[siteIdx];
+    int n = 0;
+
+    for (StackFrame frame = top; frame != null && n < stackDepth; frame = frame.getPrevious(), n++) {
+      if (n == len || f.get(j++) != getMethodId(frame) || f.get(j++) != getInsnIndex(frame)) {
+        return false;
+      }
+    }
+
+    return (n == len);
+  }
+
+  /**
+   * this is called for each allocation, hence it has to avoid creating objects
+   * unless we see a new site
+   */
+  int getSiteIndex (ThreadInfo ti) {
+    StackFrame top = (ti != null) ? ti.getTopFrame() : null;
+
+    int h = 0;
+    int n = 0;
+    for (StackFrame frame = top; frame != null && n < stackDepth; frame = frame.getPrevious(), n++) {
+      h = hashFrame(h, getMethodId(frame), getInsnIndex(frame));
+    }
+
+    int mask = siteTable.length - 1;
+    int i = h & mask;
+    for (int s = siteTable[i]; s != NO_SITE; s = siteTable[i]) {
+      int siteIdx = s - 1;
+      if (siteHash[siteIdx] == h && isSameSite(siteIdx, top)) {
+        return siteIdx;
+      }
+      i = (i + 1) & mask;
+    }
+
+    //--- new site
+    int siteIdx = nSites++;
+    ensureSiteCapacity(nSites);
+
+    siteHash[siteIdx] = h;
+    frameOffset[siteIdx] = frames.size();
+    frameLength[siteIdx] = n;
+    sites[siteIdx] = new Site(siteIdx);
+    n = 0;
+    for (StackFrame frame = top; frame != null && n < stackDepth; frame = frame.getPrevious(), n++) {
+      frames.add(getMethodId(frame));
+      frames.add(getInsnIndex(frame));
+    }
+
+    siteTable[i] = siteIdx + 1;
+    if (nSites > siteTable.length/2) {
+      rehash();
+    }
+
+    return siteIdx;
+  }
+
+  void rehash() {
+    int[] newTable = new int[siteTable.length * 2];
+    int mask = newTable.length - 1;
+
+    for (int siteIdx = 0; siteIdx < nSites; siteIdx++) {
+      int i = siteHash[siteIdx] & mask;
+      while (newTable[i] != NO_SITE) {
+        i = (i + 1) & mask;
+      }
+      newTable[i] = siteIdx + 1;
+    }
+
+    siteTable = newTable;
+  }
+
+  void ensureSiteCapacity (int n) {
+    if (n > siteHash.length) {
+      int newLen = siteHash.length * 2;
+
+      siteHash = Arrays.copyOf(siteHash, newLen);
+      frameOffset = Arrays.copyOf(frameOffset, newLen);
+      frameLength = Arrays.copyOf(frameLength, newLen);
+      sites = Arrays.copyOf(sites, newLen);
+
+      nAlloc = Arrays.copyOf(nAlloc, newLen);
+      nBytes = Arrays.copyOf(nBytes, newLen);
+      nLive = Arrays.copyOf(nLive, newLen);
+      liveBytes = Arrays.copyOf(liveBytes, newLen);
+      maxLive = Arrays.copyOf(maxLive, newLen);
+      maxLiveBytes = Arrays.copyOf(maxLiveBytes, newLen);
+    }
+  }
+
+  //--- VMListener interface
+
+  @Override
+  public void objectCreated (VM vm, ThreadInfo ti, ElementInfo ei) {
+    if (!isSutAllocation(ti)) {
+      return;
+    }
+
+    int siteIdx = getSiteIndex(ti);
+
+    nAlloc[siteIdx]++;
+    nBytes[siteIdx] += ei.getHeapSize();
+
+    ei.addObjectAttr(sites[siteIdx]);
+  }
+
+  /**
+   * live counts are re-computed by each sweep since objects can be resurrected
+   * by backtracking without us being notified
+   */
+  @Override
+  public void gcBegin (VM vm) {
+    Arrays.fill(nLive, 0, nSites, 0);
+    Arrays.fill(liveBytes, 0, nSites, 0L);
+  }
+
+  @Override
+  public void gcEnd (VM vm) {
+    for (int siteIdx = 0; siteIdx < nSites; siteIdx++) {
+      if (nLive[siteIdx] > maxLive[siteIdx]) {
+        maxLive[siteIdx] = nLive[siteIdx];
+      }
+      if (liveBytes[siteIdx] > maxLiveBytes[siteIdx]) {
+        maxLiveBytes[siteIdx] = liveBytes[siteIdx];
+      }
+    }
+  }
+
+  //--- reporting
+
+  public int getNumberOfSites() {
+    return nSites;
+  }
+
+  public long getNumberOfAllocations (int siteIdx) {
+    return nAlloc[siteIdx];
+  }
+
+  public int getMaxLive (int siteIdx) {
+    return maxLive[siteIdx];
+  }
+
+  String getFrameName (int mthId, int insnIdx) {
+    MethodInfo mi = MethodInfo.getMethodInfo(mthId);
+    if (mi == null) {
+      return "<synthetic>";
+    }
+
+    String name = mi.getStackTraceName();
+    if (insnIdx >= 0 && insnIdx < mi.getNumberOfInstructions()) {
+      int line = mi.getInstruction(insnIdx).getLineNumber();
+      if (line > 0) {
+        return name + ':' + line;
+      }
+    }
+    return name;
+  }
+
+  public String getSiteName (int siteIdx) {
+    if (frameLength[siteIdx] == 0) {
+      return "<vm>";
+    }
+    int j = frameOffset[siteIdx];
+    return getFrameName(frames.get(j), frames.get(j+1));
+  }
+
+  /**
+   * folded stacks are root first, separated by ';'
+   */
+  String getFoldedStack (int siteIdx) {
+    int len = frameLength[siteIdx];
+    if (len == 0) {
+      return "<vm>";
+    }
+
+    StringBuilder sb = new StringBuilder();
+    int j = frameOffset[siteIdx];
+    for (int k = len - 1; k >= 0; k--) {
+      if (sb.length() > 0) {
+        sb.append(';');
+      }
+      int i = j + 2*k;
+      // folded stack files use blanks to separate the count
+      sb.append(getFrameName(frames.get(i), frames.get(i+1)).replace(' ', '_'));
+    }
+    return sb.toString();
+  }
+
+  long getFoldedValue (int siteIdx) {
+    if ("bytes".equals(foldedMetric)) {
+      return nBytes[siteIdx];
+    } else if ("live".equals(foldedMetric)) {
+      return maxLiveBytes[siteIdx];
+    } else {
+      return nAlloc[siteIdx];
+    }
+  }
+
+  void writeFoldedStacks () {
+    try {
+      PrintWriter pw = new PrintWriter(foldedFile);
+      for (int siteIdx = 0; siteIdx < nSites; siteIdx++) {
+        long v = getFoldedValue(siteIdx);
+        if (v > 0) {
+          pw.print(getFoldedStack(siteIdx));
+          pw.print(' ');
+          pw.println(v);
+        }
+      }
+      pw.close();
+
+    } catch (FileNotFoundException fnfx) {
+      System.err.println("cannot write allocation profile to file: " + foldedFile);
+    }
+  }
+
+  @Override
+  public void publishFinished (Publisher publisher) {
+    PrintWriter pw = publisher.getOut();
+    publisher.publishTopicStart("allocation sites");
+
+    Integer[] sorted = new Integer[nSites];
+    for (int i = 0; i < nSites; i++) {
+      sorted[i] = i;
+    }
+    Arrays.sort(sorted, new Comparator<Integer>() {
+      public int compare (Integer s1, Integer s2) {
+        return Long.signum(nBytes[s2] - nBytes[s1]);
+      }
+    });
+
+    pw.println("     allocs       bytes   max live  max live B  site");
+    for (int i = 0; i < sorted.length && i < maxSitesShown; i++) {
+      int siteIdx = sorted[i];
+      pw.print(String.format("%1$11d %2$11d  ", nAlloc[siteIdx], nBytes[siteIdx]));
+      pw.print(String.format("%1$9d %2$11d  ", maxLive[siteIdx], maxLiveBytes[siteIdx]));
+      pw.println(getSiteName(siteIdx));
+    }
+    if (sorted.length > maxSitesShown) {
+      pw.println("  ...");
+    }
+
+    if (foldedFile != null) {
+      writeFoldedStacks();
+      pw.println();
+      pw.println("folded allocation stacks written to: " + foldedFile);
+    }
+  }
+}
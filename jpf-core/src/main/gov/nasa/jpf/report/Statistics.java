@@ -93,11 +93,6 @@ public class Statistics extends ListenerAdapter implements Cloneable {
     gcCycles++;
   }
   
-  @Override
-  public void instructionExecuted (VM vm, ThreadInfo ti, Instruction nextInsn, Instruction executedInsn){
-    insns++;
-  }
-
   @Override
   public void choiceGeneratorSet (VM vm, ChoiceGenerator<?> newCG){
     ChoiceGenerator<?> cg = VM.getVM().getChoiceGenerator();
@@ -146,6 +141,13 @@ public class Statistics extends ListenerAdapter implements Cloneable {
   
   @Override
   public void stateAdvanced (Search search){
+    // we count executed insns per transition so that we don't need per-insn
+    // notifications, which would rule out superinstructions
+    ThreadInfo ti = search.getVM().getCurrentThread();
+    if (ti != null){
+      insns += ti.getExecutedInstructions();
+    }
+
     long m = Runtime.getRuntime().totalMemory();
     if (m > maxUsed) {
       maxUsed = m;
@@ -21,6 +21,7 @@ package gov.nasa.jpf.vm;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Set;
 
 /**
  * abstract class that represents the source of a classfile, such
@@ -50,4 +51,27 @@ public abstract class ClassFileContainer {
   }
 
   public abstract ClassFileMatch getMatch (String clsName) throws ClassParseException;
+
+  /**
+   * do we know all class names of this container upfront, i.e. can
+   * ClassPath skip it without calling getMatch()
+   */
+  public boolean isIndexed(){
+    return false;
+  }
+
+  /**
+   * if this returns false, getMatch() would return null. Non-indexed
+   * containers have to answer true
+   */
+  public boolean containsClass (String clsName){
+    return true;
+  }
+
+  /**
+   * the names of all classes in this container, or null if it isn't indexed
+   */
+  public Set<String> getIndexedClassNames(){
+    return null;
+  }
 }
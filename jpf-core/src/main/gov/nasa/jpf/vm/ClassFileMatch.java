@@ -37,6 +37,12 @@ public abstract class ClassFileMatch {
   
   public abstract ClassFileContainer getContainer();
 
+  /**
+   * hash of the classfile contents, which is used to detect changes of
+   * classfiles that are cached across runs
+   */
+  public abstract long getContentHash();
+
   // those are here because VM specific subclasses know about the binary format, how to get the data from the
   // respective container, and what parser to use to transform it
   public abstract ClassInfo createClassInfo (ClassLoaderInfo loader) throws ClassParseException;
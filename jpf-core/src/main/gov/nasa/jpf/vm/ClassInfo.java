@@ -162,6 +162,34 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
    */
   protected Map<String, MethodInfo> methods;
 
+  /**
+   * memoized results of recursive method lookups by uniqueName, i.e. a lazily
+   * populated, flattened method table of this class (see getVirtualMethod())
+   */
+  protected HashMap<String, MethodInfo> vtable;
+  protected int vtableVersion;
+
+  /**
+   * set once a vtable or invocation cache lookup has resolved a method in or
+   * through this class, i.e. if changing our methods could make cached
+   * lookups stale
+   */
+  protected boolean hasCachedLookups;
+
+  /**
+   * bumped whenever declared methods of a class with cached lookups are set or
+   * replaced, which invalidates all vtables and invocation caches. Loading new
+   * classes does not change this since no existing lookup can depend on them
+   */
+  protected static int methodTableVersion;
+
+  /**
+   * bumped whenever a state gets restored, which might reset class init status
+   * that instructions have cached. Within forward execution classes only go
+   * from uninitialized to initialized, never back
+   */
+  protected static int initStatusVersion;
+
   /**
    * our instance fields.
    * Note these are NOT flattened, idx.e. only contain the declared ones
@@ -254,6 +282,7 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
   static boolean init (Config config) {
 
     ClassInfo.config = config;
+    initStatusVersion++;
     
     setSourceRoots(config);
     //buildBCELModelClassPath(config);
@@ -380,6 +409,7 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
       }
       
       this.methods = map;
+      invalidateCachedLookups();
     }
   }
 
@@ -970,6 +1000,65 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
     return mi;
   }
 
+  /**
+   * recursive method lookup that caches its results in our vtable, which is
+   * what virtual invocations use to avoid walking up the superclass chain
+   */
+  public MethodInfo getVirtualMethod (String uniqueName) {
+    HashMap<String, MethodInfo> vt = vtable;
+    MethodInfo mi;
+
+    if (vt == null || vtableVersion != methodTableVersion) {
+      vt = new HashMap<String, MethodInfo>();
+      vtable = vt;
+      vtableVersion = methodTableVersion;
+    } else {
+      mi = vt.get(uniqueName);
+      if (mi != null) {
+        return mi;
+      }
+    }
+
+    mi = getMethod(uniqueName, true);
+    if (mi != null) {
+      vt.put(uniqueName, mi);
+
+      // all classes up to the one that declares mi can invalidate this entry
+      ClassInfo declaringCi = mi.getClassInfo();
+      for (ClassInfo ci = this; ci != null; ci = ci.superClass) {
+        ci.hasCachedLookups = true;
+        if (ci == declaringCi) {
+          break;
+        }
+      }
+    }
+
+    return mi;
+  }
+
+  /**
+   * called if our declared methods change. Note that we can't reset the
+   * flags of other classes, which only means we might invalidate too often
+   */
+  protected void invalidateCachedLookups() {
+    if (hasCachedLookups) {
+      methodTableVersion++;
+      hasCachedLookups = false;
+    }
+  }
+
+  public static int getMethodTableVersion() {
+    return methodTableVersion;
+  }
+
+  public static int getInitStatusVersion() {
+    return initStatusVersion;
+  }
+
+  public static void invalidateInitStatus() {
+    initStatusVersion++;
+  }
+
   /**
    * if we don't know the return type
    * signature is in paren/dot notation
@@ -1729,6 +1818,7 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
    * be careful, this replaces or adds MethodInfos dynamically
    */
   public MethodInfo putDeclaredMethod (MethodInfo mi){
+    invalidateCachedLookups();
     return methods.put(mi.getUniqueName(), mi);
   }
 
@@ -2337,20 +2427,25 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
    * uniqueId.
    * 
    * It is used for the cases where cl tries to load a class that the original version 
-   * of which has been loaded by some other classloader.
+   * of which has been loaded by some other classloader, or where we use a template
+   * that was kept from a previous run (see createTemplate()).
    */
   public ClassInfo cloneFor (ClassLoaderInfo cl) {
     ClassInfo ci;
+    boolean isTemplate = (classLoader == null);
 
     try {
       ci = (ClassInfo)clone();
 
       ci.classLoader = cl;
       ci.interfaces = new HashSet<ClassInfo>();
+      ci.releaseActions = null; // those are added at runtime, not from the classfile
       ci.resolveClass();
 
       ci.id = -1;
       ci.uniqueId = -1;
+      ci.vtable = null;
+      ci.hasCachedLookups = false;
 
       if (methods != Collections.EMPTY_MAP){
         ci.methods = (Map<String, MethodInfo>)((HashMap<String, MethodInfo>) methods).clone();
@@ -2361,6 +2456,8 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
         e.setValue(mi.getInstanceFor(ci));
       }
 
+      ci.finalizer = ci.getFinalizer0(); // has to refer to the cloned MethodInfos
+
       ci.iFields = new FieldInfo[iFields.length];
       for(int i=0; i<iFields.length; i++) {
         ci.iFields[i] = iFields[i].getInstanceFor(ci);
@@ -2371,18 +2468,94 @@ public class ClassInfo extends InfoObject implements Iterable<MethodInfo>, Gener
         ci.sFields[i] = sFields[i].getInstanceFor(ci);
       }
 
-      if(nativePeer != null) {
+      if (isTemplate){
+        // the rest of what resolveAndLink() does for a parsed class. The superclass
+        // might have been re-parsed since the template was created
+        ci.linkFields();
+        ci.nativePeer = ci.loadNativePeer();
+        ci.checkUnresolvedNativeMethods();
+
+      } else if(nativePeer != null) {
         ci.nativePeer = NativePeer.getNativePeer(ci);
       }
 
       ci.setAssertionStatus();
 
+      if (isTemplate){
+        ci.processJPFConfigAnnotation();
+        ci.loadAnnotationListeners();
+      }
+
+    } catch (CloneNotSupportedException cnsx){
+      cnsx.printStackTrace();
+      return null;
+    }
+
+    // like parsed classes, clones of templates are notified once they are registered
+    if (!isTemplate){
+      VM.getVM().notifyClassLoaded(ci);
+    }
+    return ci;
+  }
+
+  /**
+   * create a template of this class that can be kept across JPF runs within the
+   * same host VM, and is cloned for the ClassLoaderInfos of later runs. This has
+   * to be called before listeners see the class.
+   * 
+   * The template must not refer to anything of the current run, hence it is not
+   * resolved, has no ClassLoaderInfo, native peer, attributes or code loaders,
+   * and its MethodInfos are not registered. Clones of it are resolved and linked
+   * like parsed classes
+   */
+  protected ClassInfo createTemplate () {
+    ClassInfo ci;
+
+    try {
+      ci = (ClassInfo)clone();
+
+      ci.classLoader = null;
+      ci.superClass = null;
+      ci.interfaces = NO_INTERFACES;
+      ci.allInterfaces = null;
+      ci.releaseActions = null;
+      ci.nativePeer = null;
+      ci.finalizer = null;
+      ci.source = null;
+
+      ci.id = -1;
+      ci.uniqueId = -1;
+      ci.vtable = null;
+      ci.hasCachedLookups = false;
+
+      ci.detach();
+
+      if (methods != Collections.EMPTY_MAP){
+        ci.methods = (Map<String, MethodInfo>)((HashMap<String, MethodInfo>) methods).clone();
+      }
+
+      for(Map.Entry<String, MethodInfo> e: ci.methods.entrySet()) {
+        MethodInfo mi = e.getValue();
+        e.setValue(mi.getTemplateFor(ci));
+      }
+
+      ci.iFields = new FieldInfo[iFields.length];
+      for(int i=0; i<iFields.length; i++) {
+        ci.iFields[i] = iFields[i].getInstanceFor(ci);
+        ci.iFields[i].detach();
+      }
+
+      ci.sFields = new FieldInfo[sFields.length];
+      for(int i=0; i<sFields.length; i++) {
+        ci.sFields[i] = sFields[i].getInstanceFor(ci);
+        ci.sFields[i].detach();
+      }
+
     } catch (CloneNotSupportedException cnsx){
       cnsx.printStackTrace();
       return null;
     }
 
-    VM.getVM().notifyClassLoaded(ci);
     return ci;
   }
   
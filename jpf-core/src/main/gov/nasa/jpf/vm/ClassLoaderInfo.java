@@ -62,6 +62,29 @@ public class ClassLoaderInfo
    * global map is used to make sure we only read class files once
    */
   protected static Map<String,ClassInfo> loadedClasses;
+
+  /**
+   * if set, we keep templates of the ClassInfos we parse across JPF runs within
+   * the same host VM (e.g. TestJPF suites), and only re-parse classfiles that
+   * have changed. Templates don't refer to anything of the run that parsed them
+   * (see ClassInfo.createTemplate()), new runs use clones of them
+   */
+  protected static boolean keepLoadedClasses;
+
+  // map from class file URLs to the ClassInfo templates we keep across runs
+  protected static Map<String,ClassInfo> keptClasses;
+
+  // content hashes of the classfiles we keep templates for
+  protected static Map<String,Long> keptClassHashes;
+
+  // the config values that determine how we parse classes and bind their
+  // native peers, which have to be the same in order to use keptClasses
+  protected static String keptClassesKey;
+
+  protected static final String[] KEPT_CLASSES_KEYS = {
+    "jvm.insn_factory.class", "jvm.superinstructions", "jvm.local_fastpath", "jvm.lazy_code",
+    "vm.fields_factory.class", "native_classpath", "peer_packages"
+  };
   
   /**
    * map from annotation class file URLs to AnnotationInfos, which have a separate JPF internal
@@ -135,12 +158,37 @@ public class ClassLoaderInfo
 
     globalCLids = new SparseIntVector();
     loadedClasses = new HashMap<String,ClassInfo>(); // not sure we actually want this for multiple runs (unless we check file stamps)
+
+    keepLoadedClasses = config.getBoolean("vm.keep_loaded_classes", false);
+    if (keepLoadedClasses){
+      String key = getKeptClassesKey(config);
+      if (keptClasses == null || !key.equals(keptClassesKey)){
+        keptClasses = new HashMap<String,ClassInfo>();
+        keptClassHashes = new HashMap<String,Long>();
+        keptClassesKey = key;
+      }
+    } else {
+      keptClasses = null;
+      keptClassHashes = null;
+      keptClassesKey = null;
+    }
     loadedAnnotations = new HashMap<String,AnnotationInfo>();
     
     enabledAssertionPatterns = StringSetMatcher.getNonEmpty(config.getStringArray("vm.enable_assertions"));
     disabledAssertionPatterns = StringSetMatcher.getNonEmpty(config.getStringArray("vm.disable_assertions"));
   }
     
+  protected static String getKeptClassesKey (Config config){
+    StringBuilder sb = new StringBuilder();
+    for (String k : KEPT_CLASSES_KEYS){
+      sb.append(k);
+      sb.append('=');
+      sb.append(config.getString(k));
+      sb.append(';');
+    }
+    return sb.toString();
+  }
+
   public static int getNumberOfLoadedClasses (){
     return loadedClasses.size();
   }
@@ -348,12 +396,23 @@ public class ClassLoaderInfo
               ci = ci.cloneFor(this);
             }
           } else {
-            try {
-             // log.info("loading class ", typeName, " from ",  url);
-              ci = match.createClassInfo(this);
-              
-            } catch (ClassParseException cpx){
-              throw new ClassInfoException( "error parsing class", this, "java.lang.NoClassDefFoundError", typeName, cpx);
+            if (keepLoadedClasses){
+              ci = getKeptClassInfo( url, match);
+            }
+
+            if (ci == null){
+              try {
+               // log.info("loading class ", typeName, " from ",  url);
+                ci = match.createClassInfo(this);
+
+              } catch (ClassParseException cpx){
+                throw new ClassInfoException( "error parsing class", this, "java.lang.NoClassDefFoundError", typeName, cpx);
+              }
+
+              if (keepLoadedClasses){
+                keptClasses.put( url, ci.createTemplate());
+                keptClassHashes.put( url, match.getContentHash());
+              }
             }
             
             loadedClasses.put( url, ci);
@@ -371,6 +430,25 @@ public class ClassLoaderInfo
     return ci;
   }
   
+  /**
+   * clone the template a previous run kept for this classfile, unless the
+   * classfile has changed since then
+   */
+  protected ClassInfo getKeptClassInfo (String url, ClassFileMatch match){
+    ClassInfo template = keptClasses.get(url);
+    if (template != null){
+      Long hash = keptClassHashes.get(url);
+      if (hash != null && hash.longValue() == match.getContentHash()){
+        return template.cloneFor(this);
+      }
+
+      keptClasses.remove(url);
+      keptClassHashes.remove(url);
+    }
+
+    return null;
+  }
+
   /**
    * this is for user defined ClassLoaders that explicitly provide the class file data
    */
@@ -24,6 +24,8 @@ import gov.nasa.jpf.util.JPFLogger;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Set;
 
 /**
  * this is a lookup mechanism for class files that is based on an ordered
@@ -43,6 +45,7 @@ public class ClassPath implements Restorable<ClassPath>{
     @Override
     public ClassPath restore (ClassPath ignored) {
       cp.pathElements = this.pathElements;
+      cp.index = null;
       return cp;
     }
   }
@@ -52,6 +55,10 @@ public class ClassPath implements Restorable<ClassPath>{
   
   protected ArrayList<ClassFileContainer> pathElements;
 
+  // class name -> position of the first indexed container that has it. This
+  // is lazily computed, and reset whenever the pathElements change
+  protected HashMap<String,Integer> index;
+
 
   public ClassPath(){
     pathElements = new ArrayList<ClassFileContainer>();
@@ -68,6 +75,7 @@ public class ClassPath implements Restorable<ClassPath>{
   public void addClassFileContainer (ClassFileContainer pathElement){
     assert pathElement != null;
     pathElements.add(pathElement);
+    index = null;
   }
 
 
@@ -99,8 +107,47 @@ public class ClassPath implements Restorable<ClassPath>{
     throw new ClassParseException(msg);
   }
 
+  protected HashMap<String,Integer> getIndex(){
+    if (index == null){
+      HashMap<String,Integer> map = new HashMap<String,Integer>();
+
+      for (int i=pathElements.size()-1; i>=0; i--){ // backwards so that the first container wins
+        Set<String> names = pathElements.get(i).getIndexedClassNames();
+        if (names != null){
+          for (String clsName : names){
+            map.put(clsName, i);
+          }
+        }
+      }
+
+      index = map;
+    }
+
+    return index;
+  }
+
+  /**
+   * the first container on the path that has the class wins. We only have to
+   * ask the non-indexed containers (e.g. directories) that precede the
+   * indexed one that has the class
+   */
   public ClassFileMatch findMatch (String clsName) throws ClassParseException {
-    for (ClassFileContainer container : pathElements){
+    Integer idx = getIndex().get(clsName);
+    int limit = (idx != null) ? idx.intValue() : pathElements.size();
+
+    for (int i=0; i<limit; i++){
+      ClassFileContainer container = pathElements.get(i);
+      if (!container.isIndexed()){
+        ClassFileMatch match = container.getMatch(clsName);
+        if (match != null){
+          logger.fine("found ", clsName, " in ", container.getName());
+          return match;
+        }
+      }
+    }
+
+    if (idx != null){
+      ClassFileContainer container = pathElements.get(limit);
       ClassFileMatch match = container.getMatch(clsName);
       if (match != null){
         logger.fine("found ", clsName, " in ", container.getName());
@@ -108,7 +155,8 @@ public class ClassPath implements Restorable<ClassPath>{
       }
     }
 
-    return null;    
+    return null;
   }
 
+
 }
\ No newline at end of file
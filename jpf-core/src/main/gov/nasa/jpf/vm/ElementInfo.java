@@ -241,6 +241,17 @@ public abstract class ElementInfo implements Cloneable {
     }
   }
 
+  /**
+   * object survived the gc
+   */
+  public void processSurvivalActions(){
+    if (fields.hasObjectAttr()){
+      for (SurvivalAction action : fields.objectAttrIterator(SurvivalAction.class)){
+        action.survived(this);
+      }
+    }
+  }
+
   /**
    * post transition live object cleanup
    * update all non-fields references used by this object. This is only called
@@ -258,6 +269,18 @@ public abstract class ElementInfo implements Cloneable {
   }
   
   
+  /**
+   * the reference write barrier, which has to be called before a reference
+   * slot (field or array element) of this object is overwritten. This is
+   * how the heap learns about changes of the object graph without having
+   * to re-trace it
+   */
+  protected void referenceUpdated (int oldRef, int newRef){
+    if (oldRef != newRef){
+      VM.getVM().getHeap().registerReferenceUpdate(this, oldRef, newRef);
+    }
+  }
+  
   //--- sids are only supposed to be used by the Serializer
   public void setSid(int id){
     sid = id;
@@ -946,6 +969,7 @@ public abstract class ElementInfo implements Cloneable {
 
     if (fi.isReference()) {
       int offset = fi.getStorageOffset();
+      referenceUpdated( fields.getReferenceValue(offset), newValue);
       fields.setReferenceValue( offset, newValue);
     } else {
       throw new JPFException("not a reference field: " + fi.getName());
@@ -957,6 +981,9 @@ public abstract class ElementInfo implements Cloneable {
 
     if (fi.is1SlotField()) {
       int offset = fi.getStorageOffset();
+      if (fi.isReference()){
+        referenceUpdated( fields.getReferenceValue(offset), newValue);
+      }
       fields.setIntValue( offset, newValue);
     } else {
       throw new JPFException("not a 1 slot field: " + fi.getName());
@@ -1245,6 +1272,19 @@ public abstract class ElementInfo implements Cloneable {
     Object srcVals = ((ArrayFields)eiSrc.getFields()).getValues();
     Object dstVals = ((ArrayFields)fields).getValues();
 
+    if (isRefArray){
+      // System.arraycopy does not change anything if it throws, so we only
+      // report the overwritten references if the ranges are valid
+      int[] srcRefs = (int[])srcVals;
+      int[] dstRefs = (int[])dstVals;
+      if (length > 0 && srcIdx >= 0 && dstIdx >= 0 && 
+          (srcIdx + length) <= srcRefs.length && (dstIdx + length) <= dstRefs.length){
+        for (int i=0; i<length; i++){
+          referenceUpdated( dstRefs[dstIdx+i], srcRefs[srcIdx+i]);
+        }
+      }
+    }
+
     // this might throw ArrayIndexOutOfBoundsExceptions and ArrayStoreExceptions
     System.arraycopy(srcVals, srcIdx, dstVals, dstIdx, length);
 
@@ -1308,6 +1348,7 @@ public abstract class ElementInfo implements Cloneable {
   public void setReferenceElement(int idx, int value){
     checkArray(idx);
     checkIsModifiable();
+    referenceUpdated( fields.getReferenceValue(idx), value);
     fields.setReferenceValue(idx, value);
   }
 
@@ -0,0 +1,120 @@
+//
+// Copyright (C) 2014 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.vm;
+
+/**
+ * abstract root for superinstructions, i.e. instructions that execute a
+ * sequence of consecutive instructions of the same method in one step
+ *
+ * FusedInstructions are not stored in the MethodInfo code array - they are
+ * kept in a parallel table that is keyed by the index of their first part,
+ * so that positions, branch targets, line numbers and everything listeners
+ * can see stays the same. ThreadInfo only uses them if nobody observes
+ * individual instructions, and the parts have to be free of side effects
+ * outside of the top StackFrame (no scheduling points, no exceptions)
+ */
+public abstract class FusedInstruction extends Instruction {
+
+  protected Instruction[] parts;
+
+  protected FusedInstruction (Instruction... parts){
+    this.parts = parts;
+
+    Instruction first = parts[0];
+    mi = first.getMethodInfo();
+    setLocation(first.getInstructionIndex(), first.getPosition());
+  }
+
+  public Instruction[] getParts(){
+    return parts;
+  }
+
+  public int getNumberOfParts(){
+    return parts.length;
+  }
+
+  public Instruction getFirstPart(){
+    return parts[0];
+  }
+
+  public Instruction getLastPart(){
+    return parts[parts.length-1];
+  }
+
+  /**
+   * create a copy for a cloned MethodInfo, which has the same code layout as
+   * ours but its own instruction objects. The parts of the copy are taken from
+   * the provided code array
+   */
+  public FusedInstruction cloneFor (MethodInfo mi, Instruction[] code){
+    FusedInstruction clone = (FusedInstruction) typeSafeClone(mi);
+
+    clone.parts = new Instruction[parts.length];
+    for (int i=0; i<parts.length; i++){
+      clone.parts[i] = code[parts[i].getInstructionIndex()];
+    }
+
+    return clone;
+  }
+
+  @Override
+  public int getByteCode(){
+    return parts[0].getByteCode();
+  }
+
+  @Override
+  public int getLength(){
+    int len = 0;
+    for (int i=0; i<parts.length; i++){
+      len += parts[i].getLength();
+    }
+    return len;
+  }
+
+  /**
+   * the next instruction in code order is the one following the last part
+   */
+  @Override
+  public Instruction getNext(){
+    return parts[parts.length-1].getNext();
+  }
+
+  @Override
+  public boolean isBackJump(){
+    return parts[parts.length-1].isBackJump();
+  }
+
+  @Override
+  public boolean isExtendedInstruction() {
+    return true;
+  }
+
+  @Override
+  public String toString(){
+    StringBuilder sb = new StringBuilder("fused[");
+    for (int i=0; i<parts.length; i++){
+      if (i>0){
+        sb.append(',');
+      }
+      sb.append(parts[i]);
+    }
+    sb.append(']');
+    return sb.toString();
+  }
+}
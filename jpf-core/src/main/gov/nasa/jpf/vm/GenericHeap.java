@@ -20,6 +20,7 @@
 package gov.nasa.jpf.vm;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Iterator;
 
 import gov.nasa.jpf.Config;
@@ -38,6 +39,14 @@ import gov.nasa.jpf.util.Transformer;
  * mark&sweep collector, change attribute management, and generic pinDownList,
  * weakReference and internString handling
  * 
+ * The collector can optionally run in generational mode ('vm.gc.generational'),
+ * in which all objects that are reachable from static fields and pinned down
+ * references are promoted into an oldSpace that is not traced by subsequent
+ * (minor) collections. Reference stores into oldSpace objects are recorded by
+ * means of a write barrier (see registerReferenceUpdate()), and the oldSpace
+ * is invalidated (i.e. the next collection is a full one) as soon as one of its
+ * references is overwritten, which keeps the result identical to a full collection
+ * 
  * The concrete Heap implementors have to provide the ElementInfo collection
  * and associated getters, allocators and iterators
  */
@@ -48,11 +57,17 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     int attributes;
     IntVector pinDownList;
     IntTable<String> internStrings;
+    BitSet oldSpace;
+    IntVector oldWeakRefs;
+    IntVector remembered;
     
     protected GenericHeapMemento (GenericHeap heap){
       // these are copy-on-first-write, so we don't have to clone
       pinDownList = heap.pinDownList;
       internStrings = heap.internStrings;
+      oldSpace = heap.oldSpace;
+      oldWeakRefs = heap.oldWeakRefs;
+      remembered = heap.remembered;
       attributes = heap.attributes & ATTR_STORE_MASK;
       
       heap.setStored();
@@ -63,6 +78,9 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
       GenericHeap heap = (GenericHeap) inSitu;
       heap.pinDownList = pinDownList;
       heap.internStrings = internStrings;
+      heap.oldSpace = oldSpace;
+      heap.oldWeakRefs = oldWeakRefs;
+      heap.remembered = remembered;
       heap.attributes = attributes;
       heap.liveBitValue = false; // always start with false after a restore
       return inSitu;
@@ -86,6 +104,22 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
   // this is copy-on-first-write
   protected IntTable<String> internStrings;
 
+  //--- generational gc (only used if isGenerational is set)
+  
+  protected boolean isGenerational;
+
+  // the objects that were reachable from static fields and pinned down references
+  // at the end of the last gc (indexed by objref). This is copy-on-first-write
+  protected BitSet oldSpace;
+  
+  // weak references that are in the oldSpace and hence have to be explicitly
+  // cleaned up by minor collections. This is copy-on-first-write
+  protected IntVector oldWeakRefs;
+  
+  // oldSpace objects that got non-null references stored since the last gc,
+  // which have to be traced by the next minor collection. This is copy-on-first-write
+  protected IntVector remembered;
+
 
   // the usual drill - the lower 2 bytes are sticky, the upper two ones 
   // hold change status and transient (transition local) flags
@@ -94,15 +128,19 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
   static final int ATTR_GC            = 0x0001;
   static final int ATTR_OUT_OF_MEMORY = 0x0002;
   static final int ATTR_RUN_FINALIZER = 0x0004;
+  static final int ATTR_OLD_INVALID   = 0x0008; // next gc has to be a full one
 
   static final int ATTR_ELEMENTS_CHANGED  = 0x10000;
   static final int ATTR_PINDOWN_CHANGED   = 0x20000;
   static final int ATTR_INTERN_CHANGED    = 0x40000;
   static final int ATTR_ATTRIBUTE_CHANGED = 0x80000;
+  static final int ATTR_OLD_CHANGED       = 0x100000; // oldSpace and oldWeakRefs
+  static final int ATTR_REMEMBERED_CHANGED = 0x200000;
 
   // masks and sets
   static final int ATTR_STORE_MASK = 0x0000ffff;
-  static final int ATTR_ANY_CHANGED = (ATTR_ELEMENTS_CHANGED | ATTR_PINDOWN_CHANGED | ATTR_INTERN_CHANGED | ATTR_ATTRIBUTE_CHANGED);
+  static final int ATTR_ANY_CHANGED = (ATTR_ELEMENTS_CHANGED | ATTR_PINDOWN_CHANGED | ATTR_INTERN_CHANGED | ATTR_ATTRIBUTE_CHANGED |
+                                       ATTR_OLD_CHANGED | ATTR_REMEMBERED_CHANGED);
 
 
   //--- these objects are only used during gc
@@ -117,6 +155,13 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
   
   protected ElementInfoMarker elementInfoMarker = new ElementInfoMarker();
   
+  // is the current gc a minor one, i.e. are oldSpace objects considered to be live
+  protected boolean isMinorGc;
+  
+  // set while we mark from static and pinned down roots, i.e. everything
+  // we reach goes into the oldSpace
+  protected boolean isPromoting;
+  
   // the number of live objects
   // <2do> currently only defined after gc
   protected int nLiveObjects;
@@ -139,6 +184,14 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     if (config.getBoolean("vm.sweep",true)){
       attributes |= ATTR_GC;
     }
+    
+    isGenerational = config.getBoolean("vm.gc.generational", false);
+    if (isGenerational){
+      oldSpace = new BitSet();
+      oldWeakRefs = new IntVector();
+      remembered = new IntVector();
+      attributes |= (ATTR_OLD_INVALID | ATTR_OLD_CHANGED | ATTR_REMEMBERED_CHANGED); // first gc is a full one
+    }
   }
 
 
@@ -160,7 +213,10 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
       pinDownList = pinDownList.clone();
       attributes |= ATTR_PINDOWN_CHANGED;
     }
-    pinDownList.removeFirst(objref);    
+    pinDownList.removeFirst(objref);
+    
+    // we lost a root, whatever it referenced might be garbage now
+    attributes |= ATTR_OLD_INVALID;
   }
 
   @Override
@@ -204,6 +260,13 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     }
 
     weakRefs.add(ei);
+    
+    // only newly promoted objects are marked while we trace from old roots, 
+    // remembered oldSpace objects are not
+    if (isPromoting && ei.isMarked()){
+      cloneOldSpace();
+      oldWeakRefs.add(ei.getObjectRef());
+    }
   }
   
   /**
@@ -253,6 +316,7 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     set(objref, ei);
 
     attributes |= ATTR_ELEMENTS_CHANGED;
+    vm.getSystemState().activateGC(); // new objects might not get stored anywhere
 
     // and do the default (const) field initialization
     ci.initializeInstanceData(ei, ti);
@@ -293,6 +357,7 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     set(objref, ei);
 
     attributes |= ATTR_ELEMENTS_CHANGED;
+    vm.getSystemState().activateGC();
 
     vm.notifyObjectCreated(ti, ei);
 
@@ -507,6 +572,73 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
   public abstract Iterable<ElementInfo> liveObjects();
   
   
+  //--- generational gc support
+  
+  public boolean isGenerational() {
+    return isGenerational;
+  }
+  
+  protected boolean isOld (int objref) {
+    return oldSpace.get(objref);
+  }
+  
+  /**
+   * the reference write barrier. Overwriting a non-null reference is one
+   * of the events that can create garbage, i.e. requires the next gc.
+   * 
+   * Since the oldSpace is closed with respect
+   * to the objects that are reachable from static fields and pinned down references, 
+   * we only have to care about stores into statics and oldSpace objects.
+   * Storing into a null slot just means we have to trace the new reference, but
+   * overwriting a non-null one could have turned parts of the oldSpace
+   * into garbage, i.e. the next collection has to be a full one
+   */
+  @Override
+  public void registerReferenceUpdate (ElementInfo ei, int oldRef, int newRef){
+    if (oldRef != MJIEnv.NULL){
+      vm.getSystemState().activateGC();
+    }
+    
+    if (isGenerational && (attributes & ATTR_OLD_INVALID) == 0){
+      boolean isObject = ei.isObject();
+      int objref = ei.getObjectRef();
+      
+      if (!isObject || isOld(objref)){
+        if (oldRef != MJIEnv.NULL){
+          attributes |= ATTR_OLD_INVALID;
+          
+        } else if (isObject) { // statics are always traced
+          if ((attributes & ATTR_REMEMBERED_CHANGED) == 0){
+            remembered = remembered.clone();
+            attributes |= ATTR_REMEMBERED_CHANGED;
+          }
+          remembered.add(objref);
+        }
+      }
+    }
+  }
+
+  protected void cloneOldSpace (){
+    if ((attributes & ATTR_OLD_CHANGED) == 0){
+      oldSpace = (BitSet)oldSpace.clone();
+      oldWeakRefs = oldWeakRefs.clone();
+      attributes |= ATTR_OLD_CHANGED;
+    }
+  }
+  
+  protected void promote (int objref){
+    cloneOldSpace();
+    oldSpace.set(objref);
+  }
+  
+  /**
+   * is this a live object during sweep
+   */
+  protected boolean isMarkedOrOld (ElementInfo ei){
+    return ei.isMarked() || (isMinorGc && oldSpace.get(ei.getObjectRef()));
+  }
+  
+  
   //--- garbage collection
   
   public boolean isGcEnabled (){
@@ -540,11 +672,19 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     if (objref == MJIEnv.NULL) {
       return;
     }
+    
+    if (isMinorGc && oldSpace.get(objref)){ // live by definition, and not traced
+      return;
+    }
 
     ElementInfo ei = get(objref);
     if (!ei.isMarked()){ // only add objects once
       ei.setMarked();
       markQueue.add(ei);
+      
+      if (isPromoting){
+        promote(objref);
+      }
     }
   }
   
@@ -587,11 +727,12 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     // now go over all objects, purge the ones that are not live and reset attrs for rest
     for (ElementInfo ei : this){
       
-      if (ei.isMarked()){ // live object, prepare for next transition & gc cycle
+      if (isMarkedOrOld(ei)){ // live object, prepare for next transition & gc cycle
         ei.setUnmarked();
         ei.setAlive(liveBitValue);
         
         ei.cleanUp(this, isThreadTermination, tid);
+        ei.processSurvivalActions();
         n++;
         
       } else {
@@ -610,7 +751,7 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     
     if (tiFinalizer != null){
       for (ElementInfo ei : this) {
-        if (!ei.isMarked() && ei.hasFinalizer() && !ei.isFinalized()) {
+        if (!isMarkedOrOld(ei) && ei.hasFinalizer() && !ei.isFinalized()) {
           ei = tiFinalizer.getFinalizerQueuedInstance(ei);
           ei.setMarked(); // make sure it's not collected before the finalizerQueue has been processed
           ei.markRecursive(this);
@@ -631,6 +772,72 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     markQueue.process(elementInfoMarker);    
   }
   
+  /**
+   * full generational mark, which re-computes the oldSpace as everything that
+   * is reachable from static and pinned down roots 
+   */
+  protected void markMajor () {
+    markQueue.clear();
+    
+    oldSpace = new BitSet();
+    oldWeakRefs = new IntVector();
+    remembered = new IntVector();
+    attributes |= (ATTR_OLD_CHANGED | ATTR_REMEMBERED_CHANGED);
+    attributes &= ~ATTR_OLD_INVALID;
+    
+    //--- the old roots (everything we mark from here gets promoted)
+    isPromoting = true;
+    markPinDownList();
+    vm.getClassLoaderList().markRoots(this);
+    markQueue.process(elementInfoMarker);
+    isPromoting = false;
+    
+    //--- the young roots
+    vm.getThreadList().markRoots(this);
+    markQueue.process(elementInfoMarker);
+  }
+  
+  /**
+   * mark only what is not in the oldSpace. Since the oldSpace did not lose any
+   * references since the last gc, we only have to trace from statics, pinned down
+   * references and remembered oldSpace objects (promoting whatever we reach from
+   * there), and from the thread roots
+   */
+  protected void markMinor () {
+    markQueue.clear();
+    
+    //--- the old roots and remembered stores into the oldSpace
+    isPromoting = true;
+    markPinDownList();
+    vm.getClassLoaderList().markRoots(this);
+    
+    IntVector rs = remembered;
+    for (int i=0; i<rs.size(); i++){
+      ElementInfo ei = get(rs.get(i));
+      if (ei != null){
+        ei.markRecursive(this);
+      }
+    }
+    remembered = new IntVector();
+    attributes |= ATTR_REMEMBERED_CHANGED;
+    
+    markQueue.process(elementInfoMarker);
+    isPromoting = false;
+
+    //--- the young roots
+    vm.getThreadList().markRoots(this);
+    markQueue.process(elementInfoMarker);
+    
+    // weak references in the oldSpace were not traced, but they still need to be cleaned up
+    IntVector wrs = oldWeakRefs;
+    for (int i=0; i<wrs.size(); i++){
+      ElementInfo ei = get(wrs.get(i));
+      if (ei != null){
+        registerWeakReference(ei);
+      }
+    }
+  }
+  
   @Override
   public void gc() {
     vm.notifyGCBegin();
@@ -638,10 +845,20 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
     weakRefs = null;
     liveBitValue = !liveBitValue;
 
-    mark();
+    if (isGenerational){
+      isMinorGc = (attributes & ATTR_OLD_INVALID) == 0;
+      if (isMinorGc){
+        markMinor();
+      } else {
+        markMajor();
+      }
+    } else {
+      mark();
+    }
     
-    // at this point all live objects are marked
+    // at this point all live objects are marked (or in the oldSpace)
     sweep();
+    isMinorGc = false;
 
     cleanupWeakRefs(); // for potential nullification
 
@@ -675,7 +892,7 @@ public abstract class GenericHeap implements Heap, Iterable<ElementInfo> {
    * objects at the end of GC
    */
   public boolean isAlive (ElementInfo ei){
-    return (ei == null || ei.isMarkedOrAlive(liveBitValue));
+    return (ei == null || ei.isMarkedOrAlive(liveBitValue) || (isMinorGc && oldSpace.get(ei.getObjectRef())));
   }
   
   //--- state management
@@ -78,6 +78,10 @@ public interface Heap extends Iterable<ElementInfo> {
 
   void registerWeakReference (ElementInfo ei);
 
+  // the reference write barrier, called from ElementInfo (both dynamic and static)
+  // before a reference slot is overwritten
+  void registerReferenceUpdate (ElementInfo ei, int oldRef, int newRef);
+
   // to be called from ElementInfo.markRecursive(), to avoid exposure of
   // mark implementation
   void queueMark (int objref);
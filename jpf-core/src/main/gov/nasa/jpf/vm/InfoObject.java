@@ -95,6 +95,29 @@ public abstract class InfoObject implements Cloneable {
   }
 
   
+  /**
+   * drop what refers to the current run, for templates that are kept across
+   * runs (see ClassInfo.createTemplate()). Attributes are set by listeners of
+   * the run, and annotations refer to the ClassLoaderInfo they were read with
+   */
+  protected void detach (){
+    attr = null;
+    annotations = detachAnnotations(annotations);
+  }
+
+  protected static AnnotationInfo[] detachAnnotations (AnnotationInfo[] annotations){
+    if (annotations == null || annotations.length == 0){
+      return annotations;
+    }
+
+    AnnotationInfo[] a = new AnnotationInfo[annotations.length];
+    for (int i=0; i<a.length; i++){
+      a[i] = annotations[i].cloneFor(null);
+    }
+    return a;
+  }
+
+  
   //--- the generic attribute API
 
   public boolean hasAttr () {
@@ -87,6 +87,15 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
   /** Instructions associated with the method */
   protected Instruction[] code;
 
+  /** deferred code creation, non-null until the code is first accessed */
+  protected CodeLoader codeLoader;
+
+  /** optional superinstructions, indexed by the code index of their first part */
+  protected FusedInstruction[] fusedCode;
+
+  /** optional map of instructions that can't be scheduling relevant, indexed by code index */
+  protected boolean[] localCode;
+
   /** JPFConfigException handlers */
   protected ExceptionHandler[] exceptionHandlers;
 
@@ -296,6 +305,79 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
       code[i].setMethodInfo(this);
     }
     this.code = code;
+    this.fusedCode = null;
+    this.localCode = null;
+    this.codeLoader = null;
+  }
+
+  /**
+   * defer the creation of code, exception handlers, line numbers and local
+   * vars until one of them is first accessed. The loader has to install them
+   * with the normal setters
+   */
+  public void setCodeLoader (CodeLoader loader){
+    this.codeLoader = loader;
+  }
+
+  public boolean isCodeLoaded(){
+    return (codeLoader == null);
+  }
+
+  protected void loadCode(){
+    CodeLoader loader = codeLoader;
+    if (loader != null){
+      codeLoader = null;
+      loader.loadCode(this);
+    }
+  }
+
+  /**
+   * install superinstructions for the current code. The fused table has to
+   * have the same length as the code array, with null entries for all
+   * instructions that don't start a fused sequence
+   */
+  public void setFusedCode (FusedInstruction[] fusedCode){
+    this.fusedCode = fusedCode;
+  }
+
+  /**
+   * install the map of instructions that only operate on the top frame and
+   * hence can be executed without scheduling checks. The map has to have
+   * the same length as the code array
+   */
+  public void setLocalCode (boolean[] localCode){
+    this.localCode = localCode;
+  }
+
+  public boolean hasLocalCode(){
+    return (localCode != null);
+  }
+
+  /**
+   * is this a stored instruction of ours that can't create a ChoiceGenerator,
+   * access the heap or leave the method
+   */
+  public boolean isLocalInstruction (Instruction insn){
+    if (localCode != null){
+      int i = insn.getInstructionIndex();
+      return (i >= 0) && (i < localCode.length) && localCode[i] && (code[i] == insn);
+    }
+    return false;
+  }
+
+  public boolean hasFusedCode(){
+    return (fusedCode != null);
+  }
+
+  /**
+   * return the superinstruction that starts at code index i, or null if
+   * there is none
+   */
+  public FusedInstruction getFusedInstruction (int i){
+    if (fusedCode == null){
+      return null;
+    }
+    return fusedCode[i];
   }
   
   
@@ -514,6 +596,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
    * LocalVarInfos
    */
   public LocalVarInfo[] getArgumentLocalVars(){
+    loadCode();
     if (localVars == null){ // shortcut in case we don't have args or localVars;
       return null;
     }
@@ -643,6 +726,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
    * return number of instructions
    */
   public int getNumberOfInstructions() {
+    loadCode();
     if (code == null){
       return 0;
     }
@@ -654,6 +738,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
    * Returns a specific instruction.
    */
   public Instruction getInstruction (int i) {
+    loadCode();
     if (code == null) {
       return null;
     }
@@ -669,6 +754,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
    * Returns the instruction at a certain position.
    */
   public Instruction getInstructionAt (int position) {
+    loadCode();
     if (code == null) {
       return null;
     }
@@ -686,10 +772,12 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
    * Returns the instructions of the method.
    */
   public Instruction[] getInstructions () {
+    loadCode();
     return code;
   }
   
   public boolean includesLine (int line){
+    loadCode();
     int len = code.length;
     return (code[0].getLineNumber() <= line) && (code[len].getLineNumber() >= line);
   }
@@ -699,6 +787,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
   }
 
   public Instruction[] getInstructionsForLineInterval (int l1, int l2){
+    loadCode();
     Instruction[] c = code;
        
     // instruction line numbers don't have to be monotonic (they can decrease for loops)
@@ -758,10 +847,12 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
    * Returns a table to translate positions into line numbers.
    */
   public int[] getLineNumbers () {
+    loadCode();
     return lineNumbers;
   }
 
   public boolean containsLineNumber (int n){
+    loadCode();
     if (lineNumbers != null){
       return (lineNumbers[0] <= n) && (lineNumbers[lineNumbers.length-1] <= n);
     }
@@ -770,6 +861,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
   }
   
   public boolean intersectsLineNumbers( int first, int last){
+    loadCode();
     if (lineNumbers != null){
       if ((last < lineNumbers[0]) || (first > lineNumbers[lineNumbers.length-1])){
         return false;
@@ -812,6 +904,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
   }
 
   public ExceptionHandler[] getExceptions () {
+    loadCode();
     return exceptionHandlers;
   }
 
@@ -821,6 +914,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
 
 
   public LocalVarInfo getLocalVar(String name, int pc){
+    loadCode();
     LocalVarInfo[] vars = localVars;
     if (vars != null){
       for (int i = 0; i < vars.length; i++) {
@@ -836,6 +930,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
   }
 
   public LocalVarInfo getLocalVar (int slotIdx, int pc){
+    loadCode();
     LocalVarInfo[] vars = localVars;
 
     if (vars != null){
@@ -851,6 +946,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
   }
 
   public LocalVarInfo[] getLocalVars() {
+    loadCode();
     return localVars; 
   }
 
@@ -860,6 +956,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
    * scope entries
    */
   public String[] getLocalVariableNames() {
+    loadCode();
     String[] names = new String[localVars.length];
 
     for (int i=0; i<localVars.length; i++){
@@ -937,6 +1034,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
   }
 
   public Instruction getFirstInsn(){
+    loadCode();
     if (code != null){
       return code[0];
     }
@@ -944,6 +1042,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
   }
   
   public Instruction getLastInsn() {
+    loadCode();
     if (code != null){
       return code[code.length-1];
     }
@@ -1093,11 +1192,12 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
   }
   
   public boolean hasCode(){
-    return (code != null);
+    return (code != null) || (codeLoader != null);
   }
   
   public boolean hasEmptyBody (){
     // only instruction is a return
+    loadCode();
     return (code.length == 1 && (code[0] instanceof ReturnInstruction));
   }
 
@@ -1248,6 +1348,7 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
   // for debugging purposes
   public void dump(){
     System.out.println("--- " + this);
+    loadCode();
     for (int i = 0; i < code.length; i++) {
       System.out.printf("%2d [%d]: %s\n", i, code[i].getPosition(), code[i].toString());
     }
@@ -1258,15 +1359,69 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
    * and all the instructions belong to the method
    */
   public MethodInfo getInstanceFor(ClassInfo ci) {
+    MethodInfo clone = cloneFor(ci);
+
+    if (clone != null){
+      clone.globalId = mthTable.size();
+      mthTable.add(clone);
+    }
+
+    return clone;
+  }
+
+  /**
+   * Creates a method for a ClassInfo template (see ClassInfo.createTemplate()).
+   * Templates are cloned for later runs, hence the copy has its code loaded
+   * (the code loader refers to the parser of this run), is not registered and
+   * has neither attributes of its own nor of its instructions
+   */
+  protected MethodInfo getTemplateFor (ClassInfo ci) {
+    loadCode();
+
+    MethodInfo template = cloneFor(ci);
+    if (template != null){
+      template.globalId = -1;
+      template.detach();
+      template.parameterAnnotations = detachParameterAnnotations(parameterAnnotations);
+
+      if (template.code != null){
+        for (Instruction insn : template.code){
+          insn.attr = null;
+        }
+      }
+      if (template.fusedCode != null){
+        for (FusedInstruction insn : template.fusedCode){
+          if (insn != null){
+            insn.attr = null;
+          }
+        }
+      }
+    }
+
+    return template;
+  }
+
+  protected static AnnotationInfo[][] detachParameterAnnotations (AnnotationInfo[][] parameterAnnotations){
+    if (parameterAnnotations == null){
+      return null;
+    }
+
+    AnnotationInfo[][] pai = new AnnotationInfo[parameterAnnotations.length][];
+    for (int i=0; i<pai.length; i++){
+      pai[i] = detachAnnotations(parameterAnnotations[i]);
+    }
+    return pai;
+  }
+
+  protected MethodInfo cloneFor (ClassInfo ci) {
     MethodInfo clone;
 
     try {
       clone = (MethodInfo)super.clone();
       clone.ci = ci;
 
-      clone.globalId = mthTable.size();
-      mthTable.add(this);
-
+      // if our code isn't loaded yet, the clone shares the codeLoader and
+      // gets its fused and local code installed when it loads its own code
       if(code == null) {
         clone.code = null;
       } else {
@@ -1275,6 +1430,18 @@ public class MethodInfo extends InfoObject implements GenericSignatureHolder  {
         for(int i=0; i<code.length; i++) {
           clone.code[i] = code[i].typeSafeClone(clone);
         }
+
+        // the fused parts refer to our own code, so we have to re-target them.
+        // The local code map is only indexed and checked against the code
+        // array of its owner, hence it can be shared
+        if (fusedCode != null){
+          clone.fusedCode = new FusedInstruction[fusedCode.length];
+          for (int i=0; i<fusedCode.length; i++){
+            if (fusedCode[i] != null){
+              clone.fusedCode[i] = fusedCode[i].cloneFor(clone, clone.code);
+            }
+          }
+        }
       }
 
     } catch (CloneNotSupportedException cnsx){
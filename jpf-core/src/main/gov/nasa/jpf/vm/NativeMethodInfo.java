@@ -23,8 +23,12 @@ import gov.nasa.jpf.JPF;
 import gov.nasa.jpf.JPFNativePeerException;
 import gov.nasa.jpf.util.JPFLogger;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 
 /**
  * a MethodInfo for a native peer executed method
@@ -44,9 +48,28 @@ public class NativeMethodInfo extends MethodInfo {
     }
   }
 
+  // max number of (non MJI header) arguments we call without boxing
+  static final int MAX_SLOT_ARGS = 4;
+  static MethodHandle intBitsToFloat;
+
+  static {
+    try {
+      intBitsToFloat = MethodHandles.lookup().findStatic(Float.class, "intBitsToFloat",
+                                                         MethodType.methodType(float.class, int.class));
+    } catch (ReflectiveOperationException rox) {
+      logger.warning("no float conversion for native slot invokers: ", rox);
+    }
+  }
+
   protected Method mth; // the native method to enter in lieu
   protected NativePeer peer;
 
+  // the MethodHandles we use instead of reflection calls. They are bound on
+  // first execution since subclasses might set 'mth' lazily
+  protected Method boundMth;
+  protected MethodHandle spreadInvoker; // (Object[])Object
+  protected MethodHandle slotInvoker;   // (MJIEnv,int,int..)Object, for natives with int-sized args only
+
   public NativeMethodInfo (MethodInfo mi, Method mth, NativePeer peer){
     super(mi);  // <2do> do we want any operands or locals?
 
@@ -60,6 +83,22 @@ public class NativeMethodInfo extends MethodInfo {
     mthTable.set(mi.globalId, this);
     mi.ci.putDeclaredMethod(this);
   }
+
+  /**
+   * templates don't keep the peer, which belongs to the current run. We
+   * return the plain MethodInfo, so that clones of the template get their
+   * NativeMethodInfos from the peer of their own run, like a parsed class
+   */
+  @Override
+  protected MethodInfo getTemplateFor (ClassInfo ci) {
+    MethodInfo template = new MethodInfo(this);
+    template.ci = ci;
+    template.globalId = -1;
+    template.detach();
+    template.parameterAnnotations = detachParameterAnnotations(parameterAnnotations);
+
+    return template;
+  }
   
   @Override
   public boolean isUnresolvedNativeMethod() {
@@ -99,9 +138,146 @@ public class NativeMethodInfo extends MethodInfo {
     return -1; // we have no line numbers
   }
 
+  /**
+   * bind our native method to MethodHandles. If all arguments fit into
+   * int slots (i.e. are neither long nor double) and there are not more than
+   * MAX_SLOT_ARGS of them, we also create an invoker that takes the raw slot
+   * values, which avoids boxing of the arguments altogether
+   */
+  protected void bindInvokers() {
+    boundMth = mth;
+    spreadInvoker = null;
+    slotInvoker = null;
+
+    if (mth != null) {
+      try {
+        MethodHandle mh = MethodHandles.lookup().unreflect(mth);
+        if (!Modifier.isStatic(mth.getModifiers())) {
+          mh = mh.bindTo(peer);
+        }
+
+        int nParams = mh.type().parameterCount();
+        spreadInvoker = mh.asSpreader(Object[].class, nParams)
+                          .asType(MethodType.methodType(Object.class, Object[].class));
+
+        if (nParams == getNumberOfArguments() + 2 && hasSlotArgumentTypes()) {
+          byte[] argTypes = getArgumentTypes();
+          Class<?>[] slotTypes = new Class<?>[nParams];
+          slotTypes[0] = MJIEnv.class;
+
+          for (int i = 1; i < nParams; i++) {
+            slotTypes[i] = int.class;
+            if (i > 1 && argTypes[i - 2] == Types.T_FLOAT) {
+              mh = MethodHandles.filterArguments(mh, i, intBitsToFloat);
+            }
+          }
+
+          slotInvoker = MethodHandles.explicitCastArguments(mh, MethodType.methodType(Object.class, slotTypes));
+        }
+
+      } catch (IllegalAccessException iax) {
+        logger.warning("cannot bind native method, using reflection: ", mth);
+      } catch (IllegalArgumentException iax) {
+        // peer method signature does not match, slot invoker not possible
+        logger.warning("cannot create slot invoker for native method: ", mth);
+      }
+    }
+  }
+
+  protected boolean hasSlotArgumentTypes() {
+    if (getNumberOfArguments() > MAX_SLOT_ARGS || intBitsToFloat == null) {
+      return false;
+    }
+
+    for (byte t : getArgumentTypes()) {
+      if (t == Types.T_LONG || t == Types.T_DOUBLE) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * used by the NativeStackFrame to decide if it needs to box arguments
+   */
+  public boolean hasSlotInvoker() {
+    return (slotInvoker != null) && (boundMth == mth);
+  }
+
+  /**
+   * box raw slot arguments ('this' or class object ref first) into the
+   * argument array that is used by reflection calls
+   */
+  public Object[] getBoxedArguments (MJIEnv env, int[] slots) {
+    int nArgs = getNumberOfArguments();
+    byte[] argTypes = getArgumentTypes();
+    Object[] a = new Object[nArgs + 2];
+
+    a[0] = env;
+    a[1] = Integer.valueOf(slots[0]);
+
+    for (int i = 0; i < nArgs; i++) {
+      int v = slots[i + 1];
+
+      switch (argTypes[i]) {
+      case Types.T_BOOLEAN:
+        a[i + 2] = Boolean.valueOf(Types.intToBoolean(v));
+        break;
+      case Types.T_BYTE:
+        a[i + 2] = Byte.valueOf((byte) v);
+        break;
+      case Types.T_CHAR:
+        a[i + 2] = Character.valueOf((char) v);
+        break;
+      case Types.T_SHORT:
+        a[i + 2] = Short.valueOf((short) v);
+        break;
+      case Types.T_FLOAT:
+        a[i + 2] = Float.valueOf(Types.intToFloat(v));
+        break;
+      default:
+        a[i + 2] = Integer.valueOf(v);
+      }
+    }
+
+    return a;
+  }
+
+  /**
+   * call the native peer method. Exceptions thrown by the native method are
+   * wrapped into InvocationTargetExceptions, regardless of how we call it
+   */
+  protected Object invokePeer (MJIEnv env, NativeStackFrame nativeFrame) throws IllegalAccessException, InvocationTargetException {
+    if (boundMth != mth) {
+      bindInvokers();
+    }
+
+    int[] s = nativeFrame.getSlotArguments();
+    try {
+      if (s != null && slotInvoker != null) {
+        switch (s.length) {
+        case 1: return (Object) slotInvoker.invokeExact(env, s[0]);
+        case 2: return (Object) slotInvoker.invokeExact(env, s[0], s[1]);
+        case 3: return (Object) slotInvoker.invokeExact(env, s[0], s[1], s[2]);
+        case 4: return (Object) slotInvoker.invokeExact(env, s[0], s[1], s[2], s[3]);
+        case 5: return (Object) slotInvoker.invokeExact(env, s[0], s[1], s[2], s[3], s[4]);
+        }
+      }
+
+      if (spreadInvoker != null) {
+        return (Object) spreadInvoker.invokeExact(nativeFrame.getArguments());
+      }
+
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+
+    // the reflection fallback
+    return mth.invoke(peer, nativeFrame.getArguments());
+  }
+
   public Instruction executeNative (ThreadInfo ti) {
     Object   ret = null;
-    Object[] args = null;
     MJIEnv   env = ti.getMJIEnv();
         
     NativeStackFrame nativeFrame = (NativeStackFrame)ti.getTopFrame();
@@ -114,10 +290,8 @@ public class NativeMethodInfo extends MethodInfo {
     }
 
     try {
-      args = nativeFrame.getArguments();
-
-      // this is the reflection call into the native peer
-      ret = mth.invoke(peer, args);
+      // this is the call into the native peer
+      ret = invokePeer(env, nativeFrame);
 
       if (env.hasException()) {
         // even though we should prefer throwing normal exceptionHandlers,
@@ -53,12 +53,24 @@ public abstract class NativeStackFrame extends StackFrame {
   // our argument registers
   protected Object[] args;
 
+  // raw argument slots ('this' or class object ref first) for natives that
+  // can be called without boxing. We only box them into 'args' on demand
+  protected int[] slotArgs;
+  protected MJIEnv env;
+
   public NativeStackFrame (NativeMethodInfo mi){
     super( mi, 0, 0);
   }
   
   public void setArgs (Object[] args){
     this.args = args; 
+    this.slotArgs = null;
+  }
+
+  public void setSlotArgs (MJIEnv env, int[] slotArgs){
+    this.env = env;
+    this.slotArgs = slotArgs;
+    this.args = null;
   }
 
   public StackFrame clone () {
@@ -115,9 +127,19 @@ public abstract class NativeStackFrame extends StackFrame {
   }
 
   public Object[] getArguments() {
+    if (args == null && slotArgs != null){
+      args = ((NativeMethodInfo)mi).getBoxedArguments(env, slotArgs);
+    }
     return args;
   }
 
+  /**
+   * @return raw argument slots, or null if arguments were only set as boxed objects
+   */
+  public int[] getSlotArguments() {
+    return slotArgs;
+  }
+
   public void markThreadRoots (Heap heap, int tid) {
     // what if some listener creates a CG post-EXECUTENATIVE or pre-NATIVERETURN?
     // and the native method returned an object?
@@ -142,7 +164,7 @@ public abstract class NativeStackFrame extends StackFrame {
       hd.add(retAttr);
     }
 
-    for (Object a : args){
+    for (Object a : getArguments()){
       hd.add(a);
     }
   }
@@ -157,6 +179,8 @@ public abstract class NativeStackFrame extends StackFrame {
     }
 
     NativeStackFrame o = (NativeStackFrame)object;
+    Object[] args = getArguments();
+    Object[] oArgs = o.getArguments();
 
     if (ret != o.ret){
       return false;
@@ -165,11 +189,11 @@ public abstract class NativeStackFrame extends StackFrame {
       return false;
     }
 
-    if (args.length != o.args.length){
+    if (args.length != oArgs.length){
       return false;
     }
 
-    if (!Misc.compare(args.length, args, o.args)){
+    if (!Misc.compare(args.length, args, oArgs)){
       return false;
     }
 
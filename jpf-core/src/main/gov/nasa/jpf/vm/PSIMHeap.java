@@ -81,10 +81,11 @@ public class PSIMHeap extends GenericSGOIDHeap {
     @Override
     public boolean isTrue (ElementInfo ei) {
       
-      if (ei.isMarked()){ // live object, prepare for next transition & gc cycle
+      if (isMarkedOrOld(ei)){ // live object, prepare for next transition & gc cycle
         ei.setUnmarked();
         ei.setAlive( liveBitValue);          
         ei.cleanUp( PSIMHeap.this, isThreadTermination, tid);
+        ei.processSurvivalActions();
         return false;
         
       } else { // object is no longer reachable  
@@ -895,7 +895,7 @@ public abstract class StackFrame implements Cloneable {
   // -- end attrs --
   
   public void setLocalReferenceVariable (int index, int ref){
-    if (slots[index] != MJIEnv.NULL){
+    if (isRef.get(index) && slots[index] != MJIEnv.NULL && slots[index] != ref){
       VM.getVM().getSystemState().activateGC();
     }
     
@@ -925,7 +925,7 @@ public abstract class StackFrame implements Cloneable {
   // <2do> replace with non-ref version
   public void setLocalVariable (int index, int v, boolean ref) {
     // <2do> activateGc should be replaced by local refChanged
-    boolean activateGc = ref || (isRef.get(index) && (slots[index] != MJIEnv.NULL));
+    boolean activateGc = isRef.get(index) && (slots[index] != MJIEnv.NULL) && (slots[index] != v);
 
     slots[index] = v;
     isRef.set(index,ref);
@@ -1050,6 +1050,9 @@ public abstract class StackFrame implements Cloneable {
   public void setLongLocalVariable (int index, long v) {
     // WATCH OUT: apparently, slots can change type, so we have to
     // reset the reference flag (happened in JavaSeq)
+    if ((isRef.get(index) && slots[index] != MJIEnv.NULL) || (isRef.get(index+1) && slots[index+1] != MJIEnv.NULL)){
+      VM.getVM().getSystemState().activateGC();
+    }
 
     slots[index] = Types.hiLong(v);
     isRef.clear(index);
@@ -1172,6 +1175,15 @@ public abstract class StackFrame implements Cloneable {
 
   // stack operations
   public void clearOperandStack () {
+    // this is the only operand stack op that drops references we haven't seen
+    // being released elsewhere (exception handling within the same frame)
+    for (int i=isRef.nextSetBit(stackBase); i>=0 && i<=top; i=isRef.nextSetBit(i+1)){
+      if (slots[i] != MJIEnv.NULL){
+        VM.getVM().getSystemState().activateGC();
+        break;
+      }
+    }
+    
     if (attrs != null){
       for (int i=stackBase; i<= top; i++){
         attrs[i] = null;
@@ -1876,13 +1888,9 @@ public abstract class StackFrame implements Cloneable {
 
     int t = top - n;
 
-    // <2do> get rid of this !
-    for (int i=top; i>t; i--) {
-      if (isRef.get(i) && (slots[i] != MJIEnv.NULL)) {
-        VM.getVM().getSystemState().activateGC();
-        break;
-      }
-    }
+    // note that we don't activate the gc for popped references - operands are
+    // copies of locals, fields or return values (which are tracked where
+    // they are released), or newly allocated objects (which the heap tracks)
 
     if (attrs != null){  // just to avoid memory leaks
       for (int i=top; i>t; i--){
@@ -1910,13 +1918,6 @@ public abstract class StackFrame implements Cloneable {
     
     int v = slots[top];
 
-    // <2do> get rid of this
-    if (isRef.get(top)) {
-      if (v != MJIEnv.NULL) {
-        VM.getVM().getSystemState().activateGC();
-      }
-    }
-
     if (attrs != null){ // just to avoid memory leaks
       attrs[top] = null;
     }
@@ -1957,6 +1958,11 @@ public abstract class StackFrame implements Cloneable {
   }
 
   public void storeOperand (int index){
+    // the overwritten local might have been the last reference to an object
+    if (isRef.get(index) && slots[index] != MJIEnv.NULL && slots[index] != slots[top]){
+      VM.getVM().getSystemState().activateGC();
+    }
+
     slots[index] = slots[top];
     isRef.set( index, isRef.get(top));
 
@@ -1972,6 +1978,10 @@ public abstract class StackFrame implements Cloneable {
     int t = top-1;
     int i = index;
 
+    if ((isRef.get(i) && slots[i] != MJIEnv.NULL) || (isRef.get(i+1) && slots[i+1] != MJIEnv.NULL)){
+      VM.getVM().getSystemState().activateGC();
+    }
+
     slots[i] = slots[t];
     isRef.clear(i);
 
@@ -2007,10 +2017,6 @@ public abstract class StackFrame implements Cloneable {
     //if (attrs != null){ // done on pop
     //  attrs[top] = null;
     //}
-
-    if (ref != MJIEnv.NULL) {
-      VM.getVM().getSystemState().activateGC();
-    }
   }
 
   public void push (int v, boolean ref) {
@@ -2021,10 +2027,6 @@ public abstract class StackFrame implements Cloneable {
     //if (attrs != null){ // done on pop
     //  attrs[top] = null;
     //}
-
-    if (ref && (v != MJIEnv.NULL)) {
-      VM.getVM().getSystemState().activateGC();
-    }
   }
 
   // return the value of callerSlots variable given the name
@@ -200,7 +200,11 @@ public class SystemState {
   /** uncaught exception in current transition */
   public UncaughtException uncaughtException;
 
-  /** set to true if garbage collection is necessary */
+  /** set to true if garbage collection is necessary. This is only activated by
+   * events that could have created garbage: overwritten non-null references in
+   * fields, array elements and locals, popped frames that held references,
+   * cleared operand stacks, new allocations and thread termination.
+   * Transitions without such events (e.g. pure computation) don't need a gc */
   boolean GCNeeded = false;
 
   // this is an optimization - long transitions can cause a lot of short-living
@@ -274,6 +278,10 @@ public class SystemState {
     recordSteps = cond;
   }
 
+  public boolean isRecordingSteps () {
+    return recordSteps;
+  }
+
   /**
    * use those with extreme care, it overrides scheduling choices
    */
@@ -1801,7 +1801,23 @@ public class ThreadInfo extends InfoObject
     // the transition was explicitly marked as ignored, or we have reached a
     // max insn count and preempt the thread upon the next available backjump
     while (pc != null) {
-      nextPc = executeInstruction();
+      if (canSkipInstructionNotifications(ss) && pc.getMethodInfo() != null){
+        MethodInfo mi = pc.getMethodInfo();
+        if (mi.isLocalInstruction(pc)){
+          pc = executeLocalInstructions(mi, pc);
+          nextPc = this.nextPc;
+        } else {
+          FusedInstruction fi = getFusedInstruction(pc);
+          if (fi != null){
+            nextPc = executeFusedInstruction(fi);
+            pc = fi;
+          } else {
+            nextPc = executeInstruction();
+          }
+        }
+      } else {
+        nextPc = executeInstruction();
+      }
       
       if (ss.breakTransition()) {
         break;
@@ -1886,6 +1902,86 @@ public class ThreadInfo extends InfoObject
     }
   }
 
+  protected FusedInstruction getFusedInstruction (Instruction pc) {
+    MethodInfo mi = pc.getMethodInfo();
+    if (mi != null && mi.hasFusedCode()) {
+      FusedInstruction fi = mi.getFusedInstruction(pc.getInstructionIndex());
+      // pc might not be stored code (e.g. a RUNSTART or a listener replacement)
+      if (fi != null && fi.getFirstPart() == pc) {
+        return fi;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * superinstructions and local instruction sequences can only be used if
+   * nobody could tell the difference, i.e. if there are no per-instruction
+   * listeners, no recorded steps and no pending exceptions
+   */
+  protected boolean canSkipInstructionNotifications (SystemState ss) {
+    return !vm.hasInstructionListeners() && !ss.isRecordingSteps()
+        && (pendingSUTExceptionRequest == null) && !log.isLoggable(Level.FINER);
+  }
+
+  /**
+   * execute a superinstruction, which replaces the executeInstruction() calls
+   * of all its parts. Since fused parts can't throw or break the transition, we
+   * only have to count them and check for probes
+   */
+  protected Instruction executeFusedInstruction (FusedInstruction fi) {
+    nextPc = fi.execute(this);
+
+    executedInstructions += fi.getNumberOfParts();
+
+    vm.getSearch().checkAndResetProbeRequest();
+
+    setPC(nextPc);
+    return nextPc;
+  }
+
+  /**
+   * the fast path for instructions that only operate on the top frame, which
+   * can neither break the transition nor throw. We keep on executing as long
+   * as the next instruction is local, without any of the per-instruction
+   * bookkeeping of executeInstruction(). The only thing we have to check is
+   * if we exceed the maxTransitionLength with a backjump, which is left to
+   * the caller.
+   * Returns the last executed instruction (or superinstruction)
+   */
+  protected Instruction executeLocalInstructions (MethodInfo mi, Instruction pc) {
+    boolean hasFusedCode = mi.hasFusedCode();
+
+    while (true) {
+      Instruction executed = pc;
+
+      if (hasFusedCode) {
+        FusedInstruction fi = mi.getFusedInstruction(pc.getInstructionIndex());
+        if (fi != null && fi.getFirstPart() == pc) {
+          nextPc = fi.execute(this);
+          executedInstructions += fi.getNumberOfParts();
+          executed = fi;
+        } else {
+          nextPc = pc.execute(this);
+          executedInstructions++;
+        }
+      } else {
+        nextPc = pc.execute(this);
+        executedInstructions++;
+      }
+
+      setPC(nextPc);
+
+      if (!mi.isLocalInstruction(nextPc)
+          || (executedInstructions >= maxTransitionLength && executed.isBackJump())) {
+        vm.getSearch().checkAndResetProbeRequest();
+        return executed;
+      }
+
+      pc = nextPc;
+    }
+  }
+
   /**
    * enter instruction hidden from any listeners, and do not
    * record it in the path
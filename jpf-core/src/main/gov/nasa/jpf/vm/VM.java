@@ -23,6 +23,8 @@ import gov.nasa.jpf.JPF;
 import gov.nasa.jpf.JPFConfigException;
 import gov.nasa.jpf.JPFException;
 import gov.nasa.jpf.JPFListenerException;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.PropertyListenerAdapter;
 import gov.nasa.jpf.jvm.bytecode.JVMFieldInstruction;
 import gov.nasa.jpf.jvm.ClassFile;
 import gov.nasa.jpf.vm.FinalizerThreadInfo;
@@ -121,6 +123,12 @@ public abstract class VM {
    creating objects on each notification */
   protected VMListener[] listeners = new VMListener[0];
 
+  /** the subsets of listeners that actually implement the per-instruction
+   notifications, so that we don't have to call empty adapter methods on
+   each executed instruction */
+  protected VMListener[] executeInstructionListeners = new VMListener[0];
+  protected VMListener[] instructionExecutedListeners = new VMListener[0];
+
   /** did we get a new transition */
   protected boolean transitionOccurred;
 
@@ -645,6 +653,34 @@ public abstract class VM {
   public void addListener (VMListener newListener) {
     log.info("VMListener added: ", newListener);
     listeners = Misc.appendElement(listeners, newListener);
+
+    Class<?> cls = newListener.getClass();
+    if (implementsNotification(cls, "executeInstruction", VM.class, ThreadInfo.class, Instruction.class)){
+      executeInstructionListeners = Misc.appendElement(executeInstructionListeners, newListener);
+    }
+    if (implementsNotification(cls, "instructionExecuted", VM.class, ThreadInfo.class, Instruction.class, Instruction.class)){
+      instructionExecutedListeners = Misc.appendElement(instructionExecutedListeners, newListener);
+    }
+  }
+
+  /**
+   * check if a listener class overrides the empty notification method of
+   * our listener adapters
+   */
+  protected static boolean implementsNotification (Class<?> listenerCls, String mthName, Class<?>... argTypes){
+    try {
+      Class<?> declaringCls = listenerCls.getMethod(mthName, argTypes).getDeclaringClass();
+      return (declaringCls != ListenerAdapter.class) && (declaringCls != PropertyListenerAdapter.class);
+    } catch (NoSuchMethodException nsmx){
+      return true; // can't tell, better notify
+    }
+  }
+
+  /**
+   * do we have listeners that want to see each single instruction execution
+   */
+  public boolean hasInstructionListeners () {
+    return (executeInstructionListeners.length > 0) || (instructionExecutedListeners.length > 0);
   }
 
   public boolean hasListenerOfType (Class<?> listenerCls) {
@@ -657,6 +693,8 @@ public abstract class VM {
   
   public void removeListener (VMListener removeListener) {
     listeners = Misc.removeElement(listeners, removeListener);
+    executeInstructionListeners = Misc.removeElement(executeInstructionListeners, removeListener);
+    instructionExecutedListeners = Misc.removeElement(instructionExecutedListeners, removeListener);
   }
 
   public void setTraceReplay (boolean isReplay) {
@@ -773,8 +811,8 @@ public abstract class VM {
 
   protected void notifyExecuteInstruction (ThreadInfo ti, Instruction insn) {
     try {
-      for (int i = 0; i < listeners.length; i++) {
-        listeners[i].executeInstruction(this, ti, insn);
+      for (int i = 0; i < executeInstructionListeners.length; i++) {
+        executeInstructionListeners[i].executeInstruction(this, ti, insn);
       }
     } catch (UncaughtException x) {
       throw x;
@@ -788,8 +826,8 @@ public abstract class VM {
   protected void notifyInstructionExecuted (ThreadInfo ti, Instruction insn, Instruction nextInsn) {
     try {
       //listener.instructionExecuted(this);
-      for (int i = 0; i < listeners.length; i++) {
-        listeners[i].instructionExecuted(this, ti, nextInsn, insn);
+      for (int i = 0; i < instructionExecutedListeners.length; i++) {
+        instructionExecutedListeners[i].instructionExecuted(this, ti, nextInsn, insn);
       }
     } catch (UncaughtException x) {
       throw x;
@@ -1619,6 +1657,7 @@ public abstract class VM {
 
     boolean success = backtracker.backtrack();
     if (success) {
+      ClassInfo.invalidateInitStatus();
       if (CHECK_CONSISTENCY) checkConsistency(false);
       
       // restore the path
@@ -1755,6 +1794,7 @@ public abstract class VM {
       throw new JPFException("tried to restore partial VMState: " + state);
     }
     backtracker.restoreState(state.getBkState());
+    ClassInfo.invalidateInitStatus();
     path = state.path.clone();
   }
 
@@ -30,6 +30,9 @@ import gov.nasa.jpf.vm.ThreadInfo;
  */
 public abstract class StaticFieldInstruction extends FieldInstruction {
 
+  /** ClassInfo.initStatusVersion at which the field class was known to be initialized */
+  protected int initVersion = -1;
+
   protected StaticFieldInstruction(String fieldName, String clsDescriptor, String fieldDescriptor){
     super(fieldName, clsDescriptor, fieldDescriptor);
   }
@@ -54,6 +57,30 @@ public abstract class StaticFieldInstruction extends FieldInstruction {
     fi = f;
   }
 
+  /**
+   * push the clinits of the class that declares our field if it isn't
+   * initialized yet. Once it is, we remember this until the next state
+   * restore, so that steady state execution skips the statics lookup.
+   * Needs a resolved FieldInfo
+   * 
+   * @return true if clinit frames were pushed, i.e. the insn has to be re-executed
+   */
+  protected boolean pushRequiredClinits (ThreadInfo ti){
+    if (initVersion == ClassInfo.getInitStatusVersion()){
+      return false;
+    }
+
+    ClassInfo ciField = fi.getClassInfo();
+    if (!mi.isClinit(ciField) && ciField.pushRequiredClinits(ti)) {
+      return true;
+    }
+
+    if (ciField.isInitialized()){
+      initVersion = ClassInfo.getInitStatusVersion();
+    }
+    return false;
+  }
+
   /**
    * who owns the field?
    * NOTE: this should only be used from a executeInstruction()/instructionExecuted() context
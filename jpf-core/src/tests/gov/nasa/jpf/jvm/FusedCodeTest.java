@@ -0,0 +1,171 @@
+//
+// Copyright (C) 2014 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.jvm;
+
+import gov.nasa.jpf.jvm.bytecode.IINC_GOTO;
+import gov.nasa.jpf.jvm.bytecode.ILOAD_ILOAD_IF_ICMP;
+import gov.nasa.jpf.jvm.bytecode.ILOAD_ILOAD_IOP_ISTORE;
+import gov.nasa.jpf.jvm.bytecode.InstructionFactory;
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.ClassParseException;
+import gov.nasa.jpf.vm.FusedInstruction;
+import gov.nasa.jpf.vm.Instruction;
+import gov.nasa.jpf.vm.MethodInfo;
+
+import java.io.File;
+
+import org.junit.Test;
+
+/**
+ * unit test for the superinstruction and local code passes of InstructionFactory
+ */
+public class FusedCodeTest extends TestJPF {
+
+  static class MyClass {
+    int f;
+
+    static int loop (int a, int n) {
+      int s = 0;
+      for (int i=0; i<n; i++) {
+        s = s + i;
+        s = s ^ a;
+      }
+      return s;
+    }
+
+    static int divide (int a, int b){
+      int c = a / b;
+      return c;
+    }
+
+    int field (int a){
+      int b = a + f;
+      return b;
+    }
+  }
+
+  MethodInfo getMethodInfo (String mthName, String signature) throws ClassParseException {
+    File file = new File("build/tests/gov/nasa/jpf/jvm/FusedCodeTest$MyClass.class");
+    ClassInfo ci = new NonResolvedClassInfo( "gov.nasa.jpf.jvm.FusedCodeTest$MyClass",  file);
+    return ci.getMethod(mthName, signature, false);
+  }
+
+  int countFused (FusedInstruction[] fused, Class<?> cls){
+    int n = 0;
+    if (fused != null){
+      for (FusedInstruction fi : fused){
+        if (fi != null && fi.getClass() == cls){
+          n++;
+        }
+      }
+    }
+    return n;
+  }
+
+  @Test
+  public void testLoop() throws ClassParseException {
+    MethodInfo mi = getMethodInfo("loop", "(II)I");
+    Instruction[] code = mi.getInstructions();
+    FusedInstruction[] fused = new InstructionFactory().createFusedCode(code);
+
+    assertTrue(fused != null);
+    assertEquals(code.length, fused.length);
+
+    assertEquals(2, countFused(fused, ILOAD_ILOAD_IOP_ISTORE.class));
+    assertEquals(1, countFused(fused, ILOAD_ILOAD_IF_ICMP.class));
+    assertEquals(1, countFused(fused, IINC_GOTO.class));
+
+    for (int i=0; i<fused.length; i++){
+      FusedInstruction fi = fused[i];
+      if (fi != null){
+        System.out.println(fi);
+
+        // parts are the original code, which is not replaced
+        Instruction[] parts = fi.getParts();
+        for (int j=0; j<parts.length; j++){
+          assertSame(code[i+j], parts[j]);
+        }
+        assertEquals(i, fi.getInstructionIndex());
+        assertSame(mi, fi.getMethodInfo());
+        assertSame(code[i + parts.length - 1].getNext(), fi.getNext());
+      }
+    }
+
+    // the loop tail is a backjump
+    assertTrue(countFused(fused, IINC_GOTO.class) == 1);
+    for (FusedInstruction fi : fused){
+      if (fi instanceof IINC_GOTO){
+        assertTrue(fi.isBackJump());
+      }
+    }
+  }
+
+  @Test
+  public void testNoFusion() throws ClassParseException {
+    // IDIV can throw
+    MethodInfo mi = getMethodInfo("divide", "(II)I");
+    assertTrue(new InstructionFactory().createFusedCode(mi.getInstructions()) == null);
+
+    // field access can be scheduling relevant
+    mi = getMethodInfo("field", "(I)I");
+    assertTrue(new InstructionFactory().createFusedCode(mi.getInstructions()) == null);
+  }
+
+  @Test
+  public void testSetCodeResetsFused() throws ClassParseException {
+    MethodInfo mi = getMethodInfo("loop", "(II)I");
+    Instruction[] code = mi.getInstructions();
+
+    mi.setFusedCode(new InstructionFactory().createFusedCode(code));
+    assertTrue(mi.hasFusedCode());
+
+    mi.setCode(code);
+    assertFalse(mi.hasFusedCode());
+    assertTrue(mi.getFusedInstruction(0) == null);
+  }
+
+  @Test
+  public void testLocalCodeMap() throws ClassParseException {
+    MethodInfo mi = getMethodInfo("loop", "(II)I");
+    Instruction[] code = mi.getInstructions();
+    boolean[] map = new InstructionFactory().createLocalCodeMap(code);
+
+    assertTrue(map != null);
+    assertEquals(code.length, map.length);
+    mi.setLocalCode(map);
+
+    for (int i=0; i<code.length; i++){
+      System.out.println((map[i] ? "  local " : "        ") + code[i]);
+      // only the IRETURN leaves the frame
+      assertEquals(code[i].getMnemonic().equals("ireturn"), !map[i]);
+      assertEquals(map[i], mi.isLocalInstruction(code[i]));
+    }
+
+    // field access is never local
+    mi = getMethodInfo("field", "(I)I");
+    code = mi.getInstructions();
+    map = new InstructionFactory().createLocalCodeMap(code);
+    for (int i=0; i<code.length; i++){
+      if (code[i].getMnemonic().equals("getfield")){
+        assertFalse(map[i]);
+      }
+    }
+  }
+}
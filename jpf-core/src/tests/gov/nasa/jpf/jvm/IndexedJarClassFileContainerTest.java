@@ -0,0 +1,157 @@
+//
+// Copyright (C) 2014 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.jvm;
+
+import gov.nasa.jpf.jvm.JVMClassFileContainer.JVMClassFileMatch;
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.ClassFileMatch;
+import gov.nasa.jpf.vm.ClassParseException;
+import gov.nasa.jpf.vm.ClassPath;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.jar.JarOutputStream;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+
+import org.junit.Test;
+
+/**
+ * unit test for IndexedJarClassFileContainer and the ClassPath index
+ */
+public class IndexedJarClassFileContainerTest extends TestJPF {
+
+  static byte[] createData (int len, int seed){
+    byte[] data = new byte[len];
+    for (int i=0; i<len; i++){
+      data[i] = (byte)((i * seed) % 7 + i / 100); // compressible, but not trivial
+    }
+    return data;
+  }
+
+  static void addEntry (JarOutputStream jos, String name, byte[] data, boolean stored) throws IOException {
+    ZipEntry e = new ZipEntry(name);
+    if (stored){
+      CRC32 crc = new CRC32();
+      crc.update(data);
+      e.setMethod(ZipEntry.STORED);
+      e.setSize(data.length);
+      e.setCompressedSize(data.length);
+      e.setCrc(crc.getValue());
+    }
+    jos.putNextEntry(e);
+    jos.write(data);
+    jos.closeEntry();
+  }
+
+  static File createJar (String prefix) throws IOException {
+    File file = File.createTempFile("indexed", ".jar");
+    file.deleteOnExit();
+
+    JarOutputStream jos = new JarOutputStream(new FileOutputStream(file));
+    addEntry(jos, prefix + "x/y/Stored.class", createData(1000, 3), true);
+    addEntry(jos, prefix + "x/y/Deflated.class", createData(5000, 5), false);
+    addEntry(jos, prefix + "x/y/Deflated$Inner.class", createData(0, 1), false);
+    addEntry(jos, prefix + "x/y/readme.txt", createData(10, 1), false);
+    jos.close();
+
+    return file;
+  }
+
+  static byte[] getData (ClassFileMatch match){
+    return ((JVMClassFileMatch)match).getData();
+  }
+
+  @Test
+  public void testGetMatch() throws Exception {
+    File jarFile = createJar("");
+    IndexedJarClassFileContainer indexed = new IndexedJarClassFileContainer(jarFile);
+    JarClassFileContainer plain = new JarClassFileContainer(jarFile);
+
+    assertTrue(indexed.isIndexed());
+    assertEquals(3, indexed.getIndexedClassNames().size());
+
+    for (String clsName : new String[] { "x.y.Stored", "x.y.Deflated", "x.y.Deflated$Inner" }){
+      assertTrue(indexed.containsClass(clsName));
+      ClassFileMatch m = indexed.getMatch(clsName);
+      assertTrue(m != null);
+      assertTrue(Arrays.equals(getData(plain.getMatch(clsName)), getData(m)));
+      assertEquals(plain.getClassURL(clsName), m.getClassURL());
+    }
+
+    assertFalse(indexed.containsClass("x.y.readme"));
+    assertTrue(indexed.getMatch("x.y.Unknown") == null);
+  }
+
+  @Test
+  public void testPathPrefix() throws Exception {
+    File jarFile = createJar("classes/");
+    IndexedJarClassFileContainer indexed = new IndexedJarClassFileContainer(jarFile, "/classes");
+
+    assertTrue(indexed.containsClass("x.y.Stored"));
+    assertFalse(indexed.containsClass("classes.x.y.Stored"));
+    assertTrue(Arrays.equals(createData(1000, 3), getData(indexed.getMatch("x.y.Stored"))));
+  }
+
+  @Test
+  public void testClassPathOrder() throws Exception {
+    File jar1 = createJar("");
+    File jar2 = createJar("");
+
+    // make the first jar's version of the class distinguishable
+    File dir = new File(System.getProperty("java.io.tmpdir"), "indexed-cp-" + System.nanoTime());
+    File clsDir = new File(dir, "x/y");
+    clsDir.mkdirs();
+    byte[] dirData = createData(42, 11);
+    FileOutputStream fos = new FileOutputStream(new File(clsDir, "Stored.class"));
+    fos.write(dirData);
+    fos.close();
+
+    try {
+      IndexedJarClassFileContainer c1 = new IndexedJarClassFileContainer(jar1);
+      IndexedJarClassFileContainer c2 = new IndexedJarClassFileContainer(jar2);
+
+      ClassPath cp = new ClassPath();
+      cp.addClassFileContainer(c1);
+      cp.addClassFileContainer(new DirClassFileContainer(dir));
+      cp.addClassFileContainer(c2);
+
+      // the jar precedes the directory
+      assertSame(c1, cp.findMatch("x.y.Stored").getContainer());
+
+      cp = new ClassPath();
+      cp.addClassFileContainer(new DirClassFileContainer(dir));
+      cp.addClassFileContainer(c1);
+      cp.addClassFileContainer(c2);
+
+      // now the directory shadows the jar
+      assertTrue(Arrays.equals(dirData, getData(cp.findMatch("x.y.Stored"))));
+      assertSame(c1, cp.findMatch("x.y.Deflated").getContainer());
+      assertTrue(cp.findMatch("x.y.Unknown") == null);
+
+    } finally {
+      new File(clsDir, "Stored.class").delete();
+      clsDir.delete();
+      new File(dir, "x").delete();
+      dir.delete();
+    }
+  }
+}
@@ -23,6 +23,7 @@ import gov.nasa.jpf.jvm.bytecode.InstructionFactory;
 import gov.nasa.jpf.util.test.TestJPF;
 import gov.nasa.jpf.vm.ClassInfo;
 import gov.nasa.jpf.vm.ClassParseException;
+import gov.nasa.jpf.vm.ExceptionHandler;
 import gov.nasa.jpf.vm.Instruction;
 import gov.nasa.jpf.vm.LocalVarInfo;
 import gov.nasa.jpf.vm.MethodInfo;
@@ -52,6 +53,14 @@ public class MethodInfoTest extends TestJPF {
       }
       return intArg;
     }
+
+    int instanceTryCatch (int[] a, int i) {
+      try {
+        return a[i];
+      } catch (ArrayIndexOutOfBoundsException x) {
+        return -1;
+      }
+    }
   }
   
   @Test
@@ -153,4 +162,68 @@ public class MethodInfoTest extends TestJPF {
       fail(cfx.toString());
     }
   }
+
+  @Test
+  public void testLazyCode () {
+    File file = new File("build/tests/gov/nasa/jpf/jvm/MethodInfoTest$MyClass.class");
+    String clsName = "gov.nasa.jpf.jvm.MethodInfoTest$MyClass";
+
+    try {
+      ClassInfo ciEager = new NonResolvedClassInfo( clsName, file);
+
+      JVMCodeBuilder cb = new JVMCodeBuilder(new InstructionFactory());
+      cb.setLazyCode(true);
+      ClassInfo ciLazy = new NonResolvedClassInfo( clsName, file, cb);
+
+      for (MethodInfo mi : ciEager.getDeclaredMethodInfos()){
+        MethodInfo lmi = ciLazy.getMethod(mi.getUniqueName(), false);
+        System.out.println("-- checking: " + lmi);
+
+        assertTrue(lmi.hasCode());
+        assertFalse(lmi.isCodeLoaded());
+        assertEquals(mi.getMaxLocals(), lmi.getMaxLocals());
+        assertEquals(mi.getMaxStack(), lmi.getMaxStack());
+        assertFalse(lmi.isCodeLoaded());
+
+        Instruction[] code = mi.getInstructions();
+        Instruction[] lazyCode = lmi.getInstructions();
+        assertTrue(lmi.isCodeLoaded());
+        assertEquals(code.length, lazyCode.length);
+
+        for (int i=0; i<code.length; i++){
+          assertSame(code[i].getClass(), lazyCode[i].getClass());
+          assertEquals(code[i].getPosition(), lazyCode[i].getPosition());
+          assertEquals(code[i].getLineNumber(), lazyCode[i].getLineNumber());
+          assertSame(lmi, lazyCode[i].getMethodInfo());
+        }
+
+        LocalVarInfo[] localVars = mi.getLocalVars();
+        LocalVarInfo[] lazyLocalVars = lmi.getLocalVars();
+        if (localVars == null){
+          assertNull(lazyLocalVars);
+        } else {
+          assertEquals(localVars.length, lazyLocalVars.length);
+        }
+
+        ExceptionHandler[] handlers = mi.getExceptions();
+        ExceptionHandler[] lazyHandlers = lmi.getExceptions();
+        if (handlers == null){
+          assertNull(lazyHandlers);
+        } else {
+          assertEquals(handlers.length, lazyHandlers.length);
+          for (int i=0; i<handlers.length; i++){
+            assertEquals(handlers[i].getName(), lazyHandlers[i].getName());
+            assertEquals(handlers[i].getHandler(), lazyHandlers[i].getHandler());
+          }
+        }
+      }
+
+      MethodInfo mi = ciLazy.getMethod("instanceTryCatch", "([II)I", false);
+      assertTrue( mi.getExceptions().length == 1);
+
+    } catch (ClassParseException cfx) {
+      cfx.printStackTrace();
+      fail(cfx.toString());
+    }
+  }
 }
@@ -33,6 +33,10 @@ class NonResolvedClassInfo extends JVMClassInfo {
     super( clsName, null, new ClassFile(file), file.getAbsolutePath(), new JVMCodeBuilder(new InstructionFactory()));
   }
 
+  NonResolvedClassInfo (String clsName, File file, JVMCodeBuilder cb) throws ClassParseException {
+    super( clsName, null, new ClassFile(file), file.getAbsolutePath(), cb);
+  }
+
   //--- these are overridden so that we can create instances without the whole JPF ClassInfo environment
   
   @Override
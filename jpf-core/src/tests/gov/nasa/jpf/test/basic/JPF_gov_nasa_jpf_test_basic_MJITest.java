@@ -120,6 +120,17 @@ public class JPF_gov_nasa_jpf_test_basic_MJITest extends NativePeer {
     return 0;
   }
 
+  @MJI
+  public float nativeSlotArgsMethod (MJIEnv env, int robj, boolean b, char c, float f, int stringRef) {
+    String s = env.getStringObject(stringRef);
+
+    if (b && (c == 'x') && "Blah".equals(s)) {
+      return f + 41.0f;
+    }
+
+    return 0.0f;
+  }
+
   @MJI
   public long nativeStaticMethod__JLjava_lang_String_2__J (MJIEnv env, int rcls, long l,
                                                                   int stringRef) {
@@ -148,6 +148,18 @@ public class MJITest extends TestJPF {
     }
   }
 
+  @Test
+  public void testNativeSlotArgsMethod () {
+    if (verifyNoPropertyViolation()){
+      // the first call binds the native method, the second one uses unboxed slot args
+      for (int i=0; i<2; i++){
+        float res = nativeSlotArgsMethod(true, 'x', 1.5f, "Blah");
+
+        assert (res == 42.5f) : "native slot args method failed: " + res;
+      }
+    }
+  }
+
   @Test
   public void testNativeStaticMethod () {
     if (verifyNoPropertyViolation()){
@@ -231,6 +243,8 @@ public class MJITest extends TestJPF {
   native int nativeInstanceMethod (double d, char c, boolean b, int i);
 
   native long nativeStaticMethod (long l, String s);
+
+  native float nativeSlotArgsMethod (boolean b, char c, float f, String s);
   
   public static void main(String testMethods[]) throws Throwable {
     runTestsOfThisClass(testMethods);
@@ -0,0 +1,97 @@
+//
+// Copyright (C) 2014 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.test.mc.basic;
+
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.listener.AllocationProfiler;
+import gov.nasa.jpf.util.test.TestJPF;
+
+import org.junit.Test;
+
+/**
+ * regression test for the AllocationProfiler listener
+ */
+public class AllocationProfilerTest extends TestJPF {
+
+  static class Item {
+    int value;
+  }
+
+  static Item[] keep = new Item[5];
+
+  static void allocate () {
+    keep[0] = new Item(); // this also allocates the Item class object
+
+    for (int i=0; i<10; i++){
+      Item it = new Item(); // 10 allocations, 5 stay reachable
+      if (i % 2 == 0){
+        keep[i / 2] = it;
+      }
+    }
+    for (int i=0; i<3; i++){
+      int[] a = new int[4];
+      a[0] = i;
+    }
+  }
+
+  @Test
+  public void testSutAllocations() {
+    if (isJPFRun()) {
+      allocate();
+      System.gc();
+
+    } else {
+      JPF jpf = noPropertyViolation("+listener=.listener.AllocationProfiler");
+      AllocationProfiler ap = jpf.getListenerOfType(AllocationProfiler.class);
+      assertTrue(ap != null);
+
+      // the 'new Item' site in the loop, and the 'new int[4]' site
+      String prefix = AllocationProfilerTest.class.getName() + ".allocate";
+      int itemSite = -1, arraySite = -1;
+      for (int i=0; i<ap.getNumberOfSites(); i++){
+        if (ap.getSiteName(i).startsWith(prefix)){
+          if (ap.getNumberOfAllocations(i) == 10){
+            itemSite = i;
+          } else if (ap.getNumberOfAllocations(i) == 3){
+            arraySite = i;
+          }
+        }
+      }
+
+      assertTrue(itemSite >= 0);
+      assertTrue(arraySite >= 0);
+      assertEquals(5, ap.getMaxLive(itemSite));
+      assertEquals(0, ap.getMaxLive(arraySite));
+    }
+  }
+
+  @Test
+  public void testExcludedAllocations() {
+    if (isJPFRun()) {
+      allocate();
+
+    } else {
+      // no SUT code, hence startup allocations are not counted either
+      JPF jpf = noPropertyViolation("+listener=.listener.AllocationProfiler",
+                                    "+alloc.exclude=java.*,sun.*,gov.nasa.jpf.*");
+      AllocationProfiler ap = jpf.getListenerOfType(AllocationProfiler.class);
+      assertEquals(0, ap.getNumberOfSites());
+    }
+  }
+}
@@ -0,0 +1,116 @@
+//
+// Copyright (C) 2012 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.test.vm.basic;
+
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
+
+import java.lang.ref.WeakReference;
+
+import org.junit.Test;
+
+/**
+ * regression test for the generational mode of GenericHeap, which has to
+ * produce the same results as a full mark&sweep
+ */
+public class GenerationalGCTest extends TestJPF {
+
+  static final String GENERATIONAL = "+vm.gc.generational=true";
+
+  static class Node {
+    Node next;
+  }
+
+  static Node root;
+  static Node[] slots;
+  static WeakReference<Node> staticRef;
+
+  private static void forceGC() {
+    System.gc();
+    Verify.breakTransition("forceGC");
+  }
+
+  @Test
+  public void testYoungGarbage() {
+    if (verifyNoPropertyViolation(GENERATIONAL)) {
+      root = new Node();
+      forceGC(); // full gc, root goes into the oldSpace
+
+      WeakReference<Node> ref = new WeakReference<Node>(new Node());
+      forceGC(); // minor gc
+
+      assertNull(ref.get());
+      assertNotNull(root);
+    }
+  }
+
+  @Test
+  public void testStoreIntoOldSpace() {
+    if (verifyNoPropertyViolation(GENERATIONAL)) {
+      root = new Node();
+      slots = new Node[2];
+      forceGC();
+
+      Node n = new Node();
+      WeakReference<Node> ref = new WeakReference<Node>(n);
+      root.next = n;
+      slots[1] = new Node();
+      n = null;
+
+      forceGC(); // remembered stores have to keep the young objects alive
+
+      assertSame(root.next, ref.get());
+      assertNotNull(slots[1]);
+    }
+  }
+
+  @Test
+  public void testOverwriteInOldSpace() {
+    if (verifyNoPropertyViolation(GENERATIONAL)) {
+      root = new Node();
+      root.next = new Node();
+      WeakReference<Node> ref = new WeakReference<Node>(root.next);
+      forceGC();
+
+      root.next = null; // old object becomes garbage
+      forceGC();
+
+      assertNull(ref.get());
+    }
+  }
+
+  @Test
+  public void testOldWeakReference() {
+    if (verifyNoPropertyViolation(GENERATIONAL)) {
+      staticRef = new WeakReference<Node>(new Node());
+      forceGC(); // the weak reference is old, its referent is garbage
+
+      assertNull(staticRef.get());
+
+      Node n = new Node();
+      staticRef = new WeakReference<Node>(n);
+      forceGC();
+      assertSame(n, staticRef.get());
+
+      n = null;
+      forceGC(); // minor gc has to clean up weak references in the oldSpace
+      assertNull(staticRef.get());
+    }
+  }
+}
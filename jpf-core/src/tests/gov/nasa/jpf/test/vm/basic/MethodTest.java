@@ -19,6 +19,7 @@
 package gov.nasa.jpf.test.vm.basic;
 
 import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.ClassInfo;
 
 import org.junit.Test;
 
@@ -252,4 +253,66 @@ public class MethodTest extends TestMethodBase {
       assert a.foo() == 1 : "wrong A.foo() called for A1";
     }
   }
+
+  static class A2 extends A1 {
+    public int foo () {
+      return 2;
+    }
+  }
+
+  static class A3 extends A2 {
+    // inherits A2.foo()
+  }
+
+  static class A4 extends A {
+    public int foo () {
+      return 4;
+    }
+  }
+
+  /**
+   * call sites with more receiver types than our inline caches can hold
+   */
+  @Test public void testMegamorphicCall () {
+    if (verifyNoPropertyViolation()){
+      A[] as = { new A0(), new A1(), new A2(), new A3(), new A4() };
+      int[] expected = { 0, 1, 2, 2, 4 };
+
+      for (int j=0; j<3; j++){
+        for (int i=0; i<as.length; i++){
+          assert as[i].foo() == expected[i] : "wrong A.foo() called for " + as[i];
+        }
+      }
+    }
+  }
+
+  static class L0 { int get() { return 0; } }
+  static class L1 extends L0 { int get() { return 1; } }
+  static class L2 extends L0 { int get() { return 2; } }
+  static class L3 extends L1 { }
+  static class L4 extends L2 { }
+
+  /**
+   * loading classes must not invalidate the vtables and inline caches of the
+   * classes we already use
+   */
+  @Test public void testClassLoadKeepsCaches () {
+    if (isJPFRun()){
+      L0 l = new L0();
+      int s = l.get();
+      L0[] ls = { new L1(), new L2(), new L3(), new L4() };
+      for (L0 x : ls){
+        s += x.get();
+      }
+      StringBuilder sb = new StringBuilder(); // more system classes
+      sb.append(s);
+      assert sb.toString().equals("6");
+
+    } else {
+      int v0 = ClassInfo.getMethodTableVersion();
+      noPropertyViolation();
+      int v1 = ClassInfo.getMethodTableVersion();
+      assertTrue((v1 - v0) < 10);
+    }
+  }
 }
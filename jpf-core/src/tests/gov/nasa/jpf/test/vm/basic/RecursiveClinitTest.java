@@ -20,6 +20,7 @@
 package gov.nasa.jpf.test.vm.basic;
 
 import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.Verify;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import org.junit.Test;
@@ -114,5 +115,35 @@ public class RecursiveClinitTest extends TestJPF {
     }    
   }
   
+  static class Backtracked {
+    static int d;
+    static {
+      d = 42;
+    }
+  }
+
+  static class BacktrackedNew {
+    static int d;
+    static {
+      d = 42;
+    }
+  }
+
+  @Test
+  public void testClinitAfterBacktrack (){
+    if (verifyNoPropertyViolation()) {
+      // the class init status is restored when we backtrack, i.e. the same
+      // GETSTATIC and NEW insns have to execute the clinits again
+      boolean b = Verify.getBoolean();
+      System.out.println("choice: " + b);
+
+      int d = Backtracked.d;
+      assertTrue(d == 42);
+
+      BacktrackedNew o = new BacktrackedNew();
+      assertTrue(o != null && BacktrackedNew.d == 42);
+    }
+  }
+
   // <2do> we also need the SerializatinConstructor
 }
@@ -0,0 +1,239 @@
+//
+// Copyright (C) 2014 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.test.vm.basic;
+
+import gov.nasa.jpf.Config;
+import gov.nasa.jpf.JPF;
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.util.test.TestJPF;
+import gov.nasa.jpf.vm.ClassInfo;
+import gov.nasa.jpf.vm.FusedInstruction;
+import gov.nasa.jpf.vm.MethodInfo;
+import gov.nasa.jpf.vm.VM;
+import gov.nasa.jpf.vm.Verify;
+
+import org.junit.Test;
+
+/**
+ * regression test for superinstructions, which have to produce the same
+ * results as the single instructions they replace
+ *
+ * 'main' with a "-bench" argument compares the execution time of loop
+ * intensive code with and without superinstructions and the local fast path
+ */
+public class SuperInstructionTest extends TestJPF {
+
+  static final String FUSE = "+jvm.superinstructions=true";
+  static final String LOCAL = "+jvm.local_fastpath=true";
+
+  static int arith (int a, int b) {
+    int c = a + b;
+    int d = c - a;
+    int e = d * b;
+    int f = e << a;
+    int g = f >> b;
+    int h = g >>> a;
+    int i = h & c;
+    int j = i | d;
+    int k = j ^ e;
+    return k;
+  }
+
+  static int sumLoop (int n) {
+    int s = 0;
+    for (int i=0; i<n; i++) {
+      s = s + i;
+    }
+    return s;
+  }
+
+  @Test
+  public void testArithmetic() {
+    if (verifyNoPropertyViolation(FUSE)) {
+      assertEquals(28, arith(3, 5));
+      assertEquals(7, arith(-7, 2));
+    }
+  }
+
+  @Test
+  public void testLoop() {
+    if (verifyNoPropertyViolation(FUSE)) {
+      assertEquals(4950, sumLoop(100));
+      assertEquals(0, sumLoop(0));
+    }
+  }
+
+  @Test
+  public void testLoopWithChoices() {
+    if (verifyNoPropertyViolation(FUSE)) {
+      int n = Verify.getInt(0, 3);
+      int s = 0;
+      for (int i=0; i<n; i++){
+        s = s + i;
+      }
+      assertEquals(n*(n-1)/2, s);
+    }
+  }
+
+  @Test
+  public void testLocalFastPath() {
+    if (verifyNoPropertyViolation(LOCAL)) {
+      assertEquals(28, arith(3, 5));
+      assertEquals(4950, sumLoop(100));
+
+      long l = 1;
+      double d = 1.0;
+      for (int i=0; i<10; i++){
+        l = l * 3 + (l >> 1);
+        d = d / 2 + i;
+      }
+      assertEquals(224185L, l);
+      assertEquals(16.0048828125, d, 0.0);
+    }
+  }
+
+  @Test
+  public void testLocalFastPathWithThreads() throws InterruptedException {
+    if (verifyNoPropertyViolation(LOCAL, FUSE, "+vm.max_transition_length=50")) {
+      Thread t = new Thread(){
+        @Override
+        public void run(){
+          sumLoop(100);
+        }
+      };
+      t.start();
+      assertEquals(4950, sumLoop(100));
+      t.join();
+    }
+  }
+
+  /**
+   * gets the main method of Loops, and adds attributes to it and its first
+   * instruction, which must not show up in the next run
+   */
+  static class MainCollector extends ListenerAdapter {
+    MethodInfo mainMethod;
+    boolean hadAttrs;
+
+    @Override
+    public void classLoaded (VM vm, ClassInfo ci){
+      if (ci.getName().equals(Loops.class.getName())){
+        mainMethod = ci.getMethod("main([Ljava/lang/String;)V", false);
+
+        hadAttrs = mainMethod.hasAttr() || mainMethod.getInstruction(0).hasAttr();
+        mainMethod.addAttr(this);
+        mainMethod.getInstruction(0).addAttr(this);
+      }
+    }
+  }
+
+  static MainCollector runKeptLoops (){
+    String[] args = { "+vm.keep_loaded_classes=true", FUSE, LOCAL,
+                      "+report.console.finished=", Loops.class.getName() };
+    Config conf = new Config(args);
+    String testCp = conf.getString("jpf-core.test_classpath");
+    if (testCp != null){
+      conf.append("classpath", testCp, ",");
+    }
+
+    JPF jpf = new JPF(conf);
+    MainCollector collector = new MainCollector();
+    jpf.addListener(collector);
+    jpf.run();
+
+    return collector;
+  }
+
+  @Test
+  public void testKeptClasses() {
+    if (!isJPFRun()) {
+      MainCollector run1 = runKeptLoops();
+      MainCollector run2 = runKeptLoops(); // this one uses a clone of the kept ClassInfo
+      MethodInfo mi1 = run1.mainMethod;
+      MethodInfo mi2 = run2.mainMethod;
+
+      assertTrue(mi1 != null && mi2 != null);
+      assertTrue(mi1 != mi2);
+      assertTrue(mi2.getClassInfo().getClassLoaderInfo() != mi1.getClassInfo().getClassLoaderInfo());
+      assertFalse(run2.hadAttrs);
+      assertTrue(mi2.hasFusedCode());
+      assertTrue(mi2.hasLocalCode());
+
+      // the fused parts have to be the instructions of the clone
+      int nFused = 0;
+      for (int i=0; i<mi2.getNumberOfInstructions(); i++){
+        FusedInstruction fi = mi2.getFusedInstruction(i);
+        if (fi != null){
+          assertTrue(fi.getMethodInfo() == mi2);
+          assertTrue(fi.getFirstPart() == mi2.getInstruction(i));
+          assertTrue(mi2.isLocalInstruction(mi2.getInstruction(i)));
+          nFused++;
+        }
+      }
+      assertTrue(nFused > 0);
+    }
+  }
+
+  //--- the benchmark
+
+  public static class Loops {
+    public static void main (String[] args){
+      int s = 0;
+      for (int j=0; j<200; j++){
+        for (int i=0; i<10000; i++){
+          s = s + i;
+          s = s ^ j;
+        }
+      }
+      System.out.println("s=" + s);
+    }
+  }
+
+  static long runLoops (boolean fuse){
+    String[] args = { "+jvm.superinstructions=" + fuse, "+jvm.local_fastpath=" + fuse,
+                      "+report.console.finished=", Loops.class.getName() };
+    JPF jpf = new JPF( new Config(args));
+
+    long t1 = System.currentTimeMillis();
+    jpf.run();
+    return System.currentTimeMillis() - t1;
+  }
+
+  static void benchmark (int rounds){
+    runLoops(false); // warm up the host VM
+    runLoops(true);
+
+    long tSingle = 0, tFused = 0;
+    for (int i=0; i<rounds; i++){
+      tSingle += runLoops(false);
+      tFused += runLoops(true);
+    }
+
+    System.out.println("single instructions:        " + (tSingle / rounds) + " msec");
+    System.out.println("superinstructions+fastpath: " + (tFused / rounds) + " msec");
+  }
+
+  public static void main (String[] args){
+    if (args.length > 0 && args[0].equals("-bench")){
+      benchmark(5);
+    } else {
+      runTestsOfThisClass(args);
+    }
+  }
+}
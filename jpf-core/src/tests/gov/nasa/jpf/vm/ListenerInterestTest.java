@@ -0,0 +1,66 @@
+//
+// Copyright (C) 2014 United States Government as represented by the
+// Administrator of the National Aeronautics and Space Administration
+// (NASA).  All Rights Reserved.
+//
+// This software is distributed under the NASA Open Source Agreement
+// (NOSA), version 1.3.  The NOSA has been approved by the Open Source
+// Initiative.  See the file NOSA-1.3-JPF at the top of the distribution
+// directory tree for the complete NOSA document.
+//
+// THE SUBJECT SOFTWARE IS PROVIDED "AS IS" WITHOUT ANY WARRANTY OF ANY
+// KIND, EITHER EXPRESSED, IMPLIED, OR STATUTORY, INCLUDING, BUT NOT
+// LIMITED TO, ANY WARRANTY THAT THE SUBJECT SOFTWARE WILL CONFORM TO
+// SPECIFICATIONS, ANY IMPLIED WARRANTIES OF MERCHANTABILITY, FITNESS FOR
+// A PARTICULAR PURPOSE, OR FREEDOM FROM INFRINGEMENT, ANY WARRANTY THAT
+// THE SUBJECT SOFTWARE WILL BE ERROR FREE, OR ANY WARRANTY THAT
+// DOCUMENTATION, IF PROVIDED, WILL CONFORM TO THE SUBJECT SOFTWARE.
+//
+package gov.nasa.jpf.vm;
+
+import gov.nasa.jpf.ListenerAdapter;
+import gov.nasa.jpf.util.test.TestJPF;
+
+import org.junit.Test;
+
+/**
+ * unit test for the detection of listeners that implement per-instruction
+ * notifications
+ */
+public class ListenerInterestTest extends TestJPF {
+
+  static class NoInsnListener extends ListenerAdapter {
+    @Override
+    public void objectCreated (VM vm, ThreadInfo ti, ElementInfo ei) {}
+  }
+
+  static class ExecListener extends ListenerAdapter {
+    @Override
+    public void executeInstruction (VM vm, ThreadInfo ti, Instruction insnToExecute) {}
+  }
+
+  static class DerivedListener extends ExecListener {
+    @Override
+    public void instructionExecuted (VM vm, ThreadInfo ti, Instruction nextInsn, Instruction executedInsn) {}
+  }
+
+  static boolean implementsExecute (Class<?> cls){
+    return VM.implementsNotification(cls, "executeInstruction", VM.class, ThreadInfo.class, Instruction.class);
+  }
+
+  static boolean implementsExecuted (Class<?> cls){
+    return VM.implementsNotification(cls, "instructionExecuted", VM.class, ThreadInfo.class, Instruction.class, Instruction.class);
+  }
+
+  @Test
+  public void testImplementsNotification() {
+    assertFalse(implementsExecute(NoInsnListener.class));
+    assertFalse(implementsExecuted(NoInsnListener.class));
+
+    assertTrue(implementsExecute(ExecListener.class));
+    assertFalse(implementsExecuted(ExecListener.class));
+
+    assertTrue(implementsExecute(DerivedListener.class));
+    assertTrue(implementsExecuted(DerivedListener.class));
+  }
+}